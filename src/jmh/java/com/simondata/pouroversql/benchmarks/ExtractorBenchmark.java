@@ -0,0 +1,96 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.benchmarks;
+
+import com.simondata.pouroversql.SQLExtractor;
+import com.simondata.pouroversql.clients.QueryParams;
+import com.simondata.pouroversql.clients.SQLParams;
+import com.simondata.pouroversql.clients.SqlEngine;
+import com.simondata.pouroversql.synthetic.SyntheticDataSource;
+import com.simondata.pouroversql.writers.FileOutputFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExtractorBenchmark
+ * Rows per second from query to file through SQLExtractor, against the synthetic engine.
+ * The batch latency stands in for the round trip of each fetch, so fetch size and pipelining
+ * show the effect they would have against a real database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExtractorBenchmark {
+
+    static final int ROWS = 1_000_000;
+
+    @Param({"NARROW_INTS", "DECIMALS_TIMESTAMPS"})
+    public String shape;
+
+    @Param({"CSV", "JSON"})
+    public FileOutputFormat format;
+
+    @Param({"1000", "10000"})
+    public int fetchSize;
+
+    @Param({"0", "2"})
+    public int batchLatencyMs;
+
+    @Param({"false", "true"})
+    public boolean pipelined;
+
+    private SQLExtractor extractor;
+
+    private QueryParams queryParams;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(SyntheticDataSource.ROWS, String.valueOf(ROWS));
+        properties.setProperty(SyntheticDataSource.BATCH_LATENCY_MS, String.valueOf(this.batchLatencyMs));
+        SQLParams sqlParams = new SQLParams(null, null, null, null, this.shape, properties);
+        this.extractor = new SQLExtractor(SqlEngine.SYNTHETIC, sqlParams);
+        this.queryParams = new QueryParams(this.fetchSize, null, null);
+        this.queryParams.setPipelined(this.pipelined);
+        this.file = File.createTempFile("pourover-benchmark", "." + this.format.name().toLowerCase());
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.file.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long queryToFile() {
+        return this.extractor.queryToFile("SELECT * FROM synthetic", this.file, this.format, this.queryParams)
+                .length();
+    }
+}
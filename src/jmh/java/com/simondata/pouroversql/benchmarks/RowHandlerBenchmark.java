@@ -0,0 +1,75 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.benchmarks;
+
+import com.simondata.pouroversql.clients.FormattingParams;
+import com.simondata.pouroversql.synthetic.ResultShape;
+import com.simondata.pouroversql.synthetic.SyntheticResultSet;
+import com.simondata.pouroversql.writers.CallbackRowWriter;
+import com.simondata.pouroversql.writers.KeyCaseFormat;
+import com.simondata.pouroversql.writers.RowHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RowHandlerBenchmark
+ * Rows per second through the RowHandler Map path, as used by queryWithCallback and queryAsList,
+ * for each result shape and key case. Each operation is a row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RowHandlerBenchmark {
+
+    static final int ROWS = 10_000;
+
+    @Param({"NARROW_INTS", "WIDE_STRINGS", "DECIMALS_TIMESTAMPS", "HEAVY_NULLS"})
+    public ResultShape shape;
+
+    @Param({"DEFAULT", "SNAKE_CASE", "CAMEL_CASE"})
+    public KeyCaseFormat keyCase;
+
+    private SyntheticResultSet resultSet;
+
+    private FormattingParams formattingParams;
+
+    @Setup
+    public void setUp() {
+        this.resultSet = this.shape.build(ROWS, 42L);
+        this.formattingParams = new FormattingParams(this.keyCase);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int mapRows(Blackhole blackhole) throws SQLException {
+        this.resultSet.rewind();
+        CallbackRowWriter writer = new CallbackRowWriter(row -> {
+            blackhole.consume(row);
+            return null;
+        });
+        return new RowHandler(writer, -1, this.formattingParams).handle(this.resultSet);
+    }
+}
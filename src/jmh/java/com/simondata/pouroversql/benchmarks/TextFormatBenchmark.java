@@ -0,0 +1,64 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.benchmarks;
+
+import com.simondata.pouroversql.util.TextFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TextFormatBenchmark
+ * Labels per second through the key case conversions. Each operation is a label.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TextFormatBenchmark {
+
+    private final String[] labels = {
+            "id",
+            "accountId",
+            "item_count",
+            "StatusCode",
+            "created_at",
+            "Customer Lifetime Value",
+            "lastPurchaseDateUtc",
+            "optional_name_3"
+    };
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void toSnakeCase(Blackhole blackhole) {
+        for (String label : this.labels) {
+            blackhole.consume(TextFormat.toSnakeCase(label));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void toCamelCase(Blackhole blackhole) {
+        for (String label : this.labels) {
+            blackhole.consume(TextFormat.toCamelCase(label));
+        }
+    }
+}
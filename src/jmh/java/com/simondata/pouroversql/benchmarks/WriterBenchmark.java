@@ -0,0 +1,126 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.benchmarks;
+
+import com.simondata.pouroversql.clients.FormattingParams;
+import com.simondata.pouroversql.synthetic.ResultShape;
+import com.simondata.pouroversql.synthetic.SyntheticResultSet;
+import com.simondata.pouroversql.writers.ArrowRowWriter;
+import com.simondata.pouroversql.writers.AvroRowWriter;
+import com.simondata.pouroversql.writers.CSVRowWriter;
+import com.simondata.pouroversql.writers.FileOutputFormat;
+import com.simondata.pouroversql.writers.FileRowWriter;
+import com.simondata.pouroversql.writers.JsonLRowWriter;
+import com.simondata.pouroversql.writers.KeyCaseFormat;
+import com.simondata.pouroversql.writers.ParquetRowWriter;
+import com.simondata.pouroversql.writers.RowHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WriterBenchmark
+ * Rows per second through a RowHandler into each file writer, for each result shape and key case.
+ * Each operation is a row, so with the GC profiler gc.alloc.rate.norm is the bytes allocated per row.
+ * Output goes to a stream that only counts it, so disk speed doesn't enter into it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WriterBenchmark {
+
+    static final int ROWS = 10_000;
+
+    @Param({"NARROW_INTS", "WIDE_STRINGS", "DECIMALS_TIMESTAMPS", "HEAVY_NULLS"})
+    public ResultShape shape;
+
+    @Param({"CSV", "JSON", "PARQUET", "ARROW", "AVRO"})
+    public FileOutputFormat format;
+
+    @Param({"DEFAULT", "SNAKE_CASE", "CAMEL_CASE"})
+    public KeyCaseFormat keyCase;
+
+    private SyntheticResultSet resultSet;
+
+    private FileRowWriter writer;
+
+    private FormattingParams formattingParams;
+
+    private final CountingSink sink = new CountingSink();
+
+    /**
+     * Discards output, counting it so it can't be optimized away.
+     */
+    static final class CountingSink extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            this.count += length;
+        }
+    }
+
+    static FileRowWriter newWriter(FileOutputFormat format) {
+        switch (format) {
+            case CSV:
+                return new CSVRowWriter();
+            case JSON:
+                return new JsonLRowWriter();
+            case PARQUET:
+                return new ParquetRowWriter();
+            case ARROW:
+                return new ArrowRowWriter();
+            case AVRO:
+                return new AvroRowWriter();
+            default:
+                throw new IllegalArgumentException("Unsupported benchmark format " + format);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        this.resultSet = this.shape.build(ROWS, 42L);
+        this.writer = newWriter(this.format);
+        this.formattingParams = new FormattingParams(this.keyCase);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long writeRows() throws SQLException {
+        this.resultSet.rewind();
+        this.writer.open(this.sink);
+        try {
+            new RowHandler(this.writer, -1, this.formattingParams).handle(this.resultSet);
+        } finally {
+            this.writer.close();
+        }
+        return this.sink.count;
+    }
+}
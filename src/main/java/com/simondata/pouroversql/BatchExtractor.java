@@ -0,0 +1,302 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql;
+
+import com.simondata.pouroversql.clients.QueryParams;
+import com.simondata.pouroversql.metrics.QueryMetrics;
+import com.simondata.pouroversql.writers.FileOutputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BatchExtractor
+ * Runs many queries, each to its own file, with a limited number running at once.
+ * The queries share one SQLExtractor and so one connection pool, instead of a process each.
+ */
+final class BatchExtractor {
+
+    private final static Logger logger = LoggerFactory.getLogger(BatchExtractor.class);
+
+    private final SQLExtractor extractor;
+
+    private final int concurrency;
+
+    /**
+     * A query file and the file to write its result to.
+     */
+    static final class Job {
+        private final File sqlFile;
+        private final File outputFile;
+
+        Job(File sqlFile, File outputFile) {
+            this.sqlFile = sqlFile;
+            this.outputFile = outputFile;
+        }
+
+        File getSqlFile() {
+            return this.sqlFile;
+        }
+
+        File getOutputFile() {
+            return this.outputFile;
+        }
+
+        /**
+         * @return the name of the query file without its extension.
+         */
+        String getName() {
+            return baseName(this.sqlFile);
+        }
+    }
+
+    /**
+     * How a job went: its QueryResult, or why it failed.
+     */
+    static final class JobResult {
+        private final Job job;
+        private final QueryResult result;
+        private final Throwable failure;
+
+        JobResult(Job job, QueryResult result, Throwable failure) {
+            this.job = job;
+            this.result = result;
+            this.failure = failure;
+        }
+
+        Job getJob() {
+            return this.job;
+        }
+
+        /**
+         * @return the result, or null if the job failed.
+         */
+        QueryResult getResult() {
+            return this.result;
+        }
+
+        /**
+         * @return why the job failed, or null if it succeeded.
+         */
+        Throwable getFailure() {
+            return this.failure;
+        }
+    }
+
+    /**
+     * Constructor
+     * @param extractor the extractor to run every query with. Its executor is replaced while jobs run.
+     * @param concurrency the most queries to run at once. Each holds a connection,
+     *                    so it can't exceed the size of the extractor's connection pool.
+     */
+    BatchExtractor(SQLExtractor extractor, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be positive");
+        }
+        Integer maxConnections = extractor.getMaxConnections();
+        if (maxConnections != null && concurrency > maxConnections) {
+            throw new IllegalArgumentException(String.format(
+                    "Concurrency of %d exceeds the connection pool size of %d, raise poolMaxSize to at least %d",
+                    concurrency, maxConnections, concurrency));
+        }
+        this.extractor = extractor;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * @param file a file.
+     * @return the name of the file without its extension.
+     */
+    static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * Make a job for each query file, with directories standing for the .sql files in them.
+     * @param sqlPaths the query files and directories.
+     * @param outputDirectory the directory to write each result to, named after its query file.
+     * @param outputFormat the format the results are written in.
+     * @return the jobs, with those from a directory in name order.
+     */
+    static List<Job> jobsForSqlFiles(List<File> sqlPaths, File outputDirectory, FileOutputFormat outputFormat) {
+        List<Job> jobs = new ArrayList<>();
+        for (File path : sqlPaths) {
+            List<File> sqlFiles;
+            if (path.isDirectory()) {
+                File[] files = path.listFiles((dir, name) -> name.endsWith(".sql"));
+                sqlFiles = files == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(files));
+                sqlFiles.sort(null);
+            } else {
+                sqlFiles = Arrays.asList(path);
+            }
+            for (File sqlFile : sqlFiles) {
+                jobs.add(new Job(sqlFile, new File(outputDirectory, baseName(sqlFile) + outputFormat.getExtension())));
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Read a job list, with a line for each job of the query file and, optionally, the output file.
+     * Blank lines and lines starting with # are skipped.
+     * @param jobList the job list file.
+     * @param outputDirectory the directory to write results without an output file to.
+     * @param outputFormat the format the results are written in.
+     * @return the jobs, in the order listed.
+     * @throws IOException if the job list can't be read.
+     */
+    static List<Job> readJobList(File jobList, File outputDirectory, FileOutputFormat outputFormat)
+            throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        for (String line : Files.readAllLines(jobList.toPath(), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (fields.length > 2) {
+                throw new IllegalArgumentException("Job list lines are a query file and an optional output file: "
+                        + line);
+            }
+            if (fields.length == 2) {
+                jobs.add(new Job(new File(fields[0]), new File(fields[1])));
+            } else {
+                jobs.addAll(jobsForSqlFiles(Arrays.asList(new File(fields[0])), outputDirectory, outputFormat));
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Check that no two jobs write to the same file, e.g. a/x.sql and b/x.sql in one output directory.
+     * @param jobs the jobs to check.
+     * @throws IllegalArgumentException naming the first file written by more than one job.
+     */
+    static void checkOutputsDistinct(List<Job> jobs) {
+        Map<File, Job> jobsByOutput = new HashMap<>();
+        for (Job job : jobs) {
+            File output = job.getOutputFile().getAbsoluteFile().toPath().normalize().toFile();
+            Job other = jobsByOutput.putIfAbsent(output, job);
+            if (other != null) {
+                throw new IllegalArgumentException(String.format("%s and %s both write to %s",
+                        other.getSqlFile(), job.getSqlFile(), job.getOutputFile()));
+            }
+        }
+    }
+
+    /**
+     * Run the jobs, at most the concurrency at once, and wait for them all.
+     * A job that fails doesn't stop the others.
+     * @param jobs the jobs to run.
+     * @param outputFormat the format to write results in.
+     * @param queryParams the QueryParams of every query.
+     * @return how each job went, in the order of the jobs.
+     * @throws IllegalArgumentException if two jobs write to the same file, before any job is run.
+     */
+    List<JobResult> run(List<Job> jobs, FileOutputFormat outputFormat, QueryParams queryParams) {
+        checkOutputsDistinct(jobs);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(this.concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "pourover-job-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Restored afterwards, so the extractor's own async queries keep working once the pool is shut down.
+        Executor previousExecutor = this.extractor.getExecutor();
+        this.extractor.setExecutor(executor);
+        try {
+            List<CompletableFuture<QueryResult>> futures = new ArrayList<>();
+            for (Job job : jobs) {
+                CompletableFuture<QueryResult> future;
+                try {
+                    String sql = new String(Files.readAllBytes(job.getSqlFile().toPath()), StandardCharsets.UTF_8);
+                    future = this.extractor.queryToFileAsync(sql, job.getOutputFile(), outputFormat, queryParams);
+                } catch (IOException e) {
+                    future = new CompletableFuture<>();
+                    future.completeExceptionally(e);
+                }
+                futures.add(future);
+            }
+            List<JobResult> results = new ArrayList<>();
+            for (int i = 0; i < jobs.size(); i++) {
+                Job job = jobs.get(i);
+                try {
+                    results.add(new JobResult(job, futures.get(i).get(), null));
+                } catch (ExecutionException e) {
+                    logger.error("Job " + job.getName() + " failed: " + e.getCause());
+                    results.add(new JobResult(job, null, e.getCause()));
+                }
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for jobs", e);
+        } finally {
+            this.extractor.setExecutor(previousExecutor);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Format a table of the rows, bytes written and duration of each job.
+     * @param results the results of the jobs.
+     * @return the table, a line per job after a header.
+     */
+    static String summarize(List<JobResult> results) {
+        int nameWidth = "Job".length();
+        for (JobResult result : results) {
+            nameWidth = Math.max(nameWidth, result.getJob().getName().length());
+        }
+        String format = "%-" + nameWidth + "s  %-8s  %12s  %14s  %10s%n";
+        StringBuilder table = new StringBuilder();
+        table.append(String.format(format, "Job", "Status", "Rows", "Bytes", "Seconds"));
+        long totalRows = 0;
+        long totalBytes = 0;
+        int failed = 0;
+        for (JobResult result : results) {
+            String name = result.getJob().getName();
+            if (result.getResult() == null) {
+                failed++;
+                table.append(String.format(format, name, "FAILED", "-", "-", "-"));
+                continue;
+            }
+            QueryMetrics metrics = result.getResult().getMetrics();
+            totalRows += metrics.getRows();
+            totalBytes += metrics.getBytesWritten();
+            table.append(String.format(format, name, "OK", metrics.getRows(), metrics.getBytesWritten(),
+                    String.format("%.3f", metrics.getElapsedNanos() / (double) TimeUnit.SECONDS.toNanos(1))));
+        }
+        table.append(String.format(format, "Total", failed == 0 ? "OK" : failed + " FAILED", totalRows, totalBytes, ""));
+        return table.toString();
+    }
+}
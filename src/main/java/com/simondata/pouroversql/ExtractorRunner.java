@@ -17,8 +17,11 @@
 package com.simondata.pouroversql;
 
 import com.simondata.pouroversql.clients.*;
+import com.simondata.pouroversql.metrics.MetricsSummary;
+import com.simondata.pouroversql.metrics.QueryMetricsRegistry;
 import com.simondata.pouroversql.writers.*;
 import org.apache.commons.cli.*;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,9 +29,12 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import static com.simondata.pouroversql.util.TextFormat.parseInteger;
+import static com.simondata.pouroversql.util.TextFormat.parseLong;
 
 /**
  * <h1>ExtractorRunner</h1>
@@ -52,21 +58,53 @@ public class ExtractorRunner {
                 "Port, defaults to engine's default port."
         );
         options.addOption("d", "database", true, "database");
-        options.addOption("t", "type", true, "Driver type (SQLServer | MySQL | Postgres )");
+        options.addOption("t", "type", true, "Driver type (SQLServer | MySQL | Postgres | Synthetic )");
         options.addOption("s", "sql", true,
-                "SQL file to read.");
+                "SQL file to read. Repeat it, or give a directory of .sql files, to run several queries.");
+        options.addOption("jobs", "jobs", true,
+                "File listing a query file and optional output file per line, to run several queries");
+        options.addOption("concurrency", "concurrency", true,
+                "Number of queries to run at once when running several, defaults to 4");
+        options.addOption("poolsize", "poolsize", true,
+                "Maximum connections to the database, defaults to 10 or the parallelism or concurrency if larger");
         options.addOption("dry", "dry", false, "Dry run");
-        options.addOption("format", "format", true, "The output format, defaults to json (JSON | CSV)");
+        options.addOption("format", "format", true, "The output format, defaults to json (JSON | CSV | JSON_GZ | CSV_GZ | PARQUET | ARROW | AVRO)");
         options.addOption(
                 "f",
                 "file",
                 true,
-                "File to write to. Defaults to " + DEFAULT_OUTPUT_FILENAME + '.'
+                "File to write to. Defaults to " + DEFAULT_OUTPUT_FILENAME
+                        + ". With several queries, the directory to write their files to."
         );
         options.addOption("c", "case", true, "Key case format (DEFAULT | Snake | Camel)");
         options.addOption("fetchsize", "fetchsize", true, "Fetch size");
         options.addOption("timeout", "timeout", true, "Query Timeout in seconds");
         options.addOption("maxrows", "maxrows", true, "Maximum rows");
+        options.addOption("pipeline", "pipeline", false, "Fetch, encode and write rows on separate threads");
+        options.addOption("encoders", "encoders", true, "Number of threads encoding rows when pipelined, defaults to 1");
+        options.addOption("channel", "channel", false, "Write output through a FileChannel with double-buffered direct buffers");
+        options.addOption("buffersize", "buffersize", true, "Size in bytes of each output buffer with --channel, defaults to 4194304");
+        options.addOption("gzipblock", "gzipblock", true, "Uncompressed bytes per gzip member of gzipped formats, defaults to 1048576");
+        options.addOption("gzipthreads", "gzipthreads", true, "Threads compressing gzipped formats, defaults to the number of cores");
+        options.addOption("rowgroupsize", "rowgroupsize", true, "Bytes buffered per Parquet row group, defaults to 67108864");
+        options.addOption("parquetcompression", "parquetcompression", true, "Parquet compression codec (SNAPPY | GZIP | ZSTD | UNCOMPRESSED), defaults to SNAPPY");
+        options.addOption("avroblock", "avroblock", true, "Uncompressed bytes per Avro block, defaults to 1048576");
+        options.addOption("avrocodec", "avrocodec", true, "Avro compression codec (snappy | deflate | zstandard | null), defaults to snappy");
+        options.addOption("rowsperfile", "rowsperfile", true, "Rows per part file, splitting output into parts with a manifest");
+        options.addOption("bytesperfile", "bytesperfile", true, "Uncompressed bytes per part file, splitting output into parts with a manifest");
+        options.addOption("incremental", "incremental", true, "Column to extract only the rows past the watermark of since the last run");
+        options.addOption("statefile", "statefile", true, "File to keep the watermark in with --incremental, defaults to the output file with .watermark.json appended");
+        options.addOption("resumekey", "resumekey", true, "Unique column to order by, checkpointing the last one written so failed queries resume from it");
+        options.addOption("checkpointfile", "checkpointfile", true, "File to keep the checkpoint in with --resumekey, defaults to the output file with .checkpoint.json appended");
+        options.addOption("checkpointrows", "checkpointrows", true, "Rows between checkpoints with --resumekey, defaults to 100000");
+        options.addOption("retries", "retries", true, "Times a failed query is retried with --resumekey, defaults to 3");
+        options.addOption("retrybackoff", "retrybackoff", true, "Milliseconds to wait before the first retry, doubling for each one after, defaults to 1000");
+        options.addOption("maxretrybackoff", "maxretrybackoff", true, "Most milliseconds to wait before a retry, defaults to 60000");
+        options.addOption("metricsfile", "metricsfile", true, "Write query metrics to this file in the Prometheus text format");
+        options.addOption("split", "split", true, "Column to split the query on for parallel extraction");
+        options.addOption("parallelism", "parallelism", true, "Number of ranges to query at once, defaults to 4");
+        options.addOption("quantiles", "quantiles", false, "Split on quantiles of the split column");
+        options.addOption("splitfiles", "splitfiles", false, "Write a file per range instead of one file");
 
         Option customParams = Option.builder("custom")
                 .longOpt("custom")
@@ -123,14 +161,32 @@ public class ExtractorRunner {
         String database = commandLine.getOptionValue("database");
         String password = getPassword();
         Properties props = commandLine.getOptionProperties("custom");
+        if (commandLine.hasOption("poolsize")) {
+            props.setProperty("poolMaxSize", commandLine.getOptionValue("poolsize"));
+        }
         return new SQLParams(host, port, user, password, database, props);
     }
 
+    /**
+     * Make sure the connection pool can hold a connection for each query run at once,
+     * unless its size was set explicitly.
+     */
+    private static void sizePool(SQLParams sqlParams, int connections) {
+        PoolParams poolParams = sqlParams.getPoolParams();
+        if (!sqlParams.hasProperty("poolMaxSize") && poolParams.getMaxSize() < connections) {
+            poolParams.setMaxSize(connections);
+            sqlParams.setPoolParams(poolParams);
+        }
+    }
+
     private static QueryParams getQueryParams(CommandLine commandLine) {
         Integer fetchSize = parseInteger(commandLine.getOptionValue("fetchsize"));
         Integer maxRows = parseInteger(commandLine.getOptionValue("maxRows"));
         Integer timeout = parseInteger(commandLine.getOptionValue("timeout"));
-        return new QueryParams(fetchSize, maxRows, timeout);
+        QueryParams params = new QueryParams(fetchSize, maxRows, timeout);
+        params.setPipelined(commandLine.hasOption("pipeline") || commandLine.hasOption("encoders"));
+        params.setEncoderThreads(parseInteger(commandLine.getOptionValue("encoders")));
+        return params;
     }
 
     private static FormattingParams getFormattingParams(CommandLine commandLine) {
@@ -140,6 +196,122 @@ public class ExtractorRunner {
         return params;
     }
 
+    private static SplitParams getSplitParams(CommandLine commandLine) {
+        String splitColumn = commandLine.getOptionValue("split");
+        if (splitColumn == null) {
+            return null;
+        }
+        Integer parallelism = parseInteger(commandLine.getOptionValue("parallelism", "4"));
+        SplitParams params = new SplitParams(splitColumn, parallelism);
+        params.setUseQuantiles(commandLine.hasOption("quantiles"));
+        params.setFilePerSplit(commandLine.hasOption("splitfiles"));
+        return params;
+    }
+
+    private static IncrementalParams getIncrementalParams(CommandLine commandLine) {
+        String watermarkColumn = commandLine.getOptionValue("incremental");
+        if (watermarkColumn == null) {
+            return null;
+        }
+        String stateFile = commandLine.getOptionValue("statefile",
+                commandLine.getOptionValue("file", DEFAULT_OUTPUT_FILENAME) + ".watermark.json");
+        return new IncrementalParams(watermarkColumn, new File(stateFile));
+    }
+
+    private static ResumableParams getResumableParams(CommandLine commandLine) {
+        String keyColumn = commandLine.getOptionValue("resumekey");
+        if (keyColumn == null) {
+            return null;
+        }
+        String checkpointFile = commandLine.getOptionValue("checkpointfile",
+                commandLine.getOptionValue("file", DEFAULT_OUTPUT_FILENAME) + ".checkpoint.json");
+        ResumableParams params = new ResumableParams(keyColumn, new File(checkpointFile));
+        params.setCheckpointRows(parseLong(commandLine.getOptionValue("checkpointrows")));
+        params.setMaxRetries(parseInteger(commandLine.getOptionValue("retries")));
+        params.setRetryBackoffMillis(parseLong(commandLine.getOptionValue("retrybackoff")));
+        params.setMaxRetryBackoffMillis(parseLong(commandLine.getOptionValue("maxretrybackoff")));
+        return params;
+    }
+
+    private static OutputParams getOutputParams(CommandLine commandLine) {
+        OutputParams params = new OutputParams();
+        params.setUseChannel(commandLine.hasOption("channel"));
+        Integer bufferSize = parseInteger(commandLine.getOptionValue("buffersize"));
+        if (bufferSize != null) {
+            params.setBufferSize(bufferSize);
+        }
+        Integer gzipBlockSize = parseInteger(commandLine.getOptionValue("gzipblock"));
+        if (gzipBlockSize != null) {
+            params.setGzipBlockSize(gzipBlockSize);
+        }
+        Integer gzipThreads = parseInteger(commandLine.getOptionValue("gzipthreads"));
+        if (gzipThreads != null) {
+            params.setGzipThreads(gzipThreads);
+        }
+        Integer rowGroupSize = parseInteger(commandLine.getOptionValue("rowgroupsize"));
+        if (rowGroupSize != null) {
+            params.setParquetRowGroupSize(rowGroupSize);
+        }
+        String parquetCompression = commandLine.getOptionValue("parquetcompression");
+        if (parquetCompression != null) {
+            params.setParquetCompression(CompressionCodecName.valueOf(parquetCompression.toUpperCase()));
+        }
+        Integer avroBlockSize = parseInteger(commandLine.getOptionValue("avroblock"));
+        if (avroBlockSize != null) {
+            params.setAvroBlockSize(avroBlockSize);
+        }
+        String avroCodec = commandLine.getOptionValue("avrocodec");
+        if (avroCodec != null) {
+            params.setAvroCodec(avroCodec);
+        }
+        params.setMaxRowsPerFile(parseLong(commandLine.getOptionValue("rowsperfile")));
+        params.setMaxBytesPerFile(parseLong(commandLine.getOptionValue("bytesperfile")));
+        return params;
+    }
+
+    private static List<BatchExtractor.Job> getJobs(CommandLine commandLine, FileOutputFormat outputFormat)
+            throws IOException {
+        File outputDirectory = new File(commandLine.getOptionValue("file", "."));
+        List<File> sqlPaths = new ArrayList<>();
+        String[] sqlValues = commandLine.getOptionValues("sql");
+        if (sqlValues != null) {
+            for (String sqlValue : sqlValues) {
+                sqlPaths.add(new File(sqlValue));
+            }
+        }
+        List<BatchExtractor.Job> jobs = BatchExtractor.jobsForSqlFiles(sqlPaths, outputDirectory, outputFormat);
+        String jobList = commandLine.getOptionValue("jobs");
+        if (jobList != null) {
+            jobs.addAll(BatchExtractor.readJobList(new File(jobList), outputDirectory, outputFormat));
+        }
+        return jobs;
+    }
+
+    private static boolean isBatch(CommandLine commandLine) {
+        String[] sqlValues = commandLine.getOptionValues("sql");
+        return commandLine.hasOption("jobs")
+                || (sqlValues != null && (sqlValues.length > 1 || new File(sqlValues[0]).isDirectory()));
+    }
+
+    private static boolean runBatch(
+            CommandLine commandLine,
+            SQLExtractor sqlExtractor,
+            FileOutputFormat outputFormat,
+            QueryParams queryParams,
+            int concurrency
+    ) throws IOException {
+        List<BatchExtractor.Job> jobs = getJobs(commandLine, outputFormat);
+        File outputDirectory = new File(commandLine.getOptionValue("file", "."));
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Could not create output directory " + outputDirectory);
+        }
+        logger.info("Running " + jobs.size() + " queries, " + concurrency + " at a time");
+        List<BatchExtractor.JobResult> results = new BatchExtractor(sqlExtractor, concurrency)
+                .run(jobs, outputFormat, queryParams);
+        logger.info("Job summary:" + System.lineSeparator() + BatchExtractor.summarize(results));
+        return results.stream().allMatch(result -> result.getFailure() == null);
+    }
+
     public static void main(String[] args) {
         configureLogging();
 
@@ -149,6 +321,10 @@ public class ExtractorRunner {
             SQLParams sqlParams = getSqlParams(line);
             FormattingParams formattingParams = getFormattingParams(line);
             QueryParams queryParams = getQueryParams(line);
+            SplitParams splitParams = getSplitParams(line);
+            IncrementalParams incrementalParams = getIncrementalParams(line);
+            ResumableParams resumableParams = getResumableParams(line);
+            OutputParams outputParams = getOutputParams(line);
             SqlEngine engine = SqlEngine.byName(line.getOptionValue("type", "SQLSERVER"));
             FileOutputFormat outputFormat = FileOutputFormat.valueOf(
                     line.getOptionValue("format", "json").toUpperCase());
@@ -157,10 +333,45 @@ public class ExtractorRunner {
                 sqlParams.logValues();
                 queryParams.logValues();
                 formattingParams.logValues();
+                outputParams.logValues();
+                if (splitParams != null) {
+                    splitParams.logValues();
+                }
+                if (incrementalParams != null) {
+                    incrementalParams.logValues();
+                }
+                if (resumableParams != null) {
+                    resumableParams.logValues();
+                }
                 System.exit(0);
             }
+            boolean batch = isBatch(line);
+            if (batch && splitParams != null) {
+                throw new ParseException("--split can't be used when running several queries");
+            }
+            if (incrementalParams != null && (batch || splitParams != null)) {
+                throw new ParseException("--incremental can't be used with --split or when running several queries");
+            }
+            if (resumableParams != null && (batch || splitParams != null || incrementalParams != null)) {
+                throw new ParseException(
+                        "--resumekey can't be used with --split, --incremental or when running several queries");
+            }
+            int concurrency = parseInteger(line.getOptionValue("concurrency", "4"));
+            if (batch) {
+                sizePool(sqlParams, concurrency);
+            } else if (splitParams != null) {
+                sizePool(sqlParams, splitParams.getParallelism());
+            }
             SQLExtractor sqlExtractor = new SQLExtractor(engine, sqlParams, formattingParams);
+            sqlExtractor.setOutputParams(outputParams);
+            MetricsSummary metrics = new MetricsSummary();
+            QueryMetricsRegistry.getDefault().addListener(metrics);
+            boolean succeeded = !batch;
             try {
+                if (batch) {
+                    succeeded = runBatch(line, sqlExtractor, outputFormat, queryParams, concurrency);
+                    return;
+                }
                 String inputFilename = line.getOptionValue("sql");
                 String inputSql;
                 if (inputFilename != null) {
@@ -169,9 +380,31 @@ public class ExtractorRunner {
                     inputSql = readSqlFromStdIn();
                 }
                 String outputFile = line.getOptionValue("file", DEFAULT_OUTPUT_FILENAME);
-                sqlExtractor.queryToFile(inputSql, new File(outputFile), outputFormat, queryParams);
+                if (splitParams != null) {
+                    sqlExtractor.queryToFile(inputSql, new File(outputFile), outputFormat, queryParams, splitParams);
+                } else if (resumableParams != null) {
+                    sqlExtractor.queryToFile(
+                            inputSql, new File(outputFile), outputFormat, queryParams, resumableParams);
+                } else if (incrementalParams != null) {
+                    sqlExtractor.queryToFile(
+                            inputSql, new File(outputFile), outputFormat, queryParams, incrementalParams);
+                } else {
+                    sqlExtractor.queryToFile(inputSql, new File(outputFile), outputFormat, queryParams);
+                }
             } catch (IOException e) {
                 e.printStackTrace();
+            } catch (IllegalArgumentException e) {
+                logger.error(e.getMessage());
+                succeeded = false;
+            } finally {
+                logger.info("Query metrics: " + metrics.toJson());
+                String metricsFile = line.getOptionValue("metricsfile");
+                if (metricsFile != null) {
+                    metrics.writePrometheus(new File(metricsFile));
+                }
+                if (!succeeded) {
+                    System.exit(1);
+                }
             }
         } catch (ParseException exp) {
             logger.error("Parsing failed.  Reason: " + exp.getMessage());
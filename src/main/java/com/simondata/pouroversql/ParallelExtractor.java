@@ -0,0 +1,200 @@
+/*
+  Copyright 2019-present, Simon Data, Inc.
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package com.simondata.pouroversql;
+
+import com.simondata.pouroversql.clients.*;
+import com.simondata.pouroversql.metrics.QueryMetrics;
+import com.simondata.pouroversql.metrics.QueryMetricsRegistry;
+import com.simondata.pouroversql.util.FileNames;
+import com.simondata.pouroversql.writers.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * <h1>ParallelExtractor</h1>
+ * Extracts a single query by splitting it into ranges of a column
+ * and querying the ranges concurrently, each on its own connection.
+ * Ranges outnumber threads and are scheduled on a work-stealing pool,
+ * so threads that finish small ranges pick up the remaining ones.
+ */
+class ParallelExtractor {
+
+    private final static Logger logger = LoggerFactory.getLogger(ParallelExtractor.class);
+
+    // Cancelled range queries fail their next fetch, so they stop well within this.
+    private static final long CANCEL_TIMEOUT_SECONDS = 60;
+
+    private final SQLClient sqlClient;
+    private final QueryParams queryParams;
+    private final FormattingParams formattingParams;
+    private final Supplier<FileRowWriter> writerFactory;
+    private QueryMetricsRegistry metricsRegistry = QueryMetricsRegistry.getDefault();
+
+    ParallelExtractor(SQLClient sqlClient, QueryParams queryParams, FormattingParams formattingParams,
+                      Supplier<FileRowWriter> writerFactory) {
+        this.sqlClient = sqlClient;
+        this.queryParams = queryParams;
+        this.formattingParams = formattingParams;
+        this.writerFactory = writerFactory;
+    }
+
+    /**
+     * Each range is recorded as a query of its own.
+     * @param metricsRegistry the registry to record the range queries to.
+     */
+    void setMetricsRegistry(QueryMetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * Extract the query to one merged file or to a file per range.
+     * @param sql the query text.
+     * @param file the output file. With a file per range it is the template for their names.
+     * @param splitParams the split column and parallelism.
+     * @return the files written.
+     * @throws IllegalArgumentException if the parallelism exceeds the size of the client's connection pool.
+     */
+    List<File> extract(String sql, File file, SplitParams splitParams) {
+        Integer maxConnections = this.sqlClient.getMaxConnections();
+        if (maxConnections != null && splitParams.getParallelism() > maxConnections) {
+            // Ranges beyond the pool size would wait for a connection and time out acquiring one.
+            throw new IllegalArgumentException(String.format(
+                    "Parallelism of %d exceeds the connection pool size of %d, raise poolMaxSize to at least %d",
+                    splitParams.getParallelism(), maxConnections, splitParams.getParallelism()));
+        }
+        List<RangeSplit> splits = new RangeSplitter(this.sqlClient, this.queryParams).split(sql, splitParams);
+        AtomicLong rowCount = new AtomicLong();
+        List<File> files = new ArrayList<>();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        List<QueryCanceller> cancellers = new ArrayList<>();
+        for (int i = 0; i < splits.size(); i++) {
+            cancellers.add(new QueryCanceller());
+        }
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        ForkJoinPool pool = new ForkJoinPool(splitParams.getParallelism());
+        FileRowWriter mergedWriter = null;
+        try {
+            if (splitParams.getFilePerSplit()) {
+                for (int i = 0; i < splits.size(); i++) {
+                    RangeSplit split = splits.get(i);
+                    QueryCanceller canceller = cancellers.get(i);
+                    File splitFile = FileNames.withSuffix(file, String.format("-split-%05d", split.getIndex()));
+                    files.add(splitFile);
+                    tasks.add(submit(pool, cancellers, firstFailure,
+                            () -> rowCount.addAndGet(this.extractToFile(sql, split, splitFile, canceller))));
+                }
+            } else {
+                mergedWriter = this.writerFactory.get();
+                mergedWriter.open(file);
+                files.add(file);
+                RowWriter shared = new SynchronizedRowWriter(mergedWriter);
+                for (int i = 0; i < splits.size(); i++) {
+                    RangeSplit split = splits.get(i);
+                    QueryCanceller canceller = cancellers.get(i);
+                    tasks.add(submit(pool, cancellers, firstFailure,
+                            () -> rowCount.addAndGet(this.extractSplit(sql, split, shared, canceller))));
+                }
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            cancellers.forEach(QueryCanceller::cancel);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during parallel extraction", e);
+        } catch (ExecutionException e) {
+            cancellers.forEach(QueryCanceller::cancel);
+            // Report the range that failed first, not one that failed because it was cancelled.
+            Throwable cause = firstFailure.get();
+            throw new IllegalStateException("Parallel extraction failed", cause != null ? cause : e.getCause());
+        } finally {
+            tasks.forEach(task -> task.cancel(false));
+            pool.shutdown();
+            if (!pool.awaitQuiescence(CANCEL_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Ranges still running " + CANCEL_TIMEOUT_SECONDS + "s after being cancelled");
+            }
+            if (mergedWriter != null) {
+                mergedWriter.close();
+            }
+        }
+        logger.info("Extracted " + rowCount.get() + " rows in " + splits.size() + " ranges");
+        return Collections.unmodifiableList(files);
+    }
+
+    /**
+     * Run a range, cancelling every other range as soon as it fails.
+     * Ranges are awaited in order, so waiting for the failure to be seen could take as long as the extract.
+     */
+    private static ForkJoinTask<?> submit(ForkJoinPool pool, List<QueryCanceller> cancellers,
+                                          AtomicReference<Throwable> firstFailure, Runnable range) {
+        return pool.submit(() -> {
+            try {
+                range.run();
+            } catch (RuntimeException | Error e) {
+                if (firstFailure.compareAndSet(null, e)) {
+                    cancellers.forEach(QueryCanceller::cancel);
+                }
+                throw e;
+            }
+        });
+    }
+
+    private int extractToFile(String sql, RangeSplit split, File splitFile, QueryCanceller canceller) {
+        FileRowWriter writer = this.writerFactory.get();
+        QueryMetrics metrics = this.metricsRegistry.start(split.wrap(sql));
+        try {
+            writer.open(splitFile);
+            return this.extractSplit(sql, split, writer, metrics, canceller);
+        } finally {
+            SQLExtractor.closeOutput(this.metricsRegistry, metrics, writer::close, writer::getFileBytes);
+        }
+    }
+
+    private int extractSplit(String sql, RangeSplit split, RowWriter writer, QueryCanceller canceller) {
+        QueryMetrics metrics = this.metricsRegistry.start(split.wrap(sql));
+        try {
+            return this.extractSplit(sql, split, writer, metrics, canceller);
+        } finally {
+            this.metricsRegistry.complete(metrics);
+        }
+    }
+
+    private int extractSplit(String sql, RangeSplit split, RowWriter writer, QueryMetrics metrics,
+                             QueryCanceller canceller) {
+        logger.debug("Extracting " + split);
+        RowHandler rh = new RowHandler(writer, -1, this.formattingParams);
+        rh.setCanceller(canceller);
+        int count = SQLExtractor.runQuery(
+                this.sqlClient, split.wrap(sql), this.queryParams, rh, metrics, split.getParams());
+        if (count < 0) {
+            throw new IllegalStateException("Query failed for " + split);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql;
+
+import com.simondata.pouroversql.metrics.QueryMetrics;
+
+import java.io.File;
+
+/**
+ * <h1>QueryResult</h1>
+ * What an asynchronous query produced, once it has succeeded.
+ */
+public final class QueryResult {
+
+    private final long rowCount;
+
+    private final File file;
+
+    private final QueryMetrics metrics;
+
+    QueryResult(long rowCount, File file, QueryMetrics metrics) {
+        this.rowCount = rowCount;
+        this.file = file;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the number of rows the query returned.
+     */
+    public long getRowCount() {
+        return this.rowCount;
+    }
+
+    /**
+     * @return the file written to, or the manifest of the part files when output is split,
+     * or null if the query didn't write a file.
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * @return the finished metrics of the query.
+     */
+    public QueryMetrics getMetrics() {
+        return this.metrics;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+  Copyright 2019-present, Simon Data, Inc.
+
+  Licensed under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+     http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package com.simondata.pouroversql;
+
+import com.simondata.pouroversql.clients.*;
+import com.simondata.pouroversql.metrics.QueryMetrics;
+import com.simondata.pouroversql.metrics.QueryMetricsRegistry;
+import com.simondata.pouroversql.writers.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.function.Supplier;
+
+/**
+ * <h1>ResumableExtractor</h1>
+ * Extracts a single query in order of a unique key, checkpointing the last key written
+ * with the size of the output. A failed query is retried past the checkpoint after a pause,
+ * with the output cut back to the checkpoint, so only the rows since it are read again.
+ * The checkpoint file outlives a failed extract, and is removed once the extract finishes.
+ */
+class ResumableExtractor {
+
+    private final static Logger logger = LoggerFactory.getLogger(ResumableExtractor.class);
+
+    private final SQLClient sqlClient;
+    private final QueryParams queryParams;
+    private final FormattingParams formattingParams;
+    private final Supplier<EncodingRowWriter> writerFactory;
+    private QueryMetricsRegistry metricsRegistry = QueryMetricsRegistry.getDefault();
+
+    ResumableExtractor(SQLClient sqlClient, QueryParams queryParams, FormattingParams formattingParams,
+                       Supplier<EncodingRowWriter> writerFactory) {
+        this.sqlClient = sqlClient;
+        this.queryParams = queryParams;
+        this.formattingParams = formattingParams;
+        this.writerFactory = writerFactory;
+    }
+
+    /**
+     * Each try is recorded as a query of its own.
+     * @param metricsRegistry the registry to record the queries to.
+     */
+    void setMetricsRegistry(QueryMetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * Extract the query to a file, carrying on from the checkpoint file if there is one.
+     * @param sql the query text.
+     * @param file the output file.
+     * @param resumableParams the key column, checkpoint file and retry policy.
+     * @return the file written.
+     */
+    File extract(String sql, File file, ResumableParams resumableParams) {
+        String keyColumn = resumableParams.getKeyColumn();
+        File checkpointFile = resumableParams.getCheckpointFile();
+        Checkpoint checkpoint = Checkpoint.load(checkpointFile);
+        if (checkpoint != null) {
+            if (!checkpoint.getKeyColumn().equals(keyColumn)) {
+                throw new IllegalArgumentException("The checkpoint in " + checkpointFile
+                        + " is of " + checkpoint.getKeyColumn() + ", not " + keyColumn);
+            }
+            logger.info("Resuming from checkpoint " + checkpoint);
+        }
+        for (int retry = 1; ; retry++) {
+            CheckpointingWriter writer = this.extractFrom(sql, file, resumableParams, checkpoint);
+            if (writer != null) {
+                try {
+                    Files.deleteIfExists(checkpointFile.toPath());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                logger.info("Extracted " + writer.getRows() + " rows");
+                return file;
+            }
+            checkpoint = Checkpoint.load(checkpointFile);
+            String from = checkpoint == null ? "the start" : "checkpoint " + checkpoint;
+            if (retry > resumableParams.getMaxRetries()) {
+                throw new IllegalStateException("Resumable extraction failed after "
+                        + resumableParams.getMaxRetries() + " retries, run it again to resume from " + from);
+            }
+            long backoff = resumableParams.getBackoffMillis(retry);
+            logger.warn("Query failed, retrying from " + from
+                    + " in " + backoff + "ms (" + retry + " of " + resumableParams.getMaxRetries() + ")");
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting to retry", e);
+            }
+        }
+    }
+
+    /**
+     * Query the keys past a checkpoint, appending them to the output as of the checkpoint.
+     * @return the writer once the query succeeds, or null if it fails.
+     */
+    private CheckpointingWriter extractFrom(String sql, File file, ResumableParams resumableParams,
+                                            Checkpoint checkpoint) {
+        String keyColumn = resumableParams.getKeyColumn();
+        RangeSplit range = RangeSplitter.keysetRange(keyColumn, checkpoint == null ? null : checkpoint.getLastKey());
+        String rangeSql = range.wrap(sql) + " ORDER BY " + keyColumn;
+        QueryMetrics metrics = this.metricsRegistry.startAlways(rangeSql);
+        EncodingRowWriter fileWriter = this.writerFactory.get();
+        CheckpointingWriter writer = new CheckpointingWriter(fileWriter, keyColumn,
+                resumableParams.getCheckpointRows(), checkpoint,
+                next -> next.save(resumableParams.getCheckpointFile()));
+        try {
+            fileWriter.open(file, checkpoint == null ? 0 : checkpoint.getBytes());
+            RowHandler rh = new RowHandler(writer, this.queryParams.getLogFrequency(), this.formattingParams);
+            SQLExtractor.runQuery(this.sqlClient, rangeSql, this.queryParams, rh, metrics, range.getParams());
+        } finally {
+            SQLExtractor.closeOutput(this.metricsRegistry, metrics, writer::close, fileWriter::getFileBytes);
+        }
+        return metrics.isFailed() ? null : writer;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql;
+
+import com.simondata.pouroversql.clients.QueryCanceller;
+import com.simondata.pouroversql.clients.ResultSetIterator;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * RowPublisher
+ * A cold Reactive Streams Publisher over the rows of a query, which runs the query for each subscriber.
+ * The ResultSet is only advanced to meet outstanding demand, so fetches stop while the subscriber
+ * isn't asking for more. Signals are sent from a single drain at a time on the executor, which is
+ * only held while there is demand to meet.
+ * @param <T> the type of each element, read from the rows by the reader.
+ */
+final class RowPublisher<T> implements Publisher<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(RowPublisher.class);
+
+    private final Function<QueryCanceller, ResultSetIterator> query;
+
+    private final Function<ResultSetIterator, T> reader;
+
+    private final Executor executor;
+
+    /**
+     * Constructor
+     * @param query runs the query with a canceller to register its statement with, on the executor.
+     * @param reader reads the next element, when the rows have at least one more.
+     * @param executor runs the query and fetches.
+     */
+    RowPublisher(Function<QueryCanceller, ResultSetIterator> query, Function<ResultSetIterator, T> reader, Executor executor) {
+        this.query = query;
+        this.reader = reader;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "Subscriber must not be null");
+        subscriber.onSubscribe(new RowSubscription(subscriber));
+    }
+
+    private final class RowSubscription implements Subscription {
+
+        private final AtomicLong demand = new AtomicLong();
+
+        /**
+         * Signals not yet handled by the drain, which runs while this is above zero.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private volatile boolean cancelled = false;
+
+        private volatile IllegalArgumentException badRequest = null;
+
+        private final QueryCanceller canceller = new QueryCanceller();
+
+        // Only used by the drain, once subscribed.
+        private Subscriber<? super T> subscriber;
+
+        private ResultSetIterator rows = null;
+
+        private boolean done = false;
+
+        RowSubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                this.badRequest = new IllegalArgumentException("Requested " + n + " elements, which must be positive");
+            } else {
+                long current;
+                long next;
+                do {
+                    current = this.demand.get();
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!this.demand.compareAndSet(current, next));
+            }
+            this.schedule();
+        }
+
+        /**
+         * A query being executed or fetched from is cancelled with its statement,
+         * and the drain then closes the rows.
+         */
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+            this.canceller.cancel();
+            this.schedule();
+        }
+
+        private void schedule() {
+            if (this.pending.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                if (!this.done) {
+                    this.emit();
+                }
+                missed = this.pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            try {
+                if (this.cancelled) {
+                    this.terminate();
+                    return;
+                }
+                if (this.badRequest != null) {
+                    this.terminate().onError(this.badRequest);
+                    return;
+                }
+                long requested = this.demand.get();
+                long emitted = 0;
+                while (requested != 0) {
+                    if (this.rows == null) {
+                        this.rows = query.apply(this.canceller);
+                    }
+                    if (this.cancelled) {
+                        this.terminate();
+                        return;
+                    }
+                    if (!this.rows.hasNext()) {
+                        this.terminate().onComplete();
+                        return;
+                    }
+                    this.subscriber.onNext(reader.apply(this.rows));
+                    emitted++;
+                    if (emitted == requested && requested != Long.MAX_VALUE) {
+                        requested = this.demand.addAndGet(-emitted);
+                        emitted = 0;
+                    }
+                }
+            } catch (RuntimeException e) {
+                boolean cancelled = this.cancelled;
+                Subscriber<? super T> subscriber = this.terminate();
+                if (cancelled) {
+                    logger.debug("Query failed after being cancelled: " + e.getMessage());
+                } else {
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        /**
+         * Release the rows and the subscriber, which gets no more signals after any final one.
+         * @return the subscriber, for the final signal.
+         */
+        private Subscriber<? super T> terminate() {
+            Subscriber<? super T> subscriber = this.subscriber;
+            this.done = true;
+            this.subscriber = null;
+            ResultSetIterator rows = this.rows;
+            this.rows = null;
+            if (rows != null) {
+                rows.close();
+            }
+            return subscriber;
+        }
+    }
+}
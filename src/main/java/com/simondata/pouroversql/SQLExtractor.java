@@ -17,20 +17,55 @@
 package com.simondata.pouroversql;
 
 import com.simondata.pouroversql.clients.*;
+import com.simondata.pouroversql.metrics.QueryMetrics;
+import com.simondata.pouroversql.metrics.QueryMetricsRegistry;
+import com.simondata.pouroversql.metrics.QueryPhase;
+import com.simondata.pouroversql.util.CloseableIterator;
 import com.simondata.pouroversql.writers.*;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
 
 /**
  * SQLExtractor is the primary class to use and is designed for most use cases.
+ * Once configured, one extractor can run queries from many threads at once,
+ * each with its own QueryParams, over the connection pool it shares.
  */
 public class SQLExtractor {
 
+    private final static Logger logger = LoggerFactory.getLogger(SQLExtractor.class);
+
     private final SQLClient sqlClient;
     private FormattingParams formattingParams;
+    private OutputParams outputParams = OutputParams.getDefaultOutputParams();
+    private QueryMetricsRegistry metricsRegistry = QueryMetricsRegistry.getDefault();
+    private Executor executor = DEFAULT_EXECUTOR;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    /**
+     * Daemon threads, only held while a query is running or has rows to publish.
+     */
+    private static final Executor DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "pourover-query-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Constructor
@@ -80,6 +115,13 @@ public class SQLExtractor {
         this.formattingParams = FormattingParams.getDefaultFormattingParams();
     }
 
+    /**
+     * @return the most connections this extractor's queries can hold at once, or null if there is no limit.
+     */
+    Integer getMaxConnections() {
+        return this.sqlClient.getMaxConnections();
+    }
+
     /**
      * Execute a query and return an arraylist of Maps
      * @param sql the SQL to query
@@ -97,8 +139,101 @@ public class SQLExtractor {
      * @return ArrayList of rows for the query result.
      */
     public List<Map<String, Object>> queryAsList(String sql, QueryParams queryParams) {
-        this.sqlClient.setQueryParams(queryParams);
-        return this.sqlClient.queryAsList(sql);
+        return this.sqlClient.queryAsList(sql, queryParams);
+    }
+
+    /**
+     * Execute a query and read its rows as they are fetched.
+     * @param sql the SQL text to query.
+     * @return a Stream of the rows, which must be closed.
+     * @see #queryAsStream(String, QueryParams)
+     */
+    public Stream<Row> queryAsStream(String sql) {
+        return this.queryAsStream(sql, QueryParams.getDefaultQueryParams());
+    }
+
+    /**
+     * Execute a query and read its rows as they are fetched, a fetch size at a time,
+     * so memory use doesn't grow with the size of the result. The connection is held until
+     * the stream is exhausted or closed, so use it in a try-with-resources block, e.g. with limit.
+     * @param sql the SQL text to query.
+     * @param queryParams parameters for the query itself.
+     * @return a Stream of the rows, which must be closed.
+     */
+    public Stream<Row> queryAsStream(String sql, QueryParams queryParams) {
+        return this.queryAsIterator(sql, queryParams).stream();
+    }
+
+    /**
+     * Execute a query and read its rows as they are fetched.
+     * @param sql the SQL text to query.
+     * @return an iterator over the rows, which must be closed.
+     * @see #queryAsIterator(String, QueryParams)
+     */
+    public CloseableIterator<Row> queryAsIterator(String sql) {
+        return this.queryAsIterator(sql, QueryParams.getDefaultQueryParams());
+    }
+
+    /**
+     * Execute a query and read its rows as they are fetched, a fetch size at a time.
+     * The connection is held until the last row is read or the iterator is closed.
+     * @param sql the SQL text to query.
+     * @param queryParams parameters for the query itself.
+     * @return an iterator over the rows, which must be closed.
+     */
+    public CloseableIterator<Row> queryAsIterator(String sql, QueryParams queryParams) {
+        return this.openRows(sql, queryParams, null);
+    }
+
+    private ResultSetIterator openRows(String sql, QueryParams queryParams, QueryCanceller canceller) {
+        QueryMetrics metrics = this.metricsRegistry.start(sql);
+        ResultSetIterator rows;
+        try {
+            rows = this.sqlClient.queryAsIterator(sql, queryParams, this.formattingParams, metrics, canceller);
+        } catch (RuntimeException e) {
+            if (metrics != null) {
+                metrics.setFailed(true);
+            }
+            this.metricsRegistry.complete(metrics);
+            throw e;
+        }
+        return rows.onClose(() -> this.metricsRegistry.complete(metrics));
+    }
+
+    /**
+     * Publish the rows of a query with Reactive Streams backpressure.
+     * @param sql the SQL text to query.
+     * @param queryParams parameters for the query itself.
+     * @return a Publisher of the rows.
+     * @see #queryAsPublisher(String, QueryParams, int)
+     */
+    public Publisher<Row> queryAsPublisher(String sql, QueryParams queryParams) {
+        return new RowPublisher<>(canceller -> this.openRows(sql, queryParams, canceller), ResultSetIterator::next,
+                this.executor);
+    }
+
+    /**
+     * Publish the rows of a query with Reactive Streams backpressure, in lists of up to batchSize rows.
+     * Each subscription runs the query when it first requests rows, and the ResultSet is only advanced
+     * to meet outstanding demand, so a slow subscriber holds back the database cursor instead of
+     * rows piling up in memory. Fetches run on the executor, and cancelling the subscription
+     * cancels the statement, even in the middle of a fetch.
+     * @param sql the SQL text to query.
+     * @param queryParams parameters for the query itself.
+     * @param batchSize the most rows in each list. Matching the fetch size keeps fetches whole.
+     * @return a Publisher of lists of rows.
+     */
+    public Publisher<List<Row>> queryAsPublisher(String sql, QueryParams queryParams, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        return new RowPublisher<>(canceller -> this.openRows(sql, queryParams, canceller), rows -> {
+            List<Row> batch = new ArrayList<>(batchSize);
+            do {
+                batch.add(rows.next());
+            } while (batch.size() < batchSize && rows.hasNext());
+            return batch;
+        }, this.executor);
     }
 
     /**
@@ -121,19 +256,244 @@ public class SQLExtractor {
             Function<Map<String, Object>, ?> callback,
             QueryParams queryParams
     ) {
-        this.sqlClient.setQueryParams(queryParams);
-        CallbackRowWriter writer = new CallbackRowWriter(callback);
-        RowHandler rh = new RowHandler(writer, queryParams.getLogFrequency(), this.formattingParams);
-        return this.sqlClient.queryWithHandler(sql, rh);
+        return this.queryWithCallback(sql, callback, queryParams, this.metricsRegistry.start(sql), null);
+    }
+
+    /**
+     * Run a query asynchronously, invoking a callback for each row on the executor.
+     * Cancelling the returned future cancels the query, including a fetch in progress.
+     * @param sql the SQL query text.
+     * @param callback the callback to invoke for each row.
+     * @param queryParams the parameters to use in the query process.
+     * @return a future of the row count and metrics, which fails if the query fails.
+     */
+    public CompletableFuture<QueryResult> queryWithCallbackAsync(
+            String sql,
+            Function<Map<String, Object>, ?> callback,
+            QueryParams queryParams
+    ) {
+        return this.runAsync(sql, (metrics, canceller) -> {
+            this.queryWithCallback(sql, callback, queryParams, metrics, canceller);
+            return null;
+        });
+    }
+
+    private int queryWithCallback(
+            String sql,
+            Function<Map<String, Object>, ?> callback,
+            QueryParams queryParams,
+            QueryMetrics metrics,
+            QueryCanceller canceller
+    ) {
+        try {
+            CallbackRowWriter writer = new CallbackRowWriter(callback);
+            RowHandler rh = new RowHandler(writer, queryParams.getLogFrequency(), this.formattingParams);
+            rh.setCanceller(canceller);
+            return runQuery(this.sqlClient, sql, queryParams, rh, metrics);
+        } finally {
+            this.metricsRegistry.complete(metrics);
+        }
+    }
+
+    /**
+     * @param sql the SQL query text.
+     * @param callback The callback function to invoke on each batch of rows.
+     * @return Number of rows in the result set.
+     */
+    public Integer queryWithArrowCallback(String sql, Consumer<VectorSchemaRoot> callback) {
+        return this.queryWithArrowCallback(sql, callback, QueryParams.getDefaultQueryParams());
+    }
+
+    /**
+     * Execute a query and deliver the result to a callback as Arrow record batches,
+     * with a batch for every fetch.
+     * @param sql the SQL querytext.
+     * @param callback the callback to invoke for each batch. The batch is only valid during the call.
+     * @param queryParams the parameters to use in the query process.
+     * @return Number of rows in the resultset.
+     */
+    public Integer queryWithArrowCallback(
+            String sql,
+            Consumer<VectorSchemaRoot> callback,
+            QueryParams queryParams
+    ) {
+        ArrowCallbackRowWriter writer = new ArrowCallbackRowWriter(callback, queryParams.getFetchSize());
+        QueryMetrics metrics = this.metricsRegistry.start(sql);
+        try {
+            RowHandler rh = new RowHandler(writer, queryParams.getLogFrequency(), this.formattingParams);
+            return runQuery(this.sqlClient, sql, queryParams, rh, metrics);
+        } finally {
+            closeOutput(this.metricsRegistry, metrics, writer::close, () -> 0);
+        }
     }
 
-    private static FileRowWriter getRowWriter(FileOutputFormat outputFormat) {
-        if (outputFormat == FileOutputFormat.JSON) {
-            return new JsonLRowWriter();
-        } else if (outputFormat == FileOutputFormat.CSV) {
-            return new CSVRowWriter();
+    /**
+     * Set how file output is written, such as through a FileChannel.
+     * @param outputParams the OutputParams to use for file output.
+     */
+    public void setOutputParams(OutputParams outputParams) {
+        this.outputParams = outputParams;
+    }
+
+    /**
+     * Run asynchronous queries, and the fetches of published ones, on an executor other than
+     * the shared daemon pool.
+     * @param executor the Executor to query on.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return the Executor asynchronous queries run on.
+     */
+    public Executor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Record the metrics of queries to a registry other than the default one.
+     * @param metricsRegistry the QueryMetricsRegistry to record to.
+     */
+    public void setMetricsRegistry(QueryMetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * Run a query, timing it to the metrics if there are any.
+     * @return the number of rows, or -1 if the query failed.
+     */
+    static int runQuery(SQLClient sqlClient, String sql, QueryParams queryParams, RowHandler rh, QueryMetrics metrics,
+                        Object... params) {
+        rh.setMetrics(metrics);
+        int count = sqlClient.queryWithHandler(sql, queryParams, rh, params);
+        if (metrics != null && count < 0) {
+            metrics.setFailed(true);
         }
-        return null;
+        return count;
+    }
+
+    /**
+     * Close the output of a query, timing the close, and pass on the metrics of the query.
+     * @param close closes the output.
+     * @param bytesWritten the bytes written once the output is closed.
+     */
+    static void closeOutput(QueryMetricsRegistry registry, QueryMetrics metrics, Runnable close,
+                            LongSupplier bytesWritten) {
+        long start = System.nanoTime();
+        try {
+            close.run();
+            if (metrics != null) {
+                metrics.addBytesWritten(bytesWritten.getAsLong());
+            }
+        } catch (RuntimeException e) {
+            if (metrics != null) {
+                metrics.setFailed(true);
+            }
+            throw e;
+        } finally {
+            if (metrics != null) {
+                metrics.addPhaseNanos(QueryPhase.CLOSE, System.nanoTime() - start);
+            }
+            registry.complete(metrics);
+        }
+    }
+
+    /**
+     * A query run asynchronously, recording to metrics and cancelled by a canceller.
+     */
+    private interface AsyncQuery {
+        /**
+         * @return the file written to, or null.
+         */
+        File run(QueryMetrics metrics, QueryCanceller canceller);
+    }
+
+    /**
+     * A future that cancels its query when it is cancelled.
+     */
+    private static final class QueryFuture extends CompletableFuture<QueryResult> {
+
+        private final QueryCanceller canceller = new QueryCanceller();
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                this.canceller.cancel();
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * Run a query on the executor, always recording its metrics so the result can include them.
+     * Queries fail by logging and recording the failure, so the future fails without their cause.
+     */
+    private CompletableFuture<QueryResult> runAsync(String sql, AsyncQuery query) {
+        QueryFuture future = new QueryFuture();
+        Runnable task = () -> {
+            if (future.isDone()) {
+                // Cancelled before it started.
+                return;
+            }
+            try {
+                QueryMetrics metrics = this.metricsRegistry.startAlways(sql);
+                File file = query.run(metrics, future.canceller);
+                if (metrics.isFailed()) {
+                    future.completeExceptionally(new IllegalStateException("Query failed, see the log for the cause"));
+                } else {
+                    future.complete(new QueryResult(metrics.getRows(), file, metrics));
+                }
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        };
+        try {
+            this.executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private FileRowWriter getRowWriter(FileOutputFormat outputFormat, QueryParams queryParams) {
+        FileRowWriter writer = null;
+        if (outputFormat == FileOutputFormat.JSON || outputFormat == FileOutputFormat.JSON_GZ) {
+            writer = new JsonLRowWriter();
+        } else if (outputFormat == FileOutputFormat.CSV || outputFormat == FileOutputFormat.CSV_GZ) {
+            writer = new CSVRowWriter();
+        } else if (outputFormat == FileOutputFormat.PARQUET) {
+            writer = new ParquetRowWriter();
+        } else if (outputFormat == FileOutputFormat.ARROW) {
+            ArrowRowWriter arrowWriter = new ArrowRowWriter();
+            arrowWriter.setBatchSize(queryParams.getFetchSize());
+            writer = arrowWriter;
+        } else if (outputFormat == FileOutputFormat.AVRO) {
+            writer = new AvroRowWriter();
+        }
+        if (writer != null) {
+            writer.setOutputParams(this.outputParams);
+            writer.setGzipped(outputFormat.isGzipped());
+        }
+        return writer;
+    }
+
+    /**
+     * Pipeline file output when asked to and the writer encodes separately from writing.
+     */
+    private RowHandler getFileRowHandler(FileRowWriter writer, QueryParams queryParams) {
+        if (queryParams.getPipelined() && writer instanceof EncodingRowWriter) {
+            return new PipelinedRowHandler(
+                    (EncodingRowWriter) writer,
+                    queryParams.getLogFrequency(),
+                    this.formattingParams,
+                    queryParams.getPipelineBatchSize(),
+                    queryParams.getPipelineQueueCapacity(),
+                    queryParams.getEncoderThreads()
+            );
+        }
+        return new RowHandler(writer, queryParams.getLogFrequency(), this.formattingParams);
     }
 
     /**
@@ -158,7 +518,8 @@ public class SQLExtractor {
      * @param file the output file object.
      * @param outputFormat the output file object.
      * @param queryParams the output format to write as (CSV/JSON)
-     * @return the file written to.
+     * @return the file written to, or the manifest of the part files
+     * when the OutputParams split output by rows or bytes.
      */
     public File queryToFile(
             String sql,
@@ -166,15 +527,201 @@ public class SQLExtractor {
             FileOutputFormat outputFormat,
             QueryParams queryParams
     ) {
-        this.sqlClient.setQueryParams(queryParams);
-        FileRowWriter writer = SQLExtractor.getRowWriter(outputFormat);
+        return this.queryToFile(sql, file, outputFormat, queryParams, this.metricsRegistry.start(sql), null);
+    }
+
+    /**
+     * Query the rows past the watermark of the last successful run and send output to a file.
+     * The watermark is only advanced once the output is closed, so a failed run is repeated in full.
+     * The query is bounded above by the highest value of the column when the run starts, and rows
+     * that are added while it runs are left for the next run.
+     * @param sql the SQL querytext.
+     * @param file the output file object.
+     * @param outputFormat the output format to write as (CSV/JSON)
+     * @param queryParams the parameters to use in the query process. They can't limit the number of rows.
+     * @param incrementalParams the watermark column and the file to keep it in.
+     * @return the file written to, or the manifest of the part files
+     * when the OutputParams split output by rows or bytes.
+     */
+    public File queryToFile(
+            String sql,
+            File file,
+            FileOutputFormat outputFormat,
+            QueryParams queryParams,
+            IncrementalParams incrementalParams
+    ) {
+        if (queryParams.getMaxRows() != null) {
+            throw new IllegalArgumentException("Incremental queries can't limit the number of rows");
+        }
+        String column = incrementalParams.getWatermarkColumn();
+        Watermark last = Watermark.load(incrementalParams.getStateFile());
+        if (last != null && !last.getColumn().equals(column)) {
+            throw new IllegalArgumentException("The watermark in " + incrementalParams.getStateFile()
+                    + " is of " + last.getColumn() + ", not " + column);
+        }
+        Object after = last == null ? null : last.getValue();
+        Object upTo = new RangeSplitter(this.sqlClient, queryParams).findMaxAfter(sql, column, after);
+        if (upTo != null) {
+            // Fail before extracting, or every run would extract the rows again without advancing.
+            Watermark.checkSupported(upTo);
+        }
+        String from = last == null ? "no watermark yet" : "the watermark " + last;
+        if (upTo == null) {
+            logger.info("No rows past " + from);
+        } else {
+            logger.info("Extracting rows past " + from + " up to " + upTo);
+        }
+        RangeSplit range = RangeSplitter.incrementalRange(column, after, upTo);
+        String rangeSql = range.wrap(sql);
+        QueryMetrics metrics = this.metricsRegistry.startAlways(rangeSql);
+        File written = this.queryToFile(
+                rangeSql, file, outputFormat, queryParams, metrics, null, range.getParams());
+        if (metrics.isFailed()) {
+            logger.error("Incremental query failed, leaving " + from);
+        } else if (upTo != null) {
+            Watermark next = new Watermark(column, upTo);
+            next.save(incrementalParams.getStateFile());
+            logger.info("Advanced the watermark to " + next);
+        }
+        return written;
+    }
+
+    /**
+     * Query and send output to a file asynchronously, on the executor.
+     * Cancelling the returned future cancels the query, including a fetch in progress.
+     * @param sql the SQL querytext.
+     * @param file the output file object.
+     * @param outputFormat the output format to write as (CSV/JSON)
+     * @param queryParams the parameters to use in the query process.
+     * @return a future of the file written to, row count and metrics, which fails if the query fails.
+     */
+    public CompletableFuture<QueryResult> queryToFileAsync(
+            String sql,
+            File file,
+            FileOutputFormat outputFormat,
+            QueryParams queryParams
+    ) {
+        return this.runAsync(sql,
+                (metrics, canceller) -> this.queryToFile(sql, file, outputFormat, queryParams, metrics, canceller));
+    }
+
+    private File queryToFile(
+            String sql,
+            File file,
+            FileOutputFormat outputFormat,
+            QueryParams queryParams,
+            QueryMetrics metrics,
+            QueryCanceller canceller
+    ) {
+        return this.queryToFile(sql, file, outputFormat, queryParams, metrics, canceller, new Object[0]);
+    }
+
+    private File queryToFile(
+            String sql,
+            File file,
+            FileOutputFormat outputFormat,
+            QueryParams queryParams,
+            QueryMetrics metrics,
+            QueryCanceller canceller,
+            Object[] params
+    ) {
+        FileRowWriter writer;
+        try {
+            writer = this.getRowWriter(outputFormat, queryParams);
+        } catch (RuntimeException e) {
+            this.metricsRegistry.complete(metrics);
+            throw e;
+        }
+        if (this.outputParams.isRolling()) {
+            return this.queryToRollingFile(sql, file, writer, queryParams, metrics, canceller, params);
+        }
         try {
             writer.open(file);
-            RowHandler rh = new RowHandler(writer, queryParams.getLogFrequency(), this.formattingParams);
-            this.sqlClient.queryWithHandler(sql, rh);
+            RowHandler rh = this.getFileRowHandler(writer, queryParams);
+            rh.setCanceller(canceller);
+            runQuery(this.sqlClient, sql, queryParams, rh, metrics, params);
         } finally {
-            writer.close();
+            closeOutput(this.metricsRegistry, metrics, writer::close, writer::getFileBytes);
         }
         return file;
     }
+
+    /**
+     * Parts are rolled between rows, so rolling output isn't pipelined.
+     */
+    private File queryToRollingFile(String sql, File file, FileRowWriter writer, QueryParams queryParams,
+                                    QueryMetrics metrics, QueryCanceller canceller, Object[] params) {
+        RollingFileWriter rollingWriter = new RollingFileWriter(
+                writer, file, this.outputParams.getMaxRowsPerFile(), this.outputParams.getMaxBytesPerFile());
+        boolean complete = false;
+        try {
+            RowHandler rh = new RowHandler(rollingWriter, queryParams.getLogFrequency(), this.formattingParams);
+            rh.setCanceller(canceller);
+            complete = runQuery(this.sqlClient, sql, queryParams, rh, metrics, params) >= 0;
+        } finally {
+            closeOutput(this.metricsRegistry, metrics, complete ? rollingWriter::close : rollingWriter::abort,
+                    () -> rollingWriter.getParts().stream().mapToLong(FilePart::getBytes).sum());
+        }
+        return rollingWriter.getManifestFile();
+    }
+
+    /**
+     * Query in order of a unique key and send output to a file, checkpointing the last key written
+     * so a failed query is retried from the checkpoint instead of from the start.
+     * An extract that runs out of retries carries on from its checkpoint file the next time it is run.
+     * @param sql the SQL querytext.
+     * @param file the output file object.
+     * @param outputFormat the output format to write as, CSV or JSON since the output is cut back
+     *                     to a checkpoint and appended to.
+     * @param queryParams the parameters to use in the query process. They can't limit the number of rows.
+     * @param resumableParams the key column, checkpoint file and retry policy.
+     * @return the file written to.
+     */
+    public File queryToFile(
+            String sql,
+            File file,
+            FileOutputFormat outputFormat,
+            QueryParams queryParams,
+            ResumableParams resumableParams
+    ) {
+        if (outputFormat != FileOutputFormat.JSON && outputFormat != FileOutputFormat.CSV) {
+            throw new IllegalArgumentException("Resumable queries can only be written as JSON or CSV");
+        }
+        if (this.outputParams.isRolling()) {
+            throw new IllegalArgumentException("Resumable queries can't be split into part files");
+        }
+        if (queryParams.getMaxRows() != null) {
+            throw new IllegalArgumentException("Resumable queries can't limit the number of rows");
+        }
+        ResumableExtractor extractor = new ResumableExtractor(this.sqlClient, queryParams, this.formattingParams,
+                () -> (EncodingRowWriter) this.getRowWriter(outputFormat, queryParams));
+        extractor.setMetricsRegistry(this.metricsRegistry);
+        return extractor.extract(sql, file, resumableParams);
+    }
+
+    /**
+     * Query in parallel ranges of a column and send output to a file, or a file per range.
+     * Each range is queried on its own pooled connection with the given QueryParams,
+     * so the parallelism can't exceed the pool's maximum size.
+     * @param sql the SQL querytext.
+     * @param file the output file. With a file per range, ranges are written next to it
+     *             with a -split-NNNNN suffix.
+     * @param outputFormat the output format to write as (CSV/JSON)
+     * @param queryParams the parameters to use for each range query.
+     * @param splitParams the split column and degree of parallelism.
+     * @return the files written to.
+     * @throws IllegalArgumentException if the parallelism exceeds the connection pool size.
+     */
+    public List<File> queryToFile(
+            String sql,
+            File file,
+            FileOutputFormat outputFormat,
+            QueryParams queryParams,
+            SplitParams splitParams
+    ) {
+        ParallelExtractor extractor = new ParallelExtractor(this.sqlClient, queryParams, this.formattingParams,
+                () -> this.getRowWriter(outputFormat, queryParams));
+        extractor.setMetricsRegistry(this.metricsRegistry);
+        return extractor.extract(sql, file, splitParams);
+    }
 }
@@ -20,9 +20,13 @@ import org.apache.commons.dbutils.StatementConfiguration;
 import org.apache.commons.dbutils.handlers.MapListHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.simondata.pouroversql.metrics.QueryMetrics;
 import com.simondata.pouroversql.writers.RowHandler;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.util.List;
 import java.util.Map;
 
@@ -33,7 +37,10 @@ import java.util.Map;
 public abstract class AbstractSQLClient implements SQLClient {
 
     protected SQLParams params;
-    protected QueryParams queryParams;
+    /**
+     * The QueryParams of queries that aren't given their own.
+     */
+    protected volatile QueryParams queryParams;
 
     private final Logger logger = LoggerFactory.getLogger(SQLClient.class);
 
@@ -58,9 +65,73 @@ public abstract class AbstractSQLClient implements SQLClient {
 
     abstract protected DataSource initDataSource();
 
+    /**
+     * Get the DataSource to query with.
+     * Unless pooling is disabled this is the connection pool shared by all clients
+     * of the same type connecting with the same SQLParams, and the driver is loaded only
+     * when the pool is created.
+     * @return the DataSource
+     */
+    protected DataSource getDataSource() {
+        if (!this.params.getPoolParams().isEnabled()) {
+            DbUtils.loadDriver(this.getDriverName());
+            return this.initDataSource();
+        }
+        return ConnectionPools.getPool(this.getClass().getName(), this.params, () -> {
+            DbUtils.loadDriver(this.getDriverName());
+            return this.initDataSource();
+        });
+    }
+
     abstract protected String getDriverName();
 
     @Override
+    public Integer getMaxConnections() {
+        PoolParams poolParams = this.params.getPoolParams();
+        return poolParams.isEnabled() ? poolParams.getMaxSize() : null;
+    }
+
+    /**
+     * Apply the connection settings of a query, such as read only, to a connection borrowed for it.
+     * Pooled connections are shared by clients with different QueryParams, so these settings
+     * belong here rather than on the DataSource. Statement settings such as the fetch size
+     * are applied to each statement from the StatementConfiguration.
+     * @param conn the connection the query runs on.
+     * @param queryParams the QueryParams of the query.
+     * @throws SQLException if the driver rejects a setting.
+     */
+    protected void configureConnection(Connection conn, QueryParams queryParams) throws SQLException {
+    }
+
+    /**
+     * Whether the driver ignores the fetch size outside a transaction, reading the whole
+     * result into memory instead, as the PostgreSQL and Redshift drivers do.
+     * @return true if queries with a fetch size must turn off autocommit.
+     */
+    protected boolean fetchSizeRequiresTransaction() {
+        return false;
+    }
+
+    /**
+     * Apply the settings of a query to a connection borrowed for it. Autocommit is turned off
+     * for lazy queries, and for queries with a fetch size on drivers that need a transaction
+     * to stream, so rows are fetched in batches rather than all at once. The pool restores
+     * autocommit when the connection is returned.
+     */
+    private void applyQuerySettings(Connection conn, QueryParams queryParams, boolean lazy) throws SQLException {
+        this.configureConnection(conn, queryParams);
+        boolean fetchesInBatches = queryParams.getFetchSize() != null && queryParams.getFetchSize() > 0;
+        if (lazy || (fetchesInBatches && this.fetchSizeRequiresTransaction())) {
+            try {
+                conn.setAutoCommit(false);
+            } catch (SQLFeatureNotSupportedException e) {
+                logger.debug("Driver doesn't support transactions, leaving autocommit on: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    @Deprecated
     public void setQueryParams(QueryParams queryParams) {
         this.queryParams = queryParams;
     }
@@ -68,13 +139,14 @@ public abstract class AbstractSQLClient implements SQLClient {
     /**
      * Builds the StatementConfiguration based on the
      * provided QueryParams.
+     * @param queryParams the QueryParams of the query.
      * @return StatementConfiguration
      */
-    private StatementConfiguration buildStatementConfiguration() {
+    private static StatementConfiguration buildStatementConfiguration(QueryParams queryParams) {
         return new StatementConfiguration.Builder()
-                .fetchSize(this.queryParams.getFetchSize())
-                .queryTimeout(this.queryParams.getTimeout())
-                .maxRows(this.queryParams.getMaxRows())
+                .fetchSize(queryParams.getFetchSize())
+                .queryTimeout(queryParams.getTimeout())
+                .maxRows(queryParams.getMaxRows())
                 .build();
     }
 
@@ -88,14 +160,35 @@ public abstract class AbstractSQLClient implements SQLClient {
 
     @Override
     public List<Map<String, Object>> queryAsList(String queryText) {
+        return this.queryAsList(queryText, new Object[0]);
+    }
+
+    @Override
+    public List<Map<String, Object>> queryAsList(String queryText, Object... params) {
+        return this.queryAsList(queryText, this.queryParams, params);
+    }
+
+    @Override
+    public List<Map<String, Object>> queryAsList(String queryText, QueryParams queryParams, Object... params) {
         logger.debug("Querying for: " + queryText);
         try {
-            DbUtils.loadDriver(this.getDriverName());
-            DataSource ds = this.initDataSource();
-            StatementConfiguration sc = this.buildStatementConfiguration();
-            QueryRunner queryRunner = new QueryRunner(ds, sc);
+            DataSource ds = this.getDataSource();
+            StatementConfiguration sc = buildStatementConfiguration(queryParams);
+            QueryRunner queryRunner = new QueryRunner(ds, sc) {
+                @Override
+                protected Connection prepareConnection() throws SQLException {
+                    Connection conn = super.prepareConnection();
+                    try {
+                        applyQuerySettings(conn, queryParams, false);
+                    } catch (SQLException | RuntimeException e) {
+                        DbUtils.closeQuietly(conn);
+                        throw e;
+                    }
+                    return conn;
+                }
+            };
             MapListHandler handler = new MapListHandler();
-            return queryRunner.query(queryText, handler);
+            return queryRunner.query(queryText, handler, params);
         } catch (Exception e) {
             logger.error(e.getMessage());
             e.printStackTrace();
@@ -105,13 +198,23 @@ public abstract class AbstractSQLClient implements SQLClient {
 
     @Override
     public int queryWithHandler(String queryText, RowHandler handler) {
+        return this.queryWithHandler(queryText, handler, new Object[0]);
+    }
+
+    @Override
+    public int queryWithHandler(String queryText, RowHandler handler, Object... params) {
+        return this.queryWithHandler(queryText, this.queryParams, handler, params);
+    }
+
+    @Override
+    public int queryWithHandler(String queryText, QueryParams queryParams, RowHandler handler, Object... params) {
         logger.debug("Querying for: " + queryText);
         try {
-            DbUtils.loadDriver(this.getDriverName());
-            DataSource ds = this.initDataSource();
-            StatementConfiguration sc = this.buildStatementConfiguration();
-            CustomQueryRunner cqr = new CustomQueryRunner(ds, sc, handler);
-            return cqr.query(queryText);
+            DataSource ds = this.getDataSource();
+            StatementConfiguration sc = buildStatementConfiguration(queryParams);
+            CustomQueryRunner cqr = new CustomQueryRunner(
+                    ds, sc, conn -> this.applyQuerySettings(conn, queryParams, false), handler);
+            return cqr.query(queryText, params);
         } catch (Exception e) {
             logger.error(e.getMessage());
             e.printStackTrace();
@@ -119,4 +222,18 @@ public abstract class AbstractSQLClient implements SQLClient {
         }
     }
 
+    @Override
+    public ResultSetIterator queryAsIterator(String queryText, QueryParams queryParams,
+            FormattingParams formattingParams, QueryMetrics metrics, QueryCanceller canceller, Object... params) {
+        logger.debug("Querying for: " + queryText);
+        try {
+            DataSource ds = this.getDataSource();
+            StatementConfiguration sc = buildStatementConfiguration(queryParams);
+            return new CustomQueryRunner(ds, sc, conn -> this.applyQuerySettings(conn, queryParams, true))
+                    .iterate(queryText, formattingParams, metrics, canceller, params);
+        } catch (SQLException e) {
+            logger.error(e.getMessage());
+            throw new IllegalStateException("Failed running query", e);
+        }
+    }
 }
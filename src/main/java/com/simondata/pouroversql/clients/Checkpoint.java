@@ -0,0 +1,109 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.clients;
+
+import com.google.gson.JsonObject;
+
+import java.io.File;
+
+/**
+ * <h1>Checkpoint</h1>
+ * How far a resumable extract got: the last key written, and the rows and bytes of output up to and including it.
+ * Everything in the output file before the byte offset is complete, so an extract resumes
+ * by cutting the file back to it and querying the keys past the last one.
+ */
+public class Checkpoint {
+
+    private final Watermark lastKey;
+    private final long rows;
+    private final long bytes;
+
+    /**
+     * Constructor
+     * @param keyColumn the column the rows are ordered by.
+     * @param lastKey the key of the last row written.
+     * @param rows the rows written up to and including the last key.
+     * @param bytes the bytes of output up to and including the last key.
+     */
+    public Checkpoint(String keyColumn, Object lastKey, long rows, long bytes) {
+        this.lastKey = new Watermark(keyColumn, lastKey);
+        this.rows = rows;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return the column the rows are ordered by.
+     */
+    public String getKeyColumn() {
+        return this.lastKey.getColumn();
+    }
+
+    /**
+     * @return the key of the last row written.
+     */
+    public Object getLastKey() {
+        return this.lastKey.getValue();
+    }
+
+    /**
+     * @return the rows written up to and including the last key.
+     */
+    public long getRows() {
+        return this.rows;
+    }
+
+    /**
+     * @return the bytes of output up to and including the last key.
+     */
+    public long getBytes() {
+        return this.bytes;
+    }
+
+    /**
+     * Read the checkpoint left by an extract that didn't finish.
+     * @param checkpointFile the checkpoint file.
+     * @return the checkpoint, or null if there is no checkpoint file.
+     */
+    public static Checkpoint load(File checkpointFile) {
+        JsonObject state = Watermark.read(checkpointFile);
+        if (state == null) {
+            return null;
+        }
+        Watermark lastKey = Watermark.from(state, checkpointFile);
+        if (!state.has("rows") || !state.has("bytes")) {
+            throw new IllegalStateException("Unreadable state file " + checkpointFile);
+        }
+        return new Checkpoint(
+                lastKey.getColumn(), lastKey.getValue(), state.get("rows").getAsLong(), state.get("bytes").getAsLong());
+    }
+
+    /**
+     * Replace the checkpoint file with this checkpoint, atomically where the file system allows.
+     * @param checkpointFile the checkpoint file.
+     */
+    public void save(File checkpointFile) {
+        JsonObject state = new JsonObject();
+        this.lastKey.addTo(state);
+        state.addProperty("rows", this.rows);
+        state.addProperty("bytes", this.bytes);
+        Watermark.write(checkpointFile, state);
+    }
+
+    @Override
+    public String toString() {
+        return this.lastKey + " after " + this.rows + " rows, " + this.bytes + " bytes";
+    }
+}
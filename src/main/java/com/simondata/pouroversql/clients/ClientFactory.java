@@ -63,6 +63,9 @@ public class ClientFactory {
             case SNOWFLAKE:
                 client = new SnowflakeClient(params);
                 break;
+            case SYNTHETIC:
+                client = new SyntheticClient(params);
+                break;
             case BIGQUERY:
                 logger.error("Not supported yet.");
                 break;
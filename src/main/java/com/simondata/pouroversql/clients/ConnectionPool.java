@@ -0,0 +1,310 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.clients;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h1>ConnectionPool</h1>
+ * A bounded pool of physical connections from an engine's DataSource.
+ * Connections handed out return to the pool when closed.
+ * Idle connections are validated before reuse and closed after the idle timeout.
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private final DataSource dataSource;
+    private final PoolParams poolParams;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger openCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * A physical connection and when it was last returned.
+     */
+    private static final class PooledConnection {
+        private final Connection connection;
+        private long lastUsedNanos;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.lastUsedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Constructor
+     * @param dataSource the DataSource to open physical connections from.
+     * @param poolParams the size and timeout settings.
+     */
+    public ConnectionPool(DataSource dataSource, PoolParams poolParams) {
+        this.dataSource = dataSource;
+        this.poolParams = poolParams;
+        this.permits = new Semaphore(Math.max(1, poolParams.getMaxSize()), true);
+    }
+
+    /**
+     * Check out a connection, waiting up to the acquire timeout if all are in use.
+     * @return a connection that returns to the pool on close.
+     * @throws SQLException if no connection could be acquired or opened.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (this.closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!this.permits.tryAcquire(this.poolParams.getAcquireTimeoutSeconds(), TimeUnit.SECONDS)) {
+                throw new SQLException("Timed out waiting for a pooled connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a pooled connection", e);
+        }
+        try {
+            return this.wrap(this.checkout());
+        } catch (SQLException | RuntimeException e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection checkout() throws SQLException {
+        long validationIntervalNanos = TimeUnit.SECONDS.toNanos(this.poolParams.getValidationIntervalSeconds());
+        PooledConnection pooled;
+        while ((pooled = this.idle.pollFirst()) != null) {
+            if (this.isExpired(pooled, System.nanoTime())) {
+                this.discard(pooled);
+            } else if (System.nanoTime() - pooled.lastUsedNanos > validationIntervalNanos
+                    && !this.isValid(pooled)) {
+                logger.debug("Discarding invalid pooled connection");
+                this.discard(pooled);
+            } else {
+                return pooled;
+            }
+        }
+        return this.open();
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection connection = this.dataSource.getConnection();
+        this.openCount.incrementAndGet();
+        return new PooledConnection(connection);
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.connection.isValid(this.poolParams.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return now - pooled.lastUsedNanos > TimeUnit.SECONDS.toNanos(this.poolParams.getIdleTimeoutSeconds());
+    }
+
+    private void discard(PooledConnection pooled) {
+        this.openCount.decrementAndGet();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            logger.debug("Failed to close pooled connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Return a connection to the pool once the caller closes it.
+     */
+    private void release(PooledConnection pooled) {
+        try {
+            if (this.closed || pooled.connection.isClosed()) {
+                this.discard(pooled);
+                return;
+            }
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            pooled.connection.clearWarnings();
+            pooled.lastUsedNanos = System.nanoTime();
+            this.idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            this.discard(pooled);
+        } finally {
+            this.permits.release();
+        }
+    }
+
+    /**
+     * Close connections idle past the timeout, keeping at least minIdle,
+     * then open connections until minIdle are available.
+     */
+    public void evictIdle() {
+        long now = System.nanoTime();
+        PooledConnection oldest;
+        while (this.idle.size() > this.poolParams.getMinIdle()
+                && (oldest = this.idle.peekLast()) != null
+                && this.isExpired(oldest, now)) {
+            if (this.idle.removeLastOccurrence(oldest)) {
+                this.discard(oldest);
+            }
+        }
+        // Each connection is opened under a permit, as a borrower's would be, so together they stay within maxSize.
+        while (!this.closed
+                && this.idle.size() < this.poolParams.getMinIdle()
+                && this.openCount.get() < this.poolParams.getMaxSize()
+                && this.permits.tryAcquire()) {
+            try {
+                PooledConnection pooled = this.open();
+                this.idle.offerLast(pooled);
+                // Closing drains the idle connections, so one parked after that would never be closed.
+                if (this.closed && this.idle.removeLastOccurrence(pooled)) {
+                    this.discard(pooled);
+                }
+            } catch (SQLException e) {
+                logger.warn("Failed to open idle connection: " + e.getMessage());
+                return;
+            } finally {
+                this.permits.release();
+            }
+        }
+    }
+
+    /**
+     * @return the number of open physical connections, in use or idle.
+     */
+    public int getOpenCount() {
+        return this.openCount.get();
+    }
+
+    /**
+     * @return the number of idle connections.
+     */
+    public int getIdleCount() {
+        return this.idle.size();
+    }
+
+    /**
+     * Close all idle connections. Connections in use are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        PooledConnection pooled;
+        while ((pooled = this.idle.pollFirst()) != null) {
+            this.discard(pooled);
+        }
+    }
+
+    private Connection wrap(PooledConnection pooled) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    // Object methods go by the proxy, so a released connection can still be logged or hashed.
+                    switch (method.getName()) {
+                        case "toString":
+                            return "PooledConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "close":
+                            if (released.compareAndSet(false, true)) {
+                                this.release(pooled);
+                            }
+                            return null;
+                        case "isClosed":
+                            return released.get() || pooled.connection.isClosed();
+                        default:
+                            if (released.get()) {
+                                throw new SQLException("Connection is closed");
+                            }
+                            return invoke(pooled.connection, method, args);
+                    }
+                });
+    }
+
+    private static Object invoke(Connection connection, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the credentials of the pool");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return this.dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        this.dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        this.dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return this.dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return this.dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return this.dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || this.dataSource.isWrapperFor(iface);
+    }
+}
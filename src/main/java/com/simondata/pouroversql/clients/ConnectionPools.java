@@ -0,0 +1,149 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.clients;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * <h1>ConnectionPools</h1>
+ * Registry of connection pools, one per client type and SQLParams identity,
+ * shared by every client in the JVM that connects to the same database.
+ */
+public class ConnectionPools {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPools.class);
+
+    private static final long EVICTION_INTERVAL_SECONDS = 30;
+
+    private static final Map<Key, ConnectionPool> POOLS = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService evictor;
+
+    /**
+     * Identity of a pool: everything that determines which database and user a connection is for.
+     */
+    static final class Key {
+        private final String clientType;
+        private final String host;
+        private final Integer port;
+        private final String user;
+        private final String password;
+        private final String database;
+        private final Map<Object, Object> customProperties;
+
+        Key(String clientType, SQLParams params) {
+            this.clientType = clientType;
+            this.host = params.getHost();
+            this.port = params.getPort();
+            this.user = params.getUser();
+            this.password = params.getPassword();
+            this.database = params.getDatabase();
+            this.customProperties = new HashMap<>(params.getCustomProperties());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(this.clientType, key.clientType)
+                    && Objects.equals(this.host, key.host)
+                    && Objects.equals(this.port, key.port)
+                    && Objects.equals(this.user, key.user)
+                    && Objects.equals(this.password, key.password)
+                    && Objects.equals(this.database, key.database)
+                    && Objects.equals(this.customProperties, key.customProperties);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.clientType, this.host, this.port, this.user, this.database);
+        }
+    }
+
+    /**
+     * Get the pool for a client, creating it on first use.
+     * The PoolParams of the first caller configure the pool.
+     * @param clientType the type of client, so different engines never share a pool.
+     * @param params the SQLParams identifying the database.
+     * @param dataSourceFactory builds the engine DataSource for a new pool.
+     * @return the shared ConnectionPool
+     */
+    public static ConnectionPool getPool(String clientType, SQLParams params, Supplier<DataSource> dataSourceFactory) {
+        return POOLS.computeIfAbsent(new Key(clientType, params), key -> {
+            logger.debug("Creating connection pool for " + clientType + " " + params.getHost());
+            ConnectionPool pool = new ConnectionPool(dataSourceFactory.get(), params.getPoolParams());
+            startEvictor();
+            return pool;
+        });
+    }
+
+    private static synchronized void startEvictor() {
+        if (evictor == null) {
+            evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "pourover-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            evictor.scheduleWithFixedDelay(
+                    ConnectionPools::evictIdle,
+                    EVICTION_INTERVAL_SECONDS,
+                    EVICTION_INTERVAL_SECONDS,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * A scheduled task that throws is never run again, so a failing pool is logged and skipped.
+     */
+    static void evictIdle() {
+        for (ConnectionPool pool : POOLS.values()) {
+            try {
+                pool.evictIdle();
+            } catch (RuntimeException e) {
+                logger.error("Evicting idle connections failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Close every pool and its idle connections.
+     * Pools are recreated on next use.
+     */
+    public static synchronized void closeAll() {
+        POOLS.values().forEach(ConnectionPool::close);
+        POOLS.clear();
+        if (evictor != null) {
+            evictor.shutdownNow();
+            evictor = null;
+        }
+    }
+}
@@ -17,7 +17,11 @@ package com.simondata.pouroversql.clients;
 
 import org.apache.commons.dbutils.AbstractQueryRunner;
 import org.apache.commons.dbutils.StatementConfiguration;
+import com.simondata.pouroversql.jfr.JfrEvents;
+import com.simondata.pouroversql.metrics.QueryMetrics;
+import com.simondata.pouroversql.metrics.QueryPhase;
 import com.simondata.pouroversql.writers.RowHandler;
+import com.simondata.pouroversql.writers.RowPlan;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -32,22 +36,146 @@ import javax.sql.DataSource;
  */
 class CustomQueryRunner extends AbstractQueryRunner {
 
+    /**
+     * Settings applied to each connection a query borrows.
+     */
+    interface ConnectionConfigurer {
+        void configure(Connection conn) throws SQLException;
+    }
+
     private final RowHandler rh;
 
+    private final ConnectionConfigurer configurer;
+
     /**
      * Constructor
      * @param ds
      * @param stmtConfig
+     * @param configurer applied to each connection before it is queried.
      * @param rh
      */
-    CustomQueryRunner(DataSource ds, StatementConfiguration stmtConfig, RowHandler rh) {
+    CustomQueryRunner(DataSource ds, StatementConfiguration stmtConfig, ConnectionConfigurer configurer, RowHandler rh) {
         super(ds, stmtConfig);
+        this.configurer = configurer;
         this.rh = rh;
     }
 
-    int query(String sql) throws SQLException {
-        Connection conn = this.prepareConnection();
-        return this.query(conn, true, sql);
+    /**
+     * Constructor for queries whose rows are read through an iterator.
+     * @param ds
+     * @param stmtConfig
+     * @param configurer applied to each connection before it is queried.
+     */
+    CustomQueryRunner(DataSource ds, StatementConfiguration stmtConfig, ConnectionConfigurer configurer) {
+        this(ds, stmtConfig, configurer, null);
+    }
+
+    /**
+     * Borrow a connection and apply the query's connection settings to it.
+     * Connections are shared through the pool, so settings are applied on every borrow.
+     */
+    @Override
+    protected Connection prepareConnection() throws SQLException {
+        Connection conn = super.prepareConnection();
+        try {
+            this.configurer.configure(conn);
+        } catch (SQLException | RuntimeException e) {
+            close(conn);
+            throw e;
+        }
+        return conn;
+    }
+
+    int query(String sql, Object... params) throws SQLException {
+        JfrEvents.QuerySpan querySpan = JfrEvents.beginQuery(sql);
+        int count = 0;
+        boolean failed = true;
+        try {
+            long start = System.nanoTime();
+            JfrEvents.Span connectionSpan = JfrEvents.beginConnectionAcquisition();
+            Connection conn = this.prepareConnection();
+            if (connectionSpan != null) {
+                connectionSpan.end();
+            }
+            this.record(this.rh.getMetrics(), QueryPhase.CONNECT, start);
+            count = this.query(conn, true, sql, params);
+            failed = false;
+            return count;
+        } finally {
+            if (querySpan != null) {
+                querySpan.end(count, failed);
+            }
+        }
+    }
+
+    /**
+     * Run a query and leave its result open to be read row by row.
+     * @param sql the SQL text to query.
+     * @param formattingParams how the keys of the rows are formatted.
+     * @param metrics the metrics to time the query to, or null.
+     * @param canceller cancels the statement from before it is executed until the iterator is closed, or null.
+     * @param params the values to bind.
+     * @return the iterator over the rows, which owns the connection.
+     * @throws SQLException if the query fails.
+     */
+    ResultSetIterator iterate(String sql, FormattingParams formattingParams, QueryMetrics metrics,
+                              QueryCanceller canceller, Object... params) throws SQLException {
+        JfrEvents.QuerySpan querySpan = JfrEvents.beginQuery(sql);
+        long start = System.nanoTime();
+        JfrEvents.Span connectionSpan = JfrEvents.beginConnectionAcquisition();
+        Connection conn;
+        try {
+            conn = this.prepareConnection();
+        } catch (SQLException e) {
+            if (querySpan != null) {
+                querySpan.end(0, true);
+            }
+            throw e;
+        }
+        if (connectionSpan != null) {
+            connectionSpan.end();
+        }
+        this.record(metrics, QueryPhase.CONNECT, start);
+
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        ResultSetIterator iterator = null;
+        try {
+            start = System.nanoTime();
+            stmt = this.prepareStatement(conn, sql);
+            if (canceller != null) {
+                canceller.register(stmt);
+            }
+            this.fillStatement(stmt, params);
+            rs = this.wrap(stmt.executeQuery());
+            this.record(metrics, QueryPhase.EXECUTE, start);
+            RowPlan plan = RowPlan.compile(rs.getMetaData(), formattingParams.getKeyCaseFormat());
+            iterator = new ResultSetIterator(conn, stmt, rs, plan, metrics, querySpan, canceller);
+        } catch (SQLException e) {
+            this.rethrow(e, sql, params);
+        } finally {
+            if (iterator == null) {
+                if (canceller != null) {
+                    canceller.unregister();
+                }
+                try {
+                    close(rs);
+                } finally {
+                    close(stmt);
+                    close(conn);
+                    if (querySpan != null) {
+                        querySpan.end(0, true);
+                    }
+                }
+            }
+        }
+        return iterator;
+    }
+
+    private void record(QueryMetrics metrics, QueryPhase phase, long start) {
+        if (metrics != null) {
+            metrics.addPhaseNanos(phase, System.nanoTime() - start);
+        }
     }
 
     private int query(Connection conn, boolean closeConn, String sql, Object... params)
@@ -66,14 +194,23 @@ class CustomQueryRunner extends AbstractQueryRunner {
         PreparedStatement stmt = null;
         ResultSet rs = null;
         int count = 0;
+        QueryCanceller canceller = this.rh.getCanceller();
         try {
+            long start = System.nanoTime();
             stmt = this.prepareStatement(conn, sql);
+            if (canceller != null) {
+                canceller.register(stmt);
+            }
             this.fillStatement(stmt, params);
             rs = this.wrap(stmt.executeQuery());
+            this.record(this.rh.getMetrics(), QueryPhase.EXECUTE, start);
             count = rh.handle(rs);
         } catch (SQLException e) {
             this.rethrow(e, sql, params);
         } finally {
+            if (canceller != null) {
+                canceller.unregister();
+            }
             try {
                 close(rs);
             } finally {
@@ -0,0 +1,69 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.clients;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+/**
+ * <h1>IncrementalParams</h1>
+ * IncrementalParams control incremental extraction of a query.
+ * Each run extracts only the rows past the high-water mark of a column from the last successful run,
+ * kept in a state file. The column must only increase for rows to be added or changed,
+ * like an auto-incremented id or an updated at timestamp.
+ */
+public class IncrementalParams implements InputParams {
+
+    private final static Logger logger = LoggerFactory.getLogger(InputParams.class);
+
+    private final String watermarkColumn;
+    private final File stateFile;
+
+    /**
+     * Constructor
+     * @param watermarkColumn the column of the query result to extract rows past the watermark of.
+     * @param stateFile the file the watermark is kept in between runs.
+     */
+    public IncrementalParams(String watermarkColumn, File stateFile) {
+        this.watermarkColumn = watermarkColumn;
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * Get setting for watermarkColumn.
+     * @return the column of the query result to extract rows past the watermark of.
+     */
+    public String getWatermarkColumn() {
+        return this.watermarkColumn;
+    }
+
+    /**
+     * Get setting for stateFile.
+     * Without a state file, every row is extracted and the file is created.
+     * @return the file the watermark is kept in between runs.
+     */
+    public File getStateFile() {
+        return this.stateFile;
+    }
+
+    @Override
+    public void logValues() {
+        logger.info("Watermark Column: " + this.getWatermarkColumn());
+        logger.info("Watermark State File: " + this.getStateFile());
+    }
+}
@@ -0,0 +1,263 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.clients;
+
+import org.apache.avro.file.CodecFactory;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <h1>OutputParams</h1>
+ * OutputParams control how file output is written,
+ * independently of the format it is written in.
+ */
+public class OutputParams implements InputParams {
+
+    private final static Logger logger = LoggerFactory.getLogger(InputParams.class);
+
+    private static final int DEFAULT_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final int DEFAULT_GZIP_BLOCK_SIZE = 1024 * 1024;
+    private static final int DEFAULT_PARQUET_ROW_GROUP_SIZE = 64 * 1024 * 1024;
+    private static final int DEFAULT_AVRO_BLOCK_SIZE = 1024 * 1024;
+
+    private boolean useChannel = false;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private int gzipBlockSize = DEFAULT_GZIP_BLOCK_SIZE;
+    private int gzipThreads = Runtime.getRuntime().availableProcessors();
+    private Long maxRowsPerFile = null;
+    private Long maxBytesPerFile = null;
+    private int parquetRowGroupSize = DEFAULT_PARQUET_ROW_GROUP_SIZE;
+    private CompressionCodecName parquetCompression = CompressionCodecName.SNAPPY;
+    private int avroBlockSize = DEFAULT_AVRO_BLOCK_SIZE;
+    private String avroCodec = "snappy";
+
+    /**
+     * Get setting for useChannel.
+     * @return whether output goes through a FileChannel with double-buffered direct buffers.
+     */
+    public boolean getUseChannel() {
+        return this.useChannel;
+    }
+
+    /**
+     * Write output through a FileChannel, filling one direct buffer while
+     * the other is written by a dedicated I/O thread.
+     * @param useChannel whether to use the channel backend.
+     */
+    public void setUseChannel(boolean useChannel) {
+        this.useChannel = useChannel;
+    }
+
+    /**
+     * Get setting for bufferSize.
+     * @return the size in bytes of each of the two channel buffers.
+     */
+    public int getBufferSize() {
+        return this.bufferSize;
+    }
+
+    /**
+     * @param bufferSize the size in bytes of each of the two channel buffers.
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Get setting for gzipBlockSize.
+     * @return the number of uncompressed bytes in each gzip member of compressed output.
+     */
+    public int getGzipBlockSize() {
+        return this.gzipBlockSize;
+    }
+
+    /**
+     * Larger blocks compress slightly better, smaller ones spread across threads sooner.
+     * @param gzipBlockSize the number of uncompressed bytes in each gzip member of compressed output.
+     */
+    public void setGzipBlockSize(int gzipBlockSize) {
+        if (gzipBlockSize < 1) {
+            throw new IllegalArgumentException("Gzip block size must be positive");
+        }
+        this.gzipBlockSize = gzipBlockSize;
+    }
+
+    /**
+     * Get setting for gzipThreads.
+     * @return the number of threads compressing blocks of compressed output.
+     */
+    public int getGzipThreads() {
+        return this.gzipThreads;
+    }
+
+    /**
+     * @param gzipThreads the number of threads compressing blocks of compressed output.
+     */
+    public void setGzipThreads(int gzipThreads) {
+        if (gzipThreads < 1) {
+            throw new IllegalArgumentException("Gzip threads must be positive");
+        }
+        this.gzipThreads = gzipThreads;
+    }
+
+    /**
+     * Get setting for maxRowsPerFile.
+     * @return the number of rows after which output rolls over to a new part file, or null for no limit.
+     */
+    public Long getMaxRowsPerFile() {
+        return this.maxRowsPerFile;
+    }
+
+    /**
+     * @param maxRowsPerFile the number of rows after which output rolls over to a new part file,
+     *                       or null for no limit.
+     */
+    public void setMaxRowsPerFile(Long maxRowsPerFile) {
+        if (maxRowsPerFile != null && maxRowsPerFile < 1) {
+            throw new IllegalArgumentException("Rows per file must be positive");
+        }
+        this.maxRowsPerFile = maxRowsPerFile;
+    }
+
+    /**
+     * Get setting for maxBytesPerFile.
+     * @return the number of uncompressed bytes after which output rolls over to a new part file,
+     * or null for no limit.
+     */
+    public Long getMaxBytesPerFile() {
+        return this.maxBytesPerFile;
+    }
+
+    /**
+     * Bytes are counted before compression, so compressed parts come out smaller.
+     * @param maxBytesPerFile the number of uncompressed bytes after which output rolls over
+     *                        to a new part file, or null for no limit.
+     */
+    public void setMaxBytesPerFile(Long maxBytesPerFile) {
+        if (maxBytesPerFile != null && maxBytesPerFile < 1) {
+            throw new IllegalArgumentException("Bytes per file must be positive");
+        }
+        this.maxBytesPerFile = maxBytesPerFile;
+    }
+
+    /**
+     * @return whether output is split into part files with a manifest.
+     */
+    public boolean isRolling() {
+        return this.maxRowsPerFile != null || this.maxBytesPerFile != null;
+    }
+
+    /**
+     * Get setting for parquetRowGroupSize.
+     * @return the number of bytes of Parquet output buffered in memory before a row group is written out.
+     */
+    public int getParquetRowGroupSize() {
+        return this.parquetRowGroupSize;
+    }
+
+    /**
+     * Rows are buffered as column chunks until they reach this size, so it bounds the memory
+     * used by Parquet output. Larger row groups compress and scan better.
+     * @param parquetRowGroupSize the number of bytes buffered before a row group is written out.
+     */
+    public void setParquetRowGroupSize(int parquetRowGroupSize) {
+        if (parquetRowGroupSize < 1) {
+            throw new IllegalArgumentException("Parquet row group size must be positive");
+        }
+        this.parquetRowGroupSize = parquetRowGroupSize;
+    }
+
+    /**
+     * Get setting for parquetCompression.
+     * @return the codec compressing Parquet pages.
+     */
+    public CompressionCodecName getParquetCompression() {
+        return this.parquetCompression;
+    }
+
+    /**
+     * @param parquetCompression the codec compressing Parquet pages, e.g. SNAPPY, GZIP, ZSTD or UNCOMPRESSED.
+     */
+    public void setParquetCompression(CompressionCodecName parquetCompression) {
+        this.parquetCompression = parquetCompression;
+    }
+
+    /**
+     * Get setting for avroBlockSize.
+     * @return the approximate number of uncompressed bytes in each block of Avro output.
+     */
+    public int getAvroBlockSize() {
+        return this.avroBlockSize;
+    }
+
+    /**
+     * Blocks are the unit of compression and of splitting Avro files, and are buffered in memory.
+     * @param avroBlockSize the approximate number of uncompressed bytes in each block of Avro output.
+     */
+    public void setAvroBlockSize(int avroBlockSize) {
+        if (avroBlockSize < 32 || avroBlockSize > (1 << 30)) {
+            throw new IllegalArgumentException("Avro block size must be between 32 bytes and 1 GiB");
+        }
+        this.avroBlockSize = avroBlockSize;
+    }
+
+    /**
+     * Get setting for avroCodec.
+     * @return the name of the codec compressing Avro blocks.
+     */
+    public String getAvroCodec() {
+        return this.avroCodec;
+    }
+
+    /**
+     * @param avroCodec the name of the codec compressing Avro blocks, e.g. snappy, deflate, zstandard or null.
+     */
+    public void setAvroCodec(String avroCodec) {
+        // Fails on codecs Avro doesn't know.
+        CodecFactory.fromString(avroCodec);
+        this.avroCodec = avroCodec;
+    }
+
+    /**
+     * Get default output params
+     * @return an OutputParams that represents default settings.
+     */
+    public static OutputParams getDefaultOutputParams() {
+        return new OutputParams();
+    }
+
+    @Override
+    public void logValues() {
+        logger.info("Output Channel: " + this.getUseChannel());
+        if (this.getUseChannel()) {
+            logger.info("Output Buffer Size: " + this.getBufferSize());
+        }
+        logger.info("Output Gzip Block Size: " + this.getGzipBlockSize());
+        logger.info("Output Gzip Threads: " + this.getGzipThreads());
+        logger.info("Output Parquet Row Group Size: " + this.getParquetRowGroupSize());
+        logger.info("Output Parquet Compression: " + this.getParquetCompression());
+        logger.info("Output Avro Block Size: " + this.getAvroBlockSize());
+        logger.info("Output Avro Codec: " + this.getAvroCodec());
+        if (this.isRolling()) {
+            logger.info("Output Max Rows Per File: " + this.getMaxRowsPerFile());
+            logger.info("Output Max Bytes Per File: " + this.getMaxBytesPerFile());
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.clients;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
+
+/**
+ * <h1>PoolParams</h1>
+ * PoolParams control the connection pool shared by all clients
+ * connecting to the same database with the same SQLParams.
+ * They may be set directly or through custom properties, e.g. {@code -custom poolMaxSize=20}.
+ */
+public class PoolParams implements InputParams {
+
+    private final static Logger logger = LoggerFactory.getLogger(InputParams.class);
+
+    private static final int DEFAULT_MAX_SIZE = 10;
+    private static final int DEFAULT_MIN_IDLE = 0;
+    private static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 600;
+    private static final int DEFAULT_ACQUIRE_TIMEOUT_SECONDS = 30;
+    private static final int DEFAULT_VALIDATION_TIMEOUT_SECONDS = 5;
+    private static final int DEFAULT_VALIDATION_INTERVAL_SECONDS = 5;
+
+    private boolean enabled = true;
+    private int maxSize = DEFAULT_MAX_SIZE;
+    private int minIdle = DEFAULT_MIN_IDLE;
+    private int idleTimeoutSeconds = DEFAULT_IDLE_TIMEOUT_SECONDS;
+    private int acquireTimeoutSeconds = DEFAULT_ACQUIRE_TIMEOUT_SECONDS;
+    private int validationTimeoutSeconds = DEFAULT_VALIDATION_TIMEOUT_SECONDS;
+    private int validationIntervalSeconds = DEFAULT_VALIDATION_INTERVAL_SECONDS;
+
+    /**
+     * Constructor. Default PoolParams.
+     */
+    public PoolParams() {
+    }
+
+    /**
+     * Constructor
+     * @param maxSize the maximum number of open connections.
+     * @param minIdle the number of idle connections to keep open.
+     */
+    public PoolParams(int maxSize, int minIdle) {
+        this.maxSize = maxSize;
+        this.minIdle = minIdle;
+    }
+
+    /**
+     * Read pool settings from the custom properties of SQLParams.
+     * @param params the SQLParams for the connection.
+     * @return PoolParams, using defaults for anything not set.
+     */
+    public static PoolParams fromSQLParams(SQLParams params) {
+        PoolParams poolParams = new PoolParams();
+        Boolean enabled = params.getPropertyAsBoolean("poolEnabled");
+        poolParams.enabled = defaultIfNull(enabled, true);
+        poolParams.maxSize = defaultIfNull(params.getPropertyAsInteger("poolMaxSize"), DEFAULT_MAX_SIZE);
+        poolParams.minIdle = defaultIfNull(params.getPropertyAsInteger("poolMinIdle"), DEFAULT_MIN_IDLE);
+        poolParams.idleTimeoutSeconds = defaultIfNull(
+                params.getPropertyAsInteger("poolIdleTimeout"), DEFAULT_IDLE_TIMEOUT_SECONDS);
+        poolParams.acquireTimeoutSeconds = defaultIfNull(
+                params.getPropertyAsInteger("poolAcquireTimeout"), DEFAULT_ACQUIRE_TIMEOUT_SECONDS);
+        poolParams.validationTimeoutSeconds = defaultIfNull(
+                params.getPropertyAsInteger("poolValidationTimeout"), DEFAULT_VALIDATION_TIMEOUT_SECONDS);
+        poolParams.validationIntervalSeconds = defaultIfNull(
+                params.getPropertyAsInteger("poolValidationInterval"), DEFAULT_VALIDATION_INTERVAL_SECONDS);
+        return poolParams;
+    }
+
+    /**
+     * Get setting for enabled.
+     * @return whether connections are pooled at all.
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Get setting for maxSize.
+     * @return the maximum number of connections, in use or idle.
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get setting for minIdle.
+     * @return the number of idle connections that are kept open.
+     */
+    public int getMinIdle() {
+        return this.minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    /**
+     * Get setting for idleTimeout.
+     * @return how long a connection may sit idle before it is closed (seconds)
+     */
+    public int getIdleTimeoutSeconds() {
+        return this.idleTimeoutSeconds;
+    }
+
+    public void setIdleTimeoutSeconds(int idleTimeoutSeconds) {
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+    }
+
+    /**
+     * Get setting for acquireTimeout.
+     * @return how long to wait for a connection when the pool is exhausted (seconds)
+     */
+    public int getAcquireTimeoutSeconds() {
+        return this.acquireTimeoutSeconds;
+    }
+
+    public void setAcquireTimeoutSeconds(int acquireTimeoutSeconds) {
+        this.acquireTimeoutSeconds = acquireTimeoutSeconds;
+    }
+
+    /**
+     * Get setting for validationTimeout.
+     * @return how long to wait when validating a connection (seconds)
+     */
+    public int getValidationTimeoutSeconds() {
+        return this.validationTimeoutSeconds;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    /**
+     * Get setting for validationInterval.
+     * @return how long a connection may be idle before it is validated on checkout (seconds)
+     */
+    public int getValidationIntervalSeconds() {
+        return this.validationIntervalSeconds;
+    }
+
+    public void setValidationIntervalSeconds(int validationIntervalSeconds) {
+        this.validationIntervalSeconds = validationIntervalSeconds;
+    }
+
+    /**
+     * Get default pool params
+     * @return a PoolParams that represents default settings.
+     */
+    public static PoolParams getDefaultPoolParams() {
+        return new PoolParams();
+    }
+
+    @Override
+    public void logValues() {
+        logger.info("Pool Enabled: " + this.isEnabled());
+        logger.info("Pool Max Size: " + this.getMaxSize());
+        logger.info("Pool Min Idle: " + this.getMinIdle());
+        logger.info("Pool Idle Timeout: " + this.getIdleTimeoutSeconds());
+    }
+}
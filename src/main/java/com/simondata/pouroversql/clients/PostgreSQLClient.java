@@ -18,6 +18,8 @@ package com.simondata.pouroversql.clients;
 import org.postgresql.ds.PGSimpleDataSource;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
 
 /**
  * <h1>PostgreSQLClient</h1>
@@ -50,9 +52,6 @@ public class PostgreSQLClient extends AbstractSQLClient {
 
     @Override
     public DataSource initDataSource() {
-        /*
-        TODO can use connection pooling in future.
-         */
         PostgreSQLSQLParams postgresParams = PostgreSQLSQLParams.initEngineParams(this.params);
         PGSimpleDataSource ds = new PGSimpleDataSource();
         ds.setUser(postgresParams.getUser());
@@ -60,8 +59,6 @@ public class PostgreSQLClient extends AbstractSQLClient {
         ds.setPassword(postgresParams.getPassword());
         ds.setDatabaseName(postgresParams.getDatabase());
         ds.setPortNumber(postgresParams.getPort(DEFAULT_PORT));
-        ds.setReadOnly(this.queryParams.getReadOnly());
-        ds.setDefaultRowFetchSize(this.queryParams.getFetchSize());
 
         // Custom params
         if (postgresParams.getSsl() != null) {
@@ -91,6 +88,18 @@ public class PostgreSQLClient extends AbstractSQLClient {
         return ds;
     }
 
+    @Override
+    protected void configureConnection(Connection conn, QueryParams queryParams) throws SQLException {
+        if (queryParams.getReadOnly() != null) {
+            conn.setReadOnly(queryParams.getReadOnly());
+        }
+    }
+
+    @Override
+    protected boolean fetchSizeRequiresTransaction() {
+        return true;
+    }
+
     @Override
     protected String getDriverName() {
         return "org.postgresql.jdbc.Driver";
@@ -0,0 +1,77 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.clients;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * <h1>QueryCanceller</h1>
+ * Cancels a query from another thread. A query that hasn't started yet fails as it starts,
+ * and one that is running has its statement cancelled, which fails a fetch in progress.
+ */
+public final class QueryCanceller {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryCanceller.class);
+
+    private volatile boolean cancelled = false;
+
+    private volatile Statement statement = null;
+
+    /**
+     * Cancel the query. May be called from any thread, more than once.
+     */
+    public void cancel() {
+        this.cancelled = true;
+        Statement statement = this.statement;
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                logger.debug("Failed cancelling query: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return whether the query has been cancelled.
+     */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * Start cancelling a statement as it runs.
+     * @param statement the statement about to run.
+     * @throws SQLException if the query was already cancelled.
+     */
+    void register(Statement statement) throws SQLException {
+        this.statement = statement;
+        // Checked after publishing the statement, so a concurrent cancel either sees it or is seen here.
+        if (this.cancelled) {
+            throw new SQLException("Query was cancelled");
+        }
+    }
+
+    /**
+     * Stop cancelling the statement, before it is closed.
+     */
+    void unregister() {
+        this.statement = null;
+    }
+}
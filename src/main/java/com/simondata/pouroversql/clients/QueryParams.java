@@ -30,11 +30,18 @@ public class QueryParams implements InputParams {
 
     private static final Integer DEFAULT_FETCH_SIZE = 10000;
     private static final Integer DEFAULT_LOG_FREQUENCY = 100_000;
+    private static final Integer DEFAULT_PIPELINE_BATCH_SIZE = 1000;
+    private static final Integer DEFAULT_PIPELINE_QUEUE_CAPACITY = 4;
+    private static final Integer DEFAULT_ENCODER_THREADS = 1;
 
     private Integer fetchSize = null;
     private Integer maxRows = null;
     private Integer timeout = null;
     private Integer logFrequency = null;
+    private Boolean pipelined = false;
+    private Integer pipelineBatchSize = null;
+    private Integer pipelineQueueCapacity = null;
+    private Integer encoderThreads = null;
 
     /**
      * Todo make optional.
@@ -107,6 +114,80 @@ public class QueryParams implements InputParams {
         }
     }
 
+    /**
+     * Get setting for pipelining.
+     * @return whether file output fetches, encodes and writes rows on separate threads.
+     */
+    public Boolean getPipelined() {
+        return this.pipelined;
+    }
+
+    /**
+     * Fetch, encode and write rows on separate threads when writing to a file.
+     * @param pipelined whether to pipeline file output.
+     */
+    public void setPipelined(Boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Get setting for pipeline batch size.
+     * @return the number of rows handed between pipeline stages at a time.
+     */
+    public Integer getPipelineBatchSize() {
+        if (this.pipelineBatchSize == null) {
+            return DEFAULT_PIPELINE_BATCH_SIZE;
+        } else {
+            return this.pipelineBatchSize;
+        }
+    }
+
+    /**
+     * @param pipelineBatchSize the number of rows handed between pipeline stages at a time.
+     */
+    public void setPipelineBatchSize(Integer pipelineBatchSize) {
+        this.pipelineBatchSize = pipelineBatchSize;
+    }
+
+    /**
+     * Get setting for pipeline queue capacity.
+     * @return the number of batches queued between stages before the earlier stage blocks.
+     */
+    public Integer getPipelineQueueCapacity() {
+        if (this.pipelineQueueCapacity == null) {
+            return DEFAULT_PIPELINE_QUEUE_CAPACITY;
+        } else {
+            return this.pipelineQueueCapacity;
+        }
+    }
+
+    /**
+     * @param pipelineQueueCapacity the number of batches queued between stages before the earlier stage blocks.
+     */
+    public void setPipelineQueueCapacity(Integer pipelineQueueCapacity) {
+        this.pipelineQueueCapacity = pipelineQueueCapacity;
+    }
+
+    /**
+     * Get setting for encoder threads.
+     * @return the number of threads encoding rows concurrently when pipelined.
+     */
+    public Integer getEncoderThreads() {
+        if (this.encoderThreads == null) {
+            return DEFAULT_ENCODER_THREADS;
+        } else {
+            return this.encoderThreads;
+        }
+    }
+
+    /**
+     * Output stays in query order whatever the number of encoder threads.
+     * @param encoderThreads the number of threads encoding rows concurrently when pipelined.
+     */
+    public void setEncoderThreads(Integer encoderThreads) {
+        this.encoderThreads = encoderThreads;
+    }
+
     /**
      * Get default query params
      * @return a Queryparams that represents default settings.
@@ -120,5 +201,11 @@ public class QueryParams implements InputParams {
         logger.info("Query Max Rows: " + this.getMaxRows());
         logger.info("Query Timeout: " + this.getTimeout());
         logger.info("Query Fetch Size: " + this.getFetchSize());
+        logger.info("Query Pipelined: " + this.getPipelined());
+        if (this.getPipelined()) {
+            logger.info("Query Pipeline Batch Size: " + this.getPipelineBatchSize());
+            logger.info("Query Pipeline Queue Capacity: " + this.getPipelineQueueCapacity());
+            logger.info("Query Encoder Threads: " + this.getEncoderThreads());
+        }
     }
 }
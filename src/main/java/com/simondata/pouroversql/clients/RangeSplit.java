@@ -0,0 +1,69 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.clients;
+
+/**
+ * <h1>RangeSplit</h1>
+ * One range of a split query: a predicate on the split column and the values bound to it.
+ */
+public class RangeSplit {
+
+    private final int index;
+    private final String predicate;
+    private final Object[] params;
+
+    RangeSplit(int index, String predicate, Object... params) {
+        this.index = index;
+        this.predicate = predicate;
+        this.params = params;
+    }
+
+    /**
+     * @return the position of this range among all the ranges of the query.
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+    /**
+     * @return the WHERE clause selecting this range, with ? placeholders.
+     */
+    public String getPredicate() {
+        return this.predicate;
+    }
+
+    /**
+     * @return the values to bind to the predicate.
+     */
+    public Object[] getParams() {
+        return this.params;
+    }
+
+    /**
+     * Restrict a query to this range.
+     * @param sql the query to restrict.
+     * @return the query wrapped in a filtered select.
+     */
+    public String wrap(String sql) {
+        return "SELECT * FROM (" + RangeSplitter.stripTerminator(sql) + ") " + RangeSplitter.SOURCE_ALIAS
+                + " WHERE " + this.predicate;
+    }
+
+    @Override
+    public String toString() {
+        return "split " + this.index + ": " + this.predicate;
+    }
+}
@@ -0,0 +1,266 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.clients;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>RangeSplitter</h1>
+ * Splits a query into ranges of one of its columns.
+ * Bounds come either from the min and max of the column or from its quantiles.
+ * Ranges are open ended at both ends and NULLs get a range of their own,
+ * so together they always cover every row of the query.
+ */
+public class RangeSplitter {
+
+    private final Logger logger = LoggerFactory.getLogger(RangeSplitter.class);
+
+    static final String SOURCE_ALIAS = "pourover_split";
+
+    private final SQLClient sqlClient;
+
+    private final QueryParams queryParams;
+
+    /**
+     * Constructor
+     * @param sqlClient the client used to discover the bounds of the split column,
+     *                  with its own QueryParams.
+     */
+    public RangeSplitter(SQLClient sqlClient) {
+        this(sqlClient, null);
+    }
+
+    /**
+     * Constructor
+     * @param sqlClient the client used to discover the bounds of the split column.
+     * @param queryParams the QueryParams of the queries for the bounds, or null for the client's own.
+     */
+    public RangeSplitter(SQLClient sqlClient, QueryParams queryParams) {
+        this.sqlClient = sqlClient;
+        this.queryParams = queryParams;
+    }
+
+    /**
+     * Split a query into ranges.
+     * @param sql the query to split.
+     * @param splitParams the column and number of ranges.
+     * @return the ranges, in order of the split column followed by the NULL range.
+     */
+    public List<RangeSplit> split(String sql, SplitParams splitParams) {
+        List<Object> cutPoints;
+        if (splitParams.getUseQuantiles()) {
+            cutPoints = this.findQuantiles(sql, splitParams.getSplitColumn(), splitParams.getSplitCount());
+        } else {
+            Object[] bounds = this.findBounds(sql, splitParams.getSplitColumn());
+            cutPoints = interpolate(bounds[0], bounds[1], splitParams.getSplitCount());
+        }
+        List<RangeSplit> splits = toSplits(splitParams.getSplitColumn(), cutPoints);
+        logger.info("Split query into " + splits.size() + " ranges on " + splitParams.getSplitColumn());
+        return splits;
+    }
+
+    private List<Map<String, Object>> query(String sql) {
+        List<Map<String, Object>> rows = this.queryParams == null
+                ? this.sqlClient.queryAsList(sql)
+                : this.sqlClient.queryAsList(sql, this.queryParams);
+        if (rows == null) {
+            throw new IllegalStateException("Failed to find the bounds of the split column");
+        }
+        return rows;
+    }
+
+    private Object[] findBounds(String sql, String column) {
+        String boundsSql = "SELECT MIN(" + column + ") AS pourover_min, MAX(" + column + ") AS pourover_max FROM ("
+                + stripTerminator(sql) + ") " + SOURCE_ALIAS;
+        List<Map<String, Object>> rows = this.query(boundsSql);
+        if (rows.isEmpty()) {
+            return new Object[]{null, null};
+        }
+        Iterator<Object> values = rows.get(0).values().iterator();
+        return new Object[]{values.next(), values.next()};
+    }
+
+    /**
+     * Find the highest value of a column among the rows of a query past a watermark.
+     * @param sql the query.
+     * @param column the watermark column.
+     * @param after the watermark, or null for all rows.
+     * @return the highest value, or null if no rows are past the watermark.
+     */
+    public Object findMaxAfter(String sql, String column, Object after) {
+        String maxSql = "SELECT MAX(" + column + ") AS pourover_watermark FROM (" + stripTerminator(sql) + ") "
+                + SOURCE_ALIAS + (after == null ? "" : " WHERE " + column + " > ?");
+        Object[] params = after == null ? new Object[0] : new Object[]{after};
+        List<Map<String, Object>> rows = this.queryParams == null
+                ? this.sqlClient.queryAsList(maxSql, params)
+                : this.sqlClient.queryAsList(maxSql, this.queryParams, params);
+        if (rows == null) {
+            throw new IllegalStateException("Failed to find the high-water mark of " + column);
+        }
+        return rows.isEmpty() ? null : rows.get(0).values().iterator().next();
+    }
+
+    /**
+     * The range of a column past one watermark up to and including the next.
+     * Bounding it above keeps rows added during the extract for the next run rather than skipping them.
+     * @param column the watermark column.
+     * @param after the last watermark, or null for the first run.
+     * @param upTo the next watermark, from findMaxAfter, or null when no rows are past the last.
+     * @return the range.
+     */
+    public static RangeSplit incrementalRange(String column, Object after, Object upTo) {
+        if (upTo == null) {
+            return new RangeSplit(0, "1 = 0");
+        } else if (after == null) {
+            return new RangeSplit(0, column + " <= ?", upTo);
+        }
+        return new RangeSplit(0, column + " > ? AND " + column + " <= ?", after, upTo);
+    }
+
+    /**
+     * The rows of a column past a key, for resuming a query ordered by it.
+     * @param column the key column.
+     * @param after the last key read, or null to read from the start.
+     * @return the range, which leaves out NULL keys.
+     */
+    public static RangeSplit keysetRange(String column, Object after) {
+        if (after == null) {
+            return new RangeSplit(0, column + " IS NOT NULL");
+        }
+        return new RangeSplit(0, column + " > ?", after);
+    }
+
+    /**
+     * The lowest value of every quantile but the first is a cut point.
+     */
+    private List<Object> findQuantiles(String sql, String column, int splitCount) {
+        String quantileSql = "SELECT MIN(pourover_key) AS pourover_cut FROM ("
+                + "SELECT " + column + " AS pourover_key, NTILE(" + splitCount + ") OVER (ORDER BY " + column
+                + ") AS pourover_tile FROM (" + stripTerminator(sql) + ") " + SOURCE_ALIAS
+                + " WHERE " + column + " IS NOT NULL) pourover_tiles"
+                + " GROUP BY pourover_tile ORDER BY pourover_tile";
+        List<Object> cutPoints = new ArrayList<>();
+        List<Map<String, Object>> rows = this.query(quantileSql);
+        for (int i = 1; i < rows.size(); i++) {
+            Object cutPoint = rows.get(i).values().iterator().next();
+            if (cutPoints.isEmpty() || !cutPoints.get(cutPoints.size() - 1).equals(cutPoint)) {
+                cutPoints.add(cutPoint);
+            }
+        }
+        return cutPoints;
+    }
+
+    /**
+     * Evenly spaced cut points between min and max, in the type of the column.
+     * @param min the lowest value of the column.
+     * @param max the highest value of the column.
+     * @param splitCount the number of ranges wanted.
+     * @return up to splitCount - 1 distinct, increasing cut points.
+     */
+    static List<Object> interpolate(Object min, Object max, int splitCount) {
+        List<Object> cutPoints = new ArrayList<>();
+        if (min == null || max == null) {
+            return cutPoints;
+        }
+        BigDecimal low = toDecimal(min);
+        BigDecimal span = toDecimal(max).subtract(low);
+        for (int i = 1; i < splitCount; i++) {
+            BigDecimal offset = span.multiply(BigDecimal.valueOf(i))
+                    .divide(BigDecimal.valueOf(splitCount), 10, RoundingMode.FLOOR);
+            Object cutPoint = fromDecimal(low.add(offset), min);
+            if (toDecimal(cutPoint).compareTo(low) > 0
+                    && (cutPoints.isEmpty() || !cutPoints.get(cutPoints.size() - 1).equals(cutPoint))) {
+                cutPoints.add(cutPoint);
+            }
+        }
+        return cutPoints;
+    }
+
+    private static BigDecimal toDecimal(Object value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        } else if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            return BigDecimal.valueOf(((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        } else if (value instanceof java.util.Date) {
+            return BigDecimal.valueOf(((java.util.Date) value).getTime());
+        }
+        throw new IllegalArgumentException(
+                "Can't split evenly on values of " + value.getClass().getName() + ", split by quantiles instead");
+    }
+
+    private static Object fromDecimal(BigDecimal value, Object like) {
+        if (like instanceof BigDecimal) {
+            return value.setScale(((BigDecimal) like).scale(), RoundingMode.FLOOR);
+        } else if (like instanceof BigInteger) {
+            return value.setScale(0, RoundingMode.FLOOR).toBigInteger();
+        } else if (like instanceof Double || like instanceof Float) {
+            return value.doubleValue();
+        } else if (like instanceof Number) {
+            return value.setScale(0, RoundingMode.FLOOR).longValue();
+        } else if (like instanceof java.sql.Date) {
+            return new java.sql.Date(value.longValue());
+        }
+        return new Timestamp(value.longValue());
+    }
+
+    /**
+     * Ranges below the first cut point, between each pair of cut points, from the last cut point up,
+     * and for NULL.
+     */
+    static List<RangeSplit> toSplits(String column, List<Object> cutPoints) {
+        List<RangeSplit> splits = new ArrayList<>();
+        if (cutPoints.isEmpty()) {
+            splits.add(new RangeSplit(0, column + " IS NOT NULL"));
+        } else {
+            splits.add(new RangeSplit(0, column + " < ?", cutPoints.get(0)));
+            for (int i = 1; i < cutPoints.size(); i++) {
+                splits.add(new RangeSplit(
+                        i, column + " >= ? AND " + column + " < ?", cutPoints.get(i - 1), cutPoints.get(i)));
+            }
+            splits.add(new RangeSplit(
+                    cutPoints.size(), column + " >= ?", cutPoints.get(cutPoints.size() - 1)));
+        }
+        splits.add(new RangeSplit(splits.size(), column + " IS NULL"));
+        return splits;
+    }
+
+    /**
+     * Remove a trailing semicolon so the query can be used as a subquery.
+     * @param sql the query text.
+     * @return the query without its terminator.
+     */
+    static String stripTerminator(String sql) {
+        String trimmed = sql.trim();
+        while (trimmed.endsWith(";")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+}
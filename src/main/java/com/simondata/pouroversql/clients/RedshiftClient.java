@@ -52,6 +52,11 @@ public class RedshiftClient extends AbstractSQLClient {
         return ds;
     }
 
+    @Override
+    protected boolean fetchSizeRequiresTransaction() {
+        return true;
+    }
+
     @Override
     protected String getDriverName() {
         return "com.amazon.redshift.jdbc42.Driver";
@@ -0,0 +1,179 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.clients;
+
+import com.simondata.pouroversql.jfr.JfrEvents;
+import com.simondata.pouroversql.metrics.FetchTimer;
+import com.simondata.pouroversql.metrics.QueryMetrics;
+import com.simondata.pouroversql.util.CloseableIterator;
+import com.simondata.pouroversql.writers.Row;
+import com.simondata.pouroversql.writers.RowPlan;
+import org.apache.commons.dbutils.DbUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.NoSuchElementException;
+
+/**
+ * <h1>ResultSetIterator</h1>
+ * Reads the rows of an open query on demand, a fetch at a time, and owns its ResultSet,
+ * statement and connection. They are closed once the last row has been read, a row can't be read,
+ * or the iterator is closed, so callers that stop early must close it.
+ * Failures to read rows are thrown as IllegalStateExceptions. Not thread safe.
+ */
+public final class ResultSetIterator implements CloseableIterator<Row> {
+
+    private final Logger logger = LoggerFactory.getLogger(ResultSetIterator.class);
+
+    private final Connection conn;
+
+    private final Statement stmt;
+
+    private final ResultSet rs;
+
+    private final RowPlan plan;
+
+    private final QueryMetrics metrics;
+
+    private final JfrEvents.QuerySpan querySpan;
+
+    private final QueryCanceller canceller;
+
+    // The caller's time between rows isn't encoding, so it isn't timed.
+    private final FetchTimer timer;
+
+    /**
+     * Whether the ResultSet is on a row that hasn't been returned yet.
+     */
+    private boolean onRow;
+
+    private long rows;
+
+    private boolean failed;
+
+    private boolean closed;
+
+    private Runnable closeAction;
+
+    ResultSetIterator(Connection conn, Statement stmt, ResultSet rs, RowPlan plan,
+                      QueryMetrics metrics, JfrEvents.QuerySpan querySpan, QueryCanceller canceller) {
+        this.conn = conn;
+        this.stmt = stmt;
+        this.rs = rs;
+        this.plan = plan;
+        this.metrics = metrics;
+        this.querySpan = querySpan;
+        this.canceller = canceller;
+        this.timer = new FetchTimer(metrics, false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.closed) {
+            return false;
+        }
+        if (!this.onRow) {
+            try {
+                this.onRow = this.timer.next(this.rs);
+            } catch (SQLException e) {
+                throw this.fail(e);
+            }
+            if (!this.onRow) {
+                this.close();
+            }
+        }
+        return this.onRow;
+    }
+
+    @Override
+    public Row next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        this.onRow = false;
+        try {
+            Row row = this.plan.toRow(this.rs);
+            this.rows++;
+            return row;
+        } catch (SQLException e) {
+            throw this.fail(e);
+        }
+    }
+
+    /**
+     * Cancel the query from another thread, such as one waiting on a fetch.
+     * The thread reading rows then fails, closing the iterator.
+     */
+    public void cancel() {
+        try {
+            this.stmt.cancel();
+        } catch (SQLException e) {
+            logger.debug("Failed cancelling query: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Run an action once the iterator closes, however that happens.
+     * @param action the action to run, even if closing fails.
+     * @return this ResultSetIterator
+     */
+    @Override
+    public ResultSetIterator onClose(Runnable action) {
+        Runnable previous = this.closeAction;
+        this.closeAction = previous == null ? action : () -> {
+            try {
+                previous.run();
+            } finally {
+                action.run();
+            }
+        };
+        return this;
+    }
+
+    private IllegalStateException fail(SQLException e) {
+        this.failed = true;
+        this.close();
+        return new IllegalStateException("Failed reading rows", e);
+    }
+
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            this.timer.finish();
+            if (this.failed && this.metrics != null) {
+                this.metrics.setFailed(true);
+            }
+        } finally {
+            if (this.canceller != null) {
+                this.canceller.unregister();
+            }
+            DbUtils.closeQuietly(this.conn, this.stmt, this.rs);
+            if (this.querySpan != null) {
+                this.querySpan.end(this.rows, this.failed);
+            }
+            if (this.closeAction != null) {
+                this.closeAction.run();
+            }
+        }
+    }
+}
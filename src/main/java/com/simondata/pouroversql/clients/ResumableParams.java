@@ -0,0 +1,158 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.clients;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+/**
+ * <h1>ResumableParams</h1>
+ * ResumableParams control extraction that survives failures.
+ * Rows are queried in order of a unique key, and every so often the last key written is
+ * checkpointed with the size of the output so far. A failed query is retried, with a growing
+ * pause between tries, past the last checkpointed key, and an extract that runs out of retries
+ * carries on from its checkpoint file the next time it is run.
+ */
+public class ResumableParams implements InputParams {
+
+    private final static Logger logger = LoggerFactory.getLogger(InputParams.class);
+
+    private static final long DEFAULT_CHECKPOINT_ROWS = 100000;
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final long DEFAULT_RETRY_BACKOFF_MILLIS = 1000;
+    private static final long DEFAULT_MAX_RETRY_BACKOFF_MILLIS = 60000;
+
+    private final String keyColumn;
+    private final File checkpointFile;
+    private long checkpointRows = DEFAULT_CHECKPOINT_ROWS;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long retryBackoffMillis = DEFAULT_RETRY_BACKOFF_MILLIS;
+    private long maxRetryBackoffMillis = DEFAULT_MAX_RETRY_BACKOFF_MILLIS;
+
+    /**
+     * Constructor
+     * @param keyColumn the column of the query result to order rows by. Its values must be unique and not NULL.
+     * @param checkpointFile the file to keep the checkpoint in until the extract finishes.
+     */
+    public ResumableParams(String keyColumn, File checkpointFile) {
+        this.keyColumn = keyColumn;
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Get setting for keyColumn.
+     * @return the column of the query result to order rows by.
+     */
+    public String getKeyColumn() {
+        return this.keyColumn;
+    }
+
+    /**
+     * Get setting for checkpointFile.
+     * @return the file to keep the checkpoint in until the extract finishes.
+     */
+    public File getCheckpointFile() {
+        return this.checkpointFile;
+    }
+
+    /**
+     * Get setting for checkpointRows.
+     * Each checkpoint flushes the output, so fewer rows lose less work to a failure but write less efficiently.
+     * @return the rows written between checkpoints.
+     */
+    public long getCheckpointRows() {
+        return this.checkpointRows;
+    }
+
+    public void setCheckpointRows(Long checkpointRows) {
+        if (checkpointRows != null && checkpointRows < 1) {
+            throw new IllegalArgumentException("Rows between checkpoints must be positive");
+        }
+        this.checkpointRows = checkpointRows == null ? DEFAULT_CHECKPOINT_ROWS : checkpointRows;
+    }
+
+    /**
+     * Get setting for maxRetries.
+     * @return the times a failed query is retried before the extract fails.
+     */
+    public int getMaxRetries() {
+        return this.maxRetries;
+    }
+
+    public void setMaxRetries(Integer maxRetries) {
+        if (maxRetries != null && maxRetries < 0) {
+            throw new IllegalArgumentException("Retries can't be negative");
+        }
+        this.maxRetries = maxRetries == null ? DEFAULT_MAX_RETRIES : maxRetries;
+    }
+
+    /**
+     * Get setting for retryBackoffMillis.
+     * The pause doubles with each retry, up to maxRetryBackoffMillis.
+     * @return the milliseconds to wait before the first retry.
+     */
+    public long getRetryBackoffMillis() {
+        return this.retryBackoffMillis;
+    }
+
+    public void setRetryBackoffMillis(Long retryBackoffMillis) {
+        if (retryBackoffMillis != null && retryBackoffMillis < 0) {
+            throw new IllegalArgumentException("Retry backoff can't be negative");
+        }
+        this.retryBackoffMillis = retryBackoffMillis == null ? DEFAULT_RETRY_BACKOFF_MILLIS : retryBackoffMillis;
+    }
+
+    /**
+     * Get setting for maxRetryBackoffMillis.
+     * @return the most milliseconds to wait before any retry.
+     */
+    public long getMaxRetryBackoffMillis() {
+        return this.maxRetryBackoffMillis;
+    }
+
+    public void setMaxRetryBackoffMillis(Long maxRetryBackoffMillis) {
+        if (maxRetryBackoffMillis != null && maxRetryBackoffMillis < 0) {
+            throw new IllegalArgumentException("Retry backoff can't be negative");
+        }
+        this.maxRetryBackoffMillis = maxRetryBackoffMillis == null
+                ? DEFAULT_MAX_RETRY_BACKOFF_MILLIS : maxRetryBackoffMillis;
+    }
+
+    /**
+     * The pause before a retry.
+     * @param retry the number of the retry, from 1.
+     * @return the milliseconds to wait.
+     */
+    public long getBackoffMillis(int retry) {
+        long backoff = this.retryBackoffMillis;
+        for (int i = 1; i < retry && backoff < this.maxRetryBackoffMillis; i++) {
+            backoff *= 2;
+        }
+        return Math.min(backoff, this.maxRetryBackoffMillis);
+    }
+
+    @Override
+    public void logValues() {
+        logger.info("Resume Key Column: " + this.getKeyColumn());
+        logger.info("Resume Checkpoint File: " + this.getCheckpointFile());
+        logger.info("Resume Checkpoint Rows: " + this.getCheckpointRows());
+        logger.info("Resume Max Retries: " + this.getMaxRetries());
+        logger.info("Resume Retry Backoff Millis: " + this.getRetryBackoffMillis());
+        logger.info("Resume Max Retry Backoff Millis: " + this.getMaxRetryBackoffMillis());
+    }
+}
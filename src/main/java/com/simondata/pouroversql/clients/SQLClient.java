@@ -15,6 +15,7 @@ limitations under the License.
 
 package com.simondata.pouroversql.clients;
 
+import com.simondata.pouroversql.metrics.QueryMetrics;
 import com.simondata.pouroversql.writers.RowHandler;
 
 import java.util.List;
@@ -25,9 +26,95 @@ import java.util.Map;
  */
 public interface SQLClient {
 
+    /**
+     * Set the QueryParams of queries that aren't given their own.
+     * @param queryParams the QueryParams to use.
+     * @deprecated changing them while other threads query with the client races with their queries.
+     * Pass QueryParams to each query instead.
+     */
+    @Deprecated
     void setQueryParams(QueryParams queryParams);
 
     List<Map<String, Object>> queryAsList(String queryText);
 
     int queryWithHandler(String queryText, RowHandler handler);
+
+    /**
+     * Query with positional parameters bound to the ? placeholders of the query.
+     * @param queryText the SQL text to query.
+     * @param params the values to bind.
+     * @return the rows of the result.
+     */
+    default List<Map<String, Object>> queryAsList(String queryText, Object... params) {
+        if (params.length == 0) {
+            return this.queryAsList(queryText);
+        }
+        throw new UnsupportedOperationException("Query parameters are not supported by " + getClass().getName());
+    }
+
+    /**
+     * Query with QueryParams of its own, and positional parameters bound to the ? placeholders of the query.
+     * The default sets the client's QueryParams first, so clients shared between threads override it.
+     * @param queryText the SQL text to query.
+     * @param queryParams the QueryParams for this query alone.
+     * @param params the values to bind.
+     * @return the rows of the result.
+     */
+    default List<Map<String, Object>> queryAsList(String queryText, QueryParams queryParams, Object... params) {
+        this.setQueryParams(queryParams);
+        return this.queryAsList(queryText, params);
+    }
+
+    /**
+     * Query with positional parameters bound to the ? placeholders of the query.
+     * @param queryText the SQL text to query.
+     * @param handler the RowHandler to send the rows to.
+     * @param params the values to bind.
+     * @return the number of rows handled.
+     */
+    default int queryWithHandler(String queryText, RowHandler handler, Object... params) {
+        if (params.length == 0) {
+            return this.queryWithHandler(queryText, handler);
+        }
+        throw new UnsupportedOperationException("Query parameters are not supported by " + getClass().getName());
+    }
+
+    /**
+     * Query with QueryParams of its own, and positional parameters bound to the ? placeholders of the query.
+     * The default sets the client's QueryParams first, so clients shared between threads override it.
+     * @param queryText the SQL text to query.
+     * @param queryParams the QueryParams for this query alone.
+     * @param handler the RowHandler to send the rows to.
+     * @param params the values to bind.
+     * @return the number of rows handled.
+     */
+    default int queryWithHandler(String queryText, QueryParams queryParams, RowHandler handler, Object... params) {
+        this.setQueryParams(queryParams);
+        return this.queryWithHandler(queryText, handler, params);
+    }
+
+    /**
+     * The most connections this client's queries can hold at once, which bounds how many
+     * of its queries can usefully run concurrently.
+     * @return the maximum size of the connection pool, or null if connections aren't pooled.
+     */
+    default Integer getMaxConnections() {
+        return null;
+    }
+
+    /**
+     * Query for rows that are fetched as they are read, a fetch size at a time.
+     * The iterator holds a connection until it is exhausted or closed.
+     * @param queryText the SQL text to query.
+     * @param queryParams the QueryParams for this query alone.
+     * @param formattingParams how the keys of the rows are formatted.
+     * @param metrics the metrics to time the query to, or null.
+     * @param canceller cancels the query from the moment it is executed until the iterator is closed, or null.
+     * @param params the values to bind.
+     * @return the iterator over the rows.
+     */
+    default ResultSetIterator queryAsIterator(String queryText, QueryParams queryParams,
+            FormattingParams formattingParams, QueryMetrics metrics, QueryCanceller canceller, Object... params) {
+        throw new UnsupportedOperationException("Lazy queries are not supported by " + getClass().getName());
+    }
 }
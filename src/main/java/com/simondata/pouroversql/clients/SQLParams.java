@@ -41,6 +41,7 @@ public class SQLParams implements InputParams {
     private String password;
     private String database;
     private Properties customProperties;
+    private PoolParams poolParams;
 
     public SQLParams(String host, Integer port, String user, String password, String database) {
         this.host = host;
@@ -129,6 +130,22 @@ public class SQLParams implements InputParams {
         return this.customProperties;
     }
 
+    /**
+     * Get the settings for the connection pool.
+     * Unless set explicitly these are read from the custom properties.
+     * @return the PoolParams
+     */
+    public PoolParams getPoolParams() {
+        if (this.poolParams == null) {
+            return PoolParams.fromSQLParams(this);
+        }
+        return this.poolParams;
+    }
+
+    public void setPoolParams(PoolParams poolParams) {
+        this.poolParams = poolParams;
+    }
+
     public boolean hasProperty(String propertyName) {
         return this.customProperties.containsKey(propertyName);
     }
@@ -0,0 +1,116 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.clients;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <h1>SplitParams</h1>
+ * SplitParams control parallel extraction of a single query.
+ * The query is split into ranges of a column which are queried concurrently,
+ * each on its own pooled connection. Parallelism should not exceed the pool's max size.
+ */
+public class SplitParams implements InputParams {
+
+    private final static Logger logger = LoggerFactory.getLogger(InputParams.class);
+
+    private static final int DEFAULT_SPLITS_PER_THREAD = 4;
+
+    private final String splitColumn;
+    private final int parallelism;
+    private Integer splitCount = null;
+    private boolean useQuantiles = false;
+    private boolean filePerSplit = false;
+
+    /**
+     * Constructor
+     * @param splitColumn the column of the query result to split on.
+     * @param parallelism the number of ranges to query concurrently.
+     */
+    public SplitParams(String splitColumn, int parallelism) {
+        this.splitColumn = splitColumn;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Get setting for splitColumn.
+     * @return the column of the query result to split on.
+     */
+    public String getSplitColumn() {
+        return this.splitColumn;
+    }
+
+    /**
+     * Get setting for parallelism.
+     * @return the number of ranges queried concurrently.
+     */
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * Get setting for splitCount.
+     * More ranges than threads lets idle threads pick up work when ranges are uneven.
+     * @return the number of ranges to split the query into.
+     */
+    public int getSplitCount() {
+        if (this.splitCount == null) {
+            return this.parallelism * DEFAULT_SPLITS_PER_THREAD;
+        }
+        return this.splitCount;
+    }
+
+    public void setSplitCount(Integer splitCount) {
+        this.splitCount = splitCount;
+    }
+
+    /**
+     * Get setting for useQuantiles.
+     * Quantile ranges hold about the same number of rows each, which suits skewed keys
+     * and keys that aren't numbers or dates, at the cost of a sort on the server.
+     * Otherwise ranges evenly divide the span between the min and max of the column.
+     * @return whether ranges are bounded by quantiles of the column.
+     */
+    public boolean getUseQuantiles() {
+        return this.useQuantiles;
+    }
+
+    public void setUseQuantiles(boolean useQuantiles) {
+        this.useQuantiles = useQuantiles;
+    }
+
+    /**
+     * Get setting for filePerSplit.
+     * @return whether each range is written to its own file instead of one merged file.
+     */
+    public boolean getFilePerSplit() {
+        return this.filePerSplit;
+    }
+
+    public void setFilePerSplit(boolean filePerSplit) {
+        this.filePerSplit = filePerSplit;
+    }
+
+    @Override
+    public void logValues() {
+        logger.info("Split Column: " + this.getSplitColumn());
+        logger.info("Split Parallelism: " + this.getParallelism());
+        logger.info("Split Count: " + this.getSplitCount());
+        logger.info("Split By Quantiles: " + this.getUseQuantiles());
+        logger.info("File Per Split: " + this.getFilePerSplit());
+    }
+}
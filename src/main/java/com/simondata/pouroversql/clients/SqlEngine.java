@@ -30,7 +30,8 @@ public enum SqlEngine {
     INFORMIX,
     REDSHIFT,
     BIGQUERY,
-    SNOWFLAKE;
+    SNOWFLAKE,
+    SYNTHETIC;
 
     private static String normalizeName(String name) {
         String result;
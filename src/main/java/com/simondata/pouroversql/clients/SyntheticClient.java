@@ -0,0 +1,63 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.clients;
+
+import com.simondata.pouroversql.synthetic.ResultShape;
+import com.simondata.pouroversql.synthetic.SyntheticDataSource;
+import com.simondata.pouroversql.synthetic.SyntheticDriver;
+
+import javax.sql.DataSource;
+
+/**
+ * <h1>SyntheticClient</h1>
+ * Queries a synthetic database that generates deterministic rows, for measuring extraction
+ * without a real database. The database name picks the ResultShape, and the custom properties
+ * rows, seed, batchlatencyms and bytespersecond configure the rows and how fast they arrive.
+ * Host, port, user and password are ignored.
+ */
+public class SyntheticClient extends AbstractSQLClient {
+
+    /**
+     * Constructor
+     * @param params SQLParams for the connection.
+     */
+    public SyntheticClient(SQLParams params) {
+        super(params);
+    }
+
+    /**
+     * Constructor
+     * @param params the SQLParams for the connection.
+     * @param queryParams the default params for each query.
+     */
+    public SyntheticClient(SQLParams params, QueryParams queryParams) {
+        super(params, queryParams);
+    }
+
+    @Override
+    protected DataSource initDataSource() {
+        SyntheticDataSource ds = new SyntheticDataSource();
+        if (this.params.getDatabase() != null) {
+            ds.setShape(ResultShape.valueOf(this.params.getDatabase().toUpperCase()));
+        }
+        ds.setProperties(this.params.getCustomProperties());
+        return ds;
+    }
+
+    @Override
+    protected String getDriverName() {
+        return SyntheticDriver.class.getName();
+    }
+}
@@ -0,0 +1,210 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.clients;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+
+/**
+ * <h1>Watermark</h1>
+ * The highest value of a column extracted so far, as kept in a state file between incremental runs.
+ * Values keep their type through the file, so they bind to the next query as they came out of the last.
+ */
+public class Watermark {
+
+    private static final String LONG = "long";
+    private static final String DECIMAL = "decimal";
+    private static final String TIMESTAMP = "timestamp";
+    private static final String DATE = "date";
+    private static final String STRING = "string";
+
+    private final String column;
+    private final Object value;
+
+    /**
+     * Constructor
+     * @param column the column the watermark is of.
+     * @param value the highest value of the column extracted.
+     */
+    public Watermark(String column, Object value) {
+        this.column = column;
+        this.value = value;
+    }
+
+    /**
+     * @return the column the watermark is of.
+     */
+    public String getColumn() {
+        return this.column;
+    }
+
+    /**
+     * @return the highest value of the column extracted.
+     */
+    public Object getValue() {
+        return this.value;
+    }
+
+    /**
+     * Read the watermark left by the last successful run.
+     * @param stateFile the state file.
+     * @return the watermark, or null if there is no state file yet.
+     */
+    public static Watermark load(File stateFile) {
+        JsonObject state = read(stateFile);
+        return state == null ? null : from(state, stateFile);
+    }
+
+    /**
+     * Replace the state file with this watermark, atomically where the file system allows,
+     * so a failure leaves the last watermark in place.
+     * @param stateFile the state file.
+     */
+    public void save(File stateFile) {
+        JsonObject state = new JsonObject();
+        this.addTo(state);
+        write(stateFile, state);
+    }
+
+    /**
+     * Add the column and typed value of this watermark to a state object.
+     */
+    void addTo(JsonObject state) {
+        state.addProperty("column", this.column);
+        state.addProperty("type", typeOf(this.value));
+        state.addProperty("value", format(this.value));
+    }
+
+    /**
+     * Read a watermark added to a state object by addTo.
+     */
+    static Watermark from(JsonObject state, File stateFile) {
+        try {
+            String type = state.get("type").getAsString();
+            return new Watermark(state.get("column").getAsString(), parse(type, state.get("value").getAsString()));
+        } catch (NullPointerException | IllegalStateException | IllegalArgumentException e) {
+            throw new IllegalStateException("Unreadable state file " + stateFile, e);
+        }
+    }
+
+    /**
+     * @return the state in a file, or null if there is no file.
+     */
+    static JsonObject read(File stateFile) {
+        if (!stateFile.exists()) {
+            return null;
+        }
+        try {
+            String json = new String(Files.readAllBytes(stateFile.toPath()), StandardCharsets.UTF_8);
+            JsonObject state = new Gson().fromJson(json, JsonObject.class);
+            if (state == null) {
+                throw new IllegalStateException("Empty state file " + stateFile);
+            }
+            return state;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (JsonParseException e) {
+            throw new IllegalStateException("Unreadable state file " + stateFile, e);
+        }
+    }
+
+    /**
+     * State is written to a temporary file and moved into place, so it is never seen half written.
+     */
+    static void write(File stateFile, JsonObject state) {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        Path target = stateFile.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.write(temp, gson.toJson(state).getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Check a value can be kept as a watermark, before extracting the rows it would mark.
+     * @param value the value, not null.
+     * @throws IllegalArgumentException if the state file can't hold values of its type.
+     */
+    public static void checkSupported(Object value) {
+        typeOf(value);
+    }
+
+    private static String typeOf(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return LONG;
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            return DECIMAL;
+        } else if (value instanceof java.sql.Date) {
+            return DATE;
+        } else if (value instanceof java.util.Date) {
+            return TIMESTAMP;
+        } else if (value instanceof String) {
+            return STRING;
+        }
+        throw new IllegalArgumentException("Can't keep watermarks of " + value.getClass().getName()
+                + ", use an integer, decimal, date, timestamp or string column");
+    }
+
+    private static String format(Object value) {
+        if (value instanceof java.util.Date && !(value instanceof Timestamp) && !(value instanceof java.sql.Date)) {
+            return new Timestamp(((java.util.Date) value).getTime()).toString();
+        }
+        return value.toString();
+    }
+
+    private static Object parse(String type, String text) {
+        switch (type) {
+            case LONG:
+                return Long.parseLong(text);
+            case DECIMAL:
+                return new BigDecimal(text);
+            case TIMESTAMP:
+                return Timestamp.valueOf(text);
+            case DATE:
+                return java.sql.Date.valueOf(text);
+            case STRING:
+                return text;
+            default:
+                throw new IllegalStateException("Unknown watermark type " + type);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.column + " = " + format(this.value);
+    }
+}
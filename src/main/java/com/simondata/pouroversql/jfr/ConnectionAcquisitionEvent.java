@@ -0,0 +1,34 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * ConnectionAcquisitionEvent
+ * Checking a connection out of the pool, or opening one when pooling is off.
+ */
+@Name("com.simondata.pouroversql.ConnectionAcquisition")
+@Label("Connection Acquisition")
+@Category("Pour-Over SQL")
+@Description("Checking a connection out of the pool, or opening one")
+@StackTrace(false)
+final class ConnectionAcquisitionEvent extends Event {
+}
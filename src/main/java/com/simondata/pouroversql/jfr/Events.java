@@ -0,0 +1,131 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.jfr;
+
+import com.simondata.pouroversql.metrics.QueryMetrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Events
+ * Everything that touches the Flight Recorder API, only called once JfrEvents has found it available.
+ */
+final class Events {
+
+    private Events() {
+    }
+
+    static JfrEvents.QuerySpan beginQuery(String sql) {
+        QueryEvent event = new QueryEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.sqlHash = QueryMetrics.hashSql(sql);
+        event.begin();
+        return (rows, failed) -> {
+            event.end();
+            event.rows = rows;
+            event.failed = failed;
+            event.commit();
+        };
+    }
+
+    static JfrEvents.Span beginConnectionAcquisition() {
+        ConnectionAcquisitionEvent event = new ConnectionAcquisitionEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event::commit;
+    }
+
+    static JfrEvents.FetchBatches fetchBatches() {
+        if (!new FetchBatchEvent().isEnabled()) {
+            return null;
+        }
+        return new JfrEvents.FetchBatches() {
+            private FetchBatchEvent event;
+
+            @Override
+            public void begin() {
+                this.event = new FetchBatchEvent();
+                this.event.begin();
+            }
+
+            @Override
+            public void end(int rows, long waitNanos) {
+                this.event.end();
+                this.event.rows = rows;
+                this.event.waitTime = waitNanos;
+                this.event.commit();
+                this.event = null;
+            }
+        };
+    }
+
+    static OutputStream recordFlushes(OutputStream out) {
+        if (!new WriterFlushEvent().isEnabled()) {
+            return out;
+        }
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                this.write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                WriterFlushEvent event = new WriterFlushEvent();
+                event.begin();
+                this.out.write(bytes, offset, length);
+                event.end();
+                event.bytes = length;
+                event.commit();
+            }
+        };
+    }
+
+    static WritableByteChannel recordFlushes(WritableByteChannel channel) {
+        if (!new WriterFlushEvent().isEnabled()) {
+            return channel;
+        }
+        return new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) throws IOException {
+                WriterFlushEvent event = new WriterFlushEvent();
+                event.begin();
+                int written = channel.write(source);
+                event.end();
+                event.bytes = written;
+                event.commit();
+                return written;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+}
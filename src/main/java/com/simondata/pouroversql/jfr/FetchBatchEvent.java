@@ -0,0 +1,44 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * FetchBatchEvent
+ * A fetch size worth of rows read from a ResultSet. The event lasts from asking for the first row
+ * of the batch to getting the last one, and the wait time is the part of that spent in the driver.
+ */
+@Name("com.simondata.pouroversql.FetchBatch")
+@Label("Fetch Batch")
+@Category("Pour-Over SQL")
+@Description("A fetch size worth of rows read from a ResultSet")
+@StackTrace(false)
+final class FetchBatchEvent extends Event {
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Wait Time")
+    @Description("Time spent in the driver waiting for the rows")
+    @Timespan(Timespan.NANOSECONDS)
+    long waitTime;
+}
@@ -0,0 +1,126 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.jfr;
+
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * <h1>JfrEvents</h1>
+ * Emits Java Flight Recorder events for queries, connection acquisition, fetch batches
+ * and writer flushes, under the Pour-Over SQL category in JMC.
+ * Each method returns null, or its argument unchanged, when the event isn't being recorded,
+ * so callers skip the work of timing it. On JVMs without Flight Recorder nothing is ever
+ * recorded and the event classes are never loaded.
+ */
+public final class JfrEvents {
+
+    private static final boolean AVAILABLE = isFlightRecorderAvailable();
+
+    private JfrEvents() {
+    }
+
+    /**
+     * A query being recorded.
+     */
+    public interface QuerySpan {
+        /**
+         * @param rows the rows the query returned.
+         * @param failed whether the query failed.
+         */
+        void end(long rows, boolean failed);
+    }
+
+    /**
+     * Something being recorded that only has a duration.
+     */
+    public interface Span {
+        void end();
+    }
+
+    /**
+     * Records the fetch batches of one ResultSet. Not thread safe.
+     */
+    public interface FetchBatches {
+        /**
+         * Start a batch, before asking for its first row.
+         */
+        void begin();
+
+        /**
+         * End the batch begun last.
+         * @param rows the rows in the batch.
+         * @param waitNanos the time spent in the driver waiting for them.
+         */
+        void end(int rows, long waitNanos);
+    }
+
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return whether this JVM has Flight Recorder.
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * @param sql the query text, recorded as a hash.
+     * @return the span of the query, or null if queries aren't being recorded.
+     */
+    public static QuerySpan beginQuery(String sql) {
+        return AVAILABLE ? Events.beginQuery(sql) : null;
+    }
+
+    /**
+     * @return the span of acquiring a connection, or null if it isn't being recorded.
+     */
+    public static Span beginConnectionAcquisition() {
+        return AVAILABLE ? Events.beginConnectionAcquisition() : null;
+    }
+
+    /**
+     * @return a recorder for the fetch batches of a ResultSet, or null if they aren't being recorded.
+     */
+    public static FetchBatches fetchBatches() {
+        return AVAILABLE ? Events.fetchBatches() : null;
+    }
+
+    /**
+     * Record every write to a stream as a writer flush.
+     * Only wrap streams beneath a buffer, or there will be an event per row.
+     * @param out the stream output is flushed to.
+     * @return a stream recording writes to out, or out itself if flushes aren't being recorded.
+     */
+    public static OutputStream recordFlushes(OutputStream out) {
+        return AVAILABLE ? Events.recordFlushes(out) : out;
+    }
+
+    /**
+     * Record every write to a channel as a writer flush.
+     * @param channel the channel output is flushed to.
+     * @return a channel recording writes to channel, or channel itself if flushes aren't being recorded.
+     */
+    public static WritableByteChannel recordFlushes(WritableByteChannel channel) {
+        return AVAILABLE ? Events.recordFlushes(channel) : channel;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * QueryEvent
+ * A query, from acquiring a connection to closing its ResultSet.
+ * The SQL is identified by hash, since its text may hold sensitive values.
+ */
+@Name("com.simondata.pouroversql.Query")
+@Label("Query")
+@Category("Pour-Over SQL")
+@Description("A query, from acquiring a connection to closing its ResultSet")
+@StackTrace(false)
+final class QueryEvent extends Event {
+
+    @Label("SQL Hash")
+    @Description("The first 16 hex digits of the SHA-256 of the query text")
+    String sqlHash;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,102 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>FetchHistogram</h1>
+ * How long each wait for a row took, in power of ten buckets from a microsecond to ten seconds.
+ * Rows the driver already has buffered come back in well under a microsecond, so the waits in
+ * the higher buckets are the fetch round trips.
+ * Not thread safe.
+ */
+public final class FetchHistogram {
+
+    private static final long[] BOUNDS_NANOS = {
+            TimeUnit.MICROSECONDS.toNanos(1),
+            TimeUnit.MICROSECONDS.toNanos(10),
+            TimeUnit.MICROSECONDS.toNanos(100),
+            TimeUnit.MILLISECONDS.toNanos(1),
+            TimeUnit.MILLISECONDS.toNanos(10),
+            TimeUnit.MILLISECONDS.toNanos(100),
+            TimeUnit.SECONDS.toNanos(1),
+            TimeUnit.SECONDS.toNanos(10)
+    };
+
+    /**
+     * One count per bound, plus one for waits above the last bound.
+     */
+    private final long[] counts = new long[BOUNDS_NANOS.length + 1];
+
+    private long sumNanos;
+
+    /**
+     * @param nanos the length of a wait for a row.
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        this.counts[bucket]++;
+        this.sumNanos += nanos;
+    }
+
+    /**
+     * @param other a histogram to add into this one.
+     */
+    public void add(FetchHistogram other) {
+        for (int i = 0; i < this.counts.length; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.sumNanos += other.sumNanos;
+    }
+
+    /**
+     * @return the upper bound of each bucket but the last, which has none.
+     */
+    public static long[] getBoundsNanos() {
+        return BOUNDS_NANOS.clone();
+    }
+
+    /**
+     * @return the number of waits in each bucket, not cumulative.
+     */
+    public long[] getCounts() {
+        return this.counts.clone();
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (long bucket : this.counts) {
+            count += bucket;
+        }
+        return count;
+    }
+
+    public long getSumNanos() {
+        return this.sumNanos;
+    }
+
+    /**
+     * @return a copy that doesn't change as this one does.
+     */
+    public FetchHistogram copy() {
+        FetchHistogram copy = new FetchHistogram();
+        copy.add(this);
+        return copy;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.metrics;
+
+import com.simondata.pouroversql.jfr.JfrEvents;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * <h1>FetchTimer</h1>
+ * Advances a ResultSet, timing the wait in the driver for each row and, optionally, the time
+ * between rows spent handling them. Times are kept locally and added to the QueryMetrics on finish,
+ * so the cost per row is two clock reads. While Flight Recorder is recording fetch batches, rows are
+ * grouped into batches of the ResultSet's fetch size and each batch is recorded with its wait.
+ * Without metrics or a recording it only advances the ResultSet.
+ * Not thread safe: a FetchTimer belongs to the thread reading the ResultSet.
+ */
+public final class FetchTimer {
+
+    private final QueryMetrics metrics;
+
+    private final boolean timesHandling;
+
+    /**
+     * Rows per recorded batch when the driver doesn't report a fetch size.
+     */
+    private static final int DEFAULT_BATCH_ROWS = 1000;
+
+    private final JfrEvents.FetchBatches batches = JfrEvents.fetchBatches();
+
+    private final boolean timed;
+
+    private int batchSize;
+
+    private int batchRows;
+
+    private long batchWaitNanos;
+
+    private boolean inBatch;
+
+    private final FetchHistogram waits = new FetchHistogram();
+
+    private boolean first = true;
+
+    private long firstRowNanos;
+
+    private long fetchNanos;
+
+    private long handlingNanos;
+
+    /**
+     * The thread's WriteTimer total when handling started, as writes are part of handling.
+     */
+    private final long startWriteNanos;
+
+    private long lastReturn;
+
+    private long rows;
+
+    /**
+     * Constructor
+     * @param metrics the metrics to add to, or null to time nothing.
+     * @param timesHandling whether time between rows counts as encoding, less the time this thread
+     *                      spends writing, which counts as writing. When rows are handed off to other
+     *                      threads, the threads encoding and writing them time it instead.
+     */
+    public FetchTimer(QueryMetrics metrics, boolean timesHandling) {
+        this.metrics = metrics;
+        this.timesHandling = timesHandling;
+        this.timed = metrics != null || this.batches != null;
+        this.startWriteNanos = timesHandling ? WriteTimer.threadNanos() : 0;
+    }
+
+    /**
+     * Move to the next row.
+     * @param rs the ResultSet to advance.
+     * @return whether there is a row.
+     * @throws SQLException if the driver fails.
+     */
+    public boolean next(ResultSet rs) throws SQLException {
+        if (!this.timed) {
+            return rs.next();
+        }
+        if (this.batches != null && !this.inBatch) {
+            this.beginBatch(rs);
+        }
+        long start = System.nanoTime();
+        if (!this.first) {
+            this.handlingNanos += start - this.lastReturn;
+        }
+        boolean hasRow = rs.next();
+        long end = System.nanoTime();
+        if (this.first) {
+            this.firstRowNanos = end - start;
+            this.first = false;
+        } else {
+            this.fetchNanos += end - start;
+            this.waits.record(end - start);
+        }
+        if (hasRow) {
+            this.rows++;
+        }
+        this.lastReturn = end;
+        if (this.batches != null) {
+            this.batchWaitNanos += end - start;
+            if (hasRow) {
+                this.batchRows++;
+            }
+            if (!hasRow || this.batchRows == this.batchSize) {
+                this.endBatch();
+            }
+        }
+        return hasRow;
+    }
+
+    private void beginBatch(ResultSet rs) throws SQLException {
+        if (this.batchSize == 0) {
+            int fetchSize = rs.getFetchSize();
+            this.batchSize = fetchSize > 0 ? fetchSize : DEFAULT_BATCH_ROWS;
+        }
+        this.batches.begin();
+        this.inBatch = true;
+    }
+
+    private void endBatch() {
+        this.batches.end(this.batchRows, this.batchWaitNanos);
+        this.batchRows = 0;
+        this.batchWaitNanos = 0;
+        this.inBatch = false;
+    }
+
+    /**
+     * Add the times and row count to the metrics, and record any unfinished batch. Call once, when done with the ResultSet.
+     */
+    public void finish() {
+        if (this.inBatch) {
+            this.endBatch();
+        }
+        if (this.metrics == null) {
+            return;
+        }
+        this.metrics.addPhaseNanos(QueryPhase.FIRST_ROW, this.firstRowNanos);
+        this.metrics.addPhaseNanos(QueryPhase.FETCH, this.fetchNanos);
+        if (this.timesHandling) {
+            long writeNanos = Math.min(WriteTimer.threadNanos() - this.startWriteNanos, this.handlingNanos);
+            this.metrics.addPhaseNanos(QueryPhase.ENCODE, this.handlingNanos - writeNanos);
+            this.metrics.addPhaseNanos(QueryPhase.WRITE, writeNanos);
+        }
+        this.metrics.addFetchWaits(this.waits);
+        this.metrics.addRows(this.rows);
+    }
+}
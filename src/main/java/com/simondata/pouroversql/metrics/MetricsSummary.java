@@ -0,0 +1,222 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.metrics;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>MetricsSummary</h1>
+ * Adds up the metrics of every query it hears about, as a JSON summary or in the
+ * Prometheus text exposition format, e.g. for the node exporter textfile collector.
+ * Rows and bytes per second are over the wall clock time from the first query starting
+ * to the last one finishing, so queries run in parallel count once.
+ */
+public class MetricsSummary implements QueryMetricsListener {
+
+    private static final String PREFIX = "pourover_";
+
+    private long queries;
+
+    private long failedQueries;
+
+    private long rows;
+
+    private long bytesWritten;
+
+    private final long[] phaseNanos = new long[QueryPhase.values().length];
+
+    private final FetchHistogram fetchWaits = new FetchHistogram();
+
+    private long firstStartNanos;
+
+    private long lastEndNanos;
+
+    @Override
+    public synchronized void onQueryComplete(QueryMetrics metrics) {
+        long startNanos = metrics.getStartNanos();
+        long endNanos = startNanos + metrics.getElapsedNanos();
+        if (this.queries == 0 || startNanos < this.firstStartNanos) {
+            this.firstStartNanos = startNanos;
+        }
+        if (this.queries == 0 || endNanos > this.lastEndNanos) {
+            this.lastEndNanos = endNanos;
+        }
+        this.queries++;
+        if (metrics.isFailed()) {
+            this.failedQueries++;
+        }
+        this.rows += metrics.getRows();
+        this.bytesWritten += metrics.getBytesWritten();
+        for (QueryPhase phase : QueryPhase.values()) {
+            this.phaseNanos[phase.ordinal()] += metrics.getPhaseNanos(phase);
+        }
+        this.fetchWaits.add(metrics.getFetchWaits());
+    }
+
+    public synchronized long getQueries() {
+        return this.queries;
+    }
+
+    public synchronized long getRows() {
+        return this.rows;
+    }
+
+    public synchronized long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    /**
+     * @return the wall clock time from the first query starting to the last one finishing.
+     */
+    public synchronized long getElapsedNanos() {
+        return this.lastEndNanos - this.firstStartNanos;
+    }
+
+    public synchronized long getPhaseNanos(QueryPhase phase) {
+        return this.phaseNanos[phase.ordinal()];
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private double perSecond(long count) {
+        long elapsed = this.getElapsedNanos();
+        return elapsed <= 0 ? 0 : count / seconds(elapsed);
+    }
+
+    /**
+     * @return the summary as pretty printed JSON.
+     */
+    public synchronized String toJson() {
+        JsonObject summary = new JsonObject();
+        summary.addProperty("queries", this.queries);
+        summary.addProperty("failedQueries", this.failedQueries);
+        summary.addProperty("rows", this.rows);
+        summary.addProperty("bytesWritten", this.bytesWritten);
+        summary.addProperty("elapsedSeconds", seconds(this.getElapsedNanos()));
+        summary.addProperty("rowsPerSecond", this.perSecond(this.rows));
+        summary.addProperty("bytesPerSecond", this.perSecond(this.bytesWritten));
+        JsonObject phases = new JsonObject();
+        long driverWait = 0;
+        for (QueryPhase phase : QueryPhase.values()) {
+            phases.addProperty(phase.getLabel(), seconds(this.phaseNanos[phase.ordinal()]));
+            if (phase == QueryPhase.EXECUTE || phase == QueryPhase.FIRST_ROW || phase == QueryPhase.FETCH) {
+                driverWait += this.phaseNanos[phase.ordinal()];
+            }
+        }
+        summary.add("phaseSeconds", phases);
+        summary.addProperty("driverWaitSeconds", seconds(driverWait));
+        summary.addProperty("encodeSeconds", seconds(this.phaseNanos[QueryPhase.ENCODE.ordinal()]));
+        summary.addProperty("writeSeconds", seconds(this.phaseNanos[QueryPhase.WRITE.ordinal()]));
+        JsonObject waits = new JsonObject();
+        waits.addProperty("count", this.fetchWaits.getCount());
+        waits.addProperty("sumSeconds", seconds(this.fetchWaits.getSumNanos()));
+        JsonObject buckets = new JsonObject();
+        long[] bounds = FetchHistogram.getBoundsNanos();
+        long[] counts = this.fetchWaits.getCounts();
+        for (int i = 0; i < counts.length; i++) {
+            buckets.addProperty(i < bounds.length ? bound(bounds[i]) : "+Inf", counts[i]);
+        }
+        waits.add("buckets", buckets);
+        summary.add("fetchWaits", waits);
+        return new GsonBuilder().setPrettyPrinting().create().toJson(summary);
+    }
+
+    private static String bound(long nanos) {
+        return BigDecimal.valueOf(nanos, 9).stripTrailingZeros().toPlainString();
+    }
+
+    private static void metric(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, Object value) {
+        out.append(PREFIX).append(name);
+        if (labels != null) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    /**
+     * @return the summary in the Prometheus text exposition format.
+     */
+    public synchronized String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        metric(out, "queries_total", "counter", "Queries run.");
+        sample(out, "queries_total", null, this.queries);
+        metric(out, "query_failures_total", "counter", "Queries that failed.");
+        sample(out, "query_failures_total", null, this.failedQueries);
+        metric(out, "rows_total", "counter", "Rows returned by queries.");
+        sample(out, "rows_total", null, this.rows);
+        metric(out, "bytes_written_total", "counter", "Bytes written to output files, after compression.");
+        sample(out, "bytes_written_total", null, this.bytesWritten);
+        metric(out, "elapsed_seconds", "gauge", "Wall clock time from the first query starting to the last finishing.");
+        sample(out, "elapsed_seconds", null, seconds(this.getElapsedNanos()));
+        metric(out, "rows_per_second", "gauge", "Rows returned per second of wall clock time.");
+        sample(out, "rows_per_second", null, this.perSecond(this.rows));
+        metric(out, "phase_seconds_total", "counter", "Time spent in each phase of the queries.");
+        for (QueryPhase phase : QueryPhase.values()) {
+            sample(out, "phase_seconds_total", "phase=\"" + phase.getLabel() + "\"",
+                    seconds(this.phaseNanos[phase.ordinal()]));
+        }
+        metric(out, "fetch_wait_seconds", "histogram", "Time waiting in the driver for each row after the first.");
+        long[] bounds = FetchHistogram.getBoundsNanos();
+        long[] counts = this.fetchWaits.getCounts();
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            String le = i < bounds.length ? bound(bounds[i]) : "+Inf";
+            sample(out, "fetch_wait_seconds_bucket", "le=\"" + le + "\"", cumulative);
+        }
+        sample(out, "fetch_wait_seconds_sum", null, seconds(this.fetchWaits.getSumNanos()));
+        sample(out, "fetch_wait_seconds_count", null, cumulative);
+        return out.toString();
+    }
+
+    /**
+     * Write the Prometheus text to a temporary file and move it into place,
+     * so a collector never reads it half written.
+     * @param file the file to write.
+     */
+    public void writePrometheus(File file) {
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.write(temp, this.toPrometheus().getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
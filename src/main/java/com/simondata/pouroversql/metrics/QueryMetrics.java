@@ -0,0 +1,203 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.metrics;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h1>QueryMetrics</h1>
+ * Where the time of a single query went, how many rows it returned and how many bytes it wrote.
+ * Phases are recorded by whichever thread runs them, so recording is thread safe.
+ */
+public final class QueryMetrics {
+
+    private static final AtomicLong queryCount = new AtomicLong();
+
+    private final long id;
+
+    private final String sqlHash;
+
+    private final long startMillis;
+
+    private final long startNanos;
+
+    private long elapsedNanos = -1;
+
+    private final long[] phaseNanos = new long[QueryPhase.values().length];
+
+    private final FetchHistogram fetchWaits = new FetchHistogram();
+
+    private long rows;
+
+    private long bytesWritten;
+
+    private boolean failed;
+
+    /**
+     * Start timing a query now.
+     * @param sql the query text, which is only kept as a hash.
+     */
+    public QueryMetrics(String sql) {
+        this.id = queryCount.incrementAndGet();
+        this.sqlHash = hashSql(sql);
+        this.startMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Identify a query without keeping its text, which may hold sensitive values.
+     * @param sql the query text.
+     * @return the first 16 hex digits of the SHA-256 of the text.
+     */
+    public static String hashSql(String sql) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(
+                    (sql == null ? "" : sql).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param phase the phase to add time to.
+     * @param nanos the time spent in the phase.
+     */
+    public synchronized void addPhaseNanos(QueryPhase phase, long nanos) {
+        this.phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * @param waits waits for rows to add to the fetch histogram.
+     */
+    public synchronized void addFetchWaits(FetchHistogram waits) {
+        this.fetchWaits.add(waits);
+    }
+
+    public synchronized void addRows(long rows) {
+        this.rows += rows;
+    }
+
+    public synchronized void addBytesWritten(long bytes) {
+        this.bytesWritten += bytes;
+    }
+
+    public synchronized void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    /**
+     * Stop the clock on the query. Later calls have no effect.
+     */
+    public synchronized void finish() {
+        if (this.elapsedNanos < 0) {
+            this.elapsedNanos = System.nanoTime() - this.startNanos;
+        }
+    }
+
+    /**
+     * @return a number unique to this query within the JVM, in the order queries started.
+     */
+    public long getId() {
+        return this.id;
+    }
+
+    public String getSqlHash() {
+        return this.sqlHash;
+    }
+
+    /**
+     * @return when the query started, in milliseconds since the epoch.
+     */
+    public long getStartMillis() {
+        return this.startMillis;
+    }
+
+    long getStartNanos() {
+        return this.startNanos;
+    }
+
+    /**
+     * @return the time from start to finish, or so far if the query hasn't finished.
+     */
+    public synchronized long getElapsedNanos() {
+        return this.elapsedNanos < 0 ? System.nanoTime() - this.startNanos : this.elapsedNanos;
+    }
+
+    public synchronized long getPhaseNanos(QueryPhase phase) {
+        return this.phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return time spent waiting on the driver and database: executing and fetching.
+     */
+    public synchronized long getDriverWaitNanos() {
+        return this.getPhaseNanos(QueryPhase.EXECUTE) + this.getPhaseNanos(QueryPhase.FIRST_ROW)
+                + this.getPhaseNanos(QueryPhase.FETCH);
+    }
+
+    /**
+     * @return a copy of the waits for rows after the first.
+     */
+    public synchronized FetchHistogram getFetchWaits() {
+        return this.fetchWaits.copy();
+    }
+
+    public synchronized long getRows() {
+        return this.rows;
+    }
+
+    /**
+     * @return the bytes written to output files, after any compression.
+     */
+    public synchronized long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    public synchronized boolean isFailed() {
+        return this.failed;
+    }
+
+    public synchronized double getRowsPerSecond() {
+        long elapsed = this.getElapsedNanos();
+        return elapsed == 0 ? 0 : this.rows * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append("query ").append(this.sqlHash).append(": ")
+                .append(this.rows).append(" rows in ")
+                .append(TimeUnit.NANOSECONDS.toMillis(this.getElapsedNanos())).append(" ms (")
+                .append(String.format("%.0f", this.getRowsPerSecond())).append(" rows/s), ")
+                .append(this.bytesWritten).append(" bytes");
+        for (QueryPhase phase : QueryPhase.values()) {
+            result.append(", ").append(phase.getLabel()).append(" ")
+                    .append(TimeUnit.NANOSECONDS.toMillis(this.phaseNanos[phase.ordinal()])).append(" ms");
+        }
+        if (this.failed) {
+            result.append(", failed");
+        }
+        return result.toString();
+    }
+}
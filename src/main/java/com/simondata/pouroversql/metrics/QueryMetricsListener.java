@@ -0,0 +1,36 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.metrics;
+
+/**
+ * <h1>QueryMetricsListener</h1>
+ * Receives the metrics of queries from a QueryMetricsRegistry.
+ * Listeners are called on the thread that ran the query, possibly several at once.
+ */
+public interface QueryMetricsListener {
+
+    /**
+     * Called when a query starts, before it connects.
+     * @param metrics the metrics that will be recorded for the query.
+     */
+    default void onQueryStart(QueryMetrics metrics) {
+    }
+
+    /**
+     * Called when a query has finished and its output is closed, whether or not it succeeded.
+     * @param metrics the metrics of the query.
+     */
+    void onQueryComplete(QueryMetrics metrics);
+}
@@ -0,0 +1,103 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * <h1>QueryMetricsRegistry</h1>
+ * Hands out QueryMetrics for queries and passes them on to listeners when the queries complete.
+ * Metrics are only recorded while the registry has listeners, so queries cost nothing extra otherwise.
+ * The default registry is the one SQLExtractor records to.
+ */
+public class QueryMetricsRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryMetricsRegistry.class);
+
+    private static final QueryMetricsRegistry DEFAULT = new QueryMetricsRegistry();
+
+    private final List<QueryMetricsListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @return the registry shared by the JVM.
+     */
+    public static QueryMetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public void addListener(QueryMetricsListener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(QueryMetricsListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * @return whether queries are being measured.
+     */
+    public boolean isEnabled() {
+        return !this.listeners.isEmpty();
+    }
+
+    /**
+     * Start measuring a query.
+     * @param sql the query text.
+     * @return the metrics to record the query to, or null if nothing is listening.
+     */
+    public QueryMetrics start(String sql) {
+        if (!this.isEnabled()) {
+            return null;
+        }
+        return this.startAlways(sql);
+    }
+
+    /**
+     * Start measuring a query even if nothing is listening, for callers that want its metrics themselves.
+     * @param sql the query text.
+     * @return the metrics to record the query to.
+     */
+    public QueryMetrics startAlways(String sql) {
+        QueryMetrics metrics = new QueryMetrics(sql);
+        for (QueryMetricsListener listener : this.listeners) {
+            listener.onQueryStart(metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Finish measuring a query and pass its metrics on.
+     * A listener that fails is logged rather than failing the query.
+     * @param metrics the metrics from start, or null.
+     */
+    public void complete(QueryMetrics metrics) {
+        if (metrics == null) {
+            return;
+        }
+        metrics.finish();
+        logger.debug("Query metrics: " + metrics);
+        for (QueryMetricsListener listener : this.listeners) {
+            try {
+                listener.onQueryComplete(metrics);
+            } catch (RuntimeException e) {
+                logger.error("Query metrics listener failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.metrics;
+
+/**
+ * <h1>QueryPhase</h1>
+ * The phases a query spends its time in, from connecting to closing the output.
+ * Driver wait is execute, first row and fetch; the rest is ours.
+ */
+public enum QueryPhase {
+    /** Checking a connection out of the pool, or opening one. */
+    CONNECT("connect"),
+    /** Preparing the statement and executing it, until the driver hands back a ResultSet. */
+    EXECUTE("execute"),
+    /** Waiting for the first row once the query has executed. */
+    FIRST_ROW("first_row"),
+    /** Waiting in the driver for every later row, including fetch round trips. */
+    FETCH("fetch"),
+    /** Reading, converting and encoding rows, summed over the threads doing it. */
+    ENCODE("encode"),
+    /** Writing encoded rows out, including compression and waits for the disk, summed over the threads doing it. */
+    WRITE("write"),
+    /** Flushing and closing the output. */
+    CLOSE("close");
+
+    private final String label;
+
+    QueryPhase(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return the name of the phase in metric output.
+     */
+    public String getLabel() {
+        return this.label;
+    }
+}
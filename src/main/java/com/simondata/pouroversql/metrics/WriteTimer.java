@@ -0,0 +1,44 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.metrics;
+
+/**
+ * <h1>WriteTimer</h1>
+ * Adds up the time each thread spends writing output. Writes happen on the thread handling rows,
+ * in the middle of the time a FetchTimer counts as encoding, so it reads the thread's total before
+ * and after to tell the two apart.
+ */
+public final class WriteTimer {
+
+    private static final ThreadLocal<long[]> THREAD_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private WriteTimer() {
+    }
+
+    /**
+     * Add time spent writing on the current thread.
+     * @param nanos the time the write took.
+     */
+    public static void add(long nanos) {
+        THREAD_NANOS.get()[0] += nanos;
+    }
+
+    /**
+     * @return the total time the current thread has spent writing.
+     */
+    public static long threadNanos() {
+        return THREAD_NANOS.get()[0];
+    }
+}
@@ -0,0 +1,175 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.synthetic;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * GeneratedResultSet
+ * A result that generates its rows a fetch at a time, as a driver receives them from the server.
+ * Each fetch waits out a fixed latency plus the time its rows would take to arrive at a limited bandwidth,
+ * so the wait between batches behaves like a network round trip.
+ */
+final class GeneratedResultSet extends SyntheticResultSet {
+
+    /**
+     * The rows per fetch when no fetch size is set.
+     */
+    static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private final ResultShape shape;
+
+    private final long seed;
+
+    private final long endRow;
+
+    private final int fetchSize;
+
+    private final long batchLatencyNanos;
+
+    private final long bytesPerSecond;
+
+    private final long failAtRow;
+
+    private long nextRow;
+
+    private int fetchCount = 0;
+
+    private volatile boolean cancelled = false;
+
+    /**
+     * The thread waiting out a fetch, for cancel to wake.
+     */
+    private volatile Thread fetchingThread = null;
+
+    /**
+     * Constructor
+     * @param shape the shape of the rows.
+     * @param seed the seed to generate values from.
+     * @param firstRow the index of the first row to generate.
+     * @param endRow the index after the last row to generate.
+     * @param fetchSize the number of rows in each fetch, or 0 for the default.
+     * @param batchLatencyNanos the time each fetch takes regardless of its size.
+     * @param bytesPerSecond the rate rows arrive at, or 0 for no limit.
+     * @param failAtRow the index of the row whose fetch fails, as if the connection dropped.
+     */
+    GeneratedResultSet(ResultShape shape, long seed, long firstRow, long endRow, int fetchSize,
+                       long batchLatencyNanos, long bytesPerSecond, long failAtRow) {
+        super(shape.columns(), new Object[0][]);
+        this.shape = shape;
+        this.seed = seed;
+        this.nextRow = firstRow;
+        this.endRow = endRow;
+        this.fetchSize = fetchSize > 0 ? fetchSize : DEFAULT_FETCH_SIZE;
+        this.batchLatencyNanos = batchLatencyNanos;
+        this.bytesPerSecond = bytesPerSecond;
+        this.failAtRow = failAtRow;
+        this.setFetchSize(fetchSize);
+    }
+
+    /**
+     * @return the number of fetches made so far.
+     */
+    int getFetchCount() {
+        return this.fetchCount;
+    }
+
+    /**
+     * Fail the fetch in progress, and any later ones, as Statement.cancel does.
+     * May be called from any thread.
+     */
+    void cancel() {
+        this.cancelled = true;
+        Thread thread = this.fetchingThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    protected boolean fetchBatch() throws SQLException {
+        this.checkCancelled();
+        if (this.nextRow >= this.endRow) {
+            return false;
+        }
+        if (this.nextRow >= this.failAtRow) {
+            throw new SQLException("Connection dropped", "08S01");
+        }
+        int length = (int) Math.min(this.fetchSize, Math.min(this.endRow, this.failAtRow) - this.nextRow);
+        if (this.rows.length < length) {
+            this.rows = new Object[length][];
+        }
+        long bytes = 0;
+        for (int i = 0; i < length; i++) {
+            Object[] row = this.shape.row(this.nextRow++, this.seed);
+            for (Object value : row) {
+                bytes += estimateBytes(value);
+            }
+            this.rows[i] = row;
+        }
+        this.batchLength = length;
+        this.fetchCount++;
+        long delay = this.batchLatencyNanos;
+        if (this.bytesPerSecond > 0) {
+            delay += bytes * TimeUnit.SECONDS.toNanos(1) / this.bytesPerSecond;
+        }
+        this.fetchingThread = Thread.currentThread();
+        try {
+            this.pause(delay);
+        } finally {
+            this.fetchingThread = null;
+        }
+        return true;
+    }
+
+    /**
+     * Roughly the size of a value on the wire.
+     */
+    static int estimateBytes(Object value) {
+        if (value == null) {
+            return 1;
+        } else if (value instanceof String) {
+            return 4 + ((String) value).length();
+        } else if (value instanceof BigDecimal) {
+            return 4 + ((BigDecimal) value).unscaledValue().bitLength() / 8 + 1;
+        } else if (value instanceof Integer || value instanceof Short) {
+            return 4;
+        }
+        return 8;
+    }
+
+    private void pause(long nanos) throws SQLException {
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for a fetch");
+            }
+            this.checkCancelled();
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    private void checkCancelled() throws SQLException {
+        if (this.cancelled) {
+            throw new SQLException("Query was cancelled");
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.synthetic;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ResultShape
+ * The widths and type mixes benchmarked, each generating the same rows for the same seed.
+ * Each row is generated from the seed and its index alone, so any range of rows can be generated on its own.
+ * Labels mix camel and snake case so key formatting has work to do.
+ */
+public enum ResultShape {
+
+    /** A few integer columns, as in fact tables keyed by ids. */
+    NARROW_INTS {
+        @Override
+        List<SyntheticColumn> columns() {
+            List<SyntheticColumn> columns = new ArrayList<>();
+            columns.add(new SyntheticColumn("id", Types.BIGINT));
+            columns.add(new SyntheticColumn("accountId", Types.INTEGER));
+            columns.add(new SyntheticColumn("item_count", Types.INTEGER));
+            columns.add(new SyntheticColumn("StatusCode", Types.SMALLINT));
+            return columns;
+        }
+
+        @Override
+        Object[] row(long index, Random random) {
+            return new Object[]{index, random.nextInt(1_000_000), random.nextInt(100), random.nextInt(8)};
+        }
+    },
+
+    /** Many string columns, some of them needing CSV quoting or JSON escaping. */
+    WIDE_STRINGS {
+        @Override
+        List<SyntheticColumn> columns() {
+            List<SyntheticColumn> columns = new ArrayList<>();
+            for (int i = 0; i < WIDE_COLUMNS; i++) {
+                String label = i % 2 == 0 ? "attributeName" + i : "attribute_name_" + i;
+                columns.add(new SyntheticColumn(label, Types.VARCHAR, 64, 0));
+            }
+            return columns;
+        }
+
+        @Override
+        Object[] row(long index, Random random) {
+            Object[] row = new Object[WIDE_COLUMNS];
+            for (int i = 0; i < WIDE_COLUMNS; i++) {
+                row[i] = randomString(random);
+            }
+            return row;
+        }
+    },
+
+    /** Decimals, timestamps and dates, which go through the slower object paths. */
+    DECIMALS_TIMESTAMPS {
+        @Override
+        List<SyntheticColumn> columns() {
+            List<SyntheticColumn> columns = new ArrayList<>();
+            columns.add(new SyntheticColumn("id", Types.BIGINT));
+            columns.add(new SyntheticColumn("amount", Types.DECIMAL, 18, 4));
+            columns.add(new SyntheticColumn("exchangeRate", Types.DECIMAL, 12, 8));
+            columns.add(new SyntheticColumn("created_at", Types.TIMESTAMP));
+            columns.add(new SyntheticColumn("UpdatedAt", Types.TIMESTAMP));
+            columns.add(new SyntheticColumn("birth_date", Types.DATE));
+            columns.add(new SyntheticColumn("score", Types.DOUBLE));
+            return columns;
+        }
+
+        @Override
+        Object[] row(long index, Random random) {
+            long created = BASE_MILLIS + random.nextInt(Integer.MAX_VALUE) * 1000L;
+            return new Object[]{
+                    index,
+                    BigDecimal.valueOf(random.nextLong() % 100_000_000_000L, 4),
+                    BigDecimal.valueOf(random.nextInt(1_000_000_000), 8),
+                    new Timestamp(created),
+                    new Timestamp(created + random.nextInt(1_000_000)),
+                    new Date(BASE_MILLIS + random.nextInt(20_000) * 86_400_000L),
+                    random.nextDouble() * 100
+            };
+        }
+    },
+
+    /** A mix of types where most values are null, as in sparse profile tables. */
+    HEAVY_NULLS {
+        @Override
+        List<SyntheticColumn> columns() {
+            List<SyntheticColumn> columns = new ArrayList<>();
+            columns.add(new SyntheticColumn("id", Types.BIGINT));
+            for (int i = 0; i < SPARSE_GROUPS; i++) {
+                columns.add(new SyntheticColumn("optionalCount" + i, Types.INTEGER));
+                columns.add(new SyntheticColumn("optional_name_" + i, Types.VARCHAR, 64, 0));
+                columns.add(new SyntheticColumn("OptionalScore" + i, Types.DOUBLE));
+                columns.add(new SyntheticColumn("optional_at_" + i, Types.TIMESTAMP));
+            }
+            return columns;
+        }
+
+        @Override
+        Object[] row(long index, Random random) {
+            Object[] row = new Object[1 + SPARSE_GROUPS * 4];
+            row[0] = index;
+            for (int i = 0; i < SPARSE_GROUPS; i++) {
+                int offset = 1 + i * 4;
+                row[offset] = sparse(random) ? random.nextInt(1000) : null;
+                row[offset + 1] = sparse(random) ? randomString(random) : null;
+                row[offset + 2] = sparse(random) ? random.nextDouble() : null;
+                row[offset + 3] = sparse(random) ? new Timestamp(BASE_MILLIS + random.nextInt()) : null;
+            }
+            return row;
+        }
+    };
+
+    private static final int WIDE_COLUMNS = 40;
+
+    private static final int SPARSE_GROUPS = 4;
+
+    private static final long BASE_MILLIS = 946_684_800_000L;
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ";
+
+    abstract List<SyntheticColumn> columns();
+
+    abstract Object[] row(long index, Random random);
+
+    /**
+     * Generate one row.
+     * @param index the index of the row in the result.
+     * @param seed the seed of the result.
+     * @return the values of the row, in column order.
+     */
+    Object[] row(long index, long seed) {
+        // Mixed as in SplittableRandom, since Random yields similar first values for neighbouring seeds.
+        long mixed = seed + index * 0x9E3779B97F4A7C15L;
+        mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+        return this.row(index, new Random(mixed ^ (mixed >>> 31)));
+    }
+
+    private static boolean sparse(Random random) {
+        return random.nextInt(5) == 0;
+    }
+
+    /**
+     * Mostly plain text, with the odd quote, delimiter or line break.
+     */
+    private static String randomString(Random random) {
+        int length = 8 + random.nextInt(33);
+        StringBuilder value = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            value.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        int special = random.nextInt(20);
+        if (special == 0) {
+            value.setCharAt(length / 2, '"');
+        } else if (special == 1) {
+            value.setCharAt(length / 2, ',');
+        } else if (special == 2) {
+            value.setCharAt(length / 2, '\n');
+        }
+        return value.toString();
+    }
+
+    /**
+     * Generate a result set of this shape.
+     * @param rowCount the number of rows.
+     * @param seed the seed to generate values from.
+     * @return a SyntheticResultSet that can be rewound and read again.
+     */
+    public SyntheticResultSet build(int rowCount, long seed) {
+        Object[][] rows = new Object[rowCount][];
+        for (int i = 0; i < rowCount; i++) {
+            rows[i] = this.row(i, seed);
+        }
+        return new SyntheticResultSet(this.columns(), rows);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.synthetic;
+
+/**
+ * SyntheticColumn
+ * The metadata of a column of a synthetic result set.
+ */
+public class SyntheticColumn {
+
+    private final String label;
+
+    private final int type;
+
+    private final int precision;
+
+    private final int scale;
+
+    /**
+     * Constructor
+     * @param label the column label.
+     * @param type the JDBC type as defined in java.sql.Types.
+     * @param precision the precision, or 0 if it has none.
+     * @param scale the scale, or 0 if it has none.
+     */
+    public SyntheticColumn(String label, int type, int precision, int scale) {
+        this.label = label;
+        this.type = type;
+        this.precision = precision;
+        this.scale = scale;
+    }
+
+    public SyntheticColumn(String label, int type) {
+        this(label, type, 0, 0);
+    }
+
+    public String getLabel() {
+        return this.label;
+    }
+
+    public int getType() {
+        return this.type;
+    }
+
+    public int getPrecision() {
+        return this.precision;
+    }
+
+    public int getScale() {
+        return this.scale;
+    }
+}
@@ -0,0 +1,265 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.synthetic;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>SyntheticDataSource</h1>
+ * A DataSource for a database that doesn't exist, whose every query returns deterministic
+ * generated rows of a ResultShape, fetched in batches of the statement fetch size.
+ * Each fetch takes a configurable latency and bandwidth, so extraction can be measured
+ * end to end without the noise of a real database.
+ * <p>
+ * Queries aren't parsed, except for the ones RangeSplitter and RangeSplit build for parallel
+ * extraction, whose ranges are applied to the row number whatever column they name.
+ */
+public class SyntheticDataSource implements DataSource {
+
+    /** Property naming the ResultShape. */
+    public static final String SHAPE = "shape";
+
+    /** Property for the number of rows each query returns. */
+    public static final String ROWS = "rows";
+
+    /** Property for the seed values are generated from. */
+    public static final String SEED = "seed";
+
+    /** Property for the milliseconds each fetch takes regardless of its size. */
+    public static final String BATCH_LATENCY_MS = "batchlatencyms";
+
+    /** Property for the milliseconds each query takes to execute before its first fetch. */
+    public static final String EXECUTE_LATENCY_MS = "executelatencyms";
+
+    /** Property for the rate rows arrive at, in bytes per second. */
+    public static final String BYTES_PER_SECOND = "bytespersecond";
+
+    /** Property for the rows a query returns before its connection drops, to exercise retries. */
+    public static final String FAIL_AFTER_ROWS = "failafterrows";
+
+    private static final long DEFAULT_ROW_COUNT = 1_000_000;
+
+    private ResultShape shape = ResultShape.NARROW_INTS;
+
+    private long rowCount = DEFAULT_ROW_COUNT;
+
+    private long seed = 0;
+
+    private long batchLatencyMillis = 0;
+
+    private long executeLatencyMillis = 0;
+
+    private long bytesPerSecond = 0;
+
+    private long failAfterRows = 0;
+
+    private PrintWriter logWriter = null;
+
+    private int loginTimeout = 0;
+
+    public ResultShape getShape() {
+        return this.shape;
+    }
+
+    public void setShape(ResultShape shape) {
+        this.shape = shape;
+    }
+
+    public long getRowCount() {
+        return this.rowCount;
+    }
+
+    /**
+     * @param rowCount the number of rows each query returns, before any range or max rows.
+     */
+    public void setRowCount(long rowCount) {
+        if (rowCount < 0) {
+            throw new IllegalArgumentException("Row count can't be negative");
+        }
+        this.rowCount = rowCount;
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * @param seed the seed values are generated from. The same seed always gives the same rows.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public long getBatchLatencyMillis() {
+        return this.batchLatencyMillis;
+    }
+
+    /**
+     * @param batchLatencyMillis the milliseconds each fetch takes regardless of its size, like a round trip.
+     */
+    public void setBatchLatencyMillis(long batchLatencyMillis) {
+        if (batchLatencyMillis < 0) {
+            throw new IllegalArgumentException("Batch latency can't be negative");
+        }
+        this.batchLatencyMillis = batchLatencyMillis;
+    }
+
+    public long getExecuteLatencyMillis() {
+        return this.executeLatencyMillis;
+    }
+
+    /**
+     * @param executeLatencyMillis the milliseconds each query takes to execute, like planning and sorting.
+     */
+    public void setExecuteLatencyMillis(long executeLatencyMillis) {
+        if (executeLatencyMillis < 0) {
+            throw new IllegalArgumentException("Execute latency can't be negative");
+        }
+        this.executeLatencyMillis = executeLatencyMillis;
+    }
+
+    public long getBytesPerSecond() {
+        return this.bytesPerSecond;
+    }
+
+    /**
+     * Rows are sized roughly as they would be on the wire.
+     * @param bytesPerSecond the rate rows arrive at, or 0 for no limit.
+     */
+    public void setBytesPerSecond(long bytesPerSecond) {
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("Bandwidth can't be negative");
+        }
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public long getFailAfterRows() {
+        return this.failAfterRows;
+    }
+
+    /**
+     * Every query fails after this many rows, as if its connection dropped.
+     * @param failAfterRows the rows each query returns before failing, or 0 to never fail.
+     */
+    public void setFailAfterRows(long failAfterRows) {
+        if (failAfterRows < 0) {
+            throw new IllegalArgumentException("Rows before failing can't be negative");
+        }
+        this.failAfterRows = failAfterRows;
+    }
+
+    /**
+     * Apply the settings named by the property constants. Names are case insensitive
+     * and properties not set are left alone.
+     * @param properties the properties to read.
+     */
+    public void setProperties(Properties properties) {
+        for (String name : properties.stringPropertyNames()) {
+            String value = properties.getProperty(name).trim();
+            switch (name.toLowerCase()) {
+                case SHAPE:
+                    this.setShape(ResultShape.valueOf(value.toUpperCase()));
+                    break;
+                case ROWS:
+                    this.setRowCount(Long.parseLong(value));
+                    break;
+                case SEED:
+                    this.setSeed(Long.parseLong(value));
+                    break;
+                case BATCH_LATENCY_MS:
+                    this.setBatchLatencyMillis(Long.parseLong(value));
+                    break;
+                case EXECUTE_LATENCY_MS:
+                    this.setExecuteLatencyMillis(Long.parseLong(value));
+                    break;
+                case BYTES_PER_SECOND:
+                    this.setBytesPerSecond(Long.parseLong(value));
+                    break;
+                case FAIL_AFTER_ROWS:
+                    this.setFailAfterRows(Long.parseLong(value));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Generate the rows of a query.
+     * @param firstRow the index of the first row.
+     * @param endRow the index after the last row, capped at the row count.
+     * @param fetchSize the number of rows in each fetch, or 0 for the default.
+     * @return the result.
+     */
+    GeneratedResultSet generate(long firstRow, long endRow, int fetchSize) {
+        return new GeneratedResultSet(this.shape, this.seed, firstRow, Math.min(endRow, this.rowCount), fetchSize,
+                TimeUnit.MILLISECONDS.toNanos(this.batchLatencyMillis), this.bytesPerSecond,
+                this.failAfterRows > 0 ? firstRow + this.failAfterRows : Long.MAX_VALUE);
+    }
+
+    @Override
+    public Connection getConnection() {
+        return SyntheticStatements.newConnection(this);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        return this.getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return this.logWriter;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        this.logWriter = out;
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return this.loginTimeout;
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.synthetic;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+
+/**
+ * <h1>SyntheticDriver</h1>
+ * A JDBC Driver for SyntheticDataSource connections, registered when the class is loaded.
+ * URLs take the form
+ * <pre>jdbc:pourover:synthetic:NARROW_INTS?rows=1000000&amp;seed=1&amp;batchlatencyms=2&amp;bytespersecond=100000000</pre>
+ * where the shape and every property are optional, and connection properties
+ * override those of the URL.
+ */
+public class SyntheticDriver implements Driver {
+
+    public static final String URL_PREFIX = "jdbc:pourover:synthetic:";
+
+    static {
+        try {
+            DriverManager.registerDriver(new SyntheticDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Build the DataSource a URL describes.
+     * @param url the URL, starting with URL_PREFIX.
+     * @param info connection properties, which override those of the URL. May be null.
+     * @return the SyntheticDataSource
+     * @throws SQLException if the URL or a property is invalid.
+     */
+    public static SyntheticDataSource toDataSource(String url, Properties info) throws SQLException {
+        Properties properties = new Properties();
+        String rest = url.substring(URL_PREFIX.length());
+        int query = rest.indexOf('?');
+        String shape = query < 0 ? rest : rest.substring(0, query);
+        if (!shape.isEmpty()) {
+            properties.setProperty(SyntheticDataSource.SHAPE, shape);
+        }
+        if (query >= 0) {
+            for (String pair : rest.substring(query + 1).split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    properties.setProperty(pair.substring(0, equals), pair.substring(equals + 1));
+                }
+            }
+        }
+        if (info != null) {
+            properties.putAll(info);
+        }
+        SyntheticDataSource dataSource = new SyntheticDataSource();
+        try {
+            dataSource.setProperties(properties);
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("Invalid synthetic URL " + url + ": " + e.getMessage(), e);
+        }
+        return dataSource;
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+        if (!this.acceptsURL(url)) {
+            return null;
+        }
+        return toDataSource(url, info).getConnection();
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+        String[] names = {
+                SyntheticDataSource.SHAPE,
+                SyntheticDataSource.ROWS,
+                SyntheticDataSource.SEED,
+                SyntheticDataSource.BATCH_LATENCY_MS,
+                SyntheticDataSource.BYTES_PER_SECOND
+        };
+        DriverPropertyInfo[] result = new DriverPropertyInfo[names.length];
+        for (int i = 0; i < names.length; i++) {
+            result[i] = new DriverPropertyInfo(names[i], info == null ? null : info.getProperty(names[i]));
+        }
+        return result;
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+        return false;
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+}
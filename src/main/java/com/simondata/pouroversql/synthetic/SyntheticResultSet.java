@@ -0,0 +1,230 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.synthetic;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * SyntheticResultSet
+ * A forward only ResultSet over rows generated up front, so reading it costs next to nothing
+ * and allocates nothing, and what a benchmark measures is the code consuming it.
+ * It can be rewound to be read again.
+ * Subclasses can instead produce the rows a batch at a time, as drivers fetch them.
+ */
+public class SyntheticResultSet extends UnsupportedResultSet {
+
+    private final ResultSetMetaData metaData;
+
+    /**
+     * The rows of the current batch. Only the first batchLength are valid.
+     */
+    protected Object[][] rows;
+
+    protected int batchLength;
+
+    private int cursor = -1;
+
+    private Object lastValue = null;
+
+    private boolean closed = false;
+
+    private int fetchSize = 0;
+
+    /**
+     * Constructor
+     * @param columns the columns of the result.
+     * @param rows the values of each row, in column order. Numbers are boxed as the drivers box them.
+     */
+    public SyntheticResultSet(List<SyntheticColumn> columns, Object[][] rows) {
+        this.metaData = new SyntheticResultSetMetaData(columns);
+        this.rows = rows;
+        this.batchLength = rows.length;
+    }
+
+    /**
+     * Go back to before the first row, to read the result again.
+     */
+    public void rewind() {
+        this.cursor = -1;
+        this.lastValue = null;
+        this.closed = false;
+    }
+
+    public int getRowCount() {
+        return this.rows.length;
+    }
+
+    /**
+     * Replace the rows and batchLength with the next batch of the result.
+     * Called once the current batch has been read.
+     * @return false if there are no more rows, which is always the case unless overridden.
+     * @throws SQLException if the batch can't be produced.
+     */
+    protected boolean fetchBatch() throws SQLException {
+        return false;
+    }
+
+    private Object value(int columnIndex) throws SQLException {
+        if (this.cursor < 0 || this.cursor >= this.batchLength) {
+            throw new SQLException("Not on a row");
+        }
+        Object value = this.rows[this.cursor][columnIndex - 1];
+        this.lastValue = value;
+        return value;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        if (this.cursor < this.batchLength) {
+            this.cursor++;
+        }
+        if (this.cursor == this.batchLength && this.fetchBatch()) {
+            this.cursor = 0;
+        }
+        return this.cursor < this.batchLength;
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    @Override
+    public boolean wasNull() {
+        return this.lastValue == null;
+    }
+
+    @Override
+    public Object getObject(int columnIndex) throws SQLException {
+        return this.value(columnIndex);
+    }
+
+    @Override
+    public String getString(int columnIndex) throws SQLException {
+        Object value = this.value(columnIndex);
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public boolean getBoolean(int columnIndex) throws SQLException {
+        Object value = this.value(columnIndex);
+        return value != null && (Boolean) value;
+    }
+
+    @Override
+    public int getInt(int columnIndex) throws SQLException {
+        Object value = this.value(columnIndex);
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+
+    @Override
+    public long getLong(int columnIndex) throws SQLException {
+        Object value = this.value(columnIndex);
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    @Override
+    public double getDouble(int columnIndex) throws SQLException {
+        Object value = this.value(columnIndex);
+        return value == null ? 0d : ((Number) value).doubleValue();
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+        return (BigDecimal) this.value(columnIndex);
+    }
+
+    @Override
+    public Date getDate(int columnIndex) throws SQLException {
+        return (Date) this.value(columnIndex);
+    }
+
+    @Override
+    public Timestamp getTimestamp(int columnIndex) throws SQLException {
+        return (Timestamp) this.value(columnIndex);
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() {
+        return this.metaData;
+    }
+
+    @Override
+    public int findColumn(String columnLabel) throws SQLException {
+        for (int i = 1; i <= this.metaData.getColumnCount(); i++) {
+            if (this.metaData.getColumnLabel(i).equalsIgnoreCase(columnLabel)) {
+                return i;
+            }
+        }
+        throw new SQLException("No column " + columnLabel);
+    }
+
+    @Override
+    public Object getObject(String columnLabel) throws SQLException {
+        return this.getObject(this.findColumn(columnLabel));
+    }
+
+    @Override
+    public void setFetchSize(int rows) {
+        this.fetchSize = rows;
+    }
+
+    @Override
+    public int getFetchSize() {
+        return this.fetchSize;
+    }
+
+    @Override
+    public int getType() {
+        return ResultSet.TYPE_FORWARD_ONLY;
+    }
+
+    @Override
+    public int getConcurrency() {
+        return ResultSet.CONCUR_READ_ONLY;
+    }
+
+    @Override
+    public int getFetchDirection() {
+        return ResultSet.FETCH_FORWARD;
+    }
+
+    @Override
+    public Statement getStatement() {
+        return null;
+    }
+
+    @Override
+    public SQLWarning getWarnings() {
+        return null;
+    }
+
+    @Override
+    public void clearWarnings() {
+    }
+}
@@ -0,0 +1,152 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.synthetic;
+
+import java.sql.JDBCType;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * SyntheticResultSetMetaData
+ * Describes the columns of a synthetic result set. Every column is signed and nullable.
+ */
+public class SyntheticResultSetMetaData implements ResultSetMetaData {
+
+    private final List<SyntheticColumn> columns;
+
+    public SyntheticResultSetMetaData(List<SyntheticColumn> columns) {
+        this.columns = columns;
+    }
+
+    private SyntheticColumn column(int column) {
+        return this.columns.get(column - 1);
+    }
+
+    @Override
+    public int getColumnCount() {
+        return this.columns.size();
+    }
+
+    @Override
+    public boolean isAutoIncrement(int column) {
+        return false;
+    }
+
+    @Override
+    public boolean isCaseSensitive(int column) {
+        return true;
+    }
+
+    @Override
+    public boolean isSearchable(int column) {
+        return true;
+    }
+
+    @Override
+    public boolean isCurrency(int column) {
+        return false;
+    }
+
+    @Override
+    public int isNullable(int column) {
+        return ResultSetMetaData.columnNullable;
+    }
+
+    @Override
+    public boolean isSigned(int column) {
+        return true;
+    }
+
+    @Override
+    public int getColumnDisplaySize(int column) {
+        return Math.max(this.column(column).getPrecision(), this.column(column).getLabel().length());
+    }
+
+    @Override
+    public String getColumnLabel(int column) {
+        return this.column(column).getLabel();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return this.column(column).getLabel();
+    }
+
+    @Override
+    public String getSchemaName(int column) {
+        return "";
+    }
+
+    @Override
+    public int getPrecision(int column) {
+        return this.column(column).getPrecision();
+    }
+
+    @Override
+    public int getScale(int column) {
+        return this.column(column).getScale();
+    }
+
+    @Override
+    public String getTableName(int column) {
+        return "";
+    }
+
+    @Override
+    public String getCatalogName(int column) {
+        return "";
+    }
+
+    @Override
+    public int getColumnType(int column) {
+        return this.column(column).getType();
+    }
+
+    @Override
+    public String getColumnTypeName(int column) {
+        return JDBCType.valueOf(this.column(column).getType()).getName();
+    }
+
+    @Override
+    public boolean isReadOnly(int column) {
+        return true;
+    }
+
+    @Override
+    public boolean isWritable(int column) {
+        return false;
+    }
+
+    @Override
+    public boolean isDefinitelyWritable(int column) {
+        return false;
+    }
+
+    @Override
+    public String getColumnClassName(int column) {
+        return Object.class.getName();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        throw new SQLException("Not a wrapper");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return false;
+    }
+}
@@ -0,0 +1,384 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.synthetic;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SyntheticStatements
+ * The connections and statements of a SyntheticDataSource, as proxies that support what
+ * query runners use and reject everything else.
+ */
+final class SyntheticStatements {
+
+    private static final String SPLIT_WHERE = ") pourover_split WHERE ";
+
+    private static final Pattern NTILE = Pattern.compile("NTILE\\((\\d+)\\)");
+
+    private static final Object UNHANDLED = new Object();
+
+    private SyntheticStatements() {
+    }
+
+    static Connection newConnection(SyntheticDataSource dataSource) {
+        return proxy(Connection.class, new ConnectionHandler(dataSource));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * Handle the methods every JDBC object shares, or return UNHANDLED for the rest.
+     */
+    private static Object handleCommon(Object proxy, Method method, Object[] args, Class<?> type) {
+        switch (method.getName()) {
+            case "toString":
+                return type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "isWrapperFor":
+                return ((Class<?>) args[0]).isInstance(proxy);
+            case "unwrap":
+                return ((Class<?>) args[0]).cast(proxy);
+            case "getWarnings":
+                return null;
+            case "clearWarnings":
+                return null;
+            default:
+                return UNHANDLED;
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+
+        private final SyntheticDataSource dataSource;
+
+        private boolean closed = false;
+
+        private boolean autoCommit = true;
+
+        private boolean readOnly = false;
+
+        private int transactionIsolation = Connection.TRANSACTION_READ_COMMITTED;
+
+        ConnectionHandler(SyntheticDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object common = handleCommon(proxy, method, args, Connection.class);
+            if (common != UNHANDLED) {
+                return common;
+            }
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    this.closed = true;
+                    return null;
+                case "isClosed":
+                    return this.closed;
+                case "isValid":
+                    return !this.closed;
+                default:
+                    break;
+            }
+            if (this.closed) {
+                throw new SQLException("Connection is closed");
+            }
+            switch (name) {
+                case "prepareStatement":
+                    return proxy(PreparedStatement.class,
+                            new StatementHandler(this.dataSource, (Connection) proxy, (String) args[0]));
+                case "createStatement":
+                    return proxy(PreparedStatement.class,
+                            new StatementHandler(this.dataSource, (Connection) proxy, null));
+                case "getAutoCommit":
+                    return this.autoCommit;
+                case "setAutoCommit":
+                    this.autoCommit = (Boolean) args[0];
+                    return null;
+                case "isReadOnly":
+                    return this.readOnly;
+                case "setReadOnly":
+                    this.readOnly = (Boolean) args[0];
+                    return null;
+                case "getTransactionIsolation":
+                    return this.transactionIsolation;
+                case "setTransactionIsolation":
+                    this.transactionIsolation = (Integer) args[0];
+                    return null;
+                case "commit":
+                case "rollback":
+                    return null;
+                default:
+                    throw new SQLFeatureNotSupportedException("Synthetic connections don't support " + name);
+            }
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+
+        private final SyntheticDataSource dataSource;
+
+        private final Connection connection;
+
+        private final String sql;
+
+        private final List<Object> params = new ArrayList<>();
+
+        private int fetchSize = 0;
+
+        private int maxRows = 0;
+
+        private int queryTimeout = 0;
+
+        private volatile ResultSet resultSet = null;
+
+        private volatile boolean cancelled = false;
+
+        private volatile Thread executingThread = null;
+
+        private boolean closed = false;
+
+        StatementHandler(SyntheticDataSource dataSource, Connection connection, String sql) {
+            this.dataSource = dataSource;
+            this.connection = connection;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object common = handleCommon(proxy, method, args, PreparedStatement.class);
+            if (common != UNHANDLED) {
+                return common;
+            }
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    this.closed = true;
+                    return null;
+                case "isClosed":
+                    return this.closed;
+                case "cancel":
+                    // Called from other threads, and may race with close.
+                    this.cancelled = true;
+                    Thread executingThread = this.executingThread;
+                    if (executingThread != null) {
+                        LockSupport.unpark(executingThread);
+                    }
+                    ResultSet resultSet = this.resultSet;
+                    if (resultSet instanceof GeneratedResultSet) {
+                        ((GeneratedResultSet) resultSet).cancel();
+                    }
+                    return null;
+                default:
+                    break;
+            }
+            if (this.closed) {
+                throw new SQLException("Statement is closed");
+            }
+            switch (name) {
+                case "getConnection":
+                    return this.connection;
+                case "setFetchSize":
+                    this.fetchSize = (Integer) args[0];
+                    return null;
+                case "getFetchSize":
+                    return this.fetchSize;
+                case "setMaxRows":
+                    this.maxRows = (Integer) args[0];
+                    return null;
+                case "getMaxRows":
+                    return this.maxRows;
+                case "setQueryTimeout":
+                    this.queryTimeout = (Integer) args[0];
+                    return null;
+                case "getQueryTimeout":
+                    return this.queryTimeout;
+                case "setFetchDirection":
+                    return null;
+                case "getFetchDirection":
+                    return ResultSet.FETCH_FORWARD;
+                case "getParameterMetaData":
+                    // Query runners then take the parameters as given.
+                    return null;
+                case "clearParameters":
+                    this.params.clear();
+                    return null;
+                case "setNull":
+                    this.setParam((Integer) args[0], null);
+                    return null;
+                case "executeQuery":
+                    this.awaitExecution();
+                    this.resultSet = this.execute(args == null ? this.sql : (String) args[0]);
+                    return this.resultSet;
+                case "getResultSet":
+                    return this.resultSet;
+                default:
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        this.setParam((Integer) args[0], args[1]);
+                        return null;
+                    }
+                    throw new SQLFeatureNotSupportedException("Synthetic statements don't support " + name);
+            }
+        }
+
+        /**
+         * Take the execute latency, failing if the statement is cancelled meanwhile.
+         */
+        private void awaitExecution() throws SQLException {
+            long latencyNanos = TimeUnit.MILLISECONDS.toNanos(this.dataSource.getExecuteLatencyMillis());
+            long deadline = System.nanoTime() + latencyNanos;
+            this.executingThread = Thread.currentThread();
+            try {
+                long remaining;
+                while (!this.cancelled && (remaining = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(remaining);
+                    if (Thread.interrupted()) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted executing query");
+                    }
+                }
+            } finally {
+                this.executingThread = null;
+            }
+            if (this.cancelled) {
+                throw new SQLException("Query was cancelled");
+            }
+        }
+
+        private void setParam(int index, Object value) {
+            while (this.params.size() < index) {
+                this.params.add(null);
+            }
+            this.params.set(index - 1, value);
+        }
+
+        private ResultSet execute(String query) throws SQLException {
+            if (query == null) {
+                throw new SQLException("Null SQL statement");
+            }
+            long rowCount = this.dataSource.getRowCount();
+            if (query.contains("pourover_watermark")) {
+                return watermark(query.contains(" > ?") ? this.rowParam(0) : -1, rowCount);
+            } else if (query.contains("pourover_max")) {
+                return bounds(rowCount);
+            } else if (query.contains("pourover_cut")) {
+                return quantiles(query, rowCount);
+            }
+            long firstRow = 0;
+            long endRow = rowCount;
+            int splitAt = query.lastIndexOf(SPLIT_WHERE);
+            if (splitAt >= 0) {
+                String predicate = query.substring(splitAt + SPLIT_WHERE.length()).trim();
+                if (predicate.endsWith(" IS NULL") || predicate.equals("1 = 0")) {
+                    endRow = 0;
+                } else if (predicate.contains("<= ?")) {
+                    // Watermark ranges, past one row number up to and including another.
+                    boolean bounded = predicate.contains("> ?");
+                    if (bounded) {
+                        firstRow = this.rowParam(0) + 1;
+                    }
+                    endRow = this.rowParam(bounded ? 1 : 0) + 1;
+                } else if (predicate.contains("> ?")) {
+                    // Keyset ranges, past a row number.
+                    firstRow = this.rowParam(0) + 1;
+                } else if (predicate.contains(">= ?")) {
+                    firstRow = this.rowParam(0);
+                    if (predicate.contains("< ?")) {
+                        endRow = this.rowParam(1);
+                    }
+                } else if (predicate.contains("< ?")) {
+                    endRow = this.rowParam(0);
+                }
+            }
+            if (this.maxRows > 0) {
+                endRow = Math.min(endRow, firstRow + this.maxRows);
+            }
+            return this.dataSource.generate(firstRow, Math.max(firstRow, endRow), this.fetchSize);
+        }
+
+        /**
+         * A range bound as a row number. Rows are whole, so a fractional bound rounds up.
+         */
+        private long rowParam(int index) throws SQLException {
+            Object value = index < this.params.size() ? this.params.get(index) : null;
+            if (!(value instanceof Number)) {
+                throw new SQLException("Synthetic ranges need numeric bounds, got " + value);
+            }
+            if (value instanceof BigDecimal || value instanceof Double || value instanceof Float) {
+                return new BigDecimal(value.toString()).setScale(0, RoundingMode.CEILING).longValue();
+            }
+            return ((Number) value).longValue();
+        }
+    }
+
+    private static ResultSet bounds(long rowCount) {
+        List<SyntheticColumn> columns = new ArrayList<>();
+        columns.add(new SyntheticColumn("pourover_min", Types.BIGINT));
+        columns.add(new SyntheticColumn("pourover_max", Types.BIGINT));
+        Object[] row = rowCount == 0 ? new Object[]{null, null} : new Object[]{0L, rowCount - 1};
+        return new SyntheticResultSet(columns, new Object[][]{row});
+    }
+
+    /**
+     * The highest row number past a watermark, or NULL if there are none.
+     */
+    private static ResultSet watermark(long after, long rowCount) {
+        Object max = rowCount - 1 > after ? rowCount - 1 : null;
+        return new SyntheticResultSet(
+                Collections.singletonList(new SyntheticColumn("pourover_watermark", Types.BIGINT)),
+                new Object[][]{{max}});
+    }
+
+    /**
+     * The lowest row number of each tile, with the first rowCount % tiles tiles a row larger, as NTILE does.
+     */
+    private static ResultSet quantiles(String query, long rowCount) throws SQLException {
+        Matcher matcher = NTILE.matcher(query);
+        if (!matcher.find()) {
+            throw new SQLException("Synthetic quantile queries need NTILE: " + query);
+        }
+        long tiles = Math.min(Long.parseLong(matcher.group(1)), rowCount);
+        List<Object[]> rows = new ArrayList<>();
+        for (long tile = 0; tile < tiles; tile++) {
+            rows.add(new Object[]{tile * (rowCount / tiles) + Math.min(tile, rowCount % tiles)});
+        }
+        return new SyntheticResultSet(
+                Collections.singletonList(new SyntheticColumn("pourover_cut", Types.BIGINT)),
+                rows.toArray(new Object[0][]));
+    }
+}
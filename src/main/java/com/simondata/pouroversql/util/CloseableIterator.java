@@ -0,0 +1,96 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.util;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <h1>CloseableIterator</h1>
+ * An Iterator over a resource that must be closed once the caller is done with it,
+ * whether or not every element was read.
+ * @param <T> the type of the elements.
+ */
+public interface CloseableIterator<T> extends Iterator<T>, AutoCloseable {
+
+    /**
+     * Release the resource. Safe to call more than once.
+     */
+    @Override
+    void close();
+
+    /**
+     * Get a sequential Stream of the remaining elements, which closes this iterator when it is closed.
+     * @return the Stream
+     */
+    default Stream<T> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false
+        ).onClose(this::close);
+    }
+
+    /**
+     * Get an iterator that runs an action once this one is closed, which happens when it is closed,
+     * exhausted or fails.
+     * @param action the action to run, even if closing fails.
+     * @return the CloseableIterator
+     */
+    default CloseableIterator<T> onClose(Runnable action) {
+        CloseableIterator<T> iterator = this;
+        return new CloseableIterator<T>() {
+            private boolean closed;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    if (iterator.hasNext()) {
+                        return true;
+                    }
+                } catch (RuntimeException e) {
+                    this.close();
+                    throw e;
+                }
+                this.close();
+                return false;
+            }
+
+            @Override
+            public T next() {
+                try {
+                    return iterator.next();
+                } catch (RuntimeException e) {
+                    this.close();
+                    throw e;
+                }
+            }
+
+            @Override
+            public void close() {
+                if (this.closed) {
+                    return;
+                }
+                this.closed = true;
+                try {
+                    iterator.close();
+                } finally {
+                    action.run();
+                }
+            }
+        };
+    }
+}
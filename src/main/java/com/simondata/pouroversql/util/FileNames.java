@@ -0,0 +1,80 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.util;
+
+import com.simondata.pouroversql.writers.FileOutputFormat;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * FileNames
+ *
+ * Utility class for deriving output file names.
+ */
+public class FileNames {
+
+    private static final String GZIP_EXTENSION = ".gz";
+
+    /**
+     * Insert a suffix before the extension of a file name,
+     * e.g. "out.jsonl" with suffix "-00001" becomes "out-00001.jsonl".
+     * The extensions of the output formats, such as ".csv" and ".json.gz", are recognised whole,
+     * so dots earlier in the name are kept, e.g. "export_2024.10.18.csv" becomes
+     * "export_2024.10.18-00001.csv". Otherwise the extension is the part after the last dot,
+     * along with the one before it when the last is ".gz".
+     * @param file the original file.
+     * @param suffix the suffix to insert.
+     * @return a file in the same directory with the suffix inserted.
+     */
+    public static File withSuffix(File file, String suffix) {
+        String name = file.getName();
+        int dot = extensionStart(name);
+        String newName;
+        if (dot <= 0) {
+            newName = name + suffix;
+        } else {
+            newName = name.substring(0, dot) + suffix + name.substring(dot);
+        }
+        return new File(file.getParentFile(), newName);
+    }
+
+    /**
+     * @return the index of the dot starting the extension of a file name, or -1 if it has none.
+     */
+    private static int extensionStart(String name) {
+        String lowerName = name.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (FileOutputFormat format : FileOutputFormat.values()) {
+            String extension = format.getExtension();
+            int candidate = name.length() - extension.length();
+            if (candidate > 0 && lowerName.endsWith(extension) && (start < 0 || candidate < start)) {
+                start = candidate;
+            }
+        }
+        if (start >= 0) {
+            return start;
+        }
+        int dot = name.lastIndexOf('.');
+        if (dot > 0 && lowerName.endsWith(GZIP_EXTENSION)) {
+            int previous = name.lastIndexOf('.', dot - 1);
+            if (previous > 0) {
+                return previous;
+            }
+        }
+        return dot;
+    }
+}
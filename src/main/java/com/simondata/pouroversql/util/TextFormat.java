@@ -101,4 +101,17 @@ public class TextFormat {
         }
     }
 
+    /**
+     * Safely parse a string as a long
+     * @param nullOrValue input string
+     * @return Long representation of the string.
+     */
+    public static Long parseLong(String nullOrValue) {
+        if (nullOrValue == null) {
+            return null;
+        } else {
+            return Long.parseLong(nullOrValue);
+        }
+    }
+
 }
@@ -0,0 +1,119 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.sql.Types;
+
+/**
+ * <h1>ArrayRow</h1>
+ * A reusable Row buffer filled by a RowPlan.
+ * LONG and DOUBLE columns are held unboxed.
+ */
+final class ArrayRow implements Row {
+
+    private final RowSchema schema;
+    final long[] longs;
+    final double[] doubles;
+    final Object[] objects;
+    final boolean[] nulls;
+
+    ArrayRow(RowSchema schema) {
+        int columnCount = schema.getColumnCount();
+        this.schema = schema;
+        this.longs = new long[columnCount];
+        this.doubles = new double[columnCount];
+        this.objects = new Object[columnCount];
+        this.nulls = new boolean[columnCount];
+    }
+
+    /**
+     * Copy the values of another row into this one.
+     * @param other a row with the same schema.
+     */
+    void copyFrom(ArrayRow other) {
+        int columnCount = this.schema.getColumnCount();
+        System.arraycopy(other.longs, 0, this.longs, 0, columnCount);
+        System.arraycopy(other.doubles, 0, this.doubles, 0, columnCount);
+        System.arraycopy(other.objects, 0, this.objects, 0, columnCount);
+        System.arraycopy(other.nulls, 0, this.nulls, 0, columnCount);
+    }
+
+    @Override
+    public RowSchema getSchema() {
+        return this.schema;
+    }
+
+    @Override
+    public Object getObject(int index) {
+        if (this.nulls[index]) {
+            return null;
+        }
+        switch (this.schema.getKind(index)) {
+            case LONG:
+                if (this.schema.getColumnType(index) == Types.INTEGER) {
+                    return (int) this.longs[index];
+                }
+                return this.longs[index];
+            case DOUBLE:
+                return this.doubles[index];
+            default:
+                return this.objects[index];
+        }
+    }
+
+    @Override
+    public boolean isNull(int index) {
+        return this.nulls[index];
+    }
+
+    @Override
+    public String getString(int index) {
+        if (this.nulls[index]) {
+            return null;
+        }
+        switch (this.schema.getKind(index)) {
+            case LONG:
+                return Long.toString(this.longs[index]);
+            case DOUBLE:
+                return Double.toString(this.doubles[index]);
+            default:
+                return this.objects[index].toString();
+        }
+    }
+
+    @Override
+    public long getLong(int index) {
+        switch (this.schema.getKind(index)) {
+            case LONG:
+                return this.longs[index];
+            case DOUBLE:
+                return (long) this.doubles[index];
+            default:
+                return this.nulls[index] ? 0L : ((Number) this.objects[index]).longValue();
+        }
+    }
+
+    @Override
+    public double getDouble(int index) {
+        switch (this.schema.getKind(index)) {
+            case LONG:
+                return this.longs[index];
+            case DOUBLE:
+                return this.doubles[index];
+            default:
+                return this.nulls[index] ? 0d : ((Number) this.objects[index]).doubleValue();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeMicroVector;
+import org.apache.arrow.vector.TimeStampMicroTZVector;
+import org.apache.arrow.vector.TimeStampMicroVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ArrowBatch
+ * Copies Rows into the off-heap vectors of a VectorSchemaRoot, a record batch at a time.
+ * Each column gets a ValueSetter for its vector up front, and the vectors are reset
+ * rather than reallocated between batches.
+ */
+final class ArrowBatch implements AutoCloseable {
+
+    private static final int MAX_DECIMAL_PRECISION = 38;
+
+    /**
+     * Sets the value of one column of a Row at a position of its vector.
+     */
+    @FunctionalInterface
+    private interface ValueSetter {
+        void set(int position, Row row, int index);
+    }
+
+    private final VectorSchemaRoot root;
+
+    private final FieldVector[] vectors;
+
+    private final ValueSetter[] setters;
+
+    private final int capacity;
+
+    private int rowCount = 0;
+
+    /**
+     * Constructor
+     * @param schema the RowSchema of the rows to copy.
+     * @param allocator the allocator for the vectors.
+     * @param capacity the number of rows in a full batch.
+     */
+    ArrowBatch(RowSchema schema, BufferAllocator allocator, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Arrow batch size must be positive");
+        }
+        int columnCount = schema.getColumnCount();
+        List<Field> fields = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            // Every field is nullable, since drivers report the nullability of the underlying table column,
+            // which an outer join doesn't keep.
+            FieldType fieldType = FieldType.nullable(arrowType(schema, i));
+            fields.add(new Field(schema.getKey(i), fieldType, null));
+        }
+        this.capacity = capacity;
+        this.root = VectorSchemaRoot.create(new Schema(fields), allocator);
+        this.vectors = this.root.getFieldVectors().toArray(new FieldVector[0]);
+        this.setters = new ValueSetter[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            this.vectors[i].setInitialCapacity(capacity);
+            this.setters[i] = setterFor(this.vectors[i], schema, i);
+        }
+        this.root.allocateNew();
+    }
+
+    /**
+     * Choose the Arrow type of a column from its JDBC type.
+     * Types without a better mapping are written as strings.
+     */
+    private static ArrowType arrowType(RowSchema schema, int index) {
+        boolean unboxed = schema.getKind(index) == RowSchema.ColumnKind.LONG;
+        switch (schema.getColumnType(index)) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return ArrowType.Bool.INSTANCE;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+                return new ArrowType.Int(32, true);
+            case Types.INTEGER:
+                // Unsigned integers may not fit in 32 bits.
+                return new ArrowType.Int(unboxed ? 32 : 64, true);
+            case Types.BIGINT:
+                // Unsigned longs may not fit in 64 bits.
+                return unboxed ? new ArrowType.Int(64, true) : new ArrowType.Decimal(20, 0, 128);
+            case Types.REAL:
+                return new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE);
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                int precision = schema.getPrecision(index);
+                int scale = schema.getScale(index);
+                if (precision > 0 && precision <= MAX_DECIMAL_PRECISION && scale >= 0 && scale <= precision) {
+                    return new ArrowType.Decimal(precision, scale, 128);
+                }
+                // Drivers report no usable precision for unconstrained numerics.
+                return ArrowType.Utf8.INSTANCE;
+            case Types.DATE:
+                return new ArrowType.Date(DateUnit.DAY);
+            case Types.TIME:
+                return new ArrowType.Time(TimeUnit.MICROSECOND, 64);
+            case Types.TIMESTAMP:
+                return new ArrowType.Timestamp(TimeUnit.MICROSECOND, null);
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return new ArrowType.Timestamp(TimeUnit.MICROSECOND, "UTC");
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return ArrowType.Binary.INSTANCE;
+            default:
+                return ArrowType.Utf8.INSTANCE;
+        }
+    }
+
+    private static ValueSetter setterFor(FieldVector vector, RowSchema schema, int index) {
+        boolean unboxedLong = schema.getKind(index) == RowSchema.ColumnKind.LONG;
+        boolean unboxedDouble = schema.getKind(index) == RowSchema.ColumnKind.DOUBLE;
+        if (vector instanceof BitVector) {
+            BitVector bits = (BitVector) vector;
+            return (position, row, i) -> bits.setSafe(position, ColumnValues.toBoolean(row.getObject(i)) ? 1 : 0);
+        } else if (vector instanceof IntVector) {
+            IntVector ints = (IntVector) vector;
+            if (unboxedLong) {
+                return (position, row, i) -> ints.setSafe(position, (int) row.getLong(i));
+            }
+            return (position, row, i) -> ints.setSafe(position, ((Number) row.getObject(i)).intValue());
+        } else if (vector instanceof BigIntVector) {
+            BigIntVector longs = (BigIntVector) vector;
+            if (unboxedLong) {
+                return (position, row, i) -> longs.setSafe(position, row.getLong(i));
+            }
+            return (position, row, i) -> longs.setSafe(position, ((Number) row.getObject(i)).longValue());
+        } else if (vector instanceof Float4Vector) {
+            Float4Vector floats = (Float4Vector) vector;
+            return (position, row, i) -> floats.setSafe(position, ((Number) row.getObject(i)).floatValue());
+        } else if (vector instanceof Float8Vector) {
+            Float8Vector doubles = (Float8Vector) vector;
+            if (unboxedDouble) {
+                return (position, row, i) -> doubles.setSafe(position, row.getDouble(i));
+            }
+            return (position, row, i) -> doubles.setSafe(position, ((Number) row.getObject(i)).doubleValue());
+        } else if (vector instanceof DecimalVector) {
+            DecimalVector decimals = (DecimalVector) vector;
+            int scale = decimals.getScale();
+            return (position, row, i) -> decimals.setSafe(position, ColumnValues.toDecimal(row.getObject(i), scale));
+        } else if (vector instanceof DateDayVector) {
+            DateDayVector dates = (DateDayVector) vector;
+            return (position, row, i) -> dates.setSafe(position, ColumnValues.toEpochDay(row.getObject(i)));
+        } else if (vector instanceof TimeMicroVector) {
+            TimeMicroVector times = (TimeMicroVector) vector;
+            return (position, row, i) -> times.setSafe(position, ColumnValues.toMicrosOfDay(row.getObject(i)));
+        } else if (vector instanceof TimeStampMicroTZVector) {
+            TimeStampMicroTZVector timestamps = (TimeStampMicroTZVector) vector;
+            return (position, row, i) -> timestamps.setSafe(position, ColumnValues.toInstantMicros(row.getObject(i)));
+        } else if (vector instanceof TimeStampMicroVector) {
+            TimeStampMicroVector timestamps = (TimeStampMicroVector) vector;
+            return (position, row, i) -> timestamps.setSafe(position, ColumnValues.toLocalMicros(row.getObject(i)));
+        } else if (vector instanceof VarBinaryVector) {
+            VarBinaryVector binaries = (VarBinaryVector) vector;
+            return (position, row, i) -> binaries.setSafe(position, ColumnValues.toBytes(row.getObject(i)));
+        }
+        VarCharVector strings = (VarCharVector) vector;
+        return (position, row, i) -> strings.setSafe(position, row.getString(i).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Copy a row into the next position of every vector.
+     * @param row the row to copy.
+     */
+    void append(Row row) {
+        int position = this.rowCount;
+        for (int i = 0; i < this.vectors.length; i++) {
+            if (row.isNull(i)) {
+                this.vectors[i].setNull(position);
+            } else {
+                this.setters[i].set(position, row, i);
+            }
+        }
+        this.rowCount++;
+    }
+
+    int getRowCount() {
+        return this.rowCount;
+    }
+
+    boolean isFull() {
+        return this.rowCount >= this.capacity;
+    }
+
+    /**
+     * @return the root holding the rows appended since the last clear.
+     */
+    VectorSchemaRoot seal() {
+        this.root.setRowCount(this.rowCount);
+        return this.root;
+    }
+
+    /**
+     * Empty the vectors for the next batch, keeping their memory.
+     */
+    void clear() {
+        for (FieldVector vector : this.vectors) {
+            vector.reset();
+        }
+        this.root.setRowCount(0);
+        this.rowCount = 0;
+    }
+
+    @Override
+    public void close() {
+        this.root.close();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * <h1>ArrowCallbackRowWriter</h1>
+ * A RowWriter that delivers rows to a callback as Arrow record batches instead of one Map per row.
+ * The same VectorSchemaRoot is refilled for every batch, so it is only valid during the callback;
+ * transfer its vectors to keep them.
+ */
+public class ArrowCallbackRowWriter extends AbstractRowWriter implements TypedRowWriter {
+
+    private final Consumer<VectorSchemaRoot> callback;
+
+    private final int batchSize;
+
+    private final BufferAllocator allocator;
+
+    private final boolean ownsAllocator;
+
+    private RowSchema schema = null;
+
+    private ArrowBatch batch = null;
+
+    /**
+     * Constructor
+     * @param callback the function to invoke on each batch.
+     * @param batchSize the number of rows in each batch, except the last.
+     */
+    public ArrowCallbackRowWriter(Consumer<VectorSchemaRoot> callback, int batchSize) {
+        this(callback, batchSize, new RootAllocator(), true);
+    }
+
+    /**
+     * Constructor
+     * @param callback the function to invoke on each batch.
+     * @param batchSize the number of rows in each batch, except the last.
+     * @param allocator the allocator for the batch vectors. It is left open on close.
+     */
+    public ArrowCallbackRowWriter(Consumer<VectorSchemaRoot> callback, int batchSize, BufferAllocator allocator) {
+        this(callback, batchSize, allocator, false);
+    }
+
+    private ArrowCallbackRowWriter(
+            Consumer<VectorSchemaRoot> callback,
+            int batchSize,
+            BufferAllocator allocator,
+            boolean ownsAllocator
+    ) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Arrow batch size must be positive");
+        }
+        this.callback = callback;
+        this.batchSize = batchSize;
+        this.allocator = allocator;
+        this.ownsAllocator = ownsAllocator;
+    }
+
+    /**
+     * Only the first schema is used, so later ones must have the same keys.
+     * @param schema the RowSchema of the query result.
+     */
+    @Override
+    public void writeSchema(RowSchema schema) {
+        if (this.batch != null) {
+            if (!this.schema.hasKeys(schema.getKeys())) {
+                throw new IllegalStateException("Arrow batches can't change schema once started");
+            }
+            return;
+        }
+        this.batch = new ArrowBatch(schema, this.allocator, this.batchSize);
+        this.schema = schema;
+    }
+
+    @Override
+    public void writeRow(Row row) {
+        if (this.batch == null) {
+            throw new IllegalStateException("Arrow batches need a schema before the first row");
+        }
+        this.batch.append(row);
+        if (this.batch.isFull()) {
+            this.deliverBatch();
+        }
+    }
+
+    /**
+     * The first row defines the schema, with every column delivered as a string.
+     * @param row the row data to write out.
+     */
+    @Override
+    public void writeRow(Map<String, Object> row) {
+        if (this.schema == null) {
+            this.writeSchema(RowSchema.fromKeys(row.keySet()));
+        }
+        this.writeRow(new MapRow(this.schema, row));
+    }
+
+    private void deliverBatch() {
+        this.callback.accept(this.batch.seal());
+        this.batch.clear();
+    }
+
+    /**
+     * Delivers the last partial batch and frees the vectors.
+     */
+    @Override
+    public void close() {
+        try {
+            if (this.batch != null && this.batch.getRowCount() > 0) {
+                this.deliverBatch();
+            }
+        } finally {
+            if (this.batch != null) {
+                this.batch.close();
+            }
+            this.batch = null;
+            this.schema = null;
+            if (this.ownsAllocator) {
+                this.allocator.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.util.Map;
+
+/**
+ * <h1>ArrowRowWriter</h1>
+ * Writes rows out in the Apache Arrow IPC stream format, which pandas, pyarrow and DuckDB
+ * read without parsing. Rows are copied column-wise into off-heap vectors and written
+ * out as a record batch whenever the batch size is reached.
+ */
+public class ArrowRowWriter extends FileRowWriter implements TypedRowWriter {
+
+    private static final int DEFAULT_BATCH_SIZE = 10000;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private RowSchema schema = null;
+
+    private BufferAllocator allocator = null;
+
+    private ArrowBatch batch = null;
+
+    private ArrowStreamWriter streamWriter = null;
+
+    /**
+     * Set the number of rows in each record batch, for outputs started after this call.
+     * Matching it to the fetch size writes a batch per fetch.
+     * @param batchSize the number of rows per record batch.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Arrow batch size must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Starts the Arrow stream. The schema of a stream can't change once it is started,
+     * so later schemas for the same output must have the same keys.
+     * @param schema the RowSchema of the query result.
+     */
+    @Override
+    public void writeSchema(RowSchema schema) {
+        if (this.streamWriter != null) {
+            if (!this.schema.hasKeys(schema.getKeys())) {
+                throw new IllegalStateException("Arrow output can't change schema once started");
+            }
+            return;
+        }
+        this.allocator = new RootAllocator();
+        this.batch = new ArrowBatch(schema, this.allocator, this.batchSize);
+        this.streamWriter = new ArrowStreamWriter(this.batch.seal(), null, Channels.newChannel(this.out));
+        try {
+            this.streamWriter.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.schema = schema;
+    }
+
+    @Override
+    public void writeRow(Row row) {
+        if (this.batch == null) {
+            throw new IllegalStateException("Arrow output needs a schema before its first row");
+        }
+        this.batch.append(row);
+        if (this.batch.isFull()) {
+            this.writeBatch();
+        }
+    }
+
+    /**
+     * The first row defines the schema, with every column written as a string.
+     * @param row the row data to write out.
+     */
+    @Override
+    public void writeRow(Map<String, Object> row) {
+        if (this.schema == null) {
+            this.writeSchema(RowSchema.fromKeys(row.keySet()));
+        }
+        this.writeRow(new MapRow(this.schema, row));
+    }
+
+    private void writeBatch() {
+        this.batch.seal();
+        try {
+            this.streamWriter.writeBatch();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.batch.clear();
+    }
+
+    /**
+     * Writes out the last partial batch and the end of stream marker before closing the output.
+     */
+    @Override
+    public void close() {
+        try {
+            if (this.streamWriter != null) {
+                if (this.batch.getRowCount() > 0) {
+                    this.writeBatch();
+                }
+                this.streamWriter.end();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (this.batch != null) {
+                this.batch.close();
+                this.allocator.close();
+            }
+            this.streamWriter = null;
+            this.batch = null;
+            this.allocator = null;
+            this.schema = null;
+            super.close();
+        }
+    }
+}
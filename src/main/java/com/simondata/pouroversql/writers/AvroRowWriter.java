@@ -0,0 +1,119 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import com.simondata.pouroversql.clients.OutputParams;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * <h1>AvroRowWriter</h1>
+ * Writes rows out as an Avro object container file, with a writer schema generated
+ * once from the ResultSetMetaData. Rows are encoded straight to the file's block encoder,
+ * and blocks are sized and compressed as set in the OutputParams.
+ */
+public class AvroRowWriter extends FileRowWriter implements TypedRowWriter {
+
+    private RowSchema schema = null;
+
+    private DataFileWriter<Row> fileWriter = null;
+
+    /**
+     * Starts the container file. The schema of a file can't change once it is started,
+     * so later schemas for the same output must have the same keys.
+     * @param schema the RowSchema of the query result.
+     */
+    @Override
+    public void writeSchema(RowSchema schema) {
+        if (this.fileWriter != null) {
+            if (!this.schema.hasKeys(schema.getKeys())) {
+                throw new IllegalStateException("Avro output can't change schema once started");
+            }
+            return;
+        }
+        OutputParams outputParams = this.getOutputParams();
+        RowDatumWriter datumWriter = new RowDatumWriter(schema);
+        // The container file closes its stream, but this writer's output is closed by FileRowWriter.
+        OutputStream unclosed = new FilterOutputStream(this.out) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                this.out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                this.flush();
+            }
+        };
+        DataFileWriter<Row> fileWriter = new DataFileWriter<>(datumWriter)
+                .setCodec(CodecFactory.fromString(outputParams.getAvroCodec()))
+                .setSyncInterval(outputParams.getAvroBlockSize());
+        fileWriter.setFlushOnEveryBlock(false);
+        try {
+            this.fileWriter = fileWriter.create(datumWriter.getSchema(), unclosed);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.schema = schema;
+    }
+
+    @Override
+    public void writeRow(Row row) {
+        if (this.fileWriter == null) {
+            throw new IllegalStateException("Avro output needs a schema before its first row");
+        }
+        try {
+            this.fileWriter.append(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The first row defines the schema, with every column written as a string.
+     * @param row the row data to write out.
+     */
+    @Override
+    public void writeRow(Map<String, Object> row) {
+        if (this.schema == null) {
+            this.writeSchema(RowSchema.fromKeys(row.keySet()));
+        }
+        this.writeRow(new MapRow(this.schema, row));
+    }
+
+    /**
+     * Writes out the last block before closing the output.
+     */
+    @Override
+    public void close() {
+        try {
+            if (this.fileWriter != null) {
+                this.fileWriter.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            this.fileWriter = null;
+            this.schema = null;
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CSVRowEncoder
+ * Encodes rows as delimited lines for a CSVRowWriter, straight into UTF-8 bytes.
+ * Fields are quoted as in RFC 4180: a field containing the delimiter, a quote,
+ * a carriage return or a line feed is wrapped in quotes, with its quotes doubled.
+ * Each field is written in a single scan; only fields that turn out to need
+ * quoting are written a second time.
+ */
+class CSVRowEncoder implements RowEncoder {
+
+    private static final byte QUOTE = '"';
+
+    private final RowSchema schema;
+
+    private final String delimiter;
+
+    private final byte[] delimiterBytes;
+
+    private final int delimiterStart;
+
+    private final boolean shouldWriteHeaders;
+
+    private final byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    CSVRowEncoder(RowSchema schema, CharSequence delimiter, boolean shouldWriteHeaders) {
+        this.schema = schema;
+        this.delimiter = delimiter.toString();
+        this.delimiterBytes = this.delimiter.getBytes(StandardCharsets.UTF_8);
+        this.delimiterStart = this.delimiter.isEmpty() ? -1 : this.delimiter.charAt(0);
+        this.shouldWriteHeaders = shouldWriteHeaders;
+    }
+
+    @Override
+    public void encodeHeader(OutputBuffer buffer) {
+        if (this.shouldWriteHeaders) {
+            int columnCount = this.schema.getColumnCount();
+            for (int i = 0; i < columnCount; i++) {
+                if (i > 0) {
+                    buffer.append(this.delimiterBytes);
+                }
+                this.writeField(this.schema.getKey(i), buffer);
+            }
+            buffer.append(this.lineSeparator);
+        }
+    }
+
+    @Override
+    public void encodeRow(Row row, OutputBuffer buffer) {
+        int columnCount = this.schema.getColumnCount();
+        for (int i = 0; i < columnCount; i++) {
+            if (i > 0) {
+                buffer.append(this.delimiterBytes);
+            }
+            this.writeValue(row, i, buffer);
+        }
+        buffer.append(this.lineSeparator);
+    }
+
+    private void writeValue(Row row, int index, OutputBuffer buffer) {
+        if (row.isNull(index)) {
+            return;
+        }
+        switch (this.schema.getKind(index)) {
+            case LONG:
+                buffer.appendLong(row.getLong(index));
+                break;
+            case DOUBLE:
+                buffer.appendUtf8(Double.toString(row.getDouble(index)));
+                break;
+            default:
+                Object value = row.getObject(index);
+                this.writeField(value instanceof String ? (String) value : value.toString(), buffer);
+                break;
+        }
+    }
+
+    private void writeField(String value, OutputBuffer buffer) {
+        int start = buffer.size();
+        if (!this.writeUnquoted(value, buffer)) {
+            buffer.setSize(start);
+            this.writeQuoted(value, buffer);
+        }
+    }
+
+    private boolean isDelimiterAt(String value, int index) {
+        return value.charAt(index) == this.delimiterStart && value.startsWith(this.delimiter, index);
+    }
+
+    /**
+     * Write the field as is, giving up at the first character that needs quoting.
+     * @return false if the field needs quoting.
+     */
+    private boolean writeUnquoted(String value, OutputBuffer buffer) {
+        int length = value.length();
+        buffer.ensureCapacity(length * 3);
+        byte[] out = buffer.array();
+        int n = buffer.size();
+        int i = 0;
+        while (i < length) {
+            char c = value.charAt(i);
+            if (c == QUOTE || c == '\r' || c == '\n' || this.isDelimiterAt(value, i)) {
+                return false;
+            } else if (c < 0x80) {
+                out[n++] = (byte) c;
+                i++;
+            } else {
+                int end = this.nonAsciiRunEnd(value, i);
+                buffer.setSize(n);
+                buffer.appendUtf8(value, i, end);
+                n = buffer.size();
+                i = end;
+            }
+        }
+        buffer.setSize(n);
+        return true;
+    }
+
+    private void writeQuoted(String value, OutputBuffer buffer) {
+        int length = value.length();
+        // Doubled quotes take two bytes and other characters at most three, plus the enclosing quotes.
+        buffer.ensureCapacity(length * 3 + 2);
+        byte[] out = buffer.array();
+        int n = buffer.size();
+        out[n++] = QUOTE;
+        int i = 0;
+        while (i < length) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == QUOTE) {
+                    out[n++] = QUOTE;
+                }
+                out[n++] = (byte) c;
+                i++;
+            } else {
+                int end = this.nonAsciiRunEnd(value, i);
+                buffer.setSize(n);
+                buffer.appendUtf8(value, i, end);
+                n = buffer.size();
+                i = end;
+            }
+        }
+        out[n++] = QUOTE;
+        buffer.setSize(n);
+    }
+
+    /**
+     * Non-ASCII runs stop at the delimiter, in case it isn't ASCII.
+     */
+    private int nonAsciiRunEnd(String value, int start) {
+        int end = start + 1;
+        while (end < value.length() && value.charAt(end) >= 0x80 && !this.isDelimiterAt(value, end)) {
+            end++;
+        }
+        return end;
+    }
+}
@@ -16,24 +16,16 @@
 
 package com.simondata.pouroversql.writers;
 
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * <h1>CSVRowWriter</h1>
  * CSVRowWriter is a type of writer that outputs to CSV.
  */
-public class CSVRowWriter extends FileRowWriter {
-
-    private static String QUOTE = "\"";
-
-    private List<String> orderedKeys;
+public class CSVRowWriter extends EncodingRowWriter {
 
     private CharSequence delimiter;
 
-    private boolean headersWritten;
-
     private boolean shouldWriteHeaders = true;
 
     /**
@@ -62,63 +54,27 @@ public class CSVRowWriter extends FileRowWriter {
         this.shouldWriteHeaders = shouldWriteHeaders;
     }
 
+    /**
+     * Columns are encoded in schema order, headers first.
+     * @param schema the RowSchema of the rows to encode.
+     * @return the encoder
+     */
     @Override
-    protected void postCloseHook() {
-        this.headersWritten = false;
-    }
-
-    @Override
-    protected void postOpenHook() {
-        this.headersWritten = false;
-    }
-
-    private void writeHeadersOnce(Map<String, Object> row) {
-        if (!this.headersWritten && this.shouldWriteHeaders) {
-            this.orderedKeys = row.keySet()
-                    .stream()
-                    .map(Object::toString)
-                    .collect(Collectors.toList());
-            this.writer.println(String.join(this.delimiter, this.orderedKeys));
-            this.headersWritten = true;
-        }
-    }
-
-    private String quoteString(String input) {
-        return QUOTE + input.replace(QUOTE, "\"\"") + QUOTE;
-    }
-
-    private String handleValue(Object inputObj) {
-        if (inputObj == null) {
-            return "";
-        } else if (! (inputObj instanceof String)) {
-            return inputObj.toString();
-        } else {
-            String inputStr = (String) inputObj;
-            if (inputStr.contains(System.lineSeparator())
-                    || inputStr.contains(this.delimiter)
-                    || inputStr.contains(QUOTE)) {
-                return quoteString(inputStr);
-            } else {
-                return inputStr;
-            }
-        }
-    }
-
-    private String rowToString(Map<String, Object> row) {
-        return this.orderedKeys.stream()
-                .map(row::get)
-                .map(this::handleValue)
-                .collect(Collectors.joining(this.delimiter));
+    public RowEncoder newEncoder(RowSchema schema) {
+        return new CSVRowEncoder(schema, this.delimiter, this.shouldWriteHeaders);
     }
 
     /**
      * Write a row represented as a Map to the printwriter as CSV.
+     * The keys of the first row determine the columns.
      * @param row the row data to write out.
      */
     @Override
     public void writeRow(Map<String, Object> row) {
-        this.writeHeadersOnce(row);
-        this.writer.println(rowToString(row));
+        if (this.schema == null) {
+            this.writeSchema(RowSchema.fromKeys(row.keySet()));
+        }
+        this.writeRow(new MapRow(this.schema, row));
     }
 
 }
@@ -0,0 +1,79 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <h1>CaseInsensitiveRowMap</h1>
+ * A row keyed by column, in column order, whose keys are looked up ignoring case.
+ * Rows handed out as Maps used to come from the DbUtils BasicRowProcessor, which behaves the same way,
+ * so callers looking up "ID" for a column labelled "id" keep working.
+ * Keys keep the case they were put with. Putting a key that differs only in case replaces the earlier one.
+ */
+class CaseInsensitiveRowMap extends LinkedHashMap<String, Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, String> keysByLowerCase;
+
+    CaseInsensitiveRowMap(int initialCapacity) {
+        super(initialCapacity);
+        this.keysByLowerCase = new HashMap<>(initialCapacity);
+    }
+
+    private static String lowerCase(Object key) {
+        return key == null ? null : key.toString().toLowerCase(Locale.ENGLISH);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.keysByLowerCase.containsKey(lowerCase(key));
+    }
+
+    @Override
+    public Object get(Object key) {
+        return super.get(this.keysByLowerCase.get(lowerCase(key)));
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        String previousKey = this.keysByLowerCase.put(lowerCase(key), key);
+        Object previous = previousKey == null ? null : super.remove(previousKey);
+        super.put(key, value);
+        return previous;
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> m) {
+        for (Map.Entry<? extends String, ?> entry : m.entrySet()) {
+            this.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return super.remove(this.keysByLowerCase.remove(lowerCase(key)));
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        this.keysByLowerCase.clear();
+    }
+}
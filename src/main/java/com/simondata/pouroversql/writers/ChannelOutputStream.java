@@ -0,0 +1,166 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <h1>ChannelOutputStream</h1>
+ * An OutputStream over a channel with two pooled direct buffers.
+ * One buffer fills while the other is written to the channel by a dedicated I/O thread,
+ * so encoding and disk writes overlap. Not thread safe.
+ */
+public class ChannelOutputStream extends OutputStream {
+
+    private final WritableByteChannel channel;
+
+    private final ExecutorService io;
+
+    private ByteBuffer filling;
+
+    private ByteBuffer spare;
+
+    private Future<?> pending;
+
+    private boolean closed;
+
+    /**
+     * Constructor
+     * @param channel the channel to write to. It is closed with the stream.
+     * @param bufferSize the size in bytes of each of the two buffers.
+     */
+    public ChannelOutputStream(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.filling = DirectBufferPool.acquire(bufferSize);
+        this.spare = DirectBufferPool.acquire(bufferSize);
+        this.io = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pourover-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.ensureOpen();
+        if (!this.filling.hasRemaining()) {
+            this.swap();
+        }
+        this.filling.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        this.ensureOpen();
+        while (length > 0) {
+            if (!this.filling.hasRemaining()) {
+                this.swap();
+            }
+            int count = Math.min(length, this.filling.remaining());
+            this.filling.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Hand the filled buffer to the I/O thread and carry on with the spare one,
+     * once the I/O thread has finished with it.
+     */
+    private void swap() throws IOException {
+        this.awaitPending();
+        ByteBuffer full = this.filling;
+        full.flip();
+        this.pending = this.io.submit(() -> {
+            while (full.hasRemaining()) {
+                this.channel.write(full);
+            }
+            return null;
+        });
+        this.filling = this.spare;
+        this.spare = full;
+        this.filling.clear();
+    }
+
+    private void awaitPending() throws IOException {
+        if (this.pending == null) {
+            return;
+        }
+        try {
+            this.pending.get();
+            this.pending = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for output to be written");
+        } catch (ExecutionException e) {
+            this.pending = null;
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed writing output", e.getCause());
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    /**
+     * Write out everything buffered so far.
+     * @throws IOException if the channel can't be written to.
+     */
+    @Override
+    public void flush() throws IOException {
+        this.ensureOpen();
+        if (this.filling.position() > 0) {
+            this.swap();
+        }
+        this.awaitPending();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        try {
+            this.flush();
+        } finally {
+            this.closed = true;
+            this.io.shutdown();
+            try {
+                this.channel.close();
+            } finally {
+                // A buffer is only reused once no write can still be using it.
+                if (this.pending == null) {
+                    DirectBufferPool.release(this.filling);
+                    DirectBufferPool.release(this.spare);
+                }
+                this.filling = null;
+                this.spare = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.writers;
+
+import com.simondata.pouroversql.clients.Checkpoint;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * <h1>CheckpointingWriter</h1>
+ * Writes rows ordered by a unique key through an EncodingRowWriter, and every so many rows
+ * flushes it and passes on a Checkpoint of the last key with the rows and bytes written so far.
+ * Rows after the last checkpoint may be in the output too, but only the output up to it is complete.
+ */
+public class CheckpointingWriter extends AbstractRowWriter implements TypedRowWriter {
+
+    private final EncodingRowWriter delegate;
+
+    private final String keyColumn;
+
+    private final long checkpointRows;
+
+    private final Consumer<Checkpoint> checkpointListener;
+
+    private final long startBytes;
+
+    private Checkpoint checkpoint;
+
+    private RowSchema schema = null;
+
+    private int keyIndex = -1;
+
+    private Object lastKey = null;
+
+    private long rows;
+
+    /**
+     * Constructor
+     * @param delegate the writer to write rows with, already open at the end of the checkpoint.
+     * @param keyColumn the column the rows are ordered by.
+     * @param checkpointRows the rows to write between checkpoints.
+     * @param checkpoint the checkpoint the output continues from, or null for new output.
+     * @param checkpointListener told about every checkpoint once the output up to it is flushed.
+     */
+    public CheckpointingWriter(EncodingRowWriter delegate, String keyColumn, long checkpointRows,
+                               Checkpoint checkpoint, Consumer<Checkpoint> checkpointListener) {
+        if (checkpointRows < 1) {
+            throw new IllegalArgumentException("Rows between checkpoints must be positive");
+        }
+        this.delegate = delegate;
+        this.keyColumn = keyColumn;
+        this.checkpointRows = checkpointRows;
+        this.checkpoint = checkpoint;
+        this.checkpointListener = checkpointListener;
+        this.startBytes = checkpoint == null ? 0 : checkpoint.getBytes();
+        this.rows = checkpoint == null ? 0 : checkpoint.getRows();
+    }
+
+    /**
+     * @return the last checkpoint, which may be the one the output continued from, or null if there is none.
+     */
+    public Checkpoint getCheckpoint() {
+        return this.checkpoint;
+    }
+
+    /**
+     * @return the rows of the output, including those before the checkpoint it continued from.
+     */
+    public long getRows() {
+        return this.rows;
+    }
+
+    /**
+     * The key column is matched to an output key, or failing that to a column label in any case.
+     */
+    @Override
+    public void writeSchema(RowSchema schema) {
+        int index = schema.indexOf(this.keyColumn);
+        for (int i = 0; index < 0 && i < schema.getColumnCount(); i++) {
+            if (schema.getLabel(i).equalsIgnoreCase(this.keyColumn)) {
+                index = i;
+            }
+        }
+        if (index < 0) {
+            throw new IllegalArgumentException("The query has no key column " + this.keyColumn);
+        }
+        this.schema = schema;
+        this.keyIndex = index;
+        this.delegate.writeSchema(schema);
+    }
+
+    @Override
+    public void writeRow(Row row) {
+        Object key = row.getObject(this.keyIndex);
+        if (key == null) {
+            throw new IllegalStateException("Key column " + this.keyColumn + " is NULL");
+        }
+        this.delegate.writeRow(row);
+        this.lastKey = key;
+        this.rows++;
+        long checkpointedRows = this.checkpoint == null ? 0 : this.checkpoint.getRows();
+        if (this.rows - checkpointedRows >= this.checkpointRows) {
+            this.checkpoint();
+        }
+    }
+
+    @Override
+    public void writeRow(Map<String, Object> row) {
+        if (this.schema == null) {
+            this.writeSchema(RowSchema.fromKeys(row.keySet()));
+        }
+        this.writeRow(new MapRow(this.schema, row));
+    }
+
+    private void checkpoint() {
+        this.delegate.flush();
+        this.checkpoint = new Checkpoint(
+                this.keyColumn, this.lastKey, this.rows, this.startBytes + this.delegate.getBytesWritten());
+        this.checkpointListener.accept(this.checkpoint);
+    }
+
+    @Override
+    public void close() {
+        this.delegate.close();
+    }
+}
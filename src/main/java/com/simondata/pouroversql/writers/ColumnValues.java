@@ -0,0 +1,150 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * ColumnValues
+ * Converts the objects drivers return for a JDBC type to the values columnar formats store,
+ * accepting the java.time types and strings some drivers return instead.
+ */
+final class ColumnValues {
+
+    private ColumnValues() {
+    }
+
+    static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof Number) {
+            return ((Number) value).intValue() != 0;
+        } else if (value instanceof byte[]) {
+            for (byte b : (byte[]) value) {
+                if (b != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return Boolean.parseBoolean(value.toString());
+    }
+
+    /**
+     * Decimals are rounded half up to the scale of their column.
+     */
+    static BigDecimal toDecimal(Object value, int scale) {
+        BigDecimal decimal;
+        if (value instanceof BigDecimal) {
+            decimal = (BigDecimal) value;
+        } else if (value instanceof BigInteger) {
+            decimal = new BigDecimal((BigInteger) value);
+        } else {
+            decimal = new BigDecimal(value.toString());
+        }
+        return decimal.setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    static BigInteger toUnscaled(Object value, int scale) {
+        return toDecimal(value, scale).unscaledValue();
+    }
+
+    static int toEpochDay(Object value) {
+        LocalDate date;
+        if (value instanceof java.sql.Date) {
+            date = ((java.sql.Date) value).toLocalDate();
+        } else if (value instanceof LocalDate) {
+            date = (LocalDate) value;
+        } else if (value instanceof java.util.Date) {
+            date = new java.sql.Date(((java.util.Date) value).getTime()).toLocalDate();
+        } else {
+            date = LocalDate.parse(value.toString());
+        }
+        return (int) date.toEpochDay();
+    }
+
+    static long toMicrosOfDay(Object value) {
+        LocalTime time;
+        if (value instanceof java.sql.Time) {
+            time = ((java.sql.Time) value).toLocalTime();
+        } else if (value instanceof LocalTime) {
+            time = (LocalTime) value;
+        } else {
+            time = LocalTime.parse(value.toString());
+        }
+        return time.toNanoOfDay() / 1000;
+    }
+
+    /**
+     * Timestamps without a time zone keep their wall clock time, as Parquet expects
+     * of timestamps that aren't adjusted to UTC.
+     */
+    static long toLocalMicros(Object value) {
+        LocalDateTime dateTime;
+        if (value instanceof Timestamp) {
+            dateTime = ((Timestamp) value).toLocalDateTime();
+        } else if (value instanceof LocalDateTime) {
+            dateTime = (LocalDateTime) value;
+        } else if (value instanceof java.util.Date) {
+            dateTime = new Timestamp(((java.util.Date) value).getTime()).toLocalDateTime();
+        } else {
+            dateTime = Timestamp.valueOf(value.toString()).toLocalDateTime();
+        }
+        return toMicros(dateTime.toInstant(ZoneOffset.UTC));
+    }
+
+    static long toInstantMicros(Object value) {
+        Instant instant;
+        if (value instanceof OffsetDateTime) {
+            instant = ((OffsetDateTime) value).toInstant();
+        } else if (value instanceof java.util.Date) {
+            // Timestamps are java.util.Dates too, with their nanos kept by toInstant.
+            instant = ((java.util.Date) value).toInstant();
+        } else {
+            instant = OffsetDateTime.parse(value.toString()).toInstant();
+        }
+        return toMicros(instant);
+    }
+
+    static long toMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1000);
+    }
+
+    static byte[] toBytes(Object value) {
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        } else if (value instanceof Blob) {
+            Blob blob = (Blob) value;
+            try {
+                return blob.getBytes(1, (int) blob.length());
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed reading blob", e);
+            }
+        }
+        return value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
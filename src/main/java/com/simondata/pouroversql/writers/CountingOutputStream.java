@@ -0,0 +1,74 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+/**
+ * CountingOutputStream
+ * Counts the bytes passing through, and optionally digests them.
+ */
+class CountingOutputStream extends FilterOutputStream {
+
+    private final MessageDigest digest;
+
+    private long count;
+
+    /**
+     * Constructor
+     * @param out the stream to pass bytes on to.
+     * @param digest the digest to update with every byte, or null.
+     */
+    CountingOutputStream(OutputStream out, MessageDigest digest) {
+        super(out);
+        this.digest = digest;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.out.write(b);
+        if (this.digest != null) {
+            this.digest.update((byte) b);
+        }
+        this.count++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        this.out.write(bytes, offset, length);
+        if (this.digest != null) {
+            this.digest.update(bytes, offset, length);
+        }
+        this.count += length;
+    }
+
+    long getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return the digest of everything written, as lowercase hex. Only valid once.
+     */
+    String getHexDigest() {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : this.digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
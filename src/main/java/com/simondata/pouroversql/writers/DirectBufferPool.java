@@ -0,0 +1,58 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DirectBufferPool
+ * Keeps direct buffers for reuse across outputs, since they are slow to allocate
+ * and are only freed when collected. A few buffers of each size are kept.
+ */
+final class DirectBufferPool {
+
+    private static final int MAX_POOLED_PER_SIZE = 8;
+
+    private static final Map<Integer, Queue<ByteBuffer>> pools = new ConcurrentHashMap<>();
+    private static final Map<Integer, AtomicInteger> pooledCounts = new ConcurrentHashMap<>();
+
+    private DirectBufferPool() {
+    }
+
+    static ByteBuffer acquire(int size) {
+        ByteBuffer buffer = pools.computeIfAbsent(size, s -> new ConcurrentLinkedQueue<>()).poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(size);
+        }
+        pooledCounts.get(size).decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    static void release(ByteBuffer buffer) {
+        int size = buffer.capacity();
+        AtomicInteger count = pooledCounts.computeIfAbsent(size, s -> new AtomicInteger());
+        if (count.incrementAndGet() <= MAX_POOLED_PER_SIZE) {
+            pools.computeIfAbsent(size, s -> new ConcurrentLinkedQueue<>()).offer(buffer);
+        } else {
+            count.decrementAndGet();
+        }
+    }
+}
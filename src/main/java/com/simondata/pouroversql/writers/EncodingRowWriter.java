@@ -0,0 +1,98 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * <h1>EncodingRowWriter</h1>
+ * A file writer whose rows are encoded to bytes by a RowEncoder.
+ * Encoding and writing are separate steps, so a PipelinedRowHandler
+ * can run them on different threads.
+ */
+public abstract class EncodingRowWriter extends FileRowWriter implements TypedRowWriter {
+
+    protected RowSchema schema;
+
+    private RowEncoder encoder;
+
+    private boolean headerWritten;
+
+    private final OutputBuffer buffer = new OutputBuffer();
+
+    /**
+     * Create an encoder for rows of a schema.
+     * Every call returns a new encoder, so each thread can have its own.
+     * @param schema the RowSchema of the rows to encode.
+     * @return the encoder
+     */
+    public abstract RowEncoder newEncoder(RowSchema schema);
+
+    /**
+     * Continued output already has its header.
+     */
+    @Override
+    protected void postOpenHook() {
+        this.reset();
+        this.headerWritten = this.isContinued();
+    }
+
+    @Override
+    protected void postCloseHook() {
+        this.reset();
+    }
+
+    private void reset() {
+        this.schema = null;
+        this.encoder = null;
+        this.headerWritten = false;
+    }
+
+    /**
+     * Writes the header if it hasn't been written to this output yet.
+     * @param schema the RowSchema of the query result.
+     */
+    @Override
+    public void writeSchema(RowSchema schema) {
+        this.schema = schema;
+        this.encoder = this.newEncoder(schema);
+        if (!this.headerWritten) {
+            this.buffer.reset();
+            this.encoder.encodeHeader(this.buffer);
+            this.writeEncoded(this.buffer);
+            this.headerWritten = true;
+        }
+    }
+
+    @Override
+    public void writeRow(Row row) {
+        this.buffer.reset();
+        this.encoder.encodeRow(row, this.buffer);
+        this.writeEncoded(this.buffer);
+    }
+
+    /**
+     * Write out bytes produced by one of this writer's encoders.
+     * @param encoded the encoded rows.
+     */
+    public void writeEncoded(OutputBuffer encoded) {
+        try {
+            encoded.writeTo(this.out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
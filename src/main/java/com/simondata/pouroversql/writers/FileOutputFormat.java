@@ -18,8 +18,34 @@ package com.simondata.pouroversql.writers;
 
 /**
  * FileOutputFormat
- * Files can be written out in multiple formats.
+ * Files can be written out in multiple formats, optionally gzipped.
+ * Parquet and Avro output compress their own pages and blocks instead,
+ * and Arrow output is left uncompressed.
  */
 public enum FileOutputFormat {
-    JSON, CSV
+    JSON(false, ".json"), CSV(false, ".csv"), JSON_GZ(true, ".json.gz"), CSV_GZ(true, ".csv.gz"),
+    PARQUET(false, ".parquet"), ARROW(false, ".arrow"), AVRO(false, ".avro");
+
+    private final boolean gzipped;
+
+    private final String extension;
+
+    FileOutputFormat(boolean gzipped, String extension) {
+        this.gzipped = gzipped;
+        this.extension = extension;
+    }
+
+    /**
+     * @return whether the output is compressed as multi-member gzip.
+     */
+    public boolean isGzipped() {
+        return this.gzipped;
+    }
+
+    /**
+     * @return the extension of files in this format, including the dot.
+     */
+    public String getExtension() {
+        return this.extension;
+    }
 }
@@ -0,0 +1,62 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.io.File;
+
+/**
+ * <h1>FilePart</h1>
+ * One closed part file of a rolling output.
+ */
+public class FilePart {
+
+    private final File file;
+
+    private final long rows;
+
+    private final long bytes;
+
+    private final String sha256;
+
+    /**
+     * Constructor
+     * @param file the part file.
+     * @param rows the number of rows written to it.
+     * @param bytes its size in bytes.
+     * @param sha256 the SHA-256 checksum of its contents as hex.
+     */
+    public FilePart(File file, long rows, long bytes, String sha256) {
+        this.file = file;
+        this.rows = rows;
+        this.bytes = bytes;
+        this.sha256 = sha256;
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+
+    public long getRows() {
+        return this.rows;
+    }
+
+    public long getBytes() {
+        return this.bytes;
+    }
+
+    public String getSha256() {
+        return this.sha256;
+    }
+}
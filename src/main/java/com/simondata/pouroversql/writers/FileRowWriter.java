@@ -14,10 +14,17 @@ limitations under the License.
  */
 package com.simondata.pouroversql.writers;
 
+import com.simondata.pouroversql.clients.OutputParams;
+import com.simondata.pouroversql.jfr.JfrEvents;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Map;
 
 public abstract class FileRowWriter extends AbstractRowWriter implements RowWriter {
@@ -26,14 +33,96 @@ public abstract class FileRowWriter extends AbstractRowWriter implements RowWrit
 
     static String ENCODING = "UTF-8";
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     protected PrintWriter writer = null;
 
+    /**
+     * The byte stream beneath the PrintWriter, for writers that encode their own output.
+     * Don't mix writes to both.
+     */
+    protected OutputStream out = null;
+
+    private OutputParams outputParams = OutputParams.getDefaultOutputParams();
+
+    private boolean gzipped = false;
+
+    private boolean checksummed = false;
+
+    /**
+     * Counts the bytes written to out, before any compression.
+     */
+    private CountingOutputStream outputCounter = null;
+
+    /**
+     * Counts and digests the bytes that reach the output.
+     */
+    private CountingOutputStream fileCounter = null;
+
+    private long lastFileBytes = 0;
+
+    private String lastChecksum = null;
+
+    private boolean continued = false;
+
+    /**
+     * Set how output is written, for outputs opened after this call.
+     * @param outputParams the OutputParams to use.
+     */
+    public void setOutputParams(OutputParams outputParams) {
+        this.outputParams = outputParams;
+    }
+
+    protected OutputParams getOutputParams() {
+        return this.outputParams;
+    }
+
     /**
      * Abstract method.
      * @param row the row data to write out.
      */
     public abstract void writeRow(Map<String, Object> row);
 
+    /**
+     * Compress outputs opened after this call as multi-member gzip, in parallel blocks
+     * sized by the OutputParams.
+     * @param gzipped whether to compress the output.
+     */
+    public void setGzipped(boolean gzipped) {
+        this.gzipped = gzipped;
+    }
+
+    /**
+     * Compute the SHA-256 checksum of outputs opened after this call.
+     * @param checksummed whether to checksum the output.
+     */
+    public void setChecksummed(boolean checksummed) {
+        this.checksummed = checksummed;
+    }
+
+    /**
+     * Get the bytes written to the current output so far, before compression.
+     * Some of them may still be buffered.
+     * @return the number of bytes written.
+     */
+    public long getBytesWritten() {
+        return this.outputCounter == null ? 0 : this.outputCounter.getCount();
+    }
+
+    /**
+     * @return the size in bytes of the last closed output, after compression.
+     */
+    public long getFileBytes() {
+        return this.lastFileBytes;
+    }
+
+    /**
+     * @return the SHA-256 checksum of the last closed output as hex, or null if it wasn't checksummed.
+     */
+    public String getChecksum() {
+        return this.lastChecksum;
+    }
+
     /**
      * Convenience method.
      * @param outputFilename the file name to write to.
@@ -48,23 +137,111 @@ public abstract class FileRowWriter extends AbstractRowWriter implements RowWrit
      */
     public void open(File outputFile) {
         try {
-            this.writer = new PrintWriter(outputFile, ENCODING);
+            if (this.outputParams.getUseChannel()) {
+                FileChannel channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                this.openStreams(new ChannelOutputStream(
+                        JfrEvents.recordFlushes(channel), this.outputParams.getBufferSize()));
+            } else {
+                this.openStreams(new FileOutputStream(outputFile));
+            }
             logger.info("Opening file: " + outputFile.getName());
+            this.continued = false;
             this.postOpenHook();
-        } catch (FileNotFoundException | UnsupportedEncodingException e) {
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Open an output file to carry on writing at an offset, cutting off anything after it,
+     * e.g. to resume an extract from a checkpoint. Output continued past its start doesn't repeat headers.
+     * Bytes written and file bytes count from the offset.
+     * @param outputFile the output file to open.
+     * @param offset the length of the output to keep.
+     */
+    public void open(File outputFile, long offset) {
+        if (offset > 0 && this.gzipped) {
+            throw new IllegalArgumentException("Gzipped output can't be continued");
+        }
+        try {
+            FileChannel channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            if (channel.size() < offset) {
+                channel.close();
+                throw new IllegalStateException("Can't continue " + outputFile + " at " + offset
+                        + " bytes, it only has " + channel.size());
+            }
+            channel.truncate(offset);
+            channel.position(offset);
+            if (this.outputParams.getUseChannel()) {
+                this.openStreams(new ChannelOutputStream(
+                        JfrEvents.recordFlushes(channel), this.outputParams.getBufferSize()));
+            } else {
+                this.openStreams(Channels.newOutputStream(channel));
+            }
+            logger.info("Opening file: " + outputFile.getName() + " at " + offset + " bytes");
+            this.continued = offset > 0;
+            this.postOpenHook();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return whether the current output carries on from output written before it was opened.
+     */
+    protected boolean isContinued() {
+        return this.continued;
+    }
+
     /**
      * Open an OutputStream and initialize writing process for a new query.
      * @param outputStream the OutputStream to open.
      */
     public void open(OutputStream outputStream) {
-        this.writer = new PrintWriter(outputStream);
+        try {
+            if (this.outputParams.getUseChannel()) {
+                this.openStreams(new ChannelOutputStream(
+                        JfrEvents.recordFlushes(Channels.newChannel(outputStream)), this.outputParams.getBufferSize()));
+            } else {
+                this.openStreams(outputStream);
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        this.continued = false;
         this.postOpenHook();
     }
 
+    private void openStreams(OutputStream outputStream) throws UnsupportedEncodingException {
+        OutputStream target;
+        if (outputStream instanceof ChannelOutputStream) {
+            // The channel beneath records its own flushes.
+            this.fileCounter = new CountingOutputStream(outputStream, this.checksummed ? sha256() : null);
+            target = this.fileCounter;
+        } else {
+            this.fileCounter = new CountingOutputStream(
+                    JfrEvents.recordFlushes(outputStream), this.checksummed ? sha256() : null);
+            target = new BufferedOutputStream(this.fileCounter, BUFFER_SIZE);
+        }
+        if (this.gzipped) {
+            target = new ParallelGzipOutputStream(
+                    target, this.outputParams.getGzipBlockSize(), this.outputParams.getGzipThreads());
+        }
+        this.outputCounter = new CountingOutputStream(target, null);
+        this.out = new TimedOutputStream(this.outputCounter);
+        this.writer = new PrintWriter(new OutputStreamWriter(this.out, ENCODING));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Open Stdout as an OutputStream.
      */
@@ -80,21 +257,39 @@ public abstract class FileRowWriter extends AbstractRowWriter implements RowWrit
 
     }
 
-    private void flush() {
+    /**
+     * Write out everything buffered, so the file holds every row written so far.
+     * The byte stream is flushed directly, since the PrintWriter would swallow its errors.
+     */
+    public void flush() {
         if (this.writer != null) {
             this.writer.flush();
+            try {
+                this.out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
     }
 
     /**
      * Close out the writer safely.
+     * Failures to write out buffered output are rethrown once the output is closed.
      */
     public void close() {
-        this.flush();
-        if (this.writer != null) {
-            this.writer.close();
+        try {
+            this.flush();
+        } finally {
+            if (this.writer != null) {
+                this.writer.close();
+                this.lastFileBytes = this.fileCounter.getCount();
+                this.lastChecksum = this.checksummed ? this.fileCounter.getHexDigest() : null;
+            }
+            this.writer = null;
+            this.out = null;
+            this.outputCounter = null;
+            this.fileCounter = null;
+            this.postCloseHook();
         }
-        this.writer = null;
-        this.postCloseHook();
     }
 }
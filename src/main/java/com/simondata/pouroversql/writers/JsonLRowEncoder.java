@@ -0,0 +1,231 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import com.google.gson.Gson;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * JsonLRowEncoder
+ * Encodes rows as json lines for a JsonLRowWriter, straight into UTF-8 bytes.
+ * Keys are escaped once per schema, and the value types JDBC drivers return are
+ * written without going through Gson. The output is the same as Gson's default
+ * configuration with serializeNulls, including its HTML escaping and date formats.
+ * Any other type is serialized by Gson.
+ */
+class JsonLRowEncoder implements RowEncoder {
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Escapes for ASCII characters, null where the character is written as is.
+     */
+    private static final String[] ESCAPES = new String[128];
+    private static final String[] HTML_SAFE_ESCAPES;
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = String.format("\\u%04x", c);
+        }
+        ESCAPES['"'] = "\\\"";
+        ESCAPES['\\'] = "\\\\";
+        ESCAPES['\t'] = "\\t";
+        ESCAPES['\b'] = "\\b";
+        ESCAPES['\n'] = "\\n";
+        ESCAPES['\r'] = "\\r";
+        ESCAPES['\f'] = "\\f";
+        HTML_SAFE_ESCAPES = ESCAPES.clone();
+        for (char c : new char[]{'<', '>', '&', '=', '\''}) {
+            HTML_SAFE_ESCAPES[c] = String.format("\\u%04x", (int) c);
+        }
+    }
+
+    private final RowSchema schema;
+
+    private final Gson gson;
+
+    private final String[] escapes;
+
+    /**
+     * The escaped key of each column, with its separator and colon.
+     */
+    private final byte[][] keyPrefixes;
+
+    private final byte[] lineEnd;
+
+    private final StringBuilder fallback = new StringBuilder();
+
+    private DateFormat dateTimeFormat;
+    private DateFormat sqlDateFormat;
+    private DateFormat timeFormat;
+
+    JsonLRowEncoder(RowSchema schema, Gson gson) {
+        this.schema = schema;
+        this.gson = gson;
+        this.escapes = gson.htmlSafe() ? HTML_SAFE_ESCAPES : ESCAPES;
+        this.keyPrefixes = new byte[schema.getColumnCount()][];
+        OutputBuffer key = new OutputBuffer(64);
+        for (int i = 0; i < this.keyPrefixes.length; i++) {
+            key.reset();
+            if (i > 0) {
+                key.append((byte) ',');
+            }
+            this.writeString(schema.getKey(i), key);
+            key.append((byte) ':');
+            this.keyPrefixes[i] = Arrays.copyOf(key.array(), key.size());
+        }
+        this.lineEnd = ("}" + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void encodeHeader(OutputBuffer buffer) {
+    }
+
+    @Override
+    public void encodeRow(Row row, OutputBuffer buffer) {
+        buffer.append((byte) '{');
+        for (int i = 0; i < this.keyPrefixes.length; i++) {
+            buffer.append(this.keyPrefixes[i]);
+            this.writeValue(row, i, buffer);
+        }
+        buffer.append(this.lineEnd);
+    }
+
+    private void writeValue(Row row, int index, OutputBuffer buffer) {
+        if (row.isNull(index)) {
+            buffer.append(NULL);
+            return;
+        }
+        switch (this.schema.getKind(index)) {
+            case LONG:
+                buffer.appendLong(row.getLong(index));
+                break;
+            case DOUBLE:
+                double value = row.getDouble(index);
+                checkFinite(value);
+                buffer.appendUtf8(Double.toString(value));
+                break;
+            default:
+                this.writeObject(row.getObject(index), buffer);
+                break;
+        }
+    }
+
+    /**
+     * Types are matched exactly, as Gson picks its adapters by exact type.
+     */
+    private void writeObject(Object value, OutputBuffer buffer) {
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            this.writeString((String) value, buffer);
+        } else if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class) {
+            buffer.appendLong(((Number) value).longValue());
+        } else if (type == BigDecimal.class || type == BigInteger.class) {
+            buffer.appendUtf8(value.toString());
+        } else if (type == Double.class || type == Float.class) {
+            checkFinite(((Number) value).doubleValue());
+            buffer.appendUtf8(value.toString());
+        } else if (type == Boolean.class) {
+            buffer.append((Boolean) value ? TRUE : FALSE);
+        } else if (type == Timestamp.class || type == Date.class) {
+            if (this.dateTimeFormat == null) {
+                this.dateTimeFormat = DateFormat.getDateTimeInstance(DateFormat.DEFAULT, DateFormat.DEFAULT, Locale.US);
+            }
+            this.writeString(this.dateTimeFormat.format((Date) value), buffer);
+        } else if (type == java.sql.Date.class) {
+            if (this.sqlDateFormat == null) {
+                this.sqlDateFormat = new SimpleDateFormat("MMM d, yyyy");
+            }
+            this.writeString(this.sqlDateFormat.format((Date) value), buffer);
+        } else if (type == Time.class) {
+            if (this.timeFormat == null) {
+                this.timeFormat = new SimpleDateFormat("hh:mm:ss a");
+            }
+            this.writeString(this.timeFormat.format((Date) value), buffer);
+        } else if (type == Character.class) {
+            this.writeString(value.toString(), buffer);
+        } else {
+            this.fallback.setLength(0);
+            this.gson.toJson(value, type, this.fallback);
+            buffer.appendUtf8(this.fallback);
+        }
+    }
+
+    private static void checkFinite(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+    }
+
+    /**
+     * Write a quoted, escaped string. Runs of characters that need no escaping are copied
+     * in the same pass, and non-ASCII runs are handed to the buffer's UTF-8 encoder.
+     */
+    private void writeString(CharSequence value, OutputBuffer buffer) {
+        int length = value.length();
+        // At most six bytes per character, for escaped control characters.
+        buffer.ensureCapacity(length * 6 + 2);
+        byte[] out = buffer.array();
+        int n = buffer.size();
+        out[n++] = '"';
+        int i = 0;
+        while (i < length) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                String escape = this.escapes[c];
+                if (escape == null) {
+                    out[n++] = (byte) c;
+                } else {
+                    for (int j = 0; j < escape.length(); j++) {
+                        out[n++] = (byte) escape.charAt(j);
+                    }
+                }
+                i++;
+            } else if (c == '\u2028' || c == '\u2029') {
+                out[n++] = '\\';
+                out[n++] = 'u';
+                out[n++] = '2';
+                out[n++] = '0';
+                out[n++] = '2';
+                out[n++] = c == '\u2028' ? (byte) '8' : (byte) '9';
+                i++;
+            } else {
+                int end = i + 1;
+                while (end < length && value.charAt(end) >= 0x80
+                        && value.charAt(end) != '\u2028' && value.charAt(end) != '\u2029') {
+                    end++;
+                }
+                buffer.setSize(n);
+                buffer.appendUtf8(value, i, end);
+                n = buffer.size();
+                i = end;
+            }
+        }
+        out[n++] = '"';
+        buffer.setSize(n);
+    }
+}
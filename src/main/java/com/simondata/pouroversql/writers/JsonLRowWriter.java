@@ -14,6 +14,7 @@ limitations under the License.
  */
 package com.simondata.pouroversql.writers;
 import com.google.gson.*;
+
 import java.util.Map;
 
 /**
@@ -21,7 +22,7 @@ import java.util.Map;
  * A file writer that outputs jsonl files.
  * Leverages Google's GSON library to flexibly and quickly serialize json.
  */
-public class JsonLRowWriter extends FileRowWriter {
+public class JsonLRowWriter extends EncodingRowWriter {
 
     static String ENCODING = "UTF-8";
 
@@ -47,8 +48,9 @@ public class JsonLRowWriter extends FileRowWriter {
         this.open(outputFilename);
     }
 
-    private String toJson(Map<String, Object> input) {
-        return this.gson.toJson(input);
+    @Override
+    public RowEncoder newEncoder(RowSchema schema) {
+        return new JsonLRowEncoder(schema, this.gson);
     }
 
     /**
@@ -57,7 +59,10 @@ public class JsonLRowWriter extends FileRowWriter {
      */
     @Override
     public void writeRow(Map<String, Object> row) {
-        this.writer.println(this.toJson(row));
+        if (this.schema == null || !this.schema.hasKeys(row.keySet())) {
+            this.writeSchema(RowSchema.fromKeys(row.keySet()));
+        }
+        this.writeRow(new MapRow(this.schema, row));
     }
 
 }
@@ -0,0 +1,71 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.util.Map;
+
+/**
+ * <h1>MapRow</h1>
+ * Adapter that views a Map as a Row so that map based callers can use
+ * a TypedRowWriter. Values are looked up by the keys of the schema.
+ */
+public class MapRow implements Row {
+
+    private final RowSchema schema;
+    private final Map<String, Object> map;
+
+    /**
+     * Constructor
+     * @param schema the schema whose keys are looked up in the map.
+     * @param map the row data.
+     */
+    public MapRow(RowSchema schema, Map<String, Object> map) {
+        this.schema = schema;
+        this.map = map;
+    }
+
+    @Override
+    public RowSchema getSchema() {
+        return this.schema;
+    }
+
+    @Override
+    public Object getObject(int index) {
+        return this.map.get(this.schema.getKey(index));
+    }
+
+    @Override
+    public boolean isNull(int index) {
+        return this.getObject(index) == null;
+    }
+
+    @Override
+    public String getString(int index) {
+        Object value = this.getObject(index);
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public long getLong(int index) {
+        Object value = this.getObject(index);
+        return value == null ? 0L : ((Number) value).longValue();
+    }
+
+    @Override
+    public double getDouble(int index) {
+        Object value = this.getObject(index);
+        return value == null ? 0d : ((Number) value).doubleValue();
+    }
+}
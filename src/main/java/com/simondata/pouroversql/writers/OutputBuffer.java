@@ -0,0 +1,175 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * <h1>OutputBuffer</h1>
+ * A reusable, growable buffer of encoded UTF-8 output.
+ * Not thread safe; each encoder fills its own buffers.
+ */
+public final class OutputBuffer {
+
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    private byte[] bytes;
+    private int size;
+
+    public OutputBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     * @param capacity the initial capacity in bytes.
+     */
+    public OutputBuffer(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    /**
+     * Make room for more bytes.
+     * @param extra the number of bytes about to be appended.
+     */
+    public void ensureCapacity(int extra) {
+        int required = this.size + extra;
+        if (required > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(required, this.bytes.length * 2));
+        }
+    }
+
+    public void append(byte value) {
+        this.ensureCapacity(1);
+        this.bytes[this.size++] = value;
+    }
+
+    public void append(byte[] src) {
+        this.append(src, 0, src.length);
+    }
+
+    public void append(byte[] src, int offset, int length) {
+        this.ensureCapacity(length);
+        System.arraycopy(src, offset, this.bytes, this.size, length);
+        this.size += length;
+    }
+
+    /**
+     * Append characters as UTF-8.
+     * Unpaired surrogates are replaced with '?', as the JDK encoders do.
+     * @param chars the characters to append.
+     */
+    public void appendUtf8(CharSequence chars) {
+        this.appendUtf8(chars, 0, chars.length());
+    }
+
+    /**
+     * Append a range of characters as UTF-8.
+     * @param chars the characters to append.
+     * @param start the index of the first character.
+     * @param end the index after the last character.
+     */
+    public void appendUtf8(CharSequence chars, int start, int end) {
+        this.ensureCapacity((end - start) * 3);
+        byte[] out = this.bytes;
+        int n = this.size;
+        for (int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                out[n++] = (byte) c;
+            } else if (c < 0x800) {
+                out[n++] = (byte) (0xC0 | (c >> 6));
+                out[n++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+                    out[n++] = (byte) (0xF0 | (codePoint >> 18));
+                    out[n++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    out[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    out[n++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    out[n++] = (byte) '?';
+                }
+            } else {
+                out[n++] = (byte) (0xE0 | (c >> 12));
+                out[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        this.size = n;
+    }
+
+    /**
+     * Append the decimal digits of a long, as Long.toString would.
+     * @param value the value to append.
+     */
+    public void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            this.appendUtf8(Long.toString(value));
+            return;
+        }
+        this.ensureCapacity(20);
+        if (value < 0) {
+            this.bytes[this.size++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value; rest >= 10; rest /= 10) {
+            digits++;
+        }
+        int end = this.size + digits;
+        for (int i = end - 1; i >= this.size; i--) {
+            this.bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        this.size = end;
+    }
+
+    /**
+     * @return the number of bytes in the buffer.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * The backing array, valid up to size().
+     * @return the bytes
+     */
+    public byte[] array() {
+        return this.bytes;
+    }
+
+    /**
+     * For encoders that fill array() directly after ensureCapacity.
+     * @param size the number of valid bytes.
+     */
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Empty the buffer, keeping its capacity.
+     */
+    public void reset() {
+        this.size = 0;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(this.bytes, 0, this.size);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <h1>ParallelGzipOutputStream</h1>
+ * Compresses output in independent blocks on a pool of threads, pigz style.
+ * Each block becomes a complete gzip member, and members are written in order,
+ * so the result is a standard multi-member gzip stream that gunzip and
+ * GZIPInputStream read as the concatenation of the blocks.
+ * Not thread safe.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    private static final AtomicInteger streamCount = new AtomicInteger();
+
+    private final OutputStream out;
+
+    private final int blockSize;
+
+    private final int maxInFlight;
+
+    private final ExecutorService compressors;
+
+    /**
+     * Blocks being compressed, in the order they were written.
+     */
+    private final Deque<Block> inFlight = new ArrayDeque<>();
+
+    private final Deque<byte[]> freeBlocks = new ArrayDeque<>();
+
+    private byte[] block;
+
+    private int blockLength;
+
+    private boolean wroteMember;
+
+    private boolean closed;
+
+    private static final class Block {
+        final byte[] input;
+        final Future<byte[]> compressed;
+
+        Block(byte[] input, Future<byte[]> compressed) {
+            this.input = input;
+            this.compressed = compressed;
+        }
+    }
+
+    /**
+     * Constructor
+     * @param out the stream to write compressed output to. It is closed with this stream.
+     * @param blockSize the number of uncompressed bytes in each gzip member.
+     * @param threads the number of threads compressing blocks.
+     */
+    public ParallelGzipOutputStream(OutputStream out, int blockSize, int threads) {
+        if (blockSize < 1 || threads < 1) {
+            throw new IllegalArgumentException("Gzip block size and threads must be positive");
+        }
+        this.out = out;
+        this.blockSize = blockSize;
+        this.maxInFlight = threads * 2;
+        int id = streamCount.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.compressors = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "pourover-gzip-" + id + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.block = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.ensureOpen();
+        if (this.blockLength == this.blockSize) {
+            this.submitBlock();
+        }
+        this.block[this.blockLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        this.ensureOpen();
+        while (length > 0) {
+            if (this.blockLength == this.blockSize) {
+                this.submitBlock();
+            }
+            int count = Math.min(length, this.blockSize - this.blockLength);
+            System.arraycopy(bytes, offset, this.block, this.blockLength, count);
+            this.blockLength += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private static byte[] compress(byte[] input, int length) throws IOException {
+        ByteArrayOutputStream member = new ByteArrayOutputStream(length / 2 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(member, 64 * 1024)) {
+            gzip.write(input, 0, length);
+        }
+        return member.toByteArray();
+    }
+
+    /**
+     * Queue the current block for compression, first writing out finished
+     * members if too many blocks are in flight.
+     */
+    private void submitBlock() throws IOException {
+        while (this.inFlight.size() >= this.maxInFlight) {
+            this.writeOldest();
+        }
+        byte[] input = this.block;
+        int length = this.blockLength;
+        this.inFlight.addLast(new Block(input, this.compressors.submit(() -> compress(input, length))));
+        this.wroteMember = true;
+        this.block = this.freeBlocks.isEmpty() ? new byte[this.blockSize] : this.freeBlocks.pop();
+        this.blockLength = 0;
+    }
+
+    private void writeOldest() throws IOException {
+        Block oldest = this.inFlight.removeFirst();
+        try {
+            this.out.write(oldest.compressed.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for compression");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed compressing output", e.getCause());
+        }
+        this.freeBlocks.push(oldest.input);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    /**
+     * Compress and write out everything written so far, ending the current member.
+     * @throws IOException if compressing or writing fails.
+     */
+    @Override
+    public void flush() throws IOException {
+        this.ensureOpen();
+        if (this.blockLength > 0) {
+            this.submitBlock();
+        }
+        while (!this.inFlight.isEmpty()) {
+            this.writeOldest();
+        }
+        this.out.flush();
+    }
+
+    /**
+     * An empty output still gets one empty member, since an empty file isn't valid gzip.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        try {
+            if (!this.wroteMember) {
+                this.submitBlock();
+            }
+            this.flush();
+        } finally {
+            this.closed = true;
+            this.compressors.shutdownNow();
+            this.out.close();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ParquetRowWriteSupport
+ * Maps a RowSchema to a Parquet schema and writes Rows as Parquet records.
+ * Each column gets a ValueWriter up front, so writing a row makes no type decisions.
+ */
+class ParquetRowWriteSupport extends WriteSupport<Row> {
+
+    /**
+     * The largest DECIMAL precision held in a Parquet INT32 and INT64.
+     */
+    private static final int MAX_INT32_PRECISION = 9;
+    private static final int MAX_INT64_PRECISION = 18;
+    private static final int MAX_DECIMAL_PRECISION = 38;
+
+    /**
+     * Writes the value of one column of a Row to a RecordConsumer.
+     */
+    @FunctionalInterface
+    private interface ValueWriter {
+        void write(RecordConsumer consumer, Row row, int index);
+    }
+
+    private final RowSchema schema;
+
+    private final MessageType messageType;
+
+    private final String[] fieldNames;
+
+    private final ValueWriter[] writers;
+
+    private RecordConsumer consumer;
+
+    ParquetRowWriteSupport(RowSchema schema) {
+        int columnCount = schema.getColumnCount();
+        this.schema = schema;
+        this.fieldNames = uniqueNames(schema);
+        this.writers = new ValueWriter[columnCount];
+        List<Type> fields = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            fields.add(this.mapColumn(i));
+        }
+        this.messageType = new MessageType("row", fields);
+    }
+
+    MessageType getMessageType() {
+        return this.messageType;
+    }
+
+    /**
+     * Parquet fields are looked up by name, so repeated labels get a numeric suffix.
+     */
+    private static String[] uniqueNames(RowSchema schema) {
+        String[] names = new String[schema.getColumnCount()];
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < names.length; i++) {
+            String name = schema.getKey(i);
+            for (int n = 2; !used.add(name); n++) {
+                name = schema.getKey(i) + "_" + n;
+            }
+            names[i] = name;
+        }
+        return names;
+    }
+
+    /**
+     * Choose the Parquet type of a column from its JDBC type and set up its ValueWriter.
+     * Types without a better mapping are written as strings.
+     * Every column is optional, since drivers report the nullability of the underlying table column,
+     * which an outer join doesn't keep.
+     */
+    private Type mapColumn(int index) {
+        Type.Repetition repetition = Type.Repetition.OPTIONAL;
+        String name = this.fieldNames[index];
+        boolean unboxed = this.schema.getKind(index) == RowSchema.ColumnKind.LONG;
+        switch (this.schema.getColumnType(index)) {
+            case java.sql.Types.BIT:
+            case java.sql.Types.BOOLEAN:
+                this.writers[index] = (consumer, row, i) ->
+                        consumer.addBoolean(ColumnValues.toBoolean(row.getObject(i)));
+                return Types.primitive(PrimitiveTypeName.BOOLEAN, repetition).named(name);
+            case java.sql.Types.TINYINT:
+            case java.sql.Types.SMALLINT:
+                this.writers[index] = (consumer, row, i) -> consumer.addInteger(((Number) row.getObject(i)).intValue());
+                return Types.primitive(PrimitiveTypeName.INT32, repetition).named(name);
+            case java.sql.Types.INTEGER:
+                if (unboxed) {
+                    this.writers[index] = (consumer, row, i) -> consumer.addInteger((int) row.getLong(i));
+                    return Types.primitive(PrimitiveTypeName.INT32, repetition).named(name);
+                }
+                // Unsigned, so it may not fit in an INT32.
+                this.writers[index] = (consumer, row, i) -> consumer.addLong(((Number) row.getObject(i)).longValue());
+                return Types.primitive(PrimitiveTypeName.INT64, repetition).named(name);
+            case java.sql.Types.BIGINT:
+                if (unboxed) {
+                    this.writers[index] = (consumer, row, i) -> consumer.addLong(row.getLong(i));
+                    return Types.primitive(PrimitiveTypeName.INT64, repetition).named(name);
+                }
+                // Unsigned, so it may not fit in an INT64.
+                return this.mapDecimal(index, repetition, name, 20, 0);
+            case java.sql.Types.REAL:
+                this.writers[index] = (consumer, row, i) -> consumer.addFloat(((Number) row.getObject(i)).floatValue());
+                return Types.primitive(PrimitiveTypeName.FLOAT, repetition).named(name);
+            case java.sql.Types.FLOAT:
+            case java.sql.Types.DOUBLE:
+                this.writers[index] = (consumer, row, i) -> consumer.addDouble(row.getDouble(i));
+                return Types.primitive(PrimitiveTypeName.DOUBLE, repetition).named(name);
+            case java.sql.Types.NUMERIC:
+            case java.sql.Types.DECIMAL:
+                int precision = this.schema.getPrecision(index);
+                int scale = this.schema.getScale(index);
+                if (precision > 0 && precision <= MAX_DECIMAL_PRECISION && scale >= 0 && scale <= precision) {
+                    return this.mapDecimal(index, repetition, name, precision, scale);
+                }
+                // Drivers report no usable precision for unconstrained numerics.
+                break;
+            case java.sql.Types.DATE:
+                this.writers[index] = (consumer, row, i) ->
+                        consumer.addInteger(ColumnValues.toEpochDay(row.getObject(i)));
+                return Types.primitive(PrimitiveTypeName.INT32, repetition)
+                        .as(LogicalTypeAnnotation.dateType())
+                        .named(name);
+            case java.sql.Types.TIME:
+                this.writers[index] = (consumer, row, i) ->
+                        consumer.addLong(ColumnValues.toMicrosOfDay(row.getObject(i)));
+                return Types.primitive(PrimitiveTypeName.INT64, repetition)
+                        .as(LogicalTypeAnnotation.timeType(false, LogicalTypeAnnotation.TimeUnit.MICROS))
+                        .named(name);
+            case java.sql.Types.TIMESTAMP:
+                this.writers[index] = (consumer, row, i) ->
+                        consumer.addLong(ColumnValues.toLocalMicros(row.getObject(i)));
+                return Types.primitive(PrimitiveTypeName.INT64, repetition)
+                        .as(LogicalTypeAnnotation.timestampType(false, LogicalTypeAnnotation.TimeUnit.MICROS))
+                        .named(name);
+            case java.sql.Types.TIMESTAMP_WITH_TIMEZONE:
+                this.writers[index] = (consumer, row, i) ->
+                        consumer.addLong(ColumnValues.toInstantMicros(row.getObject(i)));
+                return Types.primitive(PrimitiveTypeName.INT64, repetition)
+                        .as(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MICROS))
+                        .named(name);
+            case java.sql.Types.BINARY:
+            case java.sql.Types.VARBINARY:
+            case java.sql.Types.LONGVARBINARY:
+            case java.sql.Types.BLOB:
+                this.writers[index] = (consumer, row, i) ->
+                        consumer.addBinary(Binary.fromConstantByteArray(ColumnValues.toBytes(row.getObject(i))));
+                return Types.primitive(PrimitiveTypeName.BINARY, repetition).named(name);
+            default:
+                break;
+        }
+        this.writers[index] = (consumer, row, i) -> consumer.addBinary(Binary.fromString(row.getString(i)));
+        return Types.primitive(PrimitiveTypeName.BINARY, repetition)
+                .as(LogicalTypeAnnotation.stringType())
+                .named(name);
+    }
+
+    /**
+     * Decimals are held in the smallest physical type their precision fits. A value too wide for
+     * that type fails the write rather than being truncated.
+     */
+    private Type mapDecimal(int index, Type.Repetition repetition, String name, int precision, int scale) {
+        PrimitiveTypeName physicalType;
+        if (precision <= MAX_INT32_PRECISION) {
+            physicalType = PrimitiveTypeName.INT32;
+            this.writers[index] = (consumer, row, i) ->
+                    consumer.addInteger(ColumnValues.toUnscaled(row.getObject(i), scale).intValueExact());
+        } else if (precision <= MAX_INT64_PRECISION) {
+            physicalType = PrimitiveTypeName.INT64;
+            this.writers[index] = (consumer, row, i) ->
+                    consumer.addLong(ColumnValues.toUnscaled(row.getObject(i), scale).longValueExact());
+        } else {
+            physicalType = PrimitiveTypeName.BINARY;
+            this.writers[index] = (consumer, row, i) ->
+                    consumer.addBinary(Binary.fromConstantByteArray(
+                            ColumnValues.toUnscaled(row.getObject(i), scale).toByteArray()));
+        }
+        return Types.primitive(physicalType, repetition)
+                .as(LogicalTypeAnnotation.decimalType(scale, precision))
+                .named(name);
+    }
+
+    @Override
+    public WriteContext init(Configuration configuration) {
+        return new WriteContext(this.messageType, new HashMap<>());
+    }
+
+    @Override
+    public void prepareForWrite(RecordConsumer recordConsumer) {
+        this.consumer = recordConsumer;
+    }
+
+    /**
+     * Null values are written by leaving their field out of the record.
+     * @param row the row to write.
+     */
+    @Override
+    public void write(Row row) {
+        this.consumer.startMessage();
+        for (int i = 0; i < this.writers.length; i++) {
+            if (row.isNull(i)) {
+                continue;
+            }
+            this.consumer.startField(this.fieldNames[i], i);
+            this.writers[i].write(this.consumer, row, i);
+            this.consumer.endField(this.fieldNames[i], i);
+        }
+        this.consumer.endMessage();
+    }
+}
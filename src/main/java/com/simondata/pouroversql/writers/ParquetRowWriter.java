@@ -0,0 +1,142 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import com.simondata.pouroversql.clients.OutputParams;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.OutputFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * <h1>ParquetRowWriter</h1>
+ * Writes rows out as an Apache Parquet file, with a schema derived from the ResultSetMetaData.
+ * Rows are buffered as dictionary encoded, compressed column chunks until they reach
+ * the row group size from the OutputParams, so memory use is bounded by the row group size
+ * however large the result is.
+ */
+public class ParquetRowWriter extends FileRowWriter implements TypedRowWriter {
+
+    private RowSchema schema = null;
+
+    private ParquetWriter<Row> parquetWriter = null;
+
+    private static class Builder extends ParquetWriter.Builder<Row, Builder> {
+
+        private final RowSchema schema;
+
+        Builder(OutputFile file, RowSchema schema) {
+            super(file);
+            this.schema = schema;
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<Row> getWriteSupport(Configuration conf) {
+            return new ParquetRowWriteSupport(this.schema);
+        }
+    }
+
+    /**
+     * Starts the Parquet file. The schema of a file can't change once it is started,
+     * so later schemas for the same output must have the same keys.
+     * @param schema the RowSchema of the query result.
+     */
+    @Override
+    public void writeSchema(RowSchema schema) {
+        if (this.parquetWriter != null) {
+            if (!this.schema.hasKeys(schema.getKeys())) {
+                throw new IllegalStateException("Parquet output can't change schema once started");
+            }
+            return;
+        }
+        OutputParams outputParams = this.getOutputParams();
+        try {
+            this.parquetWriter = new Builder(new StreamOutputFile(this.out), schema)
+                    .withConf(new Configuration(false))
+                    .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                    .withRowGroupSize((long) outputParams.getParquetRowGroupSize())
+                    .withCompressionCodec(outputParams.getParquetCompression())
+                    .withDictionaryEncoding(true)
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.schema = schema;
+    }
+
+    @Override
+    public void writeRow(Row row) {
+        if (this.parquetWriter == null) {
+            throw new IllegalStateException("Parquet output needs a schema before its first row");
+        }
+        try {
+            this.parquetWriter.write(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The first row defines the schema, with every column written as a string.
+     * @param row the row data to write out.
+     */
+    @Override
+    public void writeRow(Map<String, Object> row) {
+        if (this.schema == null) {
+            this.writeSchema(RowSchema.fromKeys(row.keySet()));
+        }
+        this.writeRow(new MapRow(this.schema, row));
+    }
+
+    /**
+     * Includes rows buffered in the current row group, as an estimate of their encoded size.
+     * @return the number of bytes written.
+     */
+    @Override
+    public long getBytesWritten() {
+        if (this.parquetWriter == null) {
+            return super.getBytesWritten();
+        }
+        return this.parquetWriter.getDataSize();
+    }
+
+    /**
+     * Writes out the last row group and the file footer before closing the output.
+     */
+    @Override
+    public void close() {
+        try {
+            if (this.parquetWriter != null) {
+                this.parquetWriter.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            this.parquetWriter = null;
+            this.schema = null;
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>PipelineStats</h1>
+ * Where the stages of a PipelinedRowHandler spent their time, and how full the queues between them were.
+ * A stage that rarely waits while its neighbours do is the bottleneck.
+ */
+public final class PipelineStats {
+
+    /**
+     * Time spent by one stage, including waiting on its neighbours.
+     * Each thread of a stage counts on its own StageStats, which are added up when it finishes.
+     */
+    public static final class StageStats {
+        private final String name;
+        long elapsedNanos;
+        long inputWaitNanos;
+        long outputWaitNanos;
+        long batches;
+        private int threads;
+
+        StageStats(String name) {
+            this.name = name;
+        }
+
+        synchronized void add(StageStats other) {
+            this.elapsedNanos += other.elapsedNanos;
+            this.inputWaitNanos += other.inputWaitNanos;
+            this.outputWaitNanos += other.outputWaitNanos;
+            this.batches += other.batches;
+            this.threads++;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * @return the number of threads that ran this stage.
+         */
+        public int getThreads() {
+            return this.threads;
+        }
+
+        /**
+         * @return the running time of the stage, summed over its threads.
+         */
+        public long getElapsedNanos() {
+            return this.elapsedNanos;
+        }
+
+        /**
+         * @return time spent waiting for the previous stage to hand over work.
+         */
+        public long getInputWaitNanos() {
+            return this.inputWaitNanos;
+        }
+
+        /**
+         * @return time spent blocked on a full queue to the next stage.
+         */
+        public long getOutputWaitNanos() {
+            return this.outputWaitNanos;
+        }
+
+        public long getBatches() {
+            return this.batches;
+        }
+
+        private long percentOfElapsed(long nanos) {
+            return this.elapsedNanos == 0 ? 0 : nanos * 100 / this.elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            String threadCount = this.threads > 1 ? " x" + this.threads : "";
+            return this.name + threadCount + " " + TimeUnit.NANOSECONDS.toMillis(this.elapsedNanos) + " ms ("
+                    + this.percentOfElapsed(this.inputWaitNanos) + "% waiting for input, "
+                    + this.percentOfElapsed(this.outputWaitNanos) + "% blocked on output)";
+        }
+    }
+
+    /**
+     * Occupancy of a queue between two stages, sampled by every thread that hands off to it.
+     */
+    public static final class QueueStats {
+        private final String name;
+        private final int capacity;
+        private long samples;
+        private long occupancySum;
+        private int peak;
+
+        QueueStats(String name, int capacity) {
+            this.name = name;
+            this.capacity = capacity;
+        }
+
+        synchronized void sample(int occupancy) {
+            this.samples++;
+            this.occupancySum += occupancy;
+            this.peak = Math.max(this.peak, occupancy);
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public int getCapacity() {
+            return this.capacity;
+        }
+
+        public synchronized double getAverageOccupancy() {
+            return this.samples == 0 ? 0 : (double) this.occupancySum / this.samples;
+        }
+
+        public synchronized int getPeakOccupancy() {
+            return this.peak;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s queue %.1f of %d on average (peak %d)",
+                    this.name, this.getAverageOccupancy(), this.capacity, this.peak);
+        }
+    }
+
+    private final StageStats fetch = new StageStats("fetch");
+    private final StageStats encode = new StageStats("encode");
+    private final StageStats write = new StageStats("write");
+    private final QueueStats encodeQueue;
+    private final QueueStats writeQueue;
+
+    PipelineStats(int encodeQueueCapacity, int writeQueueCapacity) {
+        this.encodeQueue = new QueueStats("encode", encodeQueueCapacity);
+        this.writeQueue = new QueueStats("write", writeQueueCapacity);
+    }
+
+    public StageStats getFetch() {
+        return this.fetch;
+    }
+
+    public StageStats getEncode() {
+        return this.encode;
+    }
+
+    public StageStats getWrite() {
+        return this.write;
+    }
+
+    /**
+     * @return the queue of row batches from fetch to encode.
+     */
+    public QueueStats getEncodeQueue() {
+        return this.encodeQueue;
+    }
+
+    /**
+     * The queue of encoded batches from encode to write.
+     * Its capacity is the number of batches in flight, since the writer holds back
+     * batches that were encoded ahead of their turn.
+     * @return the write queue stats.
+     */
+    public QueueStats getWriteQueue() {
+        return this.writeQueue;
+    }
+
+    @Override
+    public String toString() {
+        return this.fetch + ", " + this.encode + ", " + this.write + "; "
+                + this.encodeQueue + ", " + this.writeQueue;
+    }
+}
@@ -0,0 +1,405 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import com.simondata.pouroversql.clients.FormattingParams;
+import com.simondata.pouroversql.metrics.FetchTimer;
+import com.simondata.pouroversql.metrics.QueryMetrics;
+import com.simondata.pouroversql.metrics.QueryPhase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <h1>PipelinedRowHandler</h1>
+ * Handles rows in three stages on separate threads. The calling thread fetches rows
+ * from the ResultSet into reusable batches, a pool of encoder threads turns batches into bytes,
+ * and a writer thread writes the bytes out. Stages hand off through bounded queues and a
+ * bounded pool of batches, so a slow stage blocks the ones before it instead of letting
+ * batches pile up in memory.
+ * Batches are numbered as they are fetched and written strictly in that order,
+ * so the output is identical to handling rows on a single thread.
+ */
+public class PipelinedRowHandler extends RowHandler {
+
+    private final Logger logger = LoggerFactory.getLogger(PipelinedRowHandler.class);
+
+    private static final long POLL_MILLIS = 100;
+
+    private static final RowBatch END_OF_ROWS = new RowBatch(null, 0);
+
+    private final EncodingRowWriter writer;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final int encoderThreads;
+    private volatile PipelineStats stats;
+
+    /**
+     * Constructor with a single encoder thread.
+     * @param writer the writer to use
+     * @param logFrequency how often to log status updates
+     * @param formattingParams what formatting to apply
+     * @param batchSize the number of rows handed from fetch to encode at a time.
+     * @param queueCapacity the number of batches each queue holds before blocking.
+     */
+    public PipelinedRowHandler(
+            EncodingRowWriter writer,
+            Integer logFrequency,
+            FormattingParams formattingParams,
+            int batchSize,
+            int queueCapacity
+    ) {
+        this(writer, logFrequency, formattingParams, batchSize, queueCapacity, 1);
+    }
+
+    /**
+     * Constructor
+     * @param writer the writer to use
+     * @param logFrequency how often to log status updates
+     * @param formattingParams what formatting to apply
+     * @param batchSize the number of rows handed from fetch to encode at a time.
+     * @param queueCapacity the number of batches each queue holds before blocking.
+     * @param encoderThreads the number of threads encoding batches concurrently.
+     */
+    public PipelinedRowHandler(
+            EncodingRowWriter writer,
+            Integer logFrequency,
+            FormattingParams formattingParams,
+            int batchSize,
+            int queueCapacity,
+            int encoderThreads
+    ) {
+        super(writer, logFrequency, formattingParams);
+        if (batchSize < 1 || queueCapacity < 1 || encoderThreads < 1) {
+            throw new IllegalArgumentException(
+                    "Pipeline batch size, queue capacity and encoder threads must be positive");
+        }
+        this.writer = writer;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.encoderThreads = encoderThreads;
+    }
+
+    /**
+     * Main input
+     * @param rs the ResultSet
+     * @return the number of rows handled.
+     * @throws SQLException if reading fails; failures to encode or write are rethrown as they were raised.
+     */
+    @Override
+    public int handle(ResultSet rs) throws SQLException {
+        RowPlan plan = this.compilePlan(rs);
+        this.writer.writeSchema(plan.getSchema());
+        Pipeline pipeline = new Pipeline(plan);
+        try {
+            return pipeline.run(rs);
+        } finally {
+            this.stats = pipeline.stats;
+            logger.info("Pipeline stages: " + pipeline.stats);
+            QueryMetrics metrics = this.getMetrics();
+            if (metrics != null) {
+                metrics.addPhaseNanos(QueryPhase.ENCODE, busyNanos(pipeline.stats.getEncode()));
+                metrics.addPhaseNanos(QueryPhase.WRITE, busyNanos(pipeline.stats.getWrite()));
+            }
+        }
+    }
+
+    private static long busyNanos(PipelineStats.StageStats stage) {
+        return stage.getElapsedNanos() - stage.getInputWaitNanos() - stage.getOutputWaitNanos();
+    }
+
+    /**
+     * @return the stage timings and queue occupancy of the last query handled, or null.
+     */
+    public PipelineStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Rows on their way through the pipeline, and their encoded bytes once encoded.
+     */
+    private static final class RowBatch {
+        final ArrayRow[] rows;
+        final OutputBuffer encoded = new OutputBuffer();
+        int size;
+        long sequence;
+
+        RowBatch(RowPlan plan, int capacity) {
+            this.rows = new ArrayRow[capacity];
+            for (int i = 0; i < capacity; i++) {
+                this.rows[i] = plan.newRow();
+            }
+        }
+    }
+
+    /**
+     * Raised in a stage when another stage has already failed.
+     */
+    private static final class AbortedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        AbortedException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private interface StageBody {
+        void run() throws Exception;
+    }
+
+    /**
+     * The queues and threads of a single query.
+     */
+    private final class Pipeline {
+        private final RowPlan plan;
+        private final BlockingQueue<RowBatch> encodeQueue;
+        private final BlockingQueue<RowBatch> writeQueue;
+        private final BlockingQueue<RowBatch> freeBatches;
+        private final int maxBatches;
+        private int allocatedBatches;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final PipelineStats stats;
+
+        Pipeline(RowPlan plan) {
+            this.plan = plan;
+            // Enough batches to fill the encode queue, keep every encoder busy and leave some for the writer.
+            this.maxBatches = 2 * queueCapacity + encoderThreads;
+            this.encodeQueue = new ArrayBlockingQueue<>(queueCapacity);
+            // Encoders never block on the writer, which has to keep draining to restore order.
+            this.writeQueue = new ArrayBlockingQueue<>(this.maxBatches + encoderThreads);
+            this.freeBatches = new ArrayBlockingQueue<>(this.maxBatches);
+            this.stats = new PipelineStats(queueCapacity, this.maxBatches);
+        }
+
+        int run(ResultSet rs) throws SQLException {
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < encoderThreads; i++) {
+                threads.add(this.start("pourover-encode-" + i, this::encode));
+            }
+            threads.add(this.start("pourover-write", this::write));
+            int count = 0;
+            try {
+                count = this.fetch(rs);
+            } catch (Throwable e) {
+                this.fail(e);
+            }
+            threads.forEach(this::await);
+            Throwable e = this.failure.get();
+            if (e instanceof SQLException) {
+                throw (SQLException) e;
+            } else if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            } else if (e instanceof Error) {
+                throw (Error) e;
+            } else if (e instanceof InterruptedException) {
+                throw new SQLException("Interrupted while handling rows", e);
+            } else if (e != null) {
+                throw new IllegalStateException("Pipeline failed", e);
+            }
+            return count;
+        }
+
+        /**
+         * Take a batch back from the writer, or allocate one while under the limit.
+         */
+        private RowBatch nextFreeBatch(PipelineStats.StageStats stage) throws InterruptedException {
+            RowBatch batch = this.freeBatches.poll();
+            if (batch == null) {
+                if (this.allocatedBatches < this.maxBatches) {
+                    this.allocatedBatches++;
+                    return new RowBatch(this.plan, batchSize);
+                }
+                long start = System.nanoTime();
+                while ((batch = this.freeBatches.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                    this.checkFailure();
+                }
+                stage.outputWaitNanos += System.nanoTime() - start;
+            }
+            return batch;
+        }
+
+        private int fetch(ResultSet rs) throws SQLException, InterruptedException {
+            PipelineStats.StageStats stage = new PipelineStats.StageStats("fetch");
+            long start = System.nanoTime();
+            int count = 0;
+            long sequence = 0;
+            try {
+                RowBatch batch = this.nextFreeBatch(stage);
+                batch.size = 0;
+                // Encoding happens on the encoder threads, which are timed by their stage stats.
+                FetchTimer timer = new FetchTimer(getMetrics(), false);
+                try {
+                    while (timer.next(rs)) {
+                        this.plan.read(rs, batch.rows[batch.size++]);
+                        count++;
+                        logProgress(count);
+                        if (batch.size == batchSize) {
+                            batch.sequence = sequence++;
+                            this.put(this.encodeQueue, batch, stage, this.stats.getEncodeQueue());
+                            batch = this.nextFreeBatch(stage);
+                            batch.size = 0;
+                        }
+                    }
+                } finally {
+                    timer.finish();
+                }
+                if (batch.size > 0) {
+                    batch.sequence = sequence;
+                    this.put(this.encodeQueue, batch, stage, this.stats.getEncodeQueue());
+                }
+                for (int i = 0; i < encoderThreads; i++) {
+                    this.put(this.encodeQueue, END_OF_ROWS, stage, this.stats.getEncodeQueue());
+                }
+                stage.batches -= encoderThreads;
+            } finally {
+                stage.elapsedNanos = System.nanoTime() - start;
+                this.stats.getFetch().add(stage);
+            }
+            return count;
+        }
+
+        private void encode() throws InterruptedException {
+            PipelineStats.StageStats stage = new PipelineStats.StageStats("encode");
+            long start = System.nanoTime();
+            try {
+                RowEncoder encoder = writer.newEncoder(this.plan.getSchema());
+                RowBatch batch;
+                while ((batch = this.take(this.encodeQueue, stage)) != END_OF_ROWS) {
+                    batch.encoded.reset();
+                    for (int i = 0; i < batch.size; i++) {
+                        encoder.encodeRow(batch.rows[i], batch.encoded);
+                    }
+                    this.put(this.writeQueue, batch, stage, this.stats.getWriteQueue());
+                }
+                this.put(this.writeQueue, END_OF_ROWS, stage, this.stats.getWriteQueue());
+                stage.batches--;
+            } finally {
+                stage.elapsedNanos = System.nanoTime() - start;
+                this.stats.getEncode().add(stage);
+            }
+        }
+
+        /**
+         * Write batches in fetch order, holding back any that were encoded ahead of their turn.
+         * At most maxBatches are in flight, so sequence numbers index a ring of that size.
+         */
+        private void write() throws InterruptedException {
+            PipelineStats.StageStats stage = new PipelineStats.StageStats("write");
+            long start = System.nanoTime();
+            RowBatch[] pending = new RowBatch[this.maxBatches];
+            long next = 0;
+            int finishedEncoders = 0;
+            try {
+                while (finishedEncoders < encoderThreads) {
+                    RowBatch batch = this.take(this.writeQueue, stage);
+                    if (batch == END_OF_ROWS) {
+                        finishedEncoders++;
+                        continue;
+                    }
+                    pending[(int) (batch.sequence % this.maxBatches)] = batch;
+                    int slot;
+                    while ((batch = pending[slot = (int) (next % this.maxBatches)]) != null
+                            && batch.sequence == next) {
+                        pending[slot] = null;
+                        writer.writeEncoded(batch.encoded);
+                        stage.batches++;
+                        next++;
+                        this.freeBatches.offer(batch);
+                    }
+                }
+            } finally {
+                stage.elapsedNanos = System.nanoTime() - start;
+                this.stats.getWrite().add(stage);
+            }
+        }
+
+        private <T> void put(BlockingQueue<T> queue, T item, PipelineStats.StageStats stage,
+                             PipelineStats.QueueStats queueStats) throws InterruptedException {
+            this.checkFailure();
+            if (!queue.offer(item)) {
+                long start = System.nanoTime();
+                while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    this.checkFailure();
+                }
+                stage.outputWaitNanos += System.nanoTime() - start;
+            }
+            stage.batches++;
+            queueStats.sample(queue.size());
+        }
+
+        private <T> T take(BlockingQueue<T> queue, PipelineStats.StageStats stage) throws InterruptedException {
+            T item = queue.poll();
+            if (item == null) {
+                long start = System.nanoTime();
+                while ((item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                    this.checkFailure();
+                }
+                stage.inputWaitNanos += System.nanoTime() - start;
+            }
+            return item;
+        }
+
+        private void checkFailure() {
+            if (this.failure.get() != null) {
+                throw new AbortedException();
+            }
+        }
+
+        private void fail(Throwable e) {
+            if (!(e instanceof AbortedException)) {
+                this.failure.compareAndSet(null, e);
+            }
+        }
+
+        private Thread start(String name, StageBody body) {
+            Thread thread = new Thread(() -> {
+                try {
+                    body.run();
+                } catch (Throwable e) {
+                    this.fail(e);
+                }
+            }, name);
+            thread.setDaemon(true);
+            thread.start();
+            return thread;
+        }
+
+        /**
+         * Wait for a stage to finish, even if interrupted, so nothing writes after the handler returns.
+         */
+        private void await(Thread thread) {
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    this.fail(e);
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.simondata.pouroversql.util.FileNames;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * <h1>RollingFileWriter</h1>
+ * Writes output to a series of part files through a FileRowWriter,
+ * starting a new part once the current one reaches a row count or byte size.
+ * Every part gets the schema again, so each CSV part has its own headers.
+ * Parts are named after the output file with a -part-NNNNN suffix, and once
+ * the writer is closed a manifest listing every part with its row count,
+ * byte size and SHA-256 checksum is written next to them. Output that is
+ * aborted gets no manifest, so the manifest only ever marks complete output.
+ */
+public class RollingFileWriter extends AbstractRowWriter implements TypedRowWriter {
+
+    private final Logger logger = LoggerFactory.getLogger(RollingFileWriter.class);
+
+    private static final String MANIFEST_SUFFIX = ".manifest.json";
+
+    private final FileRowWriter delegate;
+
+    private final File file;
+
+    private final Long maxRows;
+
+    private final Long maxBytes;
+
+    private final List<FilePart> parts = new ArrayList<>();
+
+    private Consumer<FilePart> partListener = null;
+
+    private RowSchema schema = null;
+
+    private File partFile = null;
+
+    private long partRows = 0;
+
+    /**
+     * Constructor
+     * @param delegate the writer to write each part with. It is reopened for every part.
+     * @param file the output file that parts and the manifest are named after.
+     * @param maxRows the number of rows after which to start a new part, or null for no limit.
+     * @param maxBytes the number of bytes after which to start a new part, or null for no limit.
+     *                 Bytes are counted before compression, so compressed parts are smaller.
+     */
+    public RollingFileWriter(FileRowWriter delegate, File file, Long maxRows, Long maxBytes) {
+        if ((maxRows != null && maxRows < 1) || (maxBytes != null && maxBytes < 1)) {
+            throw new IllegalArgumentException("Rows and bytes per file must be positive");
+        }
+        this.delegate = delegate;
+        this.file = file;
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        this.delegate.setChecksummed(true);
+    }
+
+    /**
+     * Get told about each part as soon as it is closed, e.g. to upload it while the next is written.
+     * @param partListener called with every closed part, in order.
+     */
+    public void setPartListener(Consumer<FilePart> partListener) {
+        this.partListener = partListener;
+    }
+
+    /**
+     * @return the parts closed so far, in order.
+     */
+    public List<FilePart> getParts() {
+        return Collections.unmodifiableList(this.parts);
+    }
+
+    /**
+     * @return the file the manifest is written to on close.
+     */
+    public File getManifestFile() {
+        return new File(this.file.getParentFile(), this.file.getName() + MANIFEST_SUFFIX);
+    }
+
+    @Override
+    public void writeSchema(RowSchema schema) {
+        this.schema = schema;
+        if (this.partFile == null) {
+            this.openPart();
+        } else if (this.delegate instanceof TypedRowWriter) {
+            ((TypedRowWriter) this.delegate).writeSchema(schema);
+        }
+    }
+
+    @Override
+    public void writeRow(Row row) {
+        this.beforeRow();
+        if (this.delegate instanceof TypedRowWriter) {
+            ((TypedRowWriter) this.delegate).writeRow(row);
+        } else {
+            this.delegate.writeRow(row.toMap());
+        }
+        this.partRows++;
+    }
+
+    @Override
+    public void writeRow(Map<String, Object> row) {
+        this.beforeRow();
+        this.delegate.writeRow(row);
+        this.partRows++;
+    }
+
+    /**
+     * Parts are rolled before a row rather than after one,
+     * so output never ends with an empty part.
+     */
+    private void beforeRow() {
+        if (this.partFile != null && this.isPartFull()) {
+            this.closePart();
+        }
+        if (this.partFile == null) {
+            this.openPart();
+        }
+    }
+
+    private boolean isPartFull() {
+        return (this.maxRows != null && this.partRows >= this.maxRows)
+                || (this.maxBytes != null && this.delegate.getBytesWritten() >= this.maxBytes);
+    }
+
+    private void openPart() {
+        this.partFile = FileNames.withSuffix(this.file, String.format("-part-%05d", this.parts.size() + 1));
+        this.partRows = 0;
+        this.delegate.open(this.partFile);
+        if (this.schema != null && this.delegate instanceof TypedRowWriter) {
+            ((TypedRowWriter) this.delegate).writeSchema(this.schema);
+        }
+    }
+
+    private void closePart() {
+        this.delegate.close();
+        FilePart part = new FilePart(
+                this.partFile, this.partRows, this.delegate.getFileBytes(), this.delegate.getChecksum());
+        this.partFile = null;
+        this.parts.add(part);
+        logger.info(String.format("Closed part %s: %d rows, %d bytes",
+                part.getFile().getName(), part.getRows(), part.getBytes()));
+        if (this.partListener != null) {
+            this.partListener.accept(part);
+        }
+    }
+
+    /**
+     * Close the last part and write the manifest.
+     * Output with no rows at all still gets one part.
+     */
+    @Override
+    public void close() {
+        if (this.partFile == null && this.parts.isEmpty()) {
+            this.openPart();
+        }
+        if (this.partFile != null) {
+            this.closePart();
+        }
+        this.writeManifest();
+    }
+
+    /**
+     * Close the last part without writing the manifest, for output left incomplete by a failed query.
+     * A manifest left by an earlier run is deleted, as it no longer describes the parts.
+     */
+    public void abort() {
+        if (this.partFile != null) {
+            this.closePart();
+        }
+        try {
+            Files.deleteIfExists(this.getManifestFile().toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        logger.warn(String.format("Aborted after %d parts, no manifest written", this.parts.size()));
+    }
+
+    /**
+     * The manifest is written to a temporary file and moved into place,
+     * so anything watching for it never sees it half written.
+     */
+    private void writeManifest() {
+        JsonArray partsJson = new JsonArray();
+        long totalRows = 0;
+        long totalBytes = 0;
+        for (FilePart part : this.parts) {
+            JsonObject partJson = new JsonObject();
+            partJson.addProperty("file", part.getFile().getName());
+            partJson.addProperty("rows", part.getRows());
+            partJson.addProperty("bytes", part.getBytes());
+            partJson.addProperty("sha256", part.getSha256());
+            partsJson.add(partJson);
+            totalRows += part.getRows();
+            totalBytes += part.getBytes();
+        }
+        JsonObject manifest = new JsonObject();
+        manifest.add("parts", partsJson);
+        manifest.addProperty("totalRows", totalRows);
+        manifest.addProperty("totalBytes", totalBytes);
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+        Path target = this.getManifestFile().toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.write(temp, gson.toJson(manifest).getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        logger.info(String.format("Wrote manifest %s: %d parts, %d rows",
+                target.getFileName(), this.parts.size(), totalRows));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.util.Map;
+
+/**
+ * <h1>Row</h1>
+ * A single result row with positional, typed access.
+ * Columns are addressed by zero based index, as described by the RowSchema.
+ * Rows handed to a TypedRowWriter may be reused by the caller and
+ * are only valid for the duration of the call.
+ */
+public interface Row {
+
+    RowSchema getSchema();
+
+    /**
+     * Get a value as an Object.
+     * @param index the zero based column index.
+     * @return the value or null.
+     */
+    Object getObject(int index);
+
+    /**
+     * @param index the zero based column index.
+     * @return whether the value is SQL NULL.
+     */
+    boolean isNull(int index);
+
+    /**
+     * Get a value as a String.
+     * @param index the zero based column index.
+     * @return the value or null.
+     */
+    String getString(int index);
+
+    /**
+     * Get a numeric value as a long.
+     * @param index the zero based column index.
+     * @return the value, or 0 if it is null.
+     */
+    long getLong(int index);
+
+    /**
+     * Get a numeric value as a double.
+     * @param index the zero based column index.
+     * @return the value, or 0 if it is null.
+     */
+    double getDouble(int index);
+
+    /**
+     * Copy the row into a Map.
+     * @return the row keyed by the schema keys, in column order, looked up ignoring case.
+     */
+    default Map<String, Object> toMap() {
+        RowSchema schema = this.getSchema();
+        int columnCount = schema.getColumnCount();
+        Map<String, Object> map = new CaseInsensitiveRowMap((int) (columnCount / 0.75f) + 1);
+        for (int i = 0; i < columnCount; i++) {
+            map.put(schema.getKey(i), this.getObject(i));
+        }
+        return map;
+    }
+}
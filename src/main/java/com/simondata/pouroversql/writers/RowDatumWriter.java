@@ -0,0 +1,214 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * RowDatumWriter
+ * Generates an Avro record schema from a RowSchema and writes Rows straight to an Encoder,
+ * without building a GenericRecord for each row.
+ * Every column is a union of null and its type, and each column gets a ValueWriter up front.
+ */
+class RowDatumWriter implements DatumWriter<Row> {
+
+    private static final int MAX_DECIMAL_PRECISION = 38;
+
+    private static final String RECORD_NAME = "Row";
+
+    private static final String RECORD_NAMESPACE = "com.simondata.pouroversql";
+
+    /**
+     * Writes the value of one column of a Row to an Encoder.
+     */
+    @FunctionalInterface
+    private interface ValueWriter {
+        void write(Encoder encoder, Row row, int index) throws IOException;
+    }
+
+    private final RowSchema rowSchema;
+
+    private final Schema schema;
+
+    private final ValueWriter[] writers;
+
+    RowDatumWriter(RowSchema rowSchema) {
+        int columnCount = rowSchema.getColumnCount();
+        this.rowSchema = rowSchema;
+        this.writers = new ValueWriter[columnCount];
+        String[] names = fieldNames(rowSchema);
+        List<Schema.Field> fields = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            // Every field is nullable, since drivers report the nullability of the underlying table column,
+            // which an outer join doesn't keep.
+            Schema union = Schema.createUnion(Schema.create(Schema.Type.NULL), this.mapColumn(i));
+            Schema.Field field = new Schema.Field(names[i], union, null, Schema.Field.NULL_DEFAULT_VALUE);
+            if (!names[i].equals(rowSchema.getKey(i))) {
+                field.addProp("sqlKey", rowSchema.getKey(i));
+            }
+            fields.add(field);
+        }
+        this.schema = Schema.createRecord(RECORD_NAME, null, RECORD_NAMESPACE, false, fields);
+    }
+
+    Schema getSchema() {
+        return this.schema;
+    }
+
+    /**
+     * Avro names are limited to letters, digits and underscores and must be unique,
+     * so other characters become underscores and repeated names get a numeric suffix.
+     * The original key is kept in the sqlKey property of renamed fields.
+     */
+    private static String[] fieldNames(RowSchema rowSchema) {
+        String[] names = new String[rowSchema.getColumnCount()];
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < names.length; i++) {
+            StringBuilder sanitized = new StringBuilder();
+            String key = rowSchema.getKey(i);
+            for (int c = 0; c < key.length(); c++) {
+                char ch = key.charAt(c);
+                boolean valid = ch == '_' || (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z')
+                        || (c > 0 && ch >= '0' && ch <= '9');
+                sanitized.append(valid ? ch : '_');
+            }
+            if (sanitized.length() == 0) {
+                sanitized.append('_');
+            }
+            String name = sanitized.toString();
+            for (int n = 2; !used.add(name); n++) {
+                name = sanitized + "_" + n;
+            }
+            names[i] = name;
+        }
+        return names;
+    }
+
+    /**
+     * Choose the Avro type of a column from its JDBC type and set up its ValueWriter.
+     * Types without a better mapping are written as strings.
+     */
+    private Schema mapColumn(int index) {
+        boolean unboxed = this.rowSchema.getKind(index) == RowSchema.ColumnKind.LONG;
+        switch (this.rowSchema.getColumnType(index)) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                this.writers[index] = (encoder, row, i) ->
+                        encoder.writeBoolean(ColumnValues.toBoolean(row.getObject(i)));
+                return Schema.create(Schema.Type.BOOLEAN);
+            case Types.TINYINT:
+            case Types.SMALLINT:
+                this.writers[index] = (encoder, row, i) -> encoder.writeInt(((Number) row.getObject(i)).intValue());
+                return Schema.create(Schema.Type.INT);
+            case Types.INTEGER:
+                if (unboxed) {
+                    this.writers[index] = (encoder, row, i) -> encoder.writeInt((int) row.getLong(i));
+                    return Schema.create(Schema.Type.INT);
+                }
+                // Unsigned, so it may not fit in an int.
+                this.writers[index] = (encoder, row, i) -> encoder.writeLong(((Number) row.getObject(i)).longValue());
+                return Schema.create(Schema.Type.LONG);
+            case Types.BIGINT:
+                if (unboxed) {
+                    this.writers[index] = (encoder, row, i) -> encoder.writeLong(row.getLong(i));
+                    return Schema.create(Schema.Type.LONG);
+                }
+                // Unsigned, so it may not fit in a long.
+                return this.mapDecimal(index, 20, 0);
+            case Types.REAL:
+                this.writers[index] = (encoder, row, i) -> encoder.writeFloat(((Number) row.getObject(i)).floatValue());
+                return Schema.create(Schema.Type.FLOAT);
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                this.writers[index] = (encoder, row, i) -> encoder.writeDouble(row.getDouble(i));
+                return Schema.create(Schema.Type.DOUBLE);
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                int precision = this.rowSchema.getPrecision(index);
+                int scale = this.rowSchema.getScale(index);
+                if (precision > 0 && precision <= MAX_DECIMAL_PRECISION && scale >= 0 && scale <= precision) {
+                    return this.mapDecimal(index, precision, scale);
+                }
+                // Drivers report no usable precision for unconstrained numerics.
+                break;
+            case Types.DATE:
+                this.writers[index] = (encoder, row, i) ->
+                        encoder.writeInt(ColumnValues.toEpochDay(row.getObject(i)));
+                return LogicalTypes.date().addToSchema(Schema.create(Schema.Type.INT));
+            case Types.TIME:
+                this.writers[index] = (encoder, row, i) ->
+                        encoder.writeLong(ColumnValues.toMicrosOfDay(row.getObject(i)));
+                return LogicalTypes.timeMicros().addToSchema(Schema.create(Schema.Type.LONG));
+            case Types.TIMESTAMP:
+                this.writers[index] = (encoder, row, i) ->
+                        encoder.writeLong(ColumnValues.toLocalMicros(row.getObject(i)));
+                return LogicalTypes.localTimestampMicros().addToSchema(Schema.create(Schema.Type.LONG));
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                this.writers[index] = (encoder, row, i) ->
+                        encoder.writeLong(ColumnValues.toInstantMicros(row.getObject(i)));
+                return LogicalTypes.timestampMicros().addToSchema(Schema.create(Schema.Type.LONG));
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                this.writers[index] = (encoder, row, i) -> encoder.writeBytes(ColumnValues.toBytes(row.getObject(i)));
+                return Schema.create(Schema.Type.BYTES);
+            default:
+                break;
+        }
+        this.writers[index] = (encoder, row, i) -> encoder.writeString(row.getString(i));
+        return Schema.create(Schema.Type.STRING);
+    }
+
+    /**
+     * Decimals are written as the big-endian two's complement bytes of their unscaled value.
+     */
+    private Schema mapDecimal(int index, int precision, int scale) {
+        this.writers[index] = (encoder, row, i) ->
+                encoder.writeBytes(ColumnValues.toUnscaled(row.getObject(i), scale).toByteArray());
+        return LogicalTypes.decimal(precision, scale).addToSchema(Schema.create(Schema.Type.BYTES));
+    }
+
+    /**
+     * The schema is fixed by the RowSchema.
+     * @param schema the schema the file was created with, ignored.
+     */
+    @Override
+    public void setSchema(Schema schema) {
+    }
+
+    @Override
+    public void write(Row row, Encoder encoder) throws IOException {
+        for (int i = 0; i < this.writers.length; i++) {
+            if (row.isNull(i)) {
+                encoder.writeIndex(0);
+                encoder.writeNull();
+                continue;
+            }
+            encoder.writeIndex(1);
+            this.writers[i].write(encoder, row, i);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+/**
+ * RowEncoder
+ * Encodes rows of one schema into bytes, separately from writing them out.
+ * Encoders hold per-instance state and are used by one thread at a time.
+ */
+public interface RowEncoder {
+
+    /**
+     * Encode whatever precedes the rows of an output, such as CSV headers.
+     * @param buffer the buffer to append to.
+     */
+    void encodeHeader(OutputBuffer buffer);
+
+    /**
+     * Encode a row, including its line separator.
+     * @param row the row to encode.
+     * @param buffer the buffer to append to.
+     */
+    void encodeRow(Row row, OutputBuffer buffer);
+}
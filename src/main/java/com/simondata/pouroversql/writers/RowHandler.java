@@ -18,27 +18,25 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import com.simondata.pouroversql.clients.FormattingParams;
-import org.apache.commons.dbutils.BasicRowProcessor;
-import org.apache.commons.dbutils.RowProcessor;
+import com.simondata.pouroversql.clients.QueryCanceller;
+import com.simondata.pouroversql.metrics.FetchTimer;
+import com.simondata.pouroversql.metrics.QueryMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import static com.simondata.pouroversql.util.TextFormat.getFunctionByKeyFormat;
-
 /**
  * Process rows, apply formatting, and send to output.
  */
 public class RowHandler {
     private final Logger logger = LoggerFactory.getLogger(RowHandler.class);
 
-    private static final RowProcessor ROW_PROCESSOR = new BasicRowProcessor();
     private RowWriter writer;
     private int logFrequency;
     private FormattingParams formattingParams;
+    private QueryMetrics metrics;
+    private QueryCanceller canceller;
 
     /**
      * Convenience constructor that uses default parameters.
@@ -64,6 +62,36 @@ public class RowHandler {
         this.formattingParams = formattingParams;
     }
 
+    /**
+     * Record the timing of the rows handled from now on, or stop recording with null.
+     * @param metrics the QueryMetrics of the query being handled.
+     */
+    public void setMetrics(QueryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the QueryMetrics rows are timed to, or null.
+     */
+    public QueryMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Let the query whose rows are handled from now on be cancelled, or stop with null.
+     * @param canceller the QueryCanceller for the query.
+     */
+    public void setCanceller(QueryCanceller canceller) {
+        this.canceller = canceller;
+    }
+
+    /**
+     * @return the QueryCanceller for the query, or null.
+     */
+    public QueryCanceller getCanceller() {
+        return this.canceller;
+    }
+
     /**
      * Main input
      * @param rs the ResultSet
@@ -71,27 +99,71 @@ public class RowHandler {
      * @throws SQLException
      */
     public int handle(ResultSet rs) throws SQLException {
+        RowPlan plan = this.compilePlan(rs);
+        if (this.writer instanceof TypedRowWriter) {
+            return this.handleTyped(rs, plan, (TypedRowWriter) this.writer);
+        }
         AtomicInteger counter = new AtomicInteger();
-        Function<String, String> keyTransform = getFunctionByKeyFormat(this.formattingParams.getKeyCaseFormat());
-        while (rs.next()) {
-            writer.writeRow(this.handleRow(rs, keyTransform));
-            counter.getAndIncrement();
-            if (this.logFrequency > 0 && counter.get() % this.logFrequency == 0) {
-                logger.info("Handling " + counter.get() + " rows...");
+        FetchTimer timer = new FetchTimer(this.metrics, true);
+        try {
+            while (timer.next(rs)) {
+                writer.writeRow(this.handleRow(rs, plan));
+                counter.getAndIncrement();
+                this.logProgress(counter.get());
             }
+        } finally {
+            timer.finish();
         }
         return counter.intValue();
     }
 
-    protected Map<String, Object> handleRow(ResultSet rs, Function<String, String> keyTransform) throws SQLException {
-        if (this.formattingParams.getKeyCaseFormat() == KeyCaseFormat.DEFAULT) {
-            return this.ROW_PROCESSOR.toMap(rs);
-        } else {
-            return this.ROW_PROCESSOR.toMap(rs).entrySet().stream().collect(
-                    Collectors.toMap(e -> keyTransform.apply(e.getKey()), Map.Entry::getValue)
-            );
+    /**
+     * Compile the plan for reading a ResultSet, once per query.
+     * @param rs the ResultSet
+     * @return the RowPlan for its columns.
+     * @throws SQLException if the metadata can't be read.
+     */
+    protected RowPlan compilePlan(ResultSet rs) throws SQLException {
+        return RowPlan.compile(rs.getMetaData(), this.formattingParams.getKeyCaseFormat());
+    }
+
+    /**
+     * Send rows through the Row API, reusing a single row buffer.
+     */
+    private int handleTyped(ResultSet rs, RowPlan plan, TypedRowWriter typedWriter) throws SQLException {
+        int count = 0;
+        ArrayRow row = plan.newRow();
+        typedWriter.writeSchema(plan.getSchema());
+        FetchTimer timer = new FetchTimer(this.metrics, true);
+        try {
+            while (timer.next(rs)) {
+                plan.read(rs, row);
+                typedWriter.writeRow(row);
+                count++;
+                this.logProgress(count);
+            }
+        } finally {
+            timer.finish();
+        }
+        return count;
+    }
+
+    protected void logProgress(int count) {
+        if (this.logFrequency > 0 && count % this.logFrequency == 0) {
+            logger.info("Handling " + count + " rows...");
         }
     }
 
+    /**
+     * Convert the current row using the plan compiled for this ResultSet.
+     * @param rs the ResultSet, positioned on a row.
+     * @param plan the RowPlan compiled when the ResultSet was opened.
+     * @return the row keyed by the formatted column labels, in column order.
+     * @throws SQLException if a column can't be read.
+     */
+    protected Map<String, Object> handleRow(ResultSet rs, RowPlan plan) throws SQLException {
+        return plan.toMap(rs);
+    }
+
 
 }
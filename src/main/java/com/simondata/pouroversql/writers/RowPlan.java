@@ -0,0 +1,188 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.simondata.pouroversql.util.TextFormat.getFunctionByKeyFormat;
+
+/**
+ * <h1>RowPlan</h1>
+ * Everything needed to turn a row of a ResultSet into output, computed once
+ * from the ResultSetMetaData when the ResultSet is opened.
+ * Reading a row through the plan makes no metadata calls and applies no key formatting.
+ */
+public class RowPlan {
+
+    /**
+     * Reads a single column from the current row of a ResultSet.
+     */
+    @FunctionalInterface
+    interface ColumnReader {
+        Object read(ResultSet rs, int column) throws SQLException;
+    }
+
+    private static final ColumnReader OBJECT_READER = ResultSet::getObject;
+    private static final ColumnReader STRING_READER = ResultSet::getString;
+
+    private final RowSchema schema;
+    private final int columnCount;
+    private final String[] keys;
+    private final RowSchema.ColumnKind[] kinds;
+    private final ColumnReader[] readers;
+    private final int mapCapacity;
+
+    private RowPlan(RowSchema schema, String[] keys, RowSchema.ColumnKind[] kinds, ColumnReader[] readers) {
+        this.schema = schema;
+        this.columnCount = keys.length;
+        this.keys = keys;
+        this.kinds = kinds;
+        this.readers = readers;
+        this.mapCapacity = (int) (this.columnCount / 0.75f) + 1;
+    }
+
+    /**
+     * Build a plan for a ResultSet.
+     * @param metaData the metadata of the ResultSet to plan for.
+     * @param keyCaseFormat the KeyCaseFormat to apply to the column labels.
+     * @return the RowPlan
+     * @throws SQLException if the metadata can't be read.
+     */
+    public static RowPlan compile(ResultSetMetaData metaData, KeyCaseFormat keyCaseFormat) throws SQLException {
+        Function<String, String> keyTransform = getFunctionByKeyFormat(keyCaseFormat);
+        int columnCount = metaData.getColumnCount();
+        String[] labels = new String[columnCount];
+        String[] keys = new String[columnCount];
+        int[] columnTypes = new int[columnCount];
+        RowSchema.ColumnKind[] kinds = new RowSchema.ColumnKind[columnCount];
+        int[] precisions = new int[columnCount];
+        int[] scales = new int[columnCount];
+        boolean[] nullables = new boolean[columnCount];
+        ColumnReader[] readers = new ColumnReader[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            int column = i + 1;
+            // Same label resolution as the DbUtils BasicRowProcessor.
+            String label = metaData.getColumnLabel(column);
+            if (label == null || label.isEmpty()) {
+                label = metaData.getColumnName(column);
+            }
+            labels[i] = label;
+            keys[i] = keyTransform.apply(label);
+            columnTypes[i] = metaData.getColumnType(column);
+            kinds[i] = kindFor(columnTypes[i], metaData.isSigned(column));
+            precisions[i] = metaData.getPrecision(column);
+            scales[i] = metaData.getScale(column);
+            nullables[i] = metaData.isNullable(column) != ResultSetMetaData.columnNoNulls;
+            readers[i] = readerFor(columnTypes[i]);
+        }
+        RowSchema schema = new RowSchema(labels, keys, columnTypes, kinds, precisions, scales, nullables);
+        return new RowPlan(schema, keys, kinds, readers);
+    }
+
+    /**
+     * Columns are only held unboxed where the JDBC type mapping is unambiguous.
+     * Unsigned integers may not fit and smaller integer types are boxed differently by each driver.
+     */
+    private static RowSchema.ColumnKind kindFor(int columnType, boolean signed) {
+        switch (columnType) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+                return signed ? RowSchema.ColumnKind.LONG : RowSchema.ColumnKind.OBJECT;
+            case Types.DOUBLE:
+            case Types.FLOAT:
+                return RowSchema.ColumnKind.DOUBLE;
+            default:
+                return RowSchema.ColumnKind.OBJECT;
+        }
+    }
+
+    private static ColumnReader readerFor(int columnType) {
+        switch (columnType) {
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return STRING_READER;
+            default:
+                return OBJECT_READER;
+        }
+    }
+
+    public RowSchema getSchema() {
+        return this.schema;
+    }
+
+    /**
+     * Read the current row of the ResultSet into a Map.
+     * Keys are in column order and looked up ignoring case, as DbUtils rows were.
+     * @param rs the ResultSet, positioned on a row.
+     * @return the row keyed by the formatted column labels.
+     * @throws SQLException if a column can't be read.
+     */
+    public Map<String, Object> toMap(ResultSet rs) throws SQLException {
+        Map<String, Object> row = new CaseInsensitiveRowMap(this.mapCapacity);
+        for (int i = 0; i < this.columnCount; i++) {
+            row.put(this.keys[i], this.readers[i].read(rs, i + 1));
+        }
+        return row;
+    }
+
+    /**
+     * Read the current row of the ResultSet into a new Row.
+     * @param rs the ResultSet, positioned on a row.
+     * @return the Row
+     * @throws SQLException if a column can't be read.
+     */
+    public Row toRow(ResultSet rs) throws SQLException {
+        ArrayRow row = this.newRow();
+        this.read(rs, row);
+        return row;
+    }
+
+    ArrayRow newRow() {
+        return new ArrayRow(this.schema);
+    }
+
+    /**
+     * Read the current row of the ResultSet into a reusable row buffer.
+     */
+    void read(ResultSet rs, ArrayRow row) throws SQLException {
+        for (int i = 0; i < this.columnCount; i++) {
+            int column = i + 1;
+            switch (this.kinds[i]) {
+                case LONG:
+                    row.longs[i] = rs.getLong(column);
+                    row.nulls[i] = rs.wasNull();
+                    break;
+                case DOUBLE:
+                    row.doubles[i] = rs.getDouble(column);
+                    row.nulls[i] = rs.wasNull();
+                    break;
+                default:
+                    Object value = this.readers[i].read(rs, column);
+                    row.objects[i] = value;
+                    row.nulls[i] = value == null;
+                    break;
+            }
+        }
+    }
+}
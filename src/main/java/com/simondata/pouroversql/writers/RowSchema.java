@@ -0,0 +1,209 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>RowSchema</h1>
+ * Describes the columns of a query result: output keys, labels, JDBC types
+ * and, where the driver reports them, precision, scale and nullability.
+ * A schema is delivered to a TypedRowWriter once, before the first row.
+ */
+public final class RowSchema {
+
+    /**
+     * How the values of a column are held in a Row.
+     */
+    public enum ColumnKind {
+        /** Held as a primitive long, read with Row.getLong. */
+        LONG,
+        /** Held as a primitive double, read with Row.getDouble. */
+        DOUBLE,
+        /** Held as an Object, read with Row.getObject. */
+        OBJECT
+    }
+
+    private final String[] labels;
+    private final String[] keys;
+    private final int[] columnTypes;
+    private final ColumnKind[] kinds;
+    private final int[] precisions;
+    private final int[] scales;
+    private final boolean[] nullables;
+    private final Map<String, Integer> indexByKey;
+
+    RowSchema(String[] labels, String[] keys, int[] columnTypes, ColumnKind[] kinds) {
+        this(labels, keys, columnTypes, kinds, new int[keys.length], new int[keys.length], filled(keys.length, true));
+    }
+
+    RowSchema(
+            String[] labels,
+            String[] keys,
+            int[] columnTypes,
+            ColumnKind[] kinds,
+            int[] precisions,
+            int[] scales,
+            boolean[] nullables
+    ) {
+        this.labels = labels;
+        this.keys = keys;
+        this.columnTypes = columnTypes;
+        this.kinds = kinds;
+        this.precisions = precisions;
+        this.scales = scales;
+        this.nullables = nullables;
+        // Built up front so schemas shared across threads need no synchronization. The first of any
+        // repeated key wins.
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = keys.length - 1; i >= 0; i--) {
+            index.put(keys[i], i);
+        }
+        this.indexByKey = index;
+    }
+
+    private static boolean[] filled(int length, boolean value) {
+        boolean[] values = new boolean[length];
+        Arrays.fill(values, value);
+        return values;
+    }
+
+    /**
+     * Build a schema of untyped columns from a set of keys,
+     * e.g. to view a Map as a Row.
+     * @param keys the keys in column order.
+     * @return the RowSchema
+     */
+    public static RowSchema fromKeys(Collection<String> keys) {
+        String[] names = keys.toArray(new String[0]);
+        int[] columnTypes = new int[names.length];
+        ColumnKind[] kinds = new ColumnKind[names.length];
+        Arrays.fill(columnTypes, Types.JAVA_OBJECT);
+        Arrays.fill(kinds, ColumnKind.OBJECT);
+        return new RowSchema(names, names, columnTypes, kinds);
+    }
+
+    public int getColumnCount() {
+        return this.keys.length;
+    }
+
+    /**
+     * Get the output key of a column, i.e. the label with the KeyCaseFormat applied.
+     * @param index the zero based column index.
+     * @return the key
+     */
+    public String getKey(int index) {
+        return this.keys[index];
+    }
+
+    /**
+     * Get the column label as reported by the driver.
+     * @param index the zero based column index.
+     * @return the label
+     */
+    public String getLabel(int index) {
+        return this.labels[index];
+    }
+
+    /**
+     * Get the JDBC type of a column.
+     * @param index the zero based column index.
+     * @return the type as defined in java.sql.Types
+     */
+    public int getColumnType(int index) {
+        return this.columnTypes[index];
+    }
+
+    /**
+     * Get how values of a column are held in a Row.
+     * @param index the zero based column index.
+     * @return the ColumnKind
+     */
+    public ColumnKind getKind(int index) {
+        return this.kinds[index];
+    }
+
+    /**
+     * Get the precision of a column, e.g. the total number of digits of a DECIMAL.
+     * @param index the zero based column index.
+     * @return the precision, or 0 if the driver doesn't report one.
+     */
+    public int getPrecision(int index) {
+        return this.precisions[index];
+    }
+
+    /**
+     * Get the scale of a column, i.e. the number of digits after the decimal point.
+     * @param index the zero based column index.
+     * @return the scale, or 0 if the driver doesn't report one.
+     */
+    public int getScale(int index) {
+        return this.scales[index];
+    }
+
+    /**
+     * Whether a column may hold nulls, as the driver reports it.
+     * Drivers report the nullability of the underlying table column, which an outer join doesn't keep,
+     * so this isn't enforced when writing output.
+     * @param index the zero based column index.
+     * @return false if the column never holds nulls.
+     */
+    public boolean isNullable(int index) {
+        return this.nullables[index];
+    }
+
+    public List<String> getKeys() {
+        return Collections.unmodifiableList(Arrays.asList(this.keys));
+    }
+
+    public List<String> getLabels() {
+        return Collections.unmodifiableList(Arrays.asList(this.labels));
+    }
+
+    /**
+     * Look up a column by its output key.
+     * @param key the output key.
+     * @return the zero based column index or -1 if there's no such column.
+     */
+    public int indexOf(String key) {
+        Integer result = this.indexByKey.get(key);
+        return result == null ? -1 : result;
+    }
+
+    /**
+     * Whether the keys match this schema's keys, in order.
+     * @param otherKeys the keys to compare.
+     * @return true if they match.
+     */
+    public boolean hasKeys(Collection<String> otherKeys) {
+        if (otherKeys.size() != this.keys.length) {
+            return false;
+        }
+        Iterator<String> iterator = otherKeys.iterator();
+        for (String key : this.keys) {
+            if (!key.equals(iterator.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * StreamOutputFile
+ * Lets Parquet write to an OutputStream owned by a FileRowWriter,
+ * so Parquet output goes through the same buffering, counting and channel backend as text output.
+ * Closing the Parquet stream only flushes; the FileRowWriter closes the underlying stream.
+ */
+class StreamOutputFile implements OutputFile {
+
+    private final OutputStream out;
+
+    StreamOutputFile(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public PositionOutputStream create(long blockSizeHint) {
+        return new PositionOutputStream() {
+
+            private long position = 0;
+
+            @Override
+            public long getPos() {
+                return this.position;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                StreamOutputFile.this.out.write(b);
+                this.position++;
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                StreamOutputFile.this.out.write(bytes, offset, length);
+                this.position += length;
+            }
+
+            @Override
+            public void flush() throws IOException {
+                StreamOutputFile.this.out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                this.flush();
+            }
+        };
+    }
+
+    @Override
+    public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+        return this.create(blockSizeHint);
+    }
+
+    @Override
+    public boolean supportsBlockSize() {
+        return false;
+    }
+
+    @Override
+    public long defaultBlockSize() {
+        return 0;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>SynchronizedRowWriter</h1>
+ * Lets several RowHandlers write to one RowWriter concurrently.
+ * Each row is written whole; rows from different handlers are interleaved.
+ * Only the first schema is passed on, so handlers must all produce the same columns.
+ * Rows for an EncodingRowWriter are encoded on the writing thread with an encoder of its own,
+ * and the lock is only held to write out the encoded bytes.
+ */
+public class SynchronizedRowWriter implements TypedRowWriter {
+
+    private final RowWriter writer;
+    private final EncodingRowWriter encodingWriter;
+    private final ThreadLocal<RowEncoder> encoders = new ThreadLocal<>();
+    private final ThreadLocal<OutputBuffer> buffers = ThreadLocal.withInitial(OutputBuffer::new);
+    private boolean schemaWritten;
+
+    /**
+     * Constructor
+     * @param writer the writer to share.
+     */
+    public SynchronizedRowWriter(RowWriter writer) {
+        this.writer = writer;
+        this.encodingWriter = writer instanceof EncodingRowWriter ? (EncodingRowWriter) writer : null;
+    }
+
+    /**
+     * Each handler writes its schema from the thread it writes its rows on,
+     * so that thread gets an encoder for the schema.
+     */
+    @Override
+    public void writeSchema(RowSchema schema) {
+        if (this.encodingWriter != null) {
+            this.encoders.set(this.encodingWriter.newEncoder(schema));
+        }
+        synchronized (this) {
+            if (!this.schemaWritten && this.writer instanceof TypedRowWriter) {
+                ((TypedRowWriter) this.writer).writeSchema(schema);
+            }
+            this.schemaWritten = true;
+        }
+    }
+
+    @Override
+    public void writeRow(Row row) {
+        RowEncoder encoder = this.encoders.get();
+        if (encoder != null) {
+            OutputBuffer buffer = this.buffers.get();
+            buffer.reset();
+            encoder.encodeRow(row, buffer);
+            synchronized (this) {
+                this.encodingWriter.writeEncoded(buffer);
+            }
+            return;
+        }
+        synchronized (this) {
+            this.writeRowLocked(row);
+        }
+    }
+
+    private void writeRowLocked(Row row) {
+        if (this.writer instanceof TypedRowWriter) {
+            ((TypedRowWriter) this.writer).writeRow(row);
+        } else {
+            this.writer.writeRow(row.toMap());
+        }
+    }
+
+    @Override
+    public synchronized void writeRow(Map<String, Object> row) {
+        this.writer.writeRow(row);
+    }
+
+    @Override
+    public synchronized int writeRows(List<Map<String, Object>> rows) {
+        return this.writer.writeRows(rows);
+    }
+
+    @Override
+    public synchronized void close() {
+        this.writer.close();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+import com.simondata.pouroversql.metrics.WriteTimer;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * TimedOutputStream
+ * Adds the time spent in each write and flush to the writing thread's WriteTimer,
+ * including any compression and waits for the disk beneath.
+ */
+class TimedOutputStream extends FilterOutputStream {
+
+    /**
+     * Constructor
+     * @param out the stream to pass bytes on to.
+     */
+    TimedOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        long start = System.nanoTime();
+        try {
+            this.out.write(b);
+        } finally {
+            WriteTimer.add(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        try {
+            this.out.write(bytes, offset, length);
+        } finally {
+            WriteTimer.add(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        long start = System.nanoTime();
+        try {
+            this.out.flush();
+        } finally {
+            WriteTimer.add(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.writers;
+
+/**
+ * TypedRowWriter
+ * A RowWriter that receives rows through the index addressable Row API
+ * instead of a Map, avoiding key hashing and boxing for every value.
+ */
+public interface TypedRowWriter extends RowWriter {
+
+    /**
+     * Receive the schema of the rows that follow.
+     * Called once before the first row.
+     * @param schema the RowSchema of the query result.
+     */
+    void writeSchema(RowSchema schema);
+
+    /**
+     * Write a row out.
+     * The row may be reused after this call returns.
+     * @param row the row data to write out.
+     */
+    void writeRow(Row row);
+}
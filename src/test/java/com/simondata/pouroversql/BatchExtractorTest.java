@@ -0,0 +1,147 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql;
+
+import com.simondata.pouroversql.clients.QueryParams;
+import com.simondata.pouroversql.synthetic.SyntheticDataSource;
+import com.simondata.pouroversql.synthetic.SyntheticExtractors;
+import com.simondata.pouroversql.writers.FileOutputFormat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+public class BatchExtractorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static SQLExtractor extractor(long rows) {
+        return SyntheticExtractors.extractor(rows,
+                SyntheticExtractors.overlay(SyntheticDataSource.BATCH_LATENCY_MS, 5));
+    }
+
+    private File sqlFile(File directory, String name) throws Exception {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), "SELECT * FROM t".getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void testDirectoryOfQueries() throws Exception {
+        File sqlDirectory = folder.newFolder("sql");
+        File outputDirectory = folder.newFolder("out");
+        sqlFile(sqlDirectory, "b.sql");
+        sqlFile(sqlDirectory, "a.sql");
+        sqlFile(sqlDirectory, "c.sql");
+        sqlFile(sqlDirectory, "notes.txt");
+        List<BatchExtractor.Job> jobs = BatchExtractor.jobsForSqlFiles(
+                Arrays.asList(sqlDirectory), outputDirectory, FileOutputFormat.CSV);
+        assertEquals(3, jobs.size());
+        assertEquals("a", jobs.get(0).getName());
+        assertEquals(new File(outputDirectory, "c.csv"), jobs.get(2).getOutputFile());
+
+        List<BatchExtractor.JobResult> results = new BatchExtractor(extractor(500), 2)
+                .run(jobs, FileOutputFormat.CSV, new QueryParams(100, null, null));
+        for (BatchExtractor.JobResult result : results) {
+            assertNull(result.getFailure());
+            assertEquals(500, result.getResult().getRowCount());
+            File output = result.getJob().getOutputFile();
+            assertEquals(501, Files.readAllLines(output.toPath(), StandardCharsets.UTF_8).size());
+            assertEquals(output.length(), result.getResult().getMetrics().getBytesWritten());
+        }
+    }
+
+    @Test
+    public void testJobListWithFailure() throws Exception {
+        File outputDirectory = folder.newFolder("out");
+        File good = sqlFile(folder.getRoot(), "good.sql");
+        File named = new File(folder.getRoot(), "named.json");
+        File jobList = folder.newFile("jobs.txt");
+        Files.write(jobList.toPath(), Arrays.asList(
+                "# nightly extracts",
+                good.getPath(),
+                "",
+                good.getPath() + "  " + named.getPath(),
+                new File(folder.getRoot(), "missing.sql").getPath()
+        ), StandardCharsets.UTF_8);
+        List<BatchExtractor.Job> jobs = BatchExtractor.readJobList(jobList, outputDirectory, FileOutputFormat.JSON);
+        assertEquals(3, jobs.size());
+        assertEquals(new File(outputDirectory, "good.json"), jobs.get(0).getOutputFile());
+        assertEquals(named, jobs.get(1).getOutputFile());
+
+        List<BatchExtractor.JobResult> results = new BatchExtractor(extractor(100), 4)
+                .run(jobs, FileOutputFormat.JSON, new QueryParams());
+        assertEquals(100, results.get(0).getResult().getRowCount());
+        assertEquals(100, results.get(1).getResult().getRowCount());
+        assertTrue(named.isFile());
+        assertNull(results.get(2).getResult());
+        assertNotNull(results.get(2).getFailure());
+
+        String summary = BatchExtractor.summarize(results);
+        String[] lines = summary.split("\\R");
+        assertEquals(5, lines.length);
+        assertTrue(lines[1].startsWith("good "));
+        assertTrue(lines[3].startsWith("missing ") && lines[3].contains("FAILED"));
+        assertTrue(lines[4].contains("1 FAILED") && lines[4].contains(" 200 "));
+    }
+
+    @Test
+    public void testDuplicateOutputsAreRejectedBeforeRunning() throws Exception {
+        File outputDirectory = folder.newFolder("out");
+        File first = sqlFile(folder.newFolder("a"), "x.sql");
+        File second = sqlFile(folder.newFolder("b"), "x.sql");
+        List<BatchExtractor.Job> jobs = BatchExtractor.jobsForSqlFiles(
+                Arrays.asList(first, second), outputDirectory, FileOutputFormat.CSV);
+        try {
+            new BatchExtractor(extractor(10), 2).run(jobs, FileOutputFormat.CSV, new QueryParams());
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("x.csv"));
+        }
+        assertEquals(0, outputDirectory.list().length);
+    }
+
+    @Test
+    public void testExtractorKeepsItsExecutorAfterABatch() throws Exception {
+        SQLExtractor extractor = extractor(100);
+        Executor executor = extractor.getExecutor();
+        List<BatchExtractor.Job> jobs = BatchExtractor.jobsForSqlFiles(
+                Arrays.asList(sqlFile(folder.getRoot(), "a.sql")), folder.newFolder("out"), FileOutputFormat.CSV);
+        new BatchExtractor(extractor, 1).run(jobs, FileOutputFormat.CSV, new QueryParams());
+        assertSame(executor, extractor.getExecutor());
+        QueryResult result = extractor.queryToFileAsync(
+                "SELECT * FROM t", folder.newFile(), FileOutputFormat.CSV, new QueryParams()).get();
+        assertEquals(100, result.getRowCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConcurrencyBeyondPoolSizeIsRejected() {
+        new BatchExtractor(extractor(10), 11);
+    }
+}
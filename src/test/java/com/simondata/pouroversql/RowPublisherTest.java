@@ -0,0 +1,176 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql;
+
+import com.simondata.pouroversql.clients.QueryParams;
+import com.simondata.pouroversql.metrics.QueryMetrics;
+import com.simondata.pouroversql.metrics.QueryMetricsRegistry;
+import com.simondata.pouroversql.synthetic.SyntheticDataSource;
+import com.simondata.pouroversql.synthetic.SyntheticExtractors;
+import com.simondata.pouroversql.writers.Row;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNotNull;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+public class RowPublisherTest {
+
+    private final LinkedBlockingQueue<QueryMetrics> completed = new LinkedBlockingQueue<>();
+
+    private static final class TestSubscriber<T> implements Subscriber<T> {
+        final List<T> received = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch terminated = new CountDownLatch(1);
+        volatile Subscription subscription;
+        volatile Throwable error;
+        volatile boolean completed;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T element) {
+            this.received.add(element);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+            this.terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+            this.terminated.countDown();
+        }
+
+        void awaitReceived(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (this.received.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(count, this.received.size());
+        }
+    }
+
+    private SQLExtractor extractor(long rows, long batchLatencyMillis) {
+        return this.extractor(rows, batchLatencyMillis, 0);
+    }
+
+    private SQLExtractor extractor(long rows, long batchLatencyMillis, long executeLatencyMillis) {
+        QueryMetricsRegistry registry = new QueryMetricsRegistry();
+        registry.addListener(this.completed::add);
+        return SyntheticExtractors.extractor(SyntheticExtractors.sqlParams(rows, SyntheticExtractors.overlay(
+                SyntheticDataSource.BATCH_LATENCY_MS, batchLatencyMillis,
+                SyntheticDataSource.EXECUTE_LATENCY_MS, executeLatencyMillis)), registry);
+    }
+
+    @Test
+    public void testRowsOnlyFetchedOnDemand() throws Exception {
+        SQLExtractor extractor = extractor(1000, 0);
+        TestSubscriber<Row> subscriber = new TestSubscriber<>();
+        extractor.queryAsPublisher("SELECT * FROM t", new QueryParams(100, null, null)).subscribe(subscriber);
+        Thread.sleep(50);
+        assertTrue(subscriber.received.isEmpty());
+
+        subscriber.subscription.request(150);
+        subscriber.awaitReceived(150);
+        Thread.sleep(50);
+        assertEquals(150, subscriber.received.size());
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(subscriber.terminated.await(10, TimeUnit.SECONDS));
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+
+        List<Map<String, Object>> expected = new ArrayList<>();
+        extractor.queryWithCallback("SELECT * FROM t", expected::add);
+        assertEquals(expected, subscriber.received.stream().map(Row::toMap).collect(Collectors.toList()));
+        assertEquals(1000, this.completed.poll(10, TimeUnit.SECONDS).getRows());
+    }
+
+    @Test
+    public void testBatches() throws Exception {
+        TestSubscriber<List<Row>> subscriber = new TestSubscriber<>();
+        extractor(1000, 0).queryAsPublisher("SELECT * FROM t", new QueryParams(100, null, null), 64)
+                .subscribe(subscriber);
+        subscriber.subscription.request(3);
+        subscriber.awaitReceived(3);
+        subscriber.subscription.request(100);
+        assertTrue(subscriber.terminated.await(10, TimeUnit.SECONDS));
+        assertEquals(16, subscriber.received.size());
+        assertEquals(64, subscriber.received.get(0).size());
+        assertEquals(1000 % 64, subscriber.received.get(15).size());
+        assertEquals(999L, subscriber.received.get(15).get(1000 % 64 - 1).getLong(0));
+    }
+
+    @Test
+    public void testCancelDuringFetch() throws Exception {
+        // The first fetch would take a minute.
+        TestSubscriber<Row> subscriber = new TestSubscriber<>();
+        extractor(1000, 60_000).queryAsPublisher("SELECT * FROM t", new QueryParams(100, null, null))
+                .subscribe(subscriber);
+        subscriber.subscription.request(1);
+        Thread.sleep(200);
+        subscriber.subscription.cancel();
+        QueryMetrics metrics = this.completed.poll(10, TimeUnit.SECONDS);
+        assertEquals(0, metrics.getRows());
+        assertTrue(subscriber.received.isEmpty());
+        assertEquals(1, subscriber.terminated.getCount());
+    }
+
+    @Test
+    public void testCancelDuringExecute() throws Exception {
+        // Executing the query would take a minute.
+        TestSubscriber<Row> subscriber = new TestSubscriber<>();
+        extractor(1000, 0, 60_000).queryAsPublisher("SELECT * FROM t", new QueryParams(100, null, null))
+                .subscribe(subscriber);
+        subscriber.subscription.request(1);
+        Thread.sleep(200);
+        subscriber.subscription.cancel();
+        QueryMetrics metrics = this.completed.poll(10, TimeUnit.SECONDS);
+        assertNotNull(metrics);
+        assertTrue(metrics.isFailed());
+        assertTrue(subscriber.received.isEmpty());
+        assertEquals(1, subscriber.terminated.getCount());
+    }
+
+    @Test
+    public void testNonPositiveRequest() throws Exception {
+        TestSubscriber<Row> subscriber = new TestSubscriber<>();
+        extractor(1000, 0).queryAsPublisher("SELECT * FROM t", QueryParams.getDefaultQueryParams())
+                .subscribe(subscriber);
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.terminated.await(10, TimeUnit.SECONDS));
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql;
+
+import com.simondata.pouroversql.clients.QueryParams;
+import com.simondata.pouroversql.synthetic.SyntheticDataSource;
+import com.simondata.pouroversql.synthetic.SyntheticExtractors;
+import com.simondata.pouroversql.writers.FileOutputFormat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+public class SQLExtractorAsyncTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static SQLExtractor extractor(long rows, long batchLatencyMillis) {
+        // Nothing listening, but async results still carry metrics.
+        return SyntheticExtractors.extractor(rows,
+                SyntheticExtractors.overlay(SyntheticDataSource.BATCH_LATENCY_MS, batchLatencyMillis));
+    }
+
+    @Test
+    public void testConcurrentFiles() throws Exception {
+        SQLExtractor extractor = extractor(1000, 5);
+        List<CompletableFuture<QueryResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(extractor.queryToFileAsync("SELECT * FROM t", folder.newFile(), FileOutputFormat.CSV,
+                    new QueryParams(100, null, null)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        for (CompletableFuture<QueryResult> future : futures) {
+            QueryResult result = future.get();
+            assertEquals(1000, result.getRowCount());
+            assertEquals(1001, Files.readAllLines(result.getFile().toPath(), StandardCharsets.UTF_8).size());
+            assertEquals(result.getFile().length(), result.getMetrics().getBytesWritten());
+        }
+    }
+
+    @Test
+    public void testConcurrentQueryParams() throws Exception {
+        // One extractor, with each query capped at its own row count.
+        SQLExtractor extractor = extractor(1000, 1);
+        List<CompletableFuture<QueryResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            int maxRows = 100 + i;
+            futures.add(extractor.queryWithCallbackAsync("SELECT * FROM t", row -> null,
+                    new QueryParams(10, maxRows, null)));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(100 + i, futures.get(i).get(30, TimeUnit.SECONDS).getRowCount());
+        }
+    }
+
+    @Test
+    public void testCallback() throws Exception {
+        AtomicInteger count = new AtomicInteger();
+        QueryResult result = extractor(1000, 0)
+                .queryWithCallbackAsync("SELECT * FROM t", row -> count.incrementAndGet(),
+                        QueryParams.getDefaultQueryParams())
+                .get(30, TimeUnit.SECONDS);
+        assertEquals(1000, count.get());
+        assertEquals(1000, result.getRowCount());
+        assertNull(result.getFile());
+        assertEquals(1000, result.getMetrics().getRows());
+    }
+
+    @Test
+    public void testCancelDuringFetch() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // The first fetch would take a minute.
+            SQLExtractor slow = extractor(1000, 60_000);
+            slow.setExecutor(executor);
+            CompletableFuture<QueryResult> future = slow.queryToFileAsync(
+                    "SELECT * FROM t", folder.newFile(), FileOutputFormat.CSV, new QueryParams(100, null, null));
+            Thread.sleep(200);
+            assertTrue(future.cancel(true));
+            assertTrue(future.isCancelled());
+
+            // The only thread is released once the query is cancelled.
+            SQLExtractor fast = extractor(10, 0);
+            fast.setExecutor(executor);
+            QueryResult result = fast.queryWithCallbackAsync("SELECT * FROM t", row -> null,
+                    QueryParams.getDefaultQueryParams()).get(10, TimeUnit.SECONDS);
+            assertEquals(10, result.getRowCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        File file = folder.newFile();
+        // A split query without its bound.
+        CompletableFuture<QueryResult> future = extractor(1000, 0).queryToFileAsync(
+                "SELECT * FROM (SELECT * FROM t) pourover_split WHERE id >= ?", file, FileOutputFormat.CSV,
+                QueryParams.getDefaultQueryParams());
+        try {
+            future.get(30, TimeUnit.SECONDS);
+            fail("Expected the query to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+}
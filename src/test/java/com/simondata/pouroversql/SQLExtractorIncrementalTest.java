@@ -0,0 +1,98 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql;
+
+import com.simondata.pouroversql.clients.IncrementalParams;
+import com.simondata.pouroversql.clients.QueryParams;
+import com.simondata.pouroversql.clients.Watermark;
+import com.simondata.pouroversql.synthetic.SyntheticExtractors;
+import com.simondata.pouroversql.writers.FileOutputFormat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+
+public class SQLExtractorIncrementalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * An extractor over a table with ids 0 to rows - 1, so growing it between runs appends rows.
+     */
+    private static SQLExtractor extractor(long rows) {
+        return SyntheticExtractors.extractor(rows);
+    }
+
+    private static List<String> extract(long rows, File file, IncrementalParams incrementalParams) throws Exception {
+        extractor(rows).queryToFile(
+                "SELECT * FROM t;", file, FileOutputFormat.CSV, new QueryParams(), incrementalParams);
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testOnlyNewRowsAreExtracted() throws Exception {
+        File stateFile = new File(folder.getRoot(), "state.json");
+        IncrementalParams incrementalParams = new IncrementalParams("id", stateFile);
+
+        List<String> lines = extract(1000, folder.newFile(), incrementalParams);
+        assertEquals(1001, lines.size());
+        assertEquals("0", lines.get(1).split(",")[0]);
+        assertEquals(999L, Watermark.load(stateFile).getValue());
+
+        lines = extract(1500, folder.newFile(), incrementalParams);
+        assertEquals(501, lines.size());
+        assertEquals("1000", lines.get(1).split(",")[0]);
+        assertEquals("1499", lines.get(500).split(",")[0]);
+        assertEquals(1499L, Watermark.load(stateFile).getValue());
+
+        // Nothing new: an empty extract and the same watermark.
+        lines = extract(1500, folder.newFile(), incrementalParams);
+        assertEquals(1, lines.size());
+        assertEquals(1499L, Watermark.load(stateFile).getValue());
+    }
+
+    @Test
+    public void testFailedRunKeepsWatermark() throws Exception {
+        File stateFile = new File(folder.getRoot(), "state.json");
+        IncrementalParams incrementalParams = new IncrementalParams("id", stateFile);
+        extract(100, folder.newFile(), incrementalParams);
+
+        // Rows can't be written to a file that failed to open, which fails the query.
+        File unwritable = new File(new File(folder.getRoot(), "missing"), "out.csv");
+        extractor(200).queryToFile(
+                "SELECT * FROM t", unwritable, FileOutputFormat.CSV, new QueryParams(), incrementalParams);
+        assertFalse(unwritable.exists());
+        assertEquals(99L, Watermark.load(stateFile).getValue());
+
+        List<String> lines = extract(200, folder.newFile(), incrementalParams);
+        assertEquals(101, lines.size());
+        assertEquals(199L, Watermark.load(stateFile).getValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWatermarkOfAnotherColumn() throws Exception {
+        File stateFile = new File(folder.getRoot(), "state.json");
+        new Watermark("updated_at", 5L).save(stateFile);
+        extract(100, folder.newFile(), new IncrementalParams("id", stateFile));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql;
+
+import com.simondata.pouroversql.clients.Checkpoint;
+import com.simondata.pouroversql.clients.QueryParams;
+import com.simondata.pouroversql.clients.ResumableParams;
+import com.simondata.pouroversql.synthetic.SyntheticDataSource;
+import com.simondata.pouroversql.synthetic.SyntheticExtractors;
+import com.simondata.pouroversql.writers.FileOutputFormat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+public class SQLExtractorResumableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * An extractor whose queries fail after failAfterRows rows, or never with 0.
+     */
+    private static SQLExtractor extractor(long rows, long failAfterRows) {
+        return SyntheticExtractors.extractor(rows,
+                SyntheticExtractors.overlay(SyntheticDataSource.FAIL_AFTER_ROWS, failAfterRows));
+    }
+
+    private ResumableParams resumableParams(int maxRetries) {
+        ResumableParams params = new ResumableParams("id", new File(folder.getRoot(), "checkpoint.json"));
+        params.setCheckpointRows(100L);
+        params.setMaxRetries(maxRetries);
+        params.setRetryBackoffMillis(0L);
+        return params;
+    }
+
+    /**
+     * Every id once, in order, after any header.
+     */
+    private static void assertAllRows(File file, int rows, int headerLines) throws Exception {
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(rows + headerLines, lines.size());
+        for (int i = 0; i < rows; i++) {
+            String line = lines.get(i + headerLines);
+            String id = headerLines > 0 ? line.split(",")[0] : line.substring(line.indexOf(':') + 1, line.indexOf(','));
+            assertEquals(String.valueOf(i), id.trim());
+        }
+    }
+
+    @Test
+    public void testRetriesResumeFromCheckpoint() throws Exception {
+        // Each try fails 300 rows in, so it takes four to get through 1000 rows.
+        File file = folder.newFile("out.csv");
+        ResumableParams params = resumableParams(5);
+        extractor(1000, 300).queryToFile("SELECT * FROM t", file, FileOutputFormat.CSV, new QueryParams(), params);
+        assertAllRows(file, 1000, 1);
+        assertFalse(params.getCheckpointFile().exists());
+    }
+
+    @Test
+    public void testRerunResumesFromCheckpointFile() throws Exception {
+        File file = folder.newFile("out.json");
+        ResumableParams params = resumableParams(0);
+        try {
+            extractor(1000, 250).queryToFile(
+                    "SELECT * FROM t", file, FileOutputFormat.JSON, new QueryParams(), params);
+            fail("Expected the extract to run out of retries");
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage().contains("resume from checkpoint"));
+        }
+        Checkpoint checkpoint = Checkpoint.load(params.getCheckpointFile());
+        assertEquals(199L, checkpoint.getLastKey());
+        assertEquals(200, checkpoint.getRows());
+        assertTrue(file.length() > checkpoint.getBytes());
+
+        // The rows written after the checkpoint are cut off before carrying on.
+        extractor(1000, 0).queryToFile("SELECT * FROM t", file, FileOutputFormat.JSON, new QueryParams(), params);
+        assertAllRows(file, 1000, 0);
+        assertFalse(params.getCheckpointFile().exists());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompressedOutputRejected() throws Exception {
+        extractor(10, 0).queryToFile("SELECT * FROM t", folder.newFile(), FileOutputFormat.CSV_GZ,
+                new QueryParams(), resumableParams(0));
+    }
+}
@@ -0,0 +1,226 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.clients;
+
+import com.simondata.pouroversql.synthetic.SyntheticDataSource;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertSame;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+public class ConnectionPoolTest {
+
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+    private final AtomicBoolean valid = new AtomicBoolean(true);
+
+    private DataSource makeDataSource() {
+        return (DataSource) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    if (!"getConnection".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    opened.incrementAndGet();
+                    AtomicBoolean isClosed = new AtomicBoolean();
+                    return Proxy.newProxyInstance(
+                            getClass().getClassLoader(),
+                            new Class<?>[]{Connection.class},
+                            (connProxy, connMethod, connArgs) -> {
+                                switch (connMethod.getName()) {
+                                    case "close":
+                                        isClosed.set(true);
+                                        closed.incrementAndGet();
+                                        return null;
+                                    case "isClosed":
+                                        return isClosed.get();
+                                    case "isValid":
+                                        return valid.get();
+                                    case "getAutoCommit":
+                                        return true;
+                                    default:
+                                        return null;
+                                }
+                            });
+                });
+    }
+
+    private static PoolParams makePoolParams(int maxSize) {
+        PoolParams poolParams = new PoolParams(maxSize, 0);
+        poolParams.setAcquireTimeoutSeconds(0);
+        poolParams.setValidationIntervalSeconds(0);
+        return poolParams;
+    }
+
+    @Test
+    public void testConnectionsAreReused() throws Exception {
+        ConnectionPool pool = new ConnectionPool(makeDataSource(), makePoolParams(2));
+        for (int i = 0; i < 5; i++) {
+            Connection connection = pool.getConnection();
+            assertFalse(connection.isClosed());
+            connection.close();
+            assertTrue(connection.isClosed());
+        }
+        assertEquals(1, opened.get());
+        assertEquals(1, pool.getIdleCount());
+        pool.close();
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void testPoolIsBounded() throws Exception {
+        ConnectionPool pool = new ConnectionPool(makeDataSource(), makePoolParams(1));
+        Connection first = pool.getConnection();
+        try {
+            pool.getConnection();
+            fail("Expected the pool to be exhausted");
+        } catch (SQLException e) {
+            assertEquals(1, opened.get());
+        }
+        first.close();
+        pool.getConnection().close();
+        assertEquals(1, opened.get());
+    }
+
+    @Test
+    public void testInvalidConnectionsAreReplaced() throws Exception {
+        ConnectionPool pool = new ConnectionPool(makeDataSource(), makePoolParams(2));
+        pool.getConnection().close();
+        valid.set(false);
+        pool.getConnection().close();
+        assertEquals(2, opened.get());
+        assertEquals(1, closed.get());
+        assertEquals(1, pool.getOpenCount());
+    }
+
+    @Test
+    public void testIdleConnectionsAreEvicted() throws Exception {
+        PoolParams poolParams = makePoolParams(2);
+        poolParams.setIdleTimeoutSeconds(0);
+        ConnectionPool pool = new ConnectionPool(makeDataSource(), poolParams);
+        pool.getConnection().close();
+        Thread.sleep(5);
+        pool.evictIdle();
+        assertEquals(0, pool.getIdleCount());
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void testRefillStaysWithinMaxSize() throws Exception {
+        PoolParams poolParams = makePoolParams(1);
+        poolParams.setMinIdle(1);
+        ConnectionPool pool = new ConnectionPool(makeDataSource(), poolParams);
+        Connection connection = pool.getConnection();
+        pool.evictIdle();
+        assertEquals(1, pool.getOpenCount());
+        assertEquals(0, pool.getIdleCount());
+        connection.close();
+        pool.close();
+        pool.evictIdle();
+        assertEquals(0, pool.getOpenCount());
+    }
+
+    @Test
+    public void testReleasedConnectionCanBeLoggedAndHashed() throws Exception {
+        ConnectionPool pool = new ConnectionPool(makeDataSource(), makePoolParams(1));
+        Connection connection = pool.getConnection();
+        Set<Connection> connections = new HashSet<>();
+        connections.add(connection);
+        connection.close();
+        assertTrue(connection.toString().startsWith("PooledConnection@"));
+        assertTrue(connections.contains(connection));
+        assertFalse(connection.equals(pool.getConnection()));
+    }
+
+    @Test
+    public void testEvictionContinuesPastAFailingPool() {
+        SQLParams broken = new SQLParams("db.example", 5432, "user", "secret", "broken");
+        broken.setPoolParams(new PoolParams(1, 1));
+        SQLParams working = new SQLParams("db.example", 5432, "user", "secret", "working");
+        working.setPoolParams(new PoolParams(1, 1));
+        try {
+            ConnectionPools.getPool("test", broken, () -> (DataSource) Proxy.newProxyInstance(
+                    getClass().getClassLoader(),
+                    new Class<?>[]{DataSource.class},
+                    (proxy, method, args) -> {
+                        throw new IllegalStateException("driver bug");
+                    }));
+            ConnectionPool pool = ConnectionPools.getPool("test", working, this::makeDataSource);
+            ConnectionPools.evictIdle();
+            assertEquals(1, pool.getIdleCount());
+        } finally {
+            ConnectionPools.closeAll();
+        }
+    }
+
+    @Test
+    public void testPoolsAreSharedBySQLParams() {
+        SQLParams first = new SQLParams("db.example", 5432, "user", "secret", "main");
+        SQLParams second = new SQLParams("db.example", 5432, "user", "secret", "main");
+        SQLParams other = new SQLParams("db.example", 5432, "user", "secret", "other");
+        try {
+            ConnectionPool pool = ConnectionPools.getPool("test", first, this::makeDataSource);
+            assertSame(pool, ConnectionPools.getPool("test", second, this::makeDataSource));
+            assertFalse(pool == ConnectionPools.getPool("test", other, this::makeDataSource));
+        } finally {
+            ConnectionPools.closeAll();
+        }
+    }
+
+    @Test
+    public void testConnectionSettingsFollowEachQuery() {
+        Properties properties = new Properties();
+        properties.setProperty(SyntheticDataSource.ROWS, "1");
+        SQLParams sqlParams = new SQLParams(null, null, null, null, "NARROW_INTS", properties);
+        List<QueryParams> configured = new ArrayList<>();
+        SyntheticClient client = new SyntheticClient(sqlParams) {
+            @Override
+            protected void configureConnection(Connection conn, QueryParams queryParams) {
+                configured.add(queryParams);
+            }
+        };
+        QueryParams first = new QueryParams(10, null, null);
+        QueryParams second = new QueryParams(20, null, null);
+        try {
+            client.queryAsList("SELECT * FROM t", first);
+            client.queryAsList("SELECT * FROM t", second);
+            assertEquals(Arrays.asList(first, second), configured);
+            ConnectionPool pool = ConnectionPools.getPool(client.getClass().getName(), sqlParams, () -> {
+                throw new AssertionError("The pool should already exist");
+            });
+            assertEquals(1, pool.getOpenCount());
+        } finally {
+            ConnectionPools.closeAll();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.clients;
+
+import com.simondata.pouroversql.writers.RowHandler;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+
+public class RangeSplitterTest {
+
+    /**
+     * Answers every query with the same rows, one value per row.
+     */
+    private static class FixedResultClient implements SQLClient {
+        private final List<Object> values;
+        private final List<String> queries = new ArrayList<>();
+
+        FixedResultClient(Object... values) {
+            this.values = Arrays.asList(values);
+        }
+
+        @Override
+        public void setQueryParams(QueryParams queryParams) {
+        }
+
+        @Override
+        public List<Map<String, Object>> queryAsList(String queryText) {
+            this.queries.add(queryText);
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (Object value : this.values) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("value", value);
+                rows.add(row);
+            }
+            return rows;
+        }
+
+        @Override
+        public int queryWithHandler(String queryText, RowHandler handler) {
+            return 0;
+        }
+    }
+
+    @Test
+    public void testInterpolateIntegers() {
+        assertEquals(Arrays.asList(25L, 50L, 75L), RangeSplitter.interpolate(0, 100, 4));
+        assertEquals(Collections.singletonList(1L), RangeSplitter.interpolate(0L, 2L, 8));
+        assertEquals(Collections.emptyList(), RangeSplitter.interpolate(7L, 7L, 4));
+        assertEquals(Collections.emptyList(), RangeSplitter.interpolate(null, null, 4));
+    }
+
+    @Test
+    public void testInterpolateDecimalsAndTimestamps() {
+        assertEquals(
+                Arrays.asList(new BigDecimal("1.50"), new BigDecimal("2.00")),
+                RangeSplitter.interpolate(new BigDecimal("1.00"), new BigDecimal("2.50"), 3));
+        assertEquals(
+                Arrays.asList(new Timestamp(1000L), new Timestamp(2000L)),
+                RangeSplitter.interpolate(new Timestamp(0L), new Timestamp(3000L), 3));
+    }
+
+    @Test
+    public void testSplitsCoverEveryRow() {
+        List<RangeSplit> splits = RangeSplitter.toSplits("id", Arrays.asList(10L, 20L));
+        assertEquals(4, splits.size());
+        assertEquals("id < ?", splits.get(0).getPredicate());
+        assertEquals("id >= ? AND id < ?", splits.get(1).getPredicate());
+        assertEquals(Arrays.asList(10L, 20L), Arrays.asList(splits.get(1).getParams()));
+        assertEquals("id >= ?", splits.get(2).getPredicate());
+        assertEquals("id IS NULL", splits.get(3).getPredicate());
+        assertEquals(
+                "SELECT * FROM (select * from t) pourover_split WHERE id IS NULL",
+                splits.get(3).wrap("select * from t;"));
+    }
+
+    @Test
+    public void testSplitByMinAndMax() {
+        SQLClient boundsClient = new FixedResultClient() {
+            @Override
+            public List<Map<String, Object>> queryAsList(String queryText) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("pourover_min", 0L);
+                row.put("pourover_max", 99L);
+                return Collections.singletonList(row);
+            }
+        };
+        List<RangeSplit> splits = new RangeSplitter(boundsClient).split("select * from t", new SplitParams("id", 2));
+        assertEquals(9, splits.size());
+        assertEquals(12L, splits.get(1).getParams()[0]);
+    }
+
+    @Test
+    public void testSplitByQuantiles() {
+        FixedResultClient client = new FixedResultClient(1L, 5L, 5L, 9L);
+        SplitParams splitParams = new SplitParams("id", 2);
+        splitParams.setUseQuantiles(true);
+        List<RangeSplit> splits = new RangeSplitter(client).split("select * from t", splitParams);
+        assertTrue(client.queries.get(0).contains("NTILE(8) OVER (ORDER BY id)"));
+        assertEquals(4, splits.size());
+        assertEquals(Arrays.asList(5L, 9L), Arrays.asList(splits.get(1).getParams()));
+    }
+
+    @Test
+    public void testIncrementalRange() {
+        assertEquals("1 = 0", RangeSplitter.incrementalRange("id", 7L, null).getPredicate());
+        RangeSplit first = RangeSplitter.incrementalRange("id", null, 9L);
+        assertEquals("id <= ?", first.getPredicate());
+        assertEquals(Collections.singletonList(9L), Arrays.asList(first.getParams()));
+        RangeSplit next = RangeSplitter.incrementalRange("id", 9L, 20L);
+        assertEquals("id > ? AND id <= ?", next.getPredicate());
+        assertEquals(Arrays.asList(9L, 20L), Arrays.asList(next.getParams()));
+    }
+}
@@ -0,0 +1,175 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.clients;
+
+import com.simondata.pouroversql.SQLExtractor;
+import com.simondata.pouroversql.metrics.QueryMetrics;
+import com.simondata.pouroversql.metrics.QueryMetricsRegistry;
+import com.simondata.pouroversql.synthetic.SyntheticExtractors;
+import com.simondata.pouroversql.util.CloseableIterator;
+import com.simondata.pouroversql.writers.CallbackRowWriter;
+import com.simondata.pouroversql.writers.Row;
+import com.simondata.pouroversql.writers.RowHandler;
+import com.simondata.pouroversql.writers.RowPlan;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.fail;
+
+public class ResultSetIteratorTest {
+
+    private final List<QueryMetrics> completed = new ArrayList<>();
+
+    /**
+     * A synthetic client that records the connections its queries borrow.
+     */
+    private static class RecordingClient extends SyntheticClient {
+
+        private final List<Connection> connections = new ArrayList<>();
+
+        private final boolean fetchSizeRequiresTransaction;
+
+        RecordingClient(SQLParams params, boolean fetchSizeRequiresTransaction) {
+            super(params);
+            this.fetchSizeRequiresTransaction = fetchSizeRequiresTransaction;
+        }
+
+        @Override
+        protected void configureConnection(Connection conn, QueryParams queryParams) {
+            this.connections.add(conn);
+        }
+
+        @Override
+        protected boolean fetchSizeRequiresTransaction() {
+            return this.fetchSizeRequiresTransaction;
+        }
+    }
+
+    private SQLExtractor extractor(SQLParams sqlParams) {
+        QueryMetricsRegistry registry = new QueryMetricsRegistry();
+        registry.addListener(this.completed::add);
+        return SyntheticExtractors.extractor(sqlParams, registry);
+    }
+
+    private static ConnectionPool pool(SQLParams sqlParams) {
+        return ConnectionPools.getPool(SyntheticClient.class.getName(), sqlParams, () -> {
+            throw new AssertionError("The pool should already exist");
+        });
+    }
+
+    @Test
+    public void testStreamOnlyFetchesWhatIsRead() {
+        // Far too many rows to fetch in the time the test takes.
+        SQLParams sqlParams = SyntheticExtractors.sqlParams(1_000_000_000L);
+        List<Row> rows;
+        try (Stream<Row> stream = extractor(sqlParams).queryAsStream("SELECT * FROM t", new QueryParams(100, null, null))) {
+            rows = stream.filter(row -> row.getLong(0) % 2 == 0).limit(25).collect(Collectors.toList());
+            assertEquals(0, pool(sqlParams).getIdleCount());
+        }
+        assertEquals(25, rows.size());
+        assertEquals(pool(sqlParams).getOpenCount(), pool(sqlParams).getIdleCount());
+        assertEquals(1, this.completed.size());
+        assertFalse(this.completed.get(0).isFailed());
+    }
+
+    @Test
+    public void testStreamMatchesCallback() {
+        SQLParams sqlParams = SyntheticExtractors.sqlParams(1000);
+        List<Map<String, Object>> expected = new ArrayList<>();
+        extractor(sqlParams).queryWithCallback("SELECT * FROM t", expected::add);
+        try (Stream<Row> stream = extractor(sqlParams).queryAsStream("SELECT * FROM t")) {
+            assertEquals(expected, stream.map(Row::toMap).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testIteratorClosesWhenExhausted() {
+        SQLParams sqlParams = SyntheticExtractors.sqlParams(1000);
+        CloseableIterator<Row> rows = extractor(sqlParams).queryAsIterator("SELECT * FROM t");
+        int count = 0;
+        while (rows.hasNext()) {
+            rows.next();
+            count++;
+        }
+        assertEquals(1000, count);
+        assertEquals(pool(sqlParams).getOpenCount(), pool(sqlParams).getIdleCount());
+        assertEquals(1, this.completed.size());
+        assertEquals(1000, this.completed.get(0).getRows());
+        try {
+            rows.next();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            assertEquals(1, this.completed.size());
+        }
+        rows.close();
+        assertEquals(1, this.completed.size());
+    }
+
+    @Test
+    public void testLazyQueriesTurnOffAutoCommit() throws Exception {
+        RecordingClient client = new RecordingClient(SyntheticExtractors.sqlParams(1000), false);
+        try (ResultSetIterator rows = client.queryAsIterator(
+                "SELECT * FROM t", new QueryParams(10, null, null), new FormattingParams(), null, null)) {
+            rows.next();
+            assertEquals(1, client.connections.size());
+            assertFalse(client.connections.get(0).getAutoCommit());
+        }
+    }
+
+    @Test
+    public void testFetchSizeIsHonouredOnDriversThatNeedATransaction() {
+        RecordingClient client = new RecordingClient(SyntheticExtractors.sqlParams(100), true);
+        List<Boolean> autoCommits = new ArrayList<>();
+        List<Integer> fetchSizes = new ArrayList<>();
+        RowHandler handler = new RowHandler(new CallbackRowWriter(row -> null)) {
+            @Override
+            protected RowPlan compilePlan(ResultSet rs) throws SQLException {
+                autoCommits.add(client.connections.get(0).getAutoCommit());
+                fetchSizes.add(rs.getFetchSize());
+                return super.compilePlan(rs);
+            }
+        };
+        assertEquals(100, client.queryWithHandler("SELECT * FROM t", new QueryParams(10, null, null), handler));
+        assertEquals(Collections.singletonList(false), autoCommits);
+        assertEquals(Collections.singletonList(10), fetchSizes);
+    }
+
+    @Test
+    public void testAutoCommitIsLeftOnWithoutAFetchSize() {
+        RecordingClient client = new RecordingClient(SyntheticExtractors.sqlParams(100), true);
+        List<Boolean> autoCommits = new ArrayList<>();
+        RowHandler handler = new RowHandler(new CallbackRowWriter(row -> null)) {
+            @Override
+            protected RowPlan compilePlan(ResultSet rs) throws SQLException {
+                autoCommits.add(client.connections.get(0).getAutoCommit());
+                return super.compilePlan(rs);
+            }
+        };
+        assertEquals(100, client.queryWithHandler("SELECT * FROM t", new QueryParams(0, null, null), handler));
+        assertEquals(Collections.singletonList(true), autoCommits);
+    }
+}
@@ -0,0 +1,32 @@
+package com.simondata.pouroversql.clients;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static junit.framework.TestCase.assertEquals;
+
+public class ResumableParamsTest {
+
+    @Test
+    public void testBackoff() {
+        ResumableParams params = new ResumableParams("id", new File("checkpoint.json"));
+        params.setRetryBackoffMillis(500L);
+        params.setMaxRetryBackoffMillis(3000L);
+        assertEquals(500, params.getBackoffMillis(1));
+        assertEquals(1000, params.getBackoffMillis(2));
+        assertEquals(2000, params.getBackoffMillis(3));
+        assertEquals(3000, params.getBackoffMillis(4));
+        assertEquals(3000, params.getBackoffMillis(40));
+    }
+
+    @Test
+    public void testDefaults() {
+        ResumableParams params = new ResumableParams("id", new File("checkpoint.json"));
+        params.setMaxRetries(null);
+        params.setCheckpointRows(null);
+        assertEquals(3, params.getMaxRetries());
+        assertEquals(100000, params.getCheckpointRows());
+        assertEquals(1000, params.getBackoffMillis(1));
+    }
+}
@@ -39,6 +39,7 @@ public class SqlEngineTest {
         assertEquals(SqlEngine.REDSHIFT, SqlEngine.byName("redshift"));
         assertEquals(SqlEngine.BIGQUERY, SqlEngine.byName("bigquery"));
         assertEquals(SqlEngine.SNOWFLAKE, SqlEngine.byName("snowflake"));
+        assertEquals(SqlEngine.SYNTHETIC, SqlEngine.byName("synthetic"));
     }
 
     @Test
@@ -0,0 +1,77 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.clients;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.fail;
+
+public class WatermarkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Object roundTrip(Object value) {
+        File stateFile = new File(this.folder.getRoot(), "state.json");
+        new Watermark("c", value).save(stateFile);
+        Watermark loaded = Watermark.load(stateFile);
+        assertEquals("c", loaded.getColumn());
+        return loaded.getValue();
+    }
+
+    @Test
+    public void testTypesRoundTrip() {
+        assertEquals(42L, roundTrip(42));
+        assertEquals(new BigDecimal("12.3400"), roundTrip(new BigDecimal("12.3400")));
+        Timestamp timestamp = Timestamp.valueOf("2024-02-29 23:59:59.123456789");
+        assertEquals(timestamp, roundTrip(timestamp));
+        assertEquals(java.sql.Date.valueOf("2024-02-29"), roundTrip(java.sql.Date.valueOf("2024-02-29")));
+        assertEquals("k-0042", roundTrip("k-0042"));
+    }
+
+    @Test
+    public void testMissingStateFile() {
+        assertNull(Watermark.load(new File(this.folder.getRoot(), "none.json")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedType() {
+        new Watermark("c", new Object()).save(new File(this.folder.getRoot(), "state.json"));
+    }
+
+    @Test
+    public void testSupportedTypesAreChecked() {
+        Watermark.checkSupported(42);
+        Watermark.checkSupported(Timestamp.valueOf("2024-02-29 23:59:59"));
+        for (Object value : new Object[]{LocalDateTime.of(2024, 2, 29, 23, 59), 1.5d, UUID.randomUUID()}) {
+            try {
+                Watermark.checkSupported(value);
+                fail("Expected " + value.getClass().getName() + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.jfr;
+
+import com.simondata.pouroversql.SQLExtractor;
+import com.simondata.pouroversql.clients.QueryParams;
+import com.simondata.pouroversql.clients.SQLParams;
+import com.simondata.pouroversql.clients.SqlEngine;
+import com.simondata.pouroversql.metrics.QueryMetrics;
+import com.simondata.pouroversql.synthetic.SyntheticDataSource;
+import com.simondata.pouroversql.writers.FileOutputFormat;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertNull;
+import static junit.framework.TestCase.assertTrue;
+
+public class JfrEventsTest {
+
+    private static final String PREFIX = "com.simondata.pouroversql.";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private void extract(int rows) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(SyntheticDataSource.ROWS, String.valueOf(rows));
+        SQLExtractor extractor = new SQLExtractor(
+                SqlEngine.SYNTHETIC, new SQLParams(null, null, null, null, "NARROW_INTS", properties));
+        extractor.queryToFile("SELECT * FROM t", folder.newFile(), FileOutputFormat.CSV,
+                new QueryParams(100, null, null));
+    }
+
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(PREFIX + name))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testEventsAreRecorded() throws Exception {
+        Assume.assumeTrue(JfrEvents.isAvailable());
+        File dump = folder.newFile("pourover.jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : new String[]{"Query", "ConnectionAcquisition", "FetchBatch", "WriterFlush"}) {
+                recording.enable(PREFIX + name).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            extract(1000);
+            recording.stop();
+            recording.dump(dump.toPath());
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump.toPath());
+
+        List<RecordedEvent> queries = events(events, "Query");
+        assertEquals(1, queries.size());
+        assertEquals(QueryMetrics.hashSql("SELECT * FROM t"), queries.get(0).getString("sqlHash"));
+        assertEquals(1000, queries.get(0).getLong("rows"));
+        assertFalse(queries.get(0).getBoolean("failed"));
+
+        assertEquals(1, events(events, "ConnectionAcquisition").size());
+
+        // Ten batches of the fetch size, then the round trip that finds the end.
+        List<RecordedEvent> batches = events(events, "FetchBatch");
+        assertEquals(11, batches.size());
+        assertEquals(100, batches.get(0).getInt("rows"));
+        assertEquals(1000, batches.stream().mapToInt(batch -> batch.getInt("rows")).sum());
+
+        List<RecordedEvent> flushes = events(events, "WriterFlush");
+        assertFalse(flushes.isEmpty());
+        assertTrue(flushes.stream().allMatch(flush -> flush.getLong("bytes") > 0));
+    }
+
+    @Test
+    public void testNothingIsRecordedWhenDisabled() {
+        assertNull(JfrEvents.beginQuery("SELECT 1"));
+        assertNull(JfrEvents.beginConnectionAcquisition());
+        assertNull(JfrEvents.fetchBatches());
+    }
+}
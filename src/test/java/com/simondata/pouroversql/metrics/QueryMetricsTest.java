@@ -0,0 +1,137 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.metrics;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.simondata.pouroversql.SQLExtractor;
+import com.simondata.pouroversql.clients.QueryParams;
+import com.simondata.pouroversql.clients.SQLParams;
+import com.simondata.pouroversql.clients.SqlEngine;
+import com.simondata.pouroversql.synthetic.SyntheticDataSource;
+import com.simondata.pouroversql.writers.FileOutputFormat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+public class QueryMetricsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<QueryMetrics> completed = new ArrayList<>();
+
+    private SQLExtractor extractor(QueryMetricsRegistry registry) {
+        Properties properties = new Properties();
+        properties.setProperty(SyntheticDataSource.ROWS, "1000");
+        properties.setProperty(SyntheticDataSource.BATCH_LATENCY_MS, "5");
+        SQLExtractor extractor = new SQLExtractor(
+                SqlEngine.SYNTHETIC, new SQLParams(null, null, null, null, "NARROW_INTS", properties));
+        extractor.setMetricsRegistry(registry);
+        return extractor;
+    }
+
+    private QueryMetrics extract(boolean pipelined, MetricsSummary summary) throws Exception {
+        QueryMetricsRegistry registry = new QueryMetricsRegistry();
+        registry.addListener(this.completed::add);
+        if (summary != null) {
+            registry.addListener(summary);
+        }
+        QueryParams queryParams = new QueryParams(100, null, null);
+        queryParams.setPipelined(pipelined);
+        File file = folder.newFile();
+        extractor(registry).queryToFile("SELECT * FROM t", file, FileOutputFormat.CSV, queryParams);
+        assertEquals(1, this.completed.size());
+        QueryMetrics metrics = this.completed.remove(0);
+        assertEquals(1000, metrics.getRows());
+        assertEquals(file.length(), metrics.getBytesWritten());
+        assertFalse(metrics.isFailed());
+        return metrics;
+    }
+
+    @Test
+    public void testPhasesAndFetchRoundTrips() throws Exception {
+        QueryMetrics metrics = extract(false, null);
+        assertEquals(QueryMetrics.hashSql("SELECT * FROM t"), metrics.getSqlHash());
+        // Ten fetches of 5ms: the first before the first row, the other nine among the later rows.
+        assertTrue(metrics.getPhaseNanos(QueryPhase.FIRST_ROW) >= TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(metrics.getPhaseNanos(QueryPhase.FETCH) >= TimeUnit.MILLISECONDS.toNanos(45));
+        assertTrue(metrics.getPhaseNanos(QueryPhase.ENCODE) > 0);
+        assertTrue(metrics.getPhaseNanos(QueryPhase.WRITE) > 0);
+        assertTrue(metrics.getPhaseNanos(QueryPhase.CLOSE) > 0);
+        assertTrue(metrics.getDriverWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(metrics.getElapsedNanos() >= metrics.getDriverWaitNanos());
+        FetchHistogram waits = metrics.getFetchWaits();
+        assertEquals(1000, waits.getCount());
+        long[] counts = waits.getCounts();
+        // Buckets above a millisecond hold the round trips.
+        assertTrue(counts[4] + counts[5] + counts[6] + counts[7] + counts[8] >= 9);
+    }
+
+    @Test
+    public void testPipelinedQueriesTimeEncoders() throws Exception {
+        QueryMetrics metrics = extract(true, null);
+        assertTrue(metrics.getPhaseNanos(QueryPhase.ENCODE) > 0);
+        assertTrue(metrics.getPhaseNanos(QueryPhase.WRITE) > 0);
+        assertTrue(metrics.getPhaseNanos(QueryPhase.FETCH) >= TimeUnit.MILLISECONDS.toNanos(45));
+    }
+
+    @Test
+    public void testSummaryFormats() throws Exception {
+        MetricsSummary summary = new MetricsSummary();
+        extract(false, null);
+        extract(false, summary);
+        extract(true, summary);
+        assertEquals(2, summary.getQueries());
+        assertEquals(2000, summary.getRows());
+
+        JsonObject json = new JsonParser().parse(summary.toJson()).getAsJsonObject();
+        assertEquals(2000, json.get("rows").getAsLong());
+        assertTrue(json.get("rowsPerSecond").getAsDouble() > 0);
+        assertTrue(json.getAsJsonObject("phaseSeconds").get("fetch").getAsDouble() >= 0.09);
+        assertTrue(json.getAsJsonObject("phaseSeconds").has("write"));
+        assertEquals(2000, json.getAsJsonObject("fetchWaits").get("count").getAsLong());
+        assertTrue(json.getAsJsonObject("fetchWaits").getAsJsonObject("buckets").has("0.000001"));
+
+        File file = new File(folder.getRoot(), "pourover.prom");
+        summary.writePrometheus(file);
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertTrue(lines.contains("# TYPE pourover_fetch_wait_seconds histogram"));
+        assertTrue(lines.contains("pourover_rows_total 2000"));
+        assertTrue(lines.contains("pourover_fetch_wait_seconds_bucket{le=\"+Inf\"} 2000"));
+        assertTrue(lines.contains("pourover_fetch_wait_seconds_count 2000"));
+        assertTrue(lines.stream().anyMatch(l -> l.startsWith("pourover_phase_seconds_total{phase=\"first_row\"} ")));
+    }
+
+    @Test
+    public void testDisabledRegistryRecordsNothing() {
+        QueryMetricsRegistry registry = new QueryMetricsRegistry();
+        assertFalse(registry.isEnabled());
+        assertEquals(null, registry.start("SELECT 1"));
+        registry.complete(null);
+    }
+}
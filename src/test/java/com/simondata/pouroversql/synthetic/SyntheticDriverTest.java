@@ -0,0 +1,220 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.synthetic;
+
+import com.simondata.pouroversql.SQLExtractor;
+import com.simondata.pouroversql.clients.QueryParams;
+import com.simondata.pouroversql.clients.SQLParams;
+import com.simondata.pouroversql.clients.SplitParams;
+import com.simondata.pouroversql.clients.SqlEngine;
+import com.simondata.pouroversql.writers.FileOutputFormat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+public class SyntheticDriverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<List<Object>> readAll(String url, int fetchSize, int[] fetches) throws SQLException {
+        List<List<Object>> rows = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(url);
+             PreparedStatement statement = connection.prepareStatement("SELECT * FROM anything")) {
+            statement.setFetchSize(fetchSize);
+            try (ResultSet rs = statement.executeQuery()) {
+                int columns = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    List<Object> row = new ArrayList<>();
+                    for (int i = 1; i <= columns; i++) {
+                        row.add(rs.getObject(i));
+                    }
+                    rows.add(row);
+                }
+                fetches[0] = ((GeneratedResultSet) rs).getFetchCount();
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    public void testRowsAreDeterministicAndFetchedInBatches() throws Exception {
+        Class.forName(SyntheticDriver.class.getName());
+        String url = SyntheticDriver.URL_PREFIX + "DECIMALS_TIMESTAMPS?rows=2500&seed=7";
+        int[] fetches = new int[1];
+        List<List<Object>> small = readAll(url, 100, fetches);
+        assertEquals(25, fetches[0]);
+        List<List<Object>> large = readAll(url, 1000, fetches);
+        assertEquals(3, fetches[0]);
+        assertEquals(2500, small.size());
+        assertEquals(small, large);
+        assertEquals(7, small.get(0).size());
+        assertEquals(2499L, small.get(2499).get(0));
+        int[] otherFetches = new int[1];
+        List<List<Object>> otherSeed = readAll(SyntheticDriver.URL_PREFIX + "DECIMALS_TIMESTAMPS?rows=2500&seed=8",
+                1000, otherFetches);
+        assertTrue(!small.get(0).equals(otherSeed.get(0)));
+    }
+
+    @Test
+    public void testFetchesWaitOutLatencyAndBandwidth() throws Exception {
+        SyntheticDataSource dataSource = new SyntheticDataSource();
+        dataSource.setRowCount(50);
+        dataSource.setBatchLatencyMillis(20);
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            statement.setFetchSize(10);
+            statement.setMaxRows(40);
+            int count = 0;
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    count++;
+                }
+            }
+            assertEquals(40, count);
+        }
+        assertTrue(System.nanoTime() - start >= 80_000_000L);
+
+        dataSource.setBatchLatencyMillis(0);
+        // NARROW_INTS rows are 20 bytes, so 50 of them take 100ms at 10KB/s.
+        dataSource.setBytesPerSecond(10_000);
+        start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1");
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                rs.getLong(1);
+            }
+        }
+        assertTrue(System.nanoTime() - start >= 100_000_000L);
+    }
+
+    @Test
+    public void testQueryAsListThroughEngine() {
+        Properties properties = new Properties();
+        properties.setProperty(SyntheticDataSource.ROWS, "3");
+        SQLParams params = new SQLParams(null, null, null, null, "narrow_ints", properties);
+        SQLExtractor extractor = new SQLExtractor(SqlEngine.SYNTHETIC, params);
+        List<Map<String, Object>> rows = extractor.queryAsList("SELECT * FROM t");
+        assertEquals(3, rows.size());
+        assertEquals(2L, rows.get(2).get("id"));
+        assertEquals(4, rows.get(0).size());
+    }
+
+    private List<Long> extractIds(boolean useQuantiles) throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(SyntheticDataSource.ROWS, "10007");
+        properties.setProperty(SyntheticDataSource.SEED, useQuantiles ? "1" : "2");
+        SQLParams params = new SQLParams(null, null, null, null, "NARROW_INTS", properties);
+        SQLExtractor extractor = new SQLExtractor(SqlEngine.SYNTHETIC, params);
+        SplitParams splitParams = new SplitParams("id", 4);
+        splitParams.setUseQuantiles(useQuantiles);
+        splitParams.setFilePerSplit(true);
+        File file = folder.newFile();
+        List<Long> ids = new ArrayList<>();
+        for (File split : extractor.queryToFile(
+                "SELECT * FROM t", file, FileOutputFormat.CSV, new QueryParams(1000, null, null), splitParams)) {
+            List<String> lines = Files.readAllLines(split.toPath(), StandardCharsets.UTF_8);
+            for (String line : lines.subList(1, lines.size())) {
+                ids.add(Long.parseLong(line.substring(0, line.indexOf(','))));
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    public void testParallelExtractionCoversEveryRowOnce() throws Exception {
+        for (boolean useQuantiles : new boolean[]{false, true}) {
+            List<Long> ids = extractIds(useQuantiles);
+            assertEquals(10007, ids.size());
+            TreeSet<Long> distinct = new TreeSet<>(ids);
+            assertEquals(10007, distinct.size());
+            assertEquals(Long.valueOf(0), distinct.first());
+            assertEquals(Long.valueOf(10006), distinct.last());
+        }
+    }
+
+    @Test
+    public void testMergedParallelExtractionWritesOneHeader() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(SyntheticDataSource.ROWS, "10007");
+        SQLParams params = new SQLParams(null, null, null, null, "NARROW_INTS", properties);
+        SQLExtractor extractor = new SQLExtractor(SqlEngine.SYNTHETIC, params);
+        File file = folder.newFile();
+        extractor.queryToFile("SELECT * FROM t", file, FileOutputFormat.CSV,
+                new QueryParams(1000, null, null), new SplitParams("id", 4));
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertTrue(lines.get(0).startsWith("id,"));
+        TreeSet<Long> distinct = new TreeSet<>();
+        for (String line : lines.subList(1, lines.size())) {
+            distinct.add(Long.parseLong(line.substring(0, line.indexOf(','))));
+        }
+        assertEquals(10007, lines.size() - 1);
+        assertEquals(10007, distinct.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParallelismBeyondPoolSizeIsRejected() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(SyntheticDataSource.ROWS, "100");
+        properties.setProperty("poolMaxSize", "2");
+        SQLParams params = new SQLParams(null, null, null, null, "NARROW_INTS", properties);
+        new SQLExtractor(SqlEngine.SYNTHETIC, params).queryToFile("SELECT * FROM t", folder.newFile(),
+                FileOutputFormat.CSV, new QueryParams(), new SplitParams("id", 4));
+    }
+
+    @Test
+    public void testFailedRangeCancelsTheRunningOnes() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty(SyntheticDataSource.ROWS, "16000");
+        properties.setProperty(SyntheticDataSource.BATCH_LATENCY_MS, "250");
+        SQLParams params = new SQLParams(null, null, null, null, "NARROW_INTS", properties);
+        SQLExtractor extractor = new SQLExtractor(SqlEngine.SYNTHETIC, params);
+        SplitParams splitParams = new SplitParams("id", 4);
+        splitParams.setFilePerSplit(true);
+        File file = new File(folder.getRoot(), "out.csv");
+        // A directory where one range's file goes fails that range as it opens its output.
+        assertTrue(new File(folder.getRoot(), "out-split-00001.csv").mkdir());
+        long start = System.nanoTime();
+        try {
+            extractor.queryToFile("SELECT * FROM t", file, FileOutputFormat.CSV,
+                    new QueryParams(100, null, null), splitParams);
+            fail("Expected the failed range to fail the extract");
+        } catch (RuntimeException e) {
+            // Left running, the other ranges would take about 5s to fetch their rows.
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue("Took " + elapsedMillis + "ms", elapsedMillis < 3000);
+        }
+    }
+}
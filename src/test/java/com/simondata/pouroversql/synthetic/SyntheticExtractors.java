@@ -0,0 +1,71 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.synthetic;
+
+import com.simondata.pouroversql.SQLExtractor;
+import com.simondata.pouroversql.clients.SQLParams;
+import com.simondata.pouroversql.clients.SqlEngine;
+import com.simondata.pouroversql.metrics.QueryMetricsRegistry;
+
+import java.util.Properties;
+
+/**
+ * SyntheticExtractors
+ * Extractors over the NARROW_INTS synthetic table, whose ids run from 0 to rows - 1,
+ * each with a registry of its own so tests don't record to the default one.
+ */
+public final class SyntheticExtractors {
+
+    private SyntheticExtractors() {
+    }
+
+    /**
+     * Data source settings to lay over the row count, such as latencies or failures.
+     * @param keysAndValues SyntheticDataSource property names each followed by its value.
+     * @return the properties.
+     */
+    public static Properties overlay(Object... keysAndValues) {
+        Properties properties = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            properties.setProperty(keysAndValues[i].toString(), String.valueOf(keysAndValues[i + 1]));
+        }
+        return properties;
+    }
+
+    public static SQLParams sqlParams(long rows) {
+        return sqlParams(rows, new Properties());
+    }
+
+    public static SQLParams sqlParams(long rows, Properties overlay) {
+        Properties properties = new Properties();
+        properties.setProperty(SyntheticDataSource.ROWS, String.valueOf(rows));
+        properties.putAll(overlay);
+        return new SQLParams(null, null, null, null, ResultShape.NARROW_INTS.name(), properties);
+    }
+
+    public static SQLExtractor extractor(long rows) {
+        return extractor(rows, new Properties());
+    }
+
+    public static SQLExtractor extractor(long rows, Properties overlay) {
+        return extractor(sqlParams(rows, overlay), new QueryMetricsRegistry());
+    }
+
+    public static SQLExtractor extractor(SQLParams sqlParams, QueryMetricsRegistry metricsRegistry) {
+        SQLExtractor extractor = new SQLExtractor(SqlEngine.SYNTHETIC, sqlParams);
+        extractor.setMetricsRegistry(metricsRegistry);
+        return extractor;
+    }
+}
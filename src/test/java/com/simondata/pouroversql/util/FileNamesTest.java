@@ -0,0 +1,50 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+package com.simondata.pouroversql.util;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static com.simondata.pouroversql.util.FileNames.withSuffix;
+import static org.junit.Assert.assertEquals;
+
+public class FileNamesTest {
+
+    private static String suffixed(String name) {
+        return withSuffix(new File("out", name), "-part-00001").getName();
+    }
+
+    @Test
+    public void testSuffixBeforeFormatExtension() throws Exception {
+        assertEquals("export_2024.10.18-part-00001.csv", suffixed("export_2024.10.18.csv"));
+        assertEquals("export_2024.10.18-part-00001.json.gz", suffixed("export_2024.10.18.json.gz"));
+        assertEquals("out-part-00001.parquet", suffixed("out.parquet"));
+        assertEquals("OUT-part-00001.CSV", suffixed("OUT.CSV"));
+    }
+
+    @Test
+    public void testSuffixBeforeOtherExtensions() throws Exception {
+        assertEquals("out.v2-part-00001.jsonl", suffixed("out.v2.jsonl"));
+        assertEquals("out.v2-part-00001.jsonl.gz", suffixed("out.v2.jsonl.gz"));
+        assertEquals("out-part-00001", suffixed("out"));
+        assertEquals(".hidden-part-00001", suffixed(".hidden"));
+    }
+
+    @Test
+    public void testSuffixKeepsDirectory() throws Exception {
+        assertEquals(new File("out", "a-part-00001.csv"), withSuffix(new File("out", "a.csv"), "-part-00001"));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.writers;
+
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ArrowRowWriterTest {
+
+    private static FakeResultSet people(int rows) {
+        FakeResultSet rs = new FakeResultSet(
+                new String[]{"id", "name", "price", "day"},
+                new int[]{Types.BIGINT, Types.VARCHAR, Types.DECIMAL, Types.DATE});
+        rs.setPrecision(3, 10, 2);
+        for (long i = 0; i < rows; i++) {
+            rs.addRow(i, i % 3 == 0 ? null : "name " + i, new BigDecimal(i + ".5"), Date.valueOf("2019-03-04"));
+        }
+        return rs;
+    }
+
+    @Test
+    public void streamHasBatchPerBatchSize() throws Exception {
+        ArrowRowWriter writer = new ArrowRowWriter();
+        writer.setBatchSize(3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.open(out);
+        new RowHandler(writer).handle(people(7).build());
+        writer.close();
+
+        List<Integer> batchSizes = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        try (RootAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(out.toByteArray()), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertEquals(new ArrowType.Int(64, true), root.getSchema().findField("id").getType());
+            assertEquals(new ArrowType.Decimal(10, 2, 128), root.getSchema().findField("price").getType());
+            while (reader.loadNextBatch()) {
+                batchSizes.add(root.getRowCount());
+                BigIntVector ids = (BigIntVector) root.getVector("id");
+                VarCharVector nameVector = (VarCharVector) root.getVector("name");
+                DecimalVector prices = (DecimalVector) root.getVector("price");
+                DateDayVector days = (DateDayVector) root.getVector("day");
+                for (int i = 0; i < root.getRowCount(); i++) {
+                    long id = ids.get(i);
+                    names.add(nameVector.isNull(i) ? null : new String(nameVector.get(i), "UTF-8"));
+                    assertEquals(new BigDecimal(id + ".50"), prices.getObject(i));
+                    assertEquals(LocalDate.of(2019, 3, 4).toEpochDay(), days.get(i));
+                }
+            }
+        }
+        assertEquals(3, batchSizes.size());
+        assertEquals(Integer.valueOf(1), batchSizes.get(2));
+        assertEquals(7, names.size());
+        assertNull(names.get(0));
+        assertEquals("name 5", names.get(5));
+    }
+
+    @Test
+    public void fieldsReportedNotNullableAreNullable() throws Exception {
+        // An outer join can null a column the driver reports as NOT NULL.
+        FakeResultSet rs = new FakeResultSet(new String[]{"id", "name"}, new int[]{Types.BIGINT, Types.VARCHAR});
+        rs.setNotNullable(1).setNotNullable(2);
+        rs.addRow(1L, "one");
+        rs.addRow(2L, null);
+        ArrowRowWriter writer = new ArrowRowWriter();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.open(out);
+        new RowHandler(writer).handle(rs.build());
+        writer.close();
+
+        try (RootAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(new ByteArrayInputStream(out.toByteArray()), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertTrue(root.getSchema().findField("id").isNullable());
+            assertTrue(root.getSchema().findField("name").isNullable());
+            assertTrue(reader.loadNextBatch());
+            assertTrue(root.getVector("name").isNull(1));
+        }
+    }
+
+    @Test
+    public void callbackReceivesBatches() throws Exception {
+        List<Integer> batchSizes = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        ArrowCallbackRowWriter writer = new ArrowCallbackRowWriter(batch -> {
+            batchSizes.add(batch.getRowCount());
+            BigIntVector vector = (BigIntVector) batch.getVector("id");
+            for (int i = 0; i < batch.getRowCount(); i++) {
+                ids.add(vector.get(i));
+            }
+        }, 4);
+        int rows = new RowHandler(writer).handle(people(10).build());
+        writer.close();
+
+        assertEquals(10, rows);
+        assertEquals(3, batchSizes.size());
+        assertEquals(Integer.valueOf(2), batchSizes.get(2));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Long.valueOf(i), ids.get(i));
+        }
+    }
+}
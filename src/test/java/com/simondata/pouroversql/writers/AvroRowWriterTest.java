@@ -0,0 +1,145 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.writers;
+
+import com.simondata.pouroversql.clients.OutputParams;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AvroRowWriterTest {
+
+    private static List<GenericRecord> read(byte[] bytes, List<Schema> schema) throws Exception {
+        List<GenericRecord> records = new ArrayList<>();
+        try (DataFileStream<GenericRecord> stream = new DataFileStream<>(
+                new ByteArrayInputStream(bytes), new GenericDatumReader<>())) {
+            schema.add(stream.getSchema());
+            for (GenericRecord record : stream) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    @Test
+    public void schemaAndValuesRoundTrip() throws Exception {
+        FakeResultSet rs = new FakeResultSet(
+                new String[]{"id", "first name", "price", "at", "id"},
+                new int[]{Types.BIGINT, Types.VARCHAR, Types.DECIMAL, Types.TIMESTAMP, Types.INTEGER});
+        rs.setPrecision(3, 10, 2);
+        Timestamp at = Timestamp.valueOf("2019-03-04 05:06:07.123456");
+        rs.addRow(1L, "one", new BigDecimal("12.34"), at, 7);
+        rs.addRow(2L, null, null, null, null);
+
+        AvroRowWriter writer = new AvroRowWriter();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.open(out);
+        new RowHandler(writer).handle(rs.build());
+        writer.close();
+
+        List<Schema> schemas = new ArrayList<>();
+        List<GenericRecord> records = read(out.toByteArray(), schemas);
+        Schema schema = schemas.get(0);
+        Schema price = schema.getField("price").schema().getTypes().get(1);
+        assertEquals(Schema.Type.NULL, schema.getField("price").schema().getTypes().get(0).getType());
+        assertEquals(LogicalTypes.decimal(10, 2), price.getLogicalType());
+        assertEquals(LogicalTypes.localTimestampMicros(),
+                schema.getField("at").schema().getTypes().get(1).getLogicalType());
+        assertEquals("first name", schema.getField("first_name").getProp("sqlKey"));
+        assertEquals(Schema.Type.INT, schema.getField("id_2").schema().getTypes().get(1).getType());
+
+        assertEquals(2, records.size());
+        GenericRecord first = records.get(0);
+        assertEquals(1L, first.get("id"));
+        assertEquals("one", first.get("first_name").toString());
+        assertEquals(BigInteger.valueOf(1234), new BigInteger(((ByteBuffer) first.get("price")).array()));
+        LocalDateTime local = at.toLocalDateTime();
+        assertEquals(local.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + local.getNano() / 1000, first.get("at"));
+        assertEquals(7, first.get("id_2"));
+
+        GenericRecord second = records.get(1);
+        assertEquals(2L, second.get("id"));
+        assertNull(second.get("first_name"));
+        assertNull(second.get("price"));
+        assertNull(second.get("at"));
+    }
+
+    @Test
+    public void smallBlocksWithDeflateKeepEveryRow() throws Exception {
+        FakeResultSet rs = new FakeResultSet(new String[]{"id", "value"}, new int[]{Types.BIGINT, Types.DOUBLE});
+        for (long i = 0; i < 10_000; i++) {
+            rs.addRow(i, i / 4.0);
+        }
+        OutputParams outputParams = new OutputParams();
+        outputParams.setAvroBlockSize(1024);
+        outputParams.setAvroCodec("deflate");
+        AvroRowWriter writer = new AvroRowWriter();
+        writer.setOutputParams(outputParams);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.open(out);
+        new RowHandler(writer).handle(rs.build());
+        writer.close();
+
+        List<GenericRecord> records = read(out.toByteArray(), new ArrayList<>());
+        assertEquals(10_000, records.size());
+        assertEquals(9_999L, records.get(9_999).get("id"));
+        assertEquals(9_999 / 4.0, (Double) records.get(9_999).get("value"), 0d);
+    }
+
+    @Test
+    public void nullsInColumnsReportedNotNullable() throws Exception {
+        // An outer join can null a column the driver reports as NOT NULL.
+        FakeResultSet rs = new FakeResultSet(new String[]{"id", "name"}, new int[]{Types.BIGINT, Types.VARCHAR});
+        rs.setNotNullable(1).setNotNullable(2);
+        rs.addRow(1L, "one");
+        rs.addRow(2L, null);
+        AvroRowWriter writer = new AvroRowWriter();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.open(out);
+        new RowHandler(writer).handle(rs.build());
+        writer.close();
+
+        List<Schema> schemas = new ArrayList<>();
+        List<GenericRecord> records = read(out.toByteArray(), schemas);
+        Schema name = schemas.get(0).getField("name").schema();
+        assertEquals(Schema.Type.NULL, name.getTypes().get(0).getType());
+        assertTrue(schemas.get(0).getField("name").hasDefaultValue());
+        assertEquals(2, records.size());
+        assertNull(records.get(1).get("name"));
+    }
+
+    @Test(expected = org.apache.avro.AvroRuntimeException.class)
+    public void unknownCodecIsRejected() {
+        new OutputParams().setAvroCodec("lzma-ish");
+    }
+}
@@ -18,8 +18,10 @@ package com.simondata.pouroversql.writers;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
+import java.sql.Types;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -89,4 +91,73 @@ public class CSVRowWriterTest {
         );
         assertEquals(4, lines);
     }
+
+    @Test
+    public void writeTypedRows() throws Exception {
+        FakeResultSet rs = new FakeResultSet(
+                new String[]{"id", "score", "name"},
+                new int[]{Types.BIGINT, Types.DOUBLE, Types.VARCHAR})
+                .addRow(1L, 0.5, "abc")
+                .addRow(null, 2.0, "a;b")
+                .addRow(3L, null, null);
+        CSVRowWriter subject = new CSVRowWriter(";", true);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        subject.open(baos);
+        int lines = new RowHandler(subject).handle(rs.build());
+        subject.close();
+        assertEquals(
+                "id;score;name\n1;0.5;abc\n;2.0;\"a;b\"\n3;;\n",
+                baos.toString()
+        );
+        assertEquals(3, lines);
+    }
+
+    @Test
+    public void writeQueryWithoutHeaders() throws Exception {
+        Map<String, Object> test1 = new HashMap<>();
+        test1.put("a", "abc");
+        test1.put("b", 1);
+        FileRowWriter subject = new CSVRowWriter(",", false);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        subject.open(baos);
+        subject.writeRows(Arrays.asList(test1, test1));
+        subject.close();
+        assertEquals("abc,1\nabc,1\n", baos.toString());
+    }
+
+    @Test
+    public void writeQuotesBareLineBreaks() throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("cr", "a\rb");
+        row.put("lf", "a\nb");
+        row.put("crlf", "a\r\nb");
+        row.put("plain", "caf\u00e9");
+        FileRowWriter subject = new CSVRowWriter(",", false);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        subject.open(baos);
+        subject.writeRow(row);
+        subject.close();
+        assertEquals("\"a\rb\",\"a\nb\",\"a\r\nb\",caf\u00e9\n", baos.toString("UTF-8"));
+    }
+
+    @Test
+    public void writeWithMultiCharacterDelimiter() throws Exception {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("a|b", "x|y");
+        row.put("c", "x||y");
+        row.put("d", "\u00a7\u00a7");
+        FileRowWriter subject = new CSVRowWriter("||", true);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        subject.open(baos);
+        subject.writeRow(row);
+        subject.close();
+        assertEquals("a|b||c||d\nx|y||\"x||y\"||\u00a7\u00a7\n", baos.toString("UTF-8"));
+
+        subject = new CSVRowWriter("\u00a7", true);
+        baos = new ByteArrayOutputStream();
+        subject.open(baos);
+        subject.writeRow(row);
+        subject.close();
+        assertEquals("a|b\u00a7c\u00a7d\nx|y\u00a7x||y\u00a7\"\u00a7\u00a7\"\n", baos.toString("UTF-8"));
+    }
 }
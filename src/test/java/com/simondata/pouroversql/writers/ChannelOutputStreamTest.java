@@ -0,0 +1,109 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.writers;
+
+import com.simondata.pouroversql.clients.OutputParams;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ChannelOutputStreamTest {
+
+    @Test
+    public void writesEverythingInOrder() throws Exception {
+        byte[] data = new byte[100_000];
+        new Random(42).nextBytes(data);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ChannelOutputStream out = new ChannelOutputStream(Channels.newChannel(baos), 1000);
+        Random sizes = new Random(7);
+        int offset = 0;
+        while (offset < data.length) {
+            if (sizes.nextInt(10) == 0) {
+                out.write(data[offset++]);
+            } else {
+                int length = Math.min(data.length - offset, sizes.nextInt(3000));
+                out.write(data, offset, length);
+                offset += length;
+            }
+        }
+        out.close();
+        assertArrayEquals(data, baos.toByteArray());
+    }
+
+    @Test
+    public void writeFailureIsRethrown() throws Exception {
+        WritableByteChannel failing = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ChannelOutputStream out = new ChannelOutputStream(failing, 16);
+        out.write(new byte[10]);
+        try {
+            out.close();
+            fail("Expected the write failure to be rethrown");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+    }
+
+    @Test
+    public void csvThroughChannelMatchesStream() throws Exception {
+        FakeResultSet rs = new FakeResultSet(
+                new String[]{"id", "name"},
+                new int[]{java.sql.Types.BIGINT, java.sql.Types.VARCHAR});
+        for (long i = 0; i < 1000; i++) {
+            rs.addRow(i, "caf\u00e9 " + i);
+        }
+        CSVRowWriter streamWriter = new CSVRowWriter();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        streamWriter.open(baos);
+        new RowHandler(streamWriter).handle(rs.build());
+        streamWriter.close();
+
+        OutputParams outputParams = new OutputParams();
+        outputParams.setUseChannel(true);
+        outputParams.setBufferSize(512);
+        File file = File.createTempFile("channel", ".csv");
+        file.deleteOnExit();
+        CSVRowWriter channelWriter = new CSVRowWriter();
+        channelWriter.setOutputParams(outputParams);
+        channelWriter.open(file);
+        new RowHandler(channelWriter).handle(rs.build());
+        channelWriter.close();
+
+        assertArrayEquals(baos.toByteArray(), Files.readAllBytes(file.toPath()));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.writers;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory ResultSet for tests, backed by a list of rows.
+ */
+class FakeResultSet {
+
+    private final String[] labels;
+    private final int[] types;
+    private final int[] precisions;
+    private final int[] scales;
+    private final boolean[] notNullable;
+    private final List<Object[]> rows = new ArrayList<>();
+    private int metaDataCalls;
+
+    FakeResultSet(String[] labels, int[] types) {
+        this.labels = labels;
+        this.types = types;
+        this.precisions = new int[types.length];
+        this.scales = new int[types.length];
+        this.notNullable = new boolean[types.length];
+    }
+
+    /**
+     * Report a column as NOT NULL, as drivers do for outer joined columns of NOT NULL table columns.
+     */
+    FakeResultSet setNotNullable(int column) {
+        this.notNullable[column - 1] = true;
+        return this;
+    }
+
+    FakeResultSet setPrecision(int column, int precision, int scale) {
+        this.precisions[column - 1] = precision;
+        this.scales[column - 1] = scale;
+        return this;
+    }
+
+    FakeResultSet addRow(Object... values) {
+        this.rows.add(values);
+        return this;
+    }
+
+    int getMetaDataCalls() {
+        return this.metaDataCalls;
+    }
+
+    ResultSet build() {
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return this.labels.length;
+                        case "getColumnLabel":
+                        case "getColumnName":
+                            return this.labels[(int) args[0] - 1];
+                        case "getColumnType":
+                            return this.types[(int) args[0] - 1];
+                        case "isSigned":
+                            return true;
+                        case "isNullable":
+                            return this.notNullable[(int) args[0] - 1]
+                                    ? ResultSetMetaData.columnNoNulls : ResultSetMetaData.columnNullable;
+                        case "getPrecision":
+                            return this.precisions[(int) args[0] - 1];
+                        case "getScale":
+                            return this.scales[(int) args[0] - 1];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        int[] cursor = {-1};
+        Object[] last = {null};
+        return (ResultSet) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++cursor[0] < this.rows.size();
+                        case "getMetaData":
+                            this.metaDataCalls++;
+                            return metaData;
+                        case "wasNull":
+                            return last[0] == null;
+                        case "close":
+                            return null;
+                        default:
+                            break;
+                    }
+                    if (!method.getName().startsWith("get") || args == null || !(args[0] instanceof Integer)) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Object value = this.rows.get(cursor[0])[(int) args[0] - 1];
+                    last[0] = value;
+                    switch (method.getName()) {
+                        case "getObject":
+                            return value;
+                        case "getString":
+                            return value == null ? null : value.toString();
+                        case "getLong":
+                            return value == null ? 0L : ((Number) value).longValue();
+                        case "getInt":
+                            return value == null ? 0 : ((Number) value).intValue();
+                        case "getDouble":
+                            return value == null ? 0d : ((Number) value).doubleValue();
+                        default:
+                            throw new SQLException("Unsupported getter " + method.getName());
+                    }
+                });
+    }
+}
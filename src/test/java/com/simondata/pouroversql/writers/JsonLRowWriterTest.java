@@ -15,9 +15,15 @@ limitations under the License.
 
 package com.simondata.pouroversql.writers;
 
+import com.google.gson.GsonBuilder;
 import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.*;
 
 import static org.junit.Assert.*;
@@ -47,4 +53,77 @@ public class JsonLRowWriterTest {
         );
         assertEquals(2, lines);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void writeTypedRowsMatchesGson() throws Exception {
+        FakeResultSet rs = new FakeResultSet(
+                new String[]{"id", "score", "amount", "name", "flag"},
+                new int[]{Types.INTEGER, Types.DOUBLE, Types.DECIMAL, Types.VARCHAR, Types.BOOLEAN})
+                .addRow(1, 0.25, new BigDecimal("10.50"), "<b>\"quoted\"</b>", true)
+                .addRow(null, null, null, null, null);
+        List<Map<String, Object>> maps = new ArrayList<>();
+        new RowHandler(new CallbackRowWriter(maps::add)).handle(rs.build());
+
+        JsonLRowWriter subject = new JsonLRowWriter();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        subject.open(baos);
+        int lines = new RowHandler(subject).handle(rs.build());
+        subject.close();
+
+        GsonBuilder gsonBuilder = new GsonBuilder();
+        gsonBuilder.serializeNulls();
+        StringBuilder expected = new StringBuilder();
+        for (Map<String, Object> map : maps) {
+            expected.append(gsonBuilder.create().toJson(map)).append(System.lineSeparator());
+        }
+        assertEquals(expected.toString(), baos.toString(JsonLRowWriter.ENCODING));
+        assertEquals(2, lines);
+    }
+
+    @Test
+    public void encoderMatchesGsonForDriverTypes() throws Exception {
+        String[] keys = {"text", "ctrl", "uni", "big", "min", "dec", "flt", "dbl", "bool", "ts", "date", "time",
+                "ch", "bytes", "html<key>"};
+        List<Map<String, Object>> maps = new ArrayList<>();
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("text", "a \"quoted\" \\ path <b>&amp;='x'</b>");
+        values.put("ctrl", "tab\tnew\nret\rbell\u0007del\u007f");
+        values.put("uni", "caf\u00e9 \u4e2d\u6587 \ud83d\ude00 sep\u2028par\u2029 lone\ud800x");
+        values.put("big", new BigInteger("123456789012345678901234567890"));
+        values.put("min", Long.MIN_VALUE);
+        values.put("dec", new BigDecimal("1E+3"));
+        values.put("flt", 1.5f);
+        values.put("dbl", 0.1);
+        values.put("bool", false);
+        values.put("ts", new Timestamp(1546300800123L));
+        values.put("date", new java.sql.Date(1546300800000L));
+        values.put("time", new Time(45296000L));
+        values.put("ch", 'q');
+        values.put("bytes", new byte[]{1, 2, 3});
+        values.put("html<key>", (short) 7);
+        maps.add(values);
+        Map<String, Object> nulls = new LinkedHashMap<>();
+        for (String key : keys) {
+            nulls.put(key, null);
+        }
+        maps.add(nulls);
+
+        JsonLRowWriter subject = new JsonLRowWriter();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        subject.open(baos);
+        subject.writeRows(maps);
+        subject.close();
+
+        GsonBuilder gsonBuilder = new GsonBuilder();
+        gsonBuilder.serializeNulls();
+        StringBuilder expected = new StringBuilder();
+        for (Map<String, Object> map : maps) {
+            expected.append(gsonBuilder.create().toJson(map)).append(System.lineSeparator());
+        }
+        // Unpaired surrogates become '?' in UTF-8, as they did through the PrintWriter.
+        assertEquals(
+                new String(expected.toString().getBytes(JsonLRowWriter.ENCODING), JsonLRowWriter.ENCODING),
+                baos.toString(JsonLRowWriter.ENCODING)
+        );
+    }
+}
@@ -0,0 +1,97 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.writers;
+
+import com.simondata.pouroversql.clients.OutputParams;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Types;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class ParallelGzipOutputStreamTest {
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                out.write(buffer, 0, count);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void membersDecompressInOrder() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            text.append("row ").append(i).append(",value ").append(i * 31 % 977).append('\n');
+        }
+        byte[] data = text.toString().getBytes("UTF-8");
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        ParallelGzipOutputStream out = new ParallelGzipOutputStream(compressed, 1000, 3);
+        for (int offset = 0; offset < data.length; offset += 777) {
+            out.write(data, offset, Math.min(777, data.length - offset));
+        }
+        out.write('!');
+        out.close();
+
+        byte[] expected = (text.toString() + "!").getBytes("UTF-8");
+        assertArrayEquals(expected, gunzip(compressed.toByteArray()));
+        assertTrue(compressed.size() < expected.length);
+    }
+
+    @Test
+    public void emptyOutputIsValidGzip() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(compressed, 1000, 2).close();
+        assertTrue(compressed.size() > 0);
+        assertEquals(0, gunzip(compressed.toByteArray()).length);
+    }
+
+    @Test
+    public void gzippedCsvMatchesPlainCsv() throws Exception {
+        FakeResultSet rs = new FakeResultSet(new String[]{"id", "name"}, new int[]{Types.BIGINT, Types.VARCHAR});
+        for (long i = 0; i < 5000; i++) {
+            rs.addRow(i, "name " + i);
+        }
+        CSVRowWriter plainWriter = new CSVRowWriter();
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        plainWriter.open(plain);
+        new RowHandler(plainWriter).handle(rs.build());
+        plainWriter.close();
+
+        OutputParams outputParams = new OutputParams();
+        outputParams.setGzipBlockSize(4096);
+        outputParams.setGzipThreads(4);
+        CSVRowWriter gzipWriter = new CSVRowWriter();
+        gzipWriter.setOutputParams(outputParams);
+        gzipWriter.setGzipped(true);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        gzipWriter.open(compressed);
+        new RowHandler(gzipWriter).handle(rs.build());
+        gzipWriter.close();
+
+        assertArrayEquals(plain.toByteArray(), gunzip(compressed.toByteArray()));
+    }
+}
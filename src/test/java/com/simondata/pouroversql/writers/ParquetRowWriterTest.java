@@ -0,0 +1,177 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.writers;
+
+import com.simondata.pouroversql.clients.OutputParams;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ParquetRowWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<Group> read(File file) throws Exception {
+        List<Group> groups = new ArrayList<>();
+        try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), new Path(file.toURI()))
+                .withConf(new Configuration(false))
+                .build()) {
+            for (Group group = reader.read(); group != null; group = reader.read()) {
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+
+    private static ParquetMetadata footer(File file) throws Exception {
+        try (ParquetFileReader reader = ParquetFileReader.open(
+                HadoopInputFile.fromPath(new Path(file.toURI()), new Configuration(false)))) {
+            return reader.getFooter();
+        }
+    }
+
+    @Test
+    public void schemaAndValuesRoundTrip() throws Exception {
+        FakeResultSet rs = new FakeResultSet(
+                new String[]{"id", "name", "price", "score", "day", "at", "flag", "id"},
+                new int[]{Types.BIGINT, Types.VARCHAR, Types.DECIMAL, Types.DOUBLE,
+                        Types.DATE, Types.TIMESTAMP, Types.BOOLEAN, Types.INTEGER});
+        rs.setPrecision(3, 10, 2);
+        Timestamp at = Timestamp.valueOf("2019-03-04 05:06:07.123456");
+        rs.addRow(1L, "one", new BigDecimal("12.34"), 1.5d, Date.valueOf("2019-03-04"), at, true, 7);
+        rs.addRow(2L, null, null, null, null, null, null, null);
+
+        File file = folder.newFile("out.parquet");
+        ParquetRowWriter writer = new ParquetRowWriter();
+        writer.open(file);
+        new RowHandler(writer).handle(rs.build());
+        writer.close();
+
+        MessageType schema = footer(file).getFileMetaData().getSchema();
+        assertEquals(PrimitiveTypeName.INT64, schema.getType("id").asPrimitiveType().getPrimitiveTypeName());
+        assertEquals(LogicalTypeAnnotation.stringType(), schema.getType("name").getLogicalTypeAnnotation());
+        assertEquals(LogicalTypeAnnotation.decimalType(2, 10), schema.getType("price").getLogicalTypeAnnotation());
+        assertEquals(PrimitiveTypeName.INT64, schema.getType("price").asPrimitiveType().getPrimitiveTypeName());
+        assertEquals(LogicalTypeAnnotation.dateType(), schema.getType("day").getLogicalTypeAnnotation());
+        assertEquals(PrimitiveTypeName.INT32, schema.getType("id_2").asPrimitiveType().getPrimitiveTypeName());
+        assertEquals(Type.Repetition.OPTIONAL, schema.getType("name").getRepetition());
+
+        List<Group> groups = read(file);
+        assertEquals(2, groups.size());
+        Group first = groups.get(0);
+        assertEquals(1L, first.getLong("id", 0));
+        assertEquals("one", first.getString("name", 0));
+        assertEquals(1234L, first.getLong("price", 0));
+        assertEquals(1.5d, first.getDouble("score", 0), 0d);
+        assertEquals(LocalDate.of(2019, 3, 4).toEpochDay(), first.getInteger("day", 0));
+        LocalDateTime local = at.toLocalDateTime();
+        assertEquals(local.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + local.getNano() / 1000, first.getLong("at", 0));
+        assertTrue(first.getBoolean("flag", 0));
+        assertEquals(7, first.getInteger("id_2", 0));
+
+        Group second = groups.get(1);
+        assertEquals(2L, second.getLong("id", 0));
+        assertEquals(0, second.getFieldRepetitionCount("name"));
+        assertEquals(0, second.getFieldRepetitionCount("price"));
+        assertEquals(0, second.getFieldRepetitionCount("at"));
+    }
+
+    @Test
+    public void decimalWiderThanItsPrecisionIsNotTruncated() throws Exception {
+        FakeResultSet rs = new FakeResultSet(new String[]{"price"}, new int[]{Types.DECIMAL});
+        rs.setPrecision(1, 9, 2);
+        rs.addRow(new BigDecimal("123456789012.34"));
+        File file = folder.newFile("out.parquet");
+        ParquetRowWriter writer = new ParquetRowWriter();
+        writer.open(file);
+        try {
+            new RowHandler(writer).handle(rs.build());
+            fail("Expected an out of range decimal to fail the write");
+        } catch (ArithmeticException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void smallRowGroupsKeepEveryRow() throws Exception {
+        FakeResultSet rs = new FakeResultSet(new String[]{"id", "category"}, new int[]{Types.BIGINT, Types.VARCHAR});
+        for (long i = 0; i < 20_000; i++) {
+            rs.addRow(i, "category " + (i % 5));
+        }
+        OutputParams outputParams = new OutputParams();
+        outputParams.setParquetRowGroupSize(16 * 1024);
+        File file = folder.newFile("out.parquet");
+        ParquetRowWriter writer = new ParquetRowWriter();
+        writer.setOutputParams(outputParams);
+        writer.open(file);
+        new RowHandler(writer).handle(rs.build());
+        writer.close();
+
+        ParquetMetadata footer = footer(file);
+        assertTrue(footer.getBlocks().size() > 1);
+        List<Group> groups = read(file);
+        assertEquals(20_000, groups.size());
+        assertEquals(19_999L, groups.get(19_999).getLong("id", 0));
+        assertEquals("category 4", groups.get(19_999).getString("category", 0));
+        assertEquals(file.length(), writer.getFileBytes());
+    }
+
+    @Test
+    public void nullsInColumnsReportedNotNullable() throws Exception {
+        // An outer join can null a column the driver reports as NOT NULL.
+        FakeResultSet rs = new FakeResultSet(new String[]{"id", "name"}, new int[]{Types.BIGINT, Types.VARCHAR});
+        rs.setNotNullable(1).setNotNullable(2);
+        rs.addRow(1L, "one");
+        rs.addRow(2L, null);
+        File file = folder.newFile("out.parquet");
+        ParquetRowWriter writer = new ParquetRowWriter();
+        writer.open(file);
+        new RowHandler(writer).handle(rs.build());
+        writer.close();
+
+        MessageType schema = footer(file).getFileMetaData().getSchema();
+        assertEquals(Type.Repetition.OPTIONAL, schema.getType("name").getRepetition());
+        List<Group> groups = read(file);
+        assertEquals(2, groups.size());
+        assertEquals(0, groups.get(1).getFieldRepetitionCount("name"));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.writers;
+
+import com.simondata.pouroversql.clients.FormattingParams;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class PipelinedRowHandlerTest {
+
+    private static final int ROWS = 2500;
+
+    private static ResultSet resultSet() {
+        FakeResultSet rs = new FakeResultSet(
+                new String[]{"id", "score", "name"},
+                new int[]{Types.BIGINT, Types.DOUBLE, Types.VARCHAR});
+        for (int i = 0; i < ROWS; i++) {
+            rs.addRow(i % 10 == 0 ? null : (long) i, i / 4.0, i % 7 == 0 ? "a,\"b\" <" + i + ">" : "row " + i);
+        }
+        return rs.build();
+    }
+
+    private static byte[] write(EncodingRowWriter writer, RowHandler handler) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writer.open(baos);
+        assertEquals(ROWS, handler.handle(resultSet()));
+        writer.close();
+        return baos.toByteArray();
+    }
+
+    private static void assertSameAsSerial(Supplier<EncodingRowWriter> writers, int encoderThreads) throws Exception {
+        EncodingRowWriter serialWriter = writers.get();
+        byte[] serial = write(serialWriter, new RowHandler(serialWriter));
+
+        EncodingRowWriter pipelinedWriter = writers.get();
+        PipelinedRowHandler handler = new PipelinedRowHandler(
+                pipelinedWriter, -1, new FormattingParams(), 7, 1, encoderThreads);
+        byte[] pipelined = write(pipelinedWriter, handler);
+
+        assertArrayEquals(serial, pipelined);
+        PipelineStats stats = handler.getStats();
+        assertEquals(1, stats.getEncodeQueue().getCapacity());
+        assertTrue(stats.getEncodeQueue().getPeakOccupancy() <= 1);
+        assertEquals((ROWS + 6) / 7, stats.getFetch().getBatches());
+        assertEquals((ROWS + 6) / 7, stats.getEncode().getBatches());
+        assertEquals((ROWS + 6) / 7, stats.getWrite().getBatches());
+        assertEquals(encoderThreads, stats.getEncode().getThreads());
+    }
+
+    @Test
+    public void pipelinedCsvMatchesSerial() throws Exception {
+        assertSameAsSerial(CSVRowWriter::new, 1);
+    }
+
+    @Test
+    public void encoderPoolKeepsCsvOrder() throws Exception {
+        assertSameAsSerial(CSVRowWriter::new, 4);
+    }
+
+    @Test
+    public void pipelinedJsonMatchesSerial() throws Exception {
+        assertSameAsSerial(JsonLRowWriter::new, 1);
+    }
+
+    @Test
+    public void encoderPoolKeepsJsonOrder() throws Exception {
+        assertSameAsSerial(JsonLRowWriter::new, 4);
+    }
+
+    @Test
+    public void writeFailureIsRethrown() throws Exception {
+        EncodingRowWriter failing = new CSVRowWriter(",", false) {
+            private int writes;
+
+            @Override
+            public void writeEncoded(OutputBuffer encoded) {
+                // Let the header through so the failure happens inside the pipeline.
+                if (this.writes++ > 0) {
+                    throw new UncheckedIOException(new IOException("disk full"));
+                }
+                super.writeEncoded(encoded);
+            }
+        };
+        failing.open(new ByteArrayOutputStream());
+        PipelinedRowHandler handler = new PipelinedRowHandler(failing, -1, new FormattingParams(), 10, 1, 3);
+        try {
+            handler.handle(resultSet());
+            fail("Expected the write failure to be rethrown");
+        } catch (UncheckedIOException e) {
+            assertEquals("disk full", e.getCause().getMessage());
+        } finally {
+            failing.close();
+        }
+        // Every stage reports its time even when the pipeline aborts.
+        PipelineStats stats = handler.getStats();
+        assertTrue(stats.getFetch().getElapsedNanos() > 0);
+        assertTrue(stats.getEncode().getElapsedNanos() > 0);
+        assertTrue(stats.getWrite().getElapsedNanos() > 0);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.writers;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RollingFileWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static FakeResultSet people(int rows) {
+        FakeResultSet rs = new FakeResultSet(new String[]{"id", "name"}, new int[]{Types.BIGINT, Types.VARCHAR});
+        for (long i = 0; i < rows; i++) {
+            rs.addRow(i, "name " + i);
+        }
+        return rs;
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    @Test
+    public void rollByRowsWithHeadersPerPart() throws Exception {
+        File file = new File(folder.getRoot(), "out.csv");
+        RollingFileWriter writer = new RollingFileWriter(new CSVRowWriter(), file, 4L, null);
+        List<FilePart> closed = new ArrayList<>();
+        writer.setPartListener(closed::add);
+        new RowHandler(writer).handle(people(10).build());
+        writer.close();
+
+        assertEquals(3, closed.size());
+        assertEquals(new File(folder.getRoot(), "out-part-00001.csv"), closed.get(0).getFile());
+        assertEquals(new File(folder.getRoot(), "out-part-00003.csv"), closed.get(2).getFile());
+        String lineSeparator = System.lineSeparator();
+        String first = new String(Files.readAllBytes(closed.get(0).getFile().toPath()), StandardCharsets.UTF_8);
+        String last = new String(Files.readAllBytes(closed.get(2).getFile().toPath()), StandardCharsets.UTF_8);
+        assertTrue(first.startsWith("id,name" + lineSeparator + "0,name 0" + lineSeparator));
+        assertEquals("id,name" + lineSeparator + "8,name 8" + lineSeparator + "9,name 9" + lineSeparator, last);
+
+        JsonObject manifest = new JsonParser().parse(new String(
+                Files.readAllBytes(writer.getManifestFile().toPath()), StandardCharsets.UTF_8)).getAsJsonObject();
+        JsonArray parts = manifest.getAsJsonArray("parts");
+        assertEquals(3, parts.size());
+        assertEquals(10, manifest.get("totalRows").getAsLong());
+        long totalBytes = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            JsonObject part = parts.get(i).getAsJsonObject();
+            byte[] contents = Files.readAllBytes(new File(folder.getRoot(), part.get("file").getAsString()).toPath());
+            assertEquals(i < 2 ? 4 : 2, part.get("rows").getAsLong());
+            assertEquals(contents.length, part.get("bytes").getAsLong());
+            assertEquals(sha256(contents), part.get("sha256").getAsString());
+            totalBytes += contents.length;
+        }
+        assertEquals(totalBytes, manifest.get("totalBytes").getAsLong());
+    }
+
+    @Test
+    public void rollByBytesWithoutEmptyParts() throws Exception {
+        File file = new File(folder.getRoot(), "out.jsonl.gz");
+        JsonLRowWriter delegate = new JsonLRowWriter();
+        delegate.setGzipped(true);
+        RollingFileWriter writer = new RollingFileWriter(delegate, file, null, 1000L);
+        new RowHandler(writer).handle(people(100).build());
+        writer.close();
+
+        List<FilePart> parts = writer.getParts();
+        assertTrue(parts.size() > 1);
+        assertEquals(new File(folder.getRoot(), "out-part-00001.jsonl.gz"), parts.get(0).getFile());
+        long rows = 0;
+        for (FilePart part : parts) {
+            assertTrue(part.getRows() > 0);
+            byte[] contents = Files.readAllBytes(part.getFile().toPath());
+            assertEquals(contents.length, part.getBytes());
+            assertEquals(sha256(contents), part.getSha256());
+            rows += part.getRows();
+        }
+        assertEquals(100, rows);
+        assertTrue(writer.getManifestFile().exists());
+    }
+
+    @Test
+    public void emptyResultWritesOnePart() throws Exception {
+        File file = new File(folder.getRoot(), "out.csv");
+        RollingFileWriter writer = new RollingFileWriter(new CSVRowWriter(), file, 4L, null);
+        new RowHandler(writer).handle(people(0).build());
+        writer.close();
+
+        assertEquals(1, writer.getParts().size());
+        assertEquals(0, writer.getParts().get(0).getRows());
+        assertEquals("id,name" + System.lineSeparator(), new String(
+                Files.readAllBytes(writer.getParts().get(0).getFile().toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void abortedOutputGetsNoManifest() throws Exception {
+        File file = new File(folder.getRoot(), "out.csv");
+        RollingFileWriter writer = new RollingFileWriter(new CSVRowWriter(), file, 4L, null);
+        new RowHandler(writer).handle(people(6).build());
+        writer.close();
+        assertTrue(writer.getManifestFile().exists());
+
+        RollingFileWriter failed = new RollingFileWriter(new CSVRowWriter(), file, 4L, null);
+        new RowHandler(failed).handle(people(3).build());
+        failed.abort();
+
+        assertEquals(1, failed.getParts().size());
+        assertFalse(failed.getManifestFile().exists());
+    }
+}
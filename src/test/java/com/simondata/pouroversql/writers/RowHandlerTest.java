@@ -0,0 +1,78 @@
+/*
+Copyright 2019-present, Simon Data, Inc.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at:
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+ */
+
+package com.simondata.pouroversql.writers;
+
+import com.simondata.pouroversql.clients.FormattingParams;
+import org.junit.Test;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RowHandlerTest {
+
+    private static FakeResultSet makeResultSet() {
+        return new FakeResultSet(
+                new String[]{"zeta", "CustomerId", "first name"},
+                new int[]{Types.INTEGER, Types.BIGINT, Types.VARCHAR})
+                .addRow(1, 10L, "Ann")
+                .addRow(2, 20L, null)
+                .addRow(3, null, "Cy");
+    }
+
+    @Test
+    public void testHandleReadsMetaDataOnce() throws Exception {
+        FakeResultSet fake = makeResultSet();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        RowHandler handler = new RowHandler(new CallbackRowWriter(rows::add));
+
+        assertEquals(3, handler.handle(fake.build()));
+        assertEquals(1, fake.getMetaDataCalls());
+        assertEquals(3, rows.size());
+        assertEquals(Arrays.asList("zeta", "CustomerId", "first name"), new ArrayList<>(rows.get(0).keySet()));
+        assertEquals(20L, rows.get(1).get("CustomerId"));
+        assertEquals(null, rows.get(1).get("first name"));
+    }
+
+    @Test
+    public void testCallbackRowsIgnoreKeyCase() throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        RowHandler handler = new RowHandler(new CallbackRowWriter(rows::add));
+
+        handler.handle(makeResultSet().build());
+        Map<String, Object> row = rows.get(1);
+        assertEquals(20L, row.get("customerid"));
+        assertEquals(20L, row.get("CUSTOMERID"));
+        assertTrue(row.containsKey("ZETA"));
+        assertEquals(Arrays.asList("zeta", "CustomerId", "first name"), new ArrayList<>(row.keySet()));
+    }
+
+    @Test
+    public void testHandleTransformsKeysInColumnOrder() throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        RowHandler handler = new RowHandler(
+                new CallbackRowWriter(rows::add), -1, new FormattingParams(KeyCaseFormat.SNAKE_CASE));
+
+        handler.handle(makeResultSet().build());
+        assertEquals(Arrays.asList("zeta", "customer_id", "first_name"), new ArrayList<>(rows.get(0).keySet()));
+        assertEquals("Cy", rows.get(2).get("first_name"));
+    }
+}